@@ -7,9 +7,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.shareit.booking.dto.BookingBatchDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.client.BaseClient;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Map;
 
 @Service
@@ -26,8 +29,8 @@ public class BookingClient extends BaseClient {
         );
     }
 
-    public ResponseEntity<Object> createBooking(BookingCreateDto bookingCreateDto, Long userId) {
-        return post("", userId, bookingCreateDto);
+    public ResponseEntity<Object> createBooking(BookingCreateDto bookingCreateDto, Long userId, String idempotencyKey) {
+        return postIdempotent("", userId, idempotencyKey, bookingCreateDto);
     }
 
     public ResponseEntity<Object> resolveBooking(Long bookingId, Long userId, Boolean approved) {
@@ -37,6 +40,13 @@ public class BookingClient extends BaseClient {
         return patch("/" + bookingId + "?approved={approved}", userId, parameters);
     }
 
+    public ResponseEntity<Object> resolveBookings(BookingBatchDto bookingBatchDto, Long userId, Boolean approved) {
+        Map<String, Object> parameters = Map.of(
+                "approved", approved
+        );
+        return patch("/batch?approved={approved}", userId, parameters, bookingBatchDto);
+    }
+
     public ResponseEntity<Object> getBookingDetailInfoById(Long bookingId, Long userId) {
         return get("/" + bookingId, userId);
     }
@@ -58,4 +68,37 @@ public class BookingClient extends BaseClient {
         );
         return get("/owner?state={stateStr}&from={from}&size={size}", ownerId, parameters);
     }
+
+    //страница по курсору: в ответе брони и курсор следующей страницы (next)
+    public ResponseEntity<Object> getBookingsPageByUserIdAndState(Long userId, String stateStr, String cursor, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "stateStr", stateStr,
+                "cursor", cursor,
+                "size", size
+        );
+        return get("?state={stateStr}&cursor={cursor}&size={size}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> getBookingsPageByOwnerIdAndState(Long ownerId, String stateStr, String cursor, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "stateStr", stateStr,
+                "cursor", cursor,
+                "size", size
+        );
+        return get("/owner?state={stateStr}&cursor={cursor}&size={size}", ownerId, parameters);
+    }
+
+    //выгрузка всей истории броней владельца (NDJSON) передается клиенту без буферизации
+    public void exportAllBookingsByOwnerId(Long ownerId, HttpServletResponse response) throws IOException {
+        stream("/owner/export", ownerId, response);
+    }
+
+    //потоковые списки без страниц: тело ответа сервера передается клиенту без буферизации
+    public void streamAllBookingsByUserIdAndState(Long userId, String stateStr, HttpServletResponse response) throws IOException {
+        stream("?state={stateStr}&stream=true", userId, Map.of("stateStr", stateStr), response);
+    }
+
+    public void streamAllBookingsByOwnerIdAndState(Long ownerId, String stateStr, HttpServletResponse response) throws IOException {
+        stream("/owner?state={stateStr}&stream=true", ownerId, Map.of("stateStr", stateStr), response);
+    }
 }
@@ -4,12 +4,17 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.dto.BookingBatchDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.common.Create;
 import ru.practicum.shareit.common.StartDateBeforeEndDateValidator;
+import ru.practicum.shareit.common.Update;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
 
 @RestController
 @RequestMapping(path = "/bookings")
@@ -21,9 +26,10 @@ public class BookingController {
 
     @PostMapping
     ResponseEntity<Object> createBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                         @RequestHeader(name = BaseClient.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                          @Validated(Create.class) @RequestBody BookingCreateDto bookingCreateDto) {
         StartDateBeforeEndDateValidator.validate(bookingCreateDto.getStart(), bookingCreateDto.getEnd());
-        return bookingClient.createBooking(bookingCreateDto, userId);
+        return bookingClient.createBooking(bookingCreateDto, userId, idempotencyKey);
     }
 
     @PatchMapping("/{bookingId}")
@@ -33,6 +39,13 @@ public class BookingController {
         return bookingClient.resolveBooking(bookingId, userId, approved);
     }
 
+    @PatchMapping("/batch")
+    ResponseEntity<Object> resolveBookings(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                           @Validated(Update.class) @RequestBody BookingBatchDto bookingBatchDto,
+                                           @RequestParam Boolean approved) {
+        return bookingClient.resolveBookings(bookingBatchDto, userId, approved);
+    }
+
     @GetMapping("/{bookingId}")
     ResponseEntity<Object> getBookingDetailInfoById(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                 @PathVariable Long bookingId) {
@@ -43,7 +56,11 @@ public class BookingController {
     ResponseEntity<Object> getAllBookingsByUserIdAndState(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                             @RequestParam(name = "state", defaultValue = "ALL") String stateStr,
                                                             @PositiveOrZero @RequestParam(name = "from", defaultValue = "0")  Integer from,
-                                                            @Positive @RequestParam(name = "size", defaultValue = "10")  Integer size) {
+                                                            @Positive @RequestParam(name = "size", defaultValue = "10")  Integer size,
+                                                            @RequestParam(name = "cursor", required = false) String cursor) {
+        if (cursor != null) {
+            return bookingClient.getBookingsPageByUserIdAndState(userId, stateStr, cursor, size);
+        }
         return bookingClient.getAllBookingsByUserIdAndState(userId, stateStr, from, size);
     }
 
@@ -51,7 +68,34 @@ public class BookingController {
     ResponseEntity<Object> getAllBookingsByOwnerIdAndState(@RequestHeader("X-Sharer-User-Id") Long ownerId,
                                                              @RequestParam(name = "state", defaultValue = "ALL") String stateStr,
                                                              @PositiveOrZero @RequestParam(name = "from", defaultValue = "0")  Integer from,
-                                                             @Positive @RequestParam(name = "size", defaultValue = "10")  Integer size) {
+                                                             @Positive @RequestParam(name = "size", defaultValue = "10")  Integer size,
+                                                             @RequestParam(name = "cursor", required = false) String cursor) {
+        if (cursor != null) {
+            return bookingClient.getBookingsPageByOwnerIdAndState(ownerId, stateStr, cursor, size);
+        }
         return bookingClient.getAllBookingsByOwnerIdAndState(ownerId, stateStr, from, size);
     }
+
+    //весь список без страниц (stream=true): тело ответа сервера пишется прямо в ответ шлюза.
+    //Запрос с курсором - всегда постраничный, как и на сервере
+    @GetMapping(params = {"stream=true", "!cursor"})
+    void streamAllBookingsByUserIdAndState(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                           @RequestParam(name = "state", defaultValue = "ALL") String stateStr,
+                                           HttpServletResponse response) throws IOException {
+        bookingClient.streamAllBookingsByUserIdAndState(userId, stateStr, response);
+    }
+
+    @GetMapping(path = "/owner", params = {"stream=true", "!cursor"})
+    void streamAllBookingsByOwnerIdAndState(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                            @RequestParam(name = "state", defaultValue = "ALL") String stateStr,
+                                            HttpServletResponse response) throws IOException {
+        bookingClient.streamAllBookingsByOwnerIdAndState(ownerId, stateStr, response);
+    }
+
+    //тело ответа сервера пишется прямо в ответ шлюза, поэтому метод ничего не возвращает
+    @GetMapping("/owner/export")
+    void exportAllBookingsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                    HttpServletResponse response) throws IOException {
+        bookingClient.exportAllBookingsByOwnerId(ownerId, response);
+    }
 }
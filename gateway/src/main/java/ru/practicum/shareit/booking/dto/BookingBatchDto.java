@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.common.Update;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingBatchDto {
+
+    @NotEmpty(groups = Update.class, message = "Не указаны брони.")
+    @Size(max = 1000, groups = Update.class, message = "За один раз можно изменить не более 1000 броней.")
+    private List<@NotNull(groups = Update.class, message = "Не указан id брони.") Long> bookingIds;
+}
@@ -1,18 +1,24 @@
 package ru.practicum.shareit.client;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
 public class BaseClient {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     protected final RestTemplate rest;
 
     public BaseClient(RestTemplate rest) {
@@ -43,6 +49,12 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
+    //ключ идемпотентности клиента передается серверу: повтор запроса, ответ на который не дошел до клиента,
+    //сервер не выполняет заново, а возвращает сохраненный ответ
+    protected <T> ResponseEntity<Object> postIdempotent(String path, long userId, @Nullable String idempotencyKey, T body) {
+        return makeAndSendRequest(HttpMethod.POST, path, userId, null, idempotencyKey, body);
+    }
+
     protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
@@ -83,8 +95,49 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
+    //ответ сервера копируется в ответ шлюза по мере чтения, без сборки тела в памяти:
+    //так передаются выгрузки, размер которых не ограничен
+    protected void stream(String path, long userId, HttpServletResponse response) throws IOException {
+        stream(path, userId, Map.of(), response);
+    }
+
+    protected void stream(String path, @Nullable Long userId, Map<String, Object> parameters,
+                          HttpServletResponse response) throws IOException {
+        try {
+            rest.execute(path, HttpMethod.GET,
+                    (request) -> {
+                        request.getHeaders().setAccept(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+                        if (userId != null) {
+                            request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+                        }
+                    },
+                    (shareitServerResponse) -> {
+                        copyResponse(shareitServerResponse.getRawStatusCode(), shareitServerResponse.getHeaders(), response);
+                        StreamUtils.copy(shareitServerResponse.getBody(), response.getOutputStream());
+                        return null;
+                    },
+                    parameters);
+        } catch (HttpStatusCodeException e) {
+            copyResponse(e.getRawStatusCode(), e.getResponseHeaders(), response);
+            response.getOutputStream().write(e.getResponseBodyAsByteArray());
+        }
+    }
+
+    private static void copyResponse(int status, @Nullable HttpHeaders headers, HttpServletResponse response) {
+        response.setStatus(status);
+
+        if (headers != null && headers.getContentType() != null) {
+            response.setContentType(headers.getContentType().toString());
+        }
+    }
+
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+        return makeAndSendRequest(method, path, userId, parameters, null, body);
+    }
+
+    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters,
+                                                          @Nullable String idempotencyKey, @Nullable T body) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId, idempotencyKey));
 
         ResponseEntity<Object> shareitServerResponse;
         try {
@@ -99,13 +152,16 @@ public class BaseClient {
         return prepareGatewayResponse(shareitServerResponse);
     }
 
-    private HttpHeaders defaultHeaders(Long userId) {
+    private HttpHeaders defaultHeaders(Long userId, @Nullable String idempotencyKey) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
         return headers;
     }
 
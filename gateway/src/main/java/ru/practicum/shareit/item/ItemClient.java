@@ -9,8 +9,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
 @Service
@@ -27,8 +32,12 @@ public class ItemClient extends BaseClient {
         );
     }
 
-    public ResponseEntity<Object> createItem(ItemDto itemDto, Long userId) {
-        return post("", userId, itemDto);
+    public ResponseEntity<Object> createItem(ItemDto itemDto, Long userId, String idempotencyKey) {
+        return postIdempotent("", userId, idempotencyKey, itemDto);
+    }
+
+    public ResponseEntity<Object> createItems(ItemBatchDto itemBatchDto, Long userId) {
+        return post("/batch", userId, itemBatchDto);
     }
 
     public ResponseEntity<Object> updateItem(Long itemId, ItemDto itemDto, Long userId) {
@@ -39,6 +48,14 @@ public class ItemClient extends BaseClient {
         return get("/" + itemId, userId);
     }
 
+    public ResponseEntity<Object> getItemAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> parameters = Map.of(
+                "from", from.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                "to", to.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+        );
+        return get("/" + itemId + "/availability?from={from}&to={to}", userId, parameters);
+    }
+
     public ResponseEntity<Object> getAllItemsForUser(Long userId, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
@@ -59,4 +76,9 @@ public class ItemClient extends BaseClient {
     public ResponseEntity<Object> addNewCommentByItemId(Long itemId, CommentDto commentDto, Long userId) {
         return post("/" + itemId + "/comment", userId, commentDto);
     }
+
+    //потоковый список: тело ответа сервера передается клиенту без буферизации
+    public void streamAllItemsForUser(Long userId, HttpServletResponse response) throws IOException {
+        stream("?stream=true", userId, response);
+    }
 }
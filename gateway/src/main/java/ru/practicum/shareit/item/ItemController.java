@@ -1,16 +1,23 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.common.Create;
+import ru.practicum.shareit.common.StartDateBeforeEndDateValidator;
 import ru.practicum.shareit.common.Update;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/items")
@@ -22,8 +29,15 @@ public class ItemController {
 
     @PostMapping
     public ResponseEntity<Object> createItem(@Validated(Create.class) @RequestBody ItemDto itemDto,
-                                             @RequestHeader("X-Sharer-User-Id") Long userId) {
-        return itemClient.createItem(itemDto, userId);
+                                             @RequestHeader("X-Sharer-User-Id") Long userId,
+                                             @RequestHeader(name = BaseClient.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return itemClient.createItem(itemDto, userId, idempotencyKey);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createItems(@Validated(Create.class) @RequestBody ItemBatchDto itemBatchDto,
+                                              @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return itemClient.createItems(itemBatchDto, userId);
     }
 
     @PatchMapping("/{itemId}")
@@ -39,6 +53,15 @@ public class ItemController {
         return itemClient.getItemById(itemId, userId);
     }
 
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<Object> getItemAvailability(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                      @PathVariable Long itemId,
+                                                      @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                      @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        StartDateBeforeEndDateValidator.validate(from, to);
+        return itemClient.getItemAvailability(itemId, userId, from, to);
+    }
+
     @GetMapping
     public ResponseEntity<Object> getAllItemsForUserId(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                                      @PositiveOrZero @RequestParam(name = "from", defaultValue = "0")  Integer from,
@@ -46,6 +69,13 @@ public class ItemController {
         return itemClient.getAllItemsForUser(userId, from, size);
     }
 
+    //все вещи пользователя без страниц (stream=true): тело ответа сервера пишется прямо в ответ шлюза
+    @GetMapping(params = "stream=true")
+    public void streamAllItemsForUserId(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                        HttpServletResponse response) throws IOException {
+        itemClient.streamAllItemsForUser(userId, response);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Object> searchItemsWithText(@RequestHeader("X-Sharer-User-Id") Long userId,
                                              @RequestParam(name = "text") String text,
@@ -0,0 +1,24 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.common.Create;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemBatchDto {
+
+    @NotEmpty(groups = Create.class, message = "Не указаны вещи для создания.")
+    @Size(max = 1000, groups = Create.class, message = "За один раз можно создать не более 1000 вещей.")
+    private List<@NotNull(groups = Create.class, message = "Не указана вещь.") @Valid ItemDto> items;
+}
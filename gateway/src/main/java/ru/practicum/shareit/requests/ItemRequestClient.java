@@ -10,6 +10,8 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.requests.dto.ItemRequestDto;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Map;
 
 @Service
@@ -46,4 +48,13 @@ public class ItemRequestClient extends BaseClient {
     public ResponseEntity<Object> getItemRequestById(Long userId, Long requestId) {
         return get("/" + requestId, userId);
     }
+
+    //потоковые списки: тело ответа сервера передается клиенту без буферизации
+    public void streamItemRequestsByOwnerId(Long ownerId, HttpServletResponse response) throws IOException {
+        stream("?stream=true", ownerId, response);
+    }
+
+    public void streamAllItemRequests(Long userId, HttpServletResponse response) throws IOException {
+        stream("/all?stream=true", userId, response);
+    }
 }
@@ -7,8 +7,10 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.common.Create;
 import ru.practicum.shareit.requests.dto.ItemRequestDto;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
 
 @RestController
 @RequestMapping(path = "/requests")
@@ -36,6 +38,19 @@ public class ItemRequestController {
         return itemRequestClient.getAllItemRequests(userId, from, size);
     }
 
+    //списки без страниц (stream=true): тело ответа сервера пишется прямо в ответ шлюза
+    @GetMapping(params = "stream=true")
+    public void streamItemRequestsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                            HttpServletResponse response) throws IOException {
+        itemRequestClient.streamItemRequestsByOwnerId(ownerId, response);
+    }
+
+    @GetMapping(path = "/all", params = "stream=true")
+    public void streamAllItemRequests(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                      HttpServletResponse response) throws IOException {
+        itemRequestClient.streamAllItemRequests(userId, response);
+    }
+
     @GetMapping("/{requestId}")
     public ResponseEntity<Object> getItemRequestById(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                          @PathVariable Long requestId) {
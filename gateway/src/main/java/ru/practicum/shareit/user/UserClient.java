@@ -10,6 +10,10 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
 @Service
 public class UserClient extends BaseClient {
 
@@ -44,4 +48,9 @@ public class UserClient extends BaseClient {
     public ResponseEntity<Object> deleteUserById(Long userId) {
         return delete("/" + userId);
     }
+
+    //потоковый список: тело ответа сервера передается клиенту без буферизации
+    public void streamAllUsers(HttpServletResponse response) throws IOException {
+        stream("?stream=true", null, Map.of(), response);
+    }
 }
@@ -8,6 +8,9 @@ import ru.practicum.shareit.common.Create;
 import ru.practicum.shareit.common.Update;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 @RestController
 @RequestMapping(path = "/users")
 @RequiredArgsConstructor
@@ -36,6 +39,12 @@ public class UserController {
         return userClient.getAllUsers();
     }
 
+    //тело ответа сервера пишется прямо в ответ шлюза
+    @GetMapping(params = "stream=true")
+    public void streamAllUsers(HttpServletResponse response) throws IOException {
+        userClient.streamAllUsers(response);
+    }
+
     @DeleteMapping("/{userId}")
     public ResponseEntity<Object> deleteUserById(@PathVariable Long userId) {
         return userClient.deleteUserById(userId);
@@ -10,14 +10,21 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingBatchDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import javax.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -60,7 +67,7 @@ class BookingControllerTest {
 
     @Test
     void getBadResponsesCreateBooking() throws Exception {
-        when(bookingClient.createBooking(any(BookingCreateDto.class), any(Long.class)))
+        when(bookingClient.createBooking(any(BookingCreateDto.class), any(Long.class), any()))
                 .thenReturn(new ResponseEntity<>(bookingCreateDto, HttpStatus.OK));
 
         mockMvc.perform(post("/bookings")
@@ -71,6 +78,127 @@ class BookingControllerTest {
                         .header(headerName, userId))
                 .andExpect(status().isBadRequest());
 
-        verify(bookingClient, times(0)).createBooking(any(BookingCreateDto.class), any(Long.class));
+        verify(bookingClient, times(0)).createBooking(any(BookingCreateDto.class), any(Long.class), any());
     }
-}
\ No newline at end of file
+
+    //ключ идемпотентности клиента передается серверу вместе с запросом
+    @Test
+    void getSuccessCreateBookingWithIdempotencyKey() throws Exception {
+        String idempotencyKey = "6f1c2a9e-3b7d-4e58-9a0f-1d2c3b4a5e6f";
+
+        when(bookingClient.createBooking(any(BookingCreateDto.class), any(Long.class), any()))
+                .thenReturn(new ResponseEntity<>(bookingCreateDto, HttpStatus.OK));
+
+        mockMvc.perform(post("/bookings")
+                        .content(mapper.writeValueAsString(bookingCreateDto))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId)
+                        .header(BaseClient.IDEMPOTENCY_KEY_HEADER, idempotencyKey))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1)).createBooking(any(BookingCreateDto.class), eq(userId), eq(idempotencyKey));
+    }
+
+    @Test
+    void getBookingsPageByCursor() throws Exception {
+        when(bookingClient.getBookingsPageByOwnerIdAndState(any(Long.class), any(String.class), any(String.class), any(Integer.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .param("state", "ALL")
+                        .param("cursor", "MjAzMC0wMS0xMFQxMjowMHw1")
+                        .param("size", "2")
+                        .header(headerName, userId))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1)).getBookingsPageByOwnerIdAndState(userId, "ALL", "MjAzMC0wMS0xMFQxMjowMHw1", 2);
+        verify(bookingClient, times(0)).getAllBookingsByOwnerIdAndState(any(Long.class), any(String.class), any(Integer.class), any(Integer.class));
+    }
+
+    @Test
+    void getFirstBookingsPageByEmptyCursor() throws Exception {
+        when(bookingClient.getBookingsPageByUserIdAndState(any(Long.class), any(String.class), any(String.class), any(Integer.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        mockMvc.perform(get("/bookings")
+                        .param("cursor", "")
+                        .header(headerName, userId))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1)).getBookingsPageByUserIdAndState(userId, "ALL", "", 10);
+    }
+
+    //курсор и stream=true вместе: запрос однозначно постраничный
+    @Test
+    void getBookingsPageWhenCursorAndStreamRequested() throws Exception {
+        when(bookingClient.getBookingsPageByUserIdAndState(any(Long.class), any(String.class), any(String.class), any(Integer.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        mockMvc.perform(get("/bookings")
+                        .param("cursor", "")
+                        .param("stream", "true")
+                        .header(headerName, userId))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1)).getBookingsPageByUserIdAndState(userId, "ALL", "", 10);
+        verify(bookingClient, times(0)).streamAllBookingsByUserIdAndState(any(Long.class), any(String.class),
+                any(HttpServletResponse.class));
+    }
+
+    @Test
+    void getSuccessOnResolveBookingsBatch() throws Exception {
+        when(bookingClient.resolveBookings(any(BookingBatchDto.class), any(Long.class), any(Boolean.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .content(mapper.writeValueAsString(new BookingBatchDto(List.of(1L, 2L))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("approved", "true")
+                        .header(headerName, userId))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1)).resolveBookings(any(BookingBatchDto.class), eq(userId), eq(Boolean.TRUE));
+        verify(bookingClient, times(0)).resolveBooking(any(Long.class), any(Long.class), any(Boolean.class));
+    }
+
+    @Test
+    void getBadResponseOnResolveEmptyBookingsBatch() throws Exception {
+        mockMvc.perform(patch("/bookings/batch")
+                        .content(mapper.writeValueAsString(new BookingBatchDto(Collections.emptyList())))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("approved", "true")
+                        .header(headerName, userId))
+                .andExpect(status().isBadRequest());
+
+        verify(bookingClient, times(0)).resolveBookings(any(BookingBatchDto.class), any(Long.class), any(Boolean.class));
+    }
+
+    @Test
+    void getBadResponseOnResolveBookingsBatchWithNullId() throws Exception {
+        mockMvc.perform(patch("/bookings/batch")
+                        .content(mapper.writeValueAsString(new BookingBatchDto(Arrays.asList(1L, null))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("approved", "true")
+                        .header(headerName, userId))
+                .andExpect(status().isBadRequest());
+
+        verify(bookingClient, times(0)).resolveBookings(any(BookingBatchDto.class), any(Long.class), any(Boolean.class));
+    }
+
+    @Test
+    void getSuccessExportAllBookingsByOwnerId() throws Exception {
+        mockMvc.perform(get("/bookings/owner/export")
+                        .header(headerName, userId))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1)).exportAllBookingsByOwnerId(eq(userId), any(HttpServletResponse.class));
+    }
+}
@@ -11,13 +11,18 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import javax.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -99,7 +104,7 @@ class ItemControllerTest {
 
     @Test
     void getBadResponseOnCreateItemWhenInvalidItemDesc() throws Exception {
-        when(itemClient.createItem(any(ItemDto.class), any(Long.class)))
+        when(itemClient.createItem(any(ItemDto.class), any(Long.class), any()))
                 .thenReturn(new ResponseEntity<>(itemDto, HttpStatus.OK));
 
         mockMvc.perform(post("/items")
@@ -111,12 +116,12 @@ class ItemControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Не указано описание вещи."));
 
-        verify(itemClient, times(0)).createItem(any(ItemDto.class), any(Long.class));
+        verify(itemClient, times(0)).createItem(any(ItemDto.class), any(Long.class), any());
     }
 
     @Test
     void getBadResponseOnCreateItemWhenInvalidItemName() throws Exception {
-        when(itemClient.createItem(any(ItemDto.class), any(Long.class)))
+        when(itemClient.createItem(any(ItemDto.class), any(Long.class), any()))
                 .thenReturn(new ResponseEntity<>(itemDto, HttpStatus.OK));
 
         mockMvc.perform(post("/items")
@@ -128,6 +133,106 @@ class ItemControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Не указано название вещи."));
 
-        verify(itemClient, times(0)).createItem(any(ItemDto.class), any(Long.class));
+        verify(itemClient, times(0)).createItem(any(ItemDto.class), any(Long.class), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getSuccessOnCreateItemsBatch() throws Exception {
+        when(itemClient.createItems(any(ItemBatchDto.class), any(Long.class)))
+                .thenReturn(new ResponseEntity<>(List.of(itemDto), HttpStatus.OK));
+
+        mockMvc.perform(post("/items/batch")
+                        .content(mapper.writeValueAsString(new ItemBatchDto(List.of(itemDto))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(itemDto.getId()));
+
+        verify(itemClient, times(1)).createItems(any(ItemBatchDto.class), any(Long.class));
+    }
+
+    @Test
+    void getBadResponseOnCreateItemsBatchWhenOneItemInvalid() throws Exception {
+        when(itemClient.createItems(any(ItemBatchDto.class), any(Long.class)))
+                .thenReturn(new ResponseEntity<>(List.of(itemDto), HttpStatus.OK));
+
+        mockMvc.perform(post("/items/batch")
+                        .content(mapper.writeValueAsString(new ItemBatchDto(List.of(itemDto, itemDto2))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Не указано название вещи."));
+
+        verify(itemClient, times(0)).createItems(any(ItemBatchDto.class), any(Long.class));
+    }
+
+    @Test
+    void getBadResponseOnCreateItemsBatchWithNullItem() throws Exception {
+        mockMvc.perform(post("/items/batch")
+                        .content("{\"items\":[null]}")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Не указана вещь."));
+
+        verify(itemClient, times(0)).createItems(any(ItemBatchDto.class), any(Long.class));
+    }
+
+    @Test
+    void getBadResponseOnCreateEmptyItemsBatch() throws Exception {
+        mockMvc.perform(post("/items/batch")
+                        .content(mapper.writeValueAsString(new ItemBatchDto(Collections.emptyList())))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Не указаны вещи для создания."));
+
+        verify(itemClient, times(0)).createItems(any(ItemBatchDto.class), any(Long.class));
+    }
+
+    @Test
+    void getSuccessOnItemAvailability() throws Exception {
+        when(itemClient.getItemAvailability(any(Long.class), any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        mockMvc.perform(get("/items/1/availability")
+                        .header(headerName, userId)
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-01-08T00:00:00"))
+                .andExpect(status().isOk());
+
+        verify(itemClient, times(1)).getItemAvailability(1L, 1L,
+                LocalDateTime.of(2030, 1, 1, 0, 0), LocalDateTime.of(2030, 1, 8, 0, 0));
+    }
+
+    @Test
+    void getBadResponseOnItemAvailabilityWhenToBeforeFrom() throws Exception {
+        mockMvc.perform(get("/items/1/availability")
+                        .header(headerName, userId)
+                        .param("from", "2030-01-08T00:00:00")
+                        .param("to", "2030-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+
+        verify(itemClient, times(0)).getItemAvailability(any(Long.class), any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    //stream=true: from и size не проверяются и не передаются серверу
+    @Test
+    void getSuccessStreamAllItemsForUserId() throws Exception {
+        mockMvc.perform(get("/items")
+                        .param("stream", "true")
+                        .param("from", "-1")
+                        .header(headerName, userId))
+                .andExpect(status().isOk());
+
+        verify(itemClient, times(1)).streamAllItemsForUser(eq(userId), any(HttpServletResponse.class));
+    }
+}
@@ -12,7 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.user.dto.UserDto;
 
-
+import javax.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
@@ -178,4 +178,14 @@ class UserControllerTest {
 
         verify(userClient, times(1)).deleteUserById(any(Long.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getSuccessStreamAllUsers() throws Exception {
+        mockMvc.perform(get("/users")
+                        .param("stream", "true"))
+                .andExpect(status().isOk());
+
+        verify(userClient, times(1)).streamAllUsers(any(HttpServletResponse.class));
+        verify(userClient, times(0)).getAllUsers();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking;
+
+//результат подтверждения или отклонения одной брони в пакетном запросе владельца
+public enum BookingBatchResult {
+    RESOLVED,
+    NOT_FOUND,
+    FORBIDDEN,
+    SAME_STATUS,
+    //подтверждение не выполнено: период брони уже занят другой бронью вещи
+    OVERLAP
+}
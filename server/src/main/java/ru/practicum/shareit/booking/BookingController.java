@@ -1,11 +1,18 @@
 package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
 import ru.practicum.shareit.booking.dto.BookingItemOwnerDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.common.idempotency.IdempotentRequests;
 import java.util.List;
 
 @RestController
@@ -14,11 +21,15 @@ import java.util.List;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final IdempotentRequests idempotentRequests;
 
+    //повтор с тем же Idempotency-Key получает сохраненный ответ, бронь второй раз не создается
     @PostMapping
     BookingCreateDto createBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                   @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey,
                                    @RequestBody BookingCreateDto bookingCreateDto) {
-        return bookingService.createBooking(bookingCreateDto, userId);
+        return idempotentRequests.execute(userId, idempotencyKey, "POST /bookings", bookingCreateDto,
+                BookingCreateDto.class, () -> bookingService.createBooking(bookingCreateDto, userId));
     }
 
     @PatchMapping("/{bookingId}")
@@ -28,6 +39,14 @@ public class BookingController {
         return bookingService.resolveBooking(bookingId, userId, approved);
     }
 
+    //подтверждение или отклонение сразу нескольких броней владельцем, результат - по каждой брони
+    @PatchMapping("/batch")
+    List<BookingBatchResultDto> resolveBookings(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                @RequestBody BookingBatchDto bookingBatchDto,
+                                                @RequestParam Boolean approved) {
+        return bookingService.resolveBookings(bookingBatchDto.getBookingIds(), userId, approved);
+    }
+
     @GetMapping("/{bookingId}")
     BookingFullInfoDto getBookingDetailInfoById(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                 @PathVariable Long bookingId) {
@@ -49,4 +68,47 @@ public class BookingController {
                                                              @RequestParam(name = "size", defaultValue = "10")  Integer size) {
         return bookingService.getAllBookingsByOwnerIdAndState(ownerId, stateStr, from, size);
     }
+
+    //постраничный вывод по курсору: включается параметром cursor, пустой курсор - первая страница
+    @GetMapping(params = "cursor")
+    BookingPageDto getBookingsPageByUserIdAndState(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                   @RequestParam(name = "state", defaultValue = "ALL") String stateStr,
+                                                   @RequestParam(name = "cursor") String cursor,
+                                                   @RequestParam(name = "size", defaultValue = "10")  Integer size) {
+        return bookingService.getBookingsPageByUserIdAndState(userId, stateStr, cursor, size);
+    }
+
+    //весь список без страниц (stream=true): ответ пишется частями по мере чтения из БД.
+    //Запрос с курсором - всегда постраничный, иначе при обоих параметрах подходили бы два метода
+    @GetMapping(params = {"stream=true", "!cursor"})
+    ResponseEntity<StreamingResponseBody> streamAllBookingsByUserIdAndState(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                            @RequestParam(name = "state", defaultValue = "ALL") String stateStr) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(bookingService.streamAllBookingsByUserIdAndState(userId, stateStr));
+    }
+
+    @GetMapping(path = "/owner", params = {"stream=true", "!cursor"})
+    ResponseEntity<StreamingResponseBody> streamAllBookingsByOwnerIdAndState(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                                             @RequestParam(name = "state", defaultValue = "ALL") String stateStr) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(bookingService.streamAllBookingsByOwnerIdAndState(ownerId, stateStr));
+    }
+
+    @GetMapping(path = "/owner", params = "cursor")
+    BookingPageDto getBookingsPageByOwnerIdAndState(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                    @RequestParam(name = "state", defaultValue = "ALL") String stateStr,
+                                                    @RequestParam(name = "cursor") String cursor,
+                                                    @RequestParam(name = "size", defaultValue = "10")  Integer size) {
+        return bookingService.getBookingsPageByOwnerIdAndState(ownerId, stateStr, cursor, size);
+    }
+
+    //вся история броней вещей владельца построчно (NDJSON) - без страниц, тело пишется по мере чтения из БД
+    @GetMapping("/owner/export")
+    ResponseEntity<StreamingResponseBody> exportAllBookingsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookingService.exportAllBookingsByOwnerId(ownerId));
+    }
 }
@@ -1,32 +1,118 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.dto.BookingResolveInfoDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.booking.dto.ItemBookingCandidateDto;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    List<Booking> findAllByBooker_Id(Long userId, PageRequest pageRequest);
+    //бронь для подтверждения и просмотра: сервис отдает вещь и автора брони целиком,
+    //поэтому они выбираются тем же запросом, а владелец и запрос вещи остаются ленивыми
+    @Override
+    @EntityGraph(attributePaths = {"item", "booker"})
+    Optional<Booking> findById(Long id);
 
-    List<Booking> findAllByBooker_IdAndStartBeforeAndEndAfter(Long userId, LocalDateTime dateStart, LocalDateTime dateEnd, PageRequest pageRequest);
+    List<Booking> findBookingByBooker_IdAndItem_IdAndEndBefore(Long userId, Long itemId, LocalDateTime dateEnd);
 
-    List<Booking> findAllByBooker_IdAndStartAfter(Long userId, LocalDateTime dateStart, PageRequest pageRequest);
+    //последняя завершенная, текущая и ближайшая будущая бронь сразу для набора вещей - одним проходом:
+    //брони вещей делятся по роли, и в каждой группе (вещь, роль) ROW_NUMBER оставляет одну бронь -
+    //с самой поздней датой окончания, с наименьшим id или с самой ранней датой начала; при равенстве - с наименьшим id
+    @Query(value = "select c.booking_id as \"id\", c.start_date as \"startDate\", c.end_date as \"endDate\", " +
+            "c.item_id as \"itemId\", c.booker_id as \"bookerId\", c.kind as \"kind\" " +
+            "from (select k.*, row_number() over (partition by k.item_id, k.kind order by " +
+            "case when k.kind = 'LAST' then k.end_date end desc, " +
+            "case when k.kind = 'NEXT' then k.start_date end, " +
+            "k.booking_id) as rn " +
+            "from (select b.booking_id, b.start_date, b.end_date, b.item_id, b.booker_id, " +
+            "case when b.status in (?2) and b.end_date < ?3 then 'LAST' " +
+            "when b.start_date < ?3 and b.end_date > ?3 then 'CURRENT' " +
+            "when b.start_date > ?3 then 'NEXT' end as kind " +
+            "from bookings b " +
+            "where b.item_id in (?1)) k " +
+            "where k.kind is not null) c " +
+            "where c.rn = 1",
+            nativeQuery = true)
+    List<ItemBookingCandidateDto> findLastCurrentAndNextBookingsByItemIds(Collection<Long> itemIds,
+                                                                         Collection<String> lastStatuses,
+                                                                         LocalDateTime now);
 
-    List<Booking> findAllByBooker_IdAndStatus(Long userId, BookingStatus status, PageRequest pageRequest);
+    //кандидаты в последнюю (завершенная или текущая) и следующую бронь одной вещи одним запросом
+    @Query("select new ru.practicum.shareit.booking.dto.BookingShortDto(b.id, b.start, b.end, b.item.id, b.booker.id) " +
+            "from Booking b " +
+            "where b.item.id = ?1 and (" +
+            "(b.status in ?2 and b.end < ?3 and b.end = (select max(lb.end) from Booking lb " +
+            "where lb.item.id = ?1 and lb.status in ?2 and lb.end < ?3)) " +
+            "or (b.start < ?3 and b.end > ?3) " +
+            "or (b.start > ?3 and b.start = (select min(nb.start) from Booking nb " +
+            "where nb.item.id = ?1 and nb.start > ?3))) " +
+            "order by b.id")
+    List<BookingShortDto> findLastCurrentAndNextBookingsByItemId(Long itemId, List<BookingStatus> statuses, LocalDateTime now);
 
-    List<Booking> findAllByBooker_IdAndStatusInAndEndBefore(Long userId, List<BookingStatus> statuses, LocalDateTime endTime, PageRequest pageRequest);
+    //брони для построения индекса интервалов - порциями по возрастанию id
+    @Query("select new ru.practicum.shareit.booking.dto.BookingShortDto(b.id, b.start, b.end, b.item.id, b.booker.id) " +
+            "from Booking b " +
+            "where b.id > ?1 and b.status in ?2 and b.end is not null " +
+            "order by b.id")
+    List<BookingShortDto> findBookingsForIntervalIndex(Long afterId, List<BookingStatus> statuses, PageRequest pageRequest);
 
-    List<Booking> findAllByItem_IdIn(List<Long> itemIds, PageRequest pageRequest);
+    //брони вещи, пересекающие период (from, to), по возрастанию даты начала
+    @Query("select new ru.practicum.shareit.booking.dto.BookingShortDto(b.id, b.start, b.end, b.item.id, b.booker.id) " +
+            "from Booking b " +
+            "where b.item.id = ?1 and b.status in ?2 and b.start < ?4 and b.end > ?3 " +
+            "order by b.start, b.id")
+    List<BookingShortDto> findItemBookingsInPeriod(Long itemId, List<BookingStatus> statuses, LocalDateTime from, LocalDateTime to);
 
-    List<Booking> findAllByItem_IdInAndStartBeforeAndEndAfter(List<Long> itemIds, LocalDateTime dateStart, LocalDateTime dateEnd, PageRequest pageRequest);
+    //есть ли у вещи бронь в статусах statuses, пересекающая период (start, end)
+    @Query("select case when count(b) > 0 then true else false end " +
+            "from Booking b " +
+            "where b.item.id = ?1 and b.status in ?2 and b.start < ?4 and b.end > ?3")
+    boolean existsItemBookingInPeriod(Long itemId, List<BookingStatus> statuses, LocalDateTime start, LocalDateTime end);
 
-    List<Booking> findAllByItem_IdInAndStartAfter(List<Long> itemIds, LocalDateTime dateStart, PageRequest pageRequest);
+    //владельцы и статусы сразу для набора броней - проверка прав в пакетном подтверждении одним запросом
+    @Query("select new ru.practicum.shareit.booking.dto.BookingResolveInfoDto(b.id, i.id, i.owner.id, b.status, b.start, b.end) " +
+            "from Booking b join b.item i " +
+            "where b.id in ?1")
+    List<BookingResolveInfoDto> findResolveInfoByIds(Collection<Long> bookingIds);
 
-    List<Booking> findAllByItem_IdInAndStatusIn(List<Long> itemIds, List<BookingStatus> statuses, PageRequest pageRequest);
+    //брони набора, статус которых изменится, - со строками, заблокированными до конца транзакции:
+    //одновременная смена статуса тех же броней ждет фиксации, поэтому изменятся ровно эти брони
+    @Query(value = "select b.booking_id from bookings b " +
+            "where b.booking_id in (?1) and b.status <> ?2 " +
+            "order by b.booking_id " +
+            "for update",
+            nativeQuery = true)
+    List<Long> lockIdsWithOtherStatus(Collection<Long> bookingIds, String status);
 
-    List<Booking> findAllByItem_IdInAndStatusInAndEndBefore(List<Long> itemIds, List<BookingStatus> statuses, LocalDateTime dateEnd, PageRequest pageRequest);
+    //смена статуса набора броней одним запросом; брони, уже имеющие этот статус, не меняются
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Booking b set b.status = ?2 where b.id in ?1 and b.status <> ?2")
+    int updateStatuses(Collection<Long> bookingIds, BookingStatus status);
 
-    List<Booking> findBookingByBooker_IdAndItem_IdAndEndBefore(Long userId, Long itemId, LocalDateTime dateEnd);
+    //смена статуса брони владельцем ее вещи: чтение и проверка заменены условиями самого UPDATE.
+    //Если бронь не найдена, принадлежит чужой вещи или уже имеет этот статус, строк изменится 0
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Booking b set b.status = ?3 where b.id = ?1 and b.status <> ?3 " +
+            "and b.item.id in (select i.id from Item i where i.owner.id = ?2)")
+    int updateStatusByOwner(Long bookingId, Long ownerId, BookingStatus status);
+
+    //id завершенных раньше endBefore броней в статусах statuses - очередная пачка для переноса в архив.
+    //Строки заблокированы до конца транзакции: пока бронь копируется и удаляется, ее статус не изменится.
+    //Брони, заблокированные другой транзакцией (смена статуса, другой экземпляр сервера), пропускаются
+    @Query(value = "select b.booking_id from bookings b " +
+            "where b.status in (?1) and b.end_date < ?2 " +
+            "order by b.booking_id " +
+            "limit ?3 " +
+            "for update skip locked",
+            nativeQuery = true)
+    List<Long> lockIdsToArchive(Collection<String> statuses, LocalDateTime endBefore, int limit);
 }
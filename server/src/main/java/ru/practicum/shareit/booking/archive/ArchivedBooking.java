@@ -0,0 +1,44 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+//завершенная отклоненная или отмененная бронь, перенесенная из bookings в архив (bookings_archive).
+//id брони сохраняется, вещь и автор - только id: в списках броней архивную бронь показывает строка booking_view
+@Entity
+@Table(name = "bookings_archive")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArchivedBooking {
+
+    @Id
+    @Column(name = "booking_id")
+    private Long id;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDateTime start;
+
+    @Column(name = "end_date")
+    private LocalDateTime end;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(name = "booker_id")
+    private Long bookerId;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status;
+
+    @Column(name = "archive_date", nullable = false)
+    private LocalDateTime archived;
+}
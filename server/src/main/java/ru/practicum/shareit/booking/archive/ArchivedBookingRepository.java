@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.archive;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    //копии набора броней из bookings одним запросом
+    @Modifying
+    @Query(value = "insert into bookings_archive " +
+            "(booking_id, start_date, end_date, item_id, booker_id, status, archive_date) " +
+            "select b.booking_id, b.start_date, b.end_date, b.item_id, b.booker_id, b.status, ?2 " +
+            "from bookings b " +
+            "where b.booking_id in (?1)",
+            nativeQuery = true)
+    int insertFromBookings(Collection<Long> bookingIds, LocalDateTime archived);
+
+    boolean existsByBookerIdAndItemIdAndEndBefore(Long bookerId, Long itemId, LocalDateTime dateEnd);
+}
@@ -0,0 +1,40 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//перенос завершенных броней в архив: копия в bookings_archive и удаление из bookings - в одной транзакции,
+//поэтому бронь не теряется и не оказывается в обеих таблицах. Строки броней пачки заблокированы до фиксации,
+//поэтому копируется и удаляется одно и то же состояние брони. Строка брони в booking_view остается
+@Component
+@RequiredArgsConstructor
+public class BookingArchive {
+
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+
+    //перенести не больше batchSize броней с этими статусами, закончившихся раньше endBefore, вернуть их число
+    @Transactional
+    public int moveBatch(Collection<BookingStatus> statuses, LocalDateTime endBefore, int batchSize) {
+        List<Long> bookingIds = bookingRepository.lockIdsToArchive(statuses.stream()
+                .map(BookingStatus::name)
+                .collect(Collectors.toList()), endBefore, batchSize);
+
+        if (bookingIds.isEmpty()) {
+            return 0;
+        }
+
+        archivedBookingRepository.insertFromBookings(bookingIds, LocalDateTime.now());
+        bookingRepository.deleteAllByIdInBatch(bookingIds);
+
+        return bookingIds.size();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Фоновый перенос в архив отклоненных и отмененных броней, закончившихся раньше срока хранения:
+//таблица bookings и ее индексы остаются размером с живые брони. Брони переносятся пачками,
+//каждая пачка - отдельная транзакция, чтобы не держать блокировки на все время переноса
+@Component
+@Slf4j
+public class BookingArchiver {
+
+    //брони, которые уже не могут занять вещь и не меняются
+    public static final List<BookingStatus> ARCHIVED_STATUSES = List.of(BookingStatus.REJECTED, BookingStatus.CANCELED);
+
+    private final BookingArchive bookingArchive;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int batchSize;
+
+    public BookingArchiver(BookingArchive bookingArchive,
+                           @Value("${shareit.booking.archive.enabled:false}") boolean enabled,
+                           @Value("${shareit.booking.archive.retention-days:365}") int retentionDays,
+                           @Value("${shareit.booking.archive.batch-size:1000}") int batchSize) {
+        this.bookingArchive = bookingArchive;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.archive.interval:3600000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            int moved = archiveEndedBefore(LocalDateTime.now().minusDays(retentionDays));
+
+            if (moved > 0) {
+                log.info("В архив перенесено броней: {}", moved);
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Не удалось перенести брони в архив, повтор при следующем запуске", exception);
+        }
+    }
+
+    //перенести все подходящие брони, закончившиеся раньше endBefore, вернуть их число
+    public int archiveEndedBefore(LocalDateTime endBefore) {
+        int moved = 0;
+        int batch;
+
+        do {
+            batch = bookingArchive.moveBatch(ARCHIVED_STATUSES, endBefore, batchSize);
+            moved += batch;
+        } while (batch == batchSize);
+
+        return moved;
+    }
+}
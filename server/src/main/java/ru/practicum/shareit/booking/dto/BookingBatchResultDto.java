@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.booking.BookingBatchResult;
+import ru.practicum.shareit.booking.BookingStatus;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingBatchResultDto {
+    private Long bookingId;
+    private BookingBatchResult result;
+
+    //статус брони после запроса; для чужих и ненайденных броней не заполняется
+    private BookingStatus status;
+}
@@ -21,4 +21,13 @@ public class BookingFullInfoDto {
     private BookingStatus status;
     private UserDto booker;
     private ItemDto item;
+
+    //строка списка броней из запроса к БД - без загрузки сущностей брони, вещи и пользователя
+    public BookingFullInfoDto(Long id, LocalDateTime start, LocalDateTime end, BookingStatus status,
+                              Long bookerId, String bookerName, String bookerEmail,
+                              Long itemId, String itemName, String itemDescription, Boolean itemAvailable, Long itemRequestId) {
+        this(id, start, end, status,
+                new UserDto(bookerId, bookerName, bookerEmail),
+                new ItemDto(itemId, itemName, itemDescription, itemAvailable, itemRequestId));
+    }
 }
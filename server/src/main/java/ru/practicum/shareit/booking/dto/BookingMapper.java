@@ -2,6 +2,7 @@ package ru.practicum.shareit.booking.dto;
 
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.view.BookingView;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.user.User;
@@ -49,4 +50,22 @@ public class BookingMapper {
             ItemMapper.toItemDto(booking.getItem())
         );
     }
+
+    //бронь, перенесенная в архив, - по ее строке в booking_view
+    public static BookingFullInfoDto toFullInfoBookingDto(BookingView bookingView) {
+        return new BookingFullInfoDto(
+            bookingView.getId(),
+            bookingView.getStart(),
+            bookingView.getEnd(),
+            bookingView.getStatus(),
+            bookingView.getBookerId(),
+            bookingView.getBookerName(),
+            bookingView.getBookerEmail(),
+            bookingView.getItemId(),
+            bookingView.getItemName(),
+            bookingView.getItemDescription(),
+            bookingView.getItemAvailable(),
+            bookingView.getRequestId()
+        );
+    }
 }
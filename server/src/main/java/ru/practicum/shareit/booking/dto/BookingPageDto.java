@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+//страница броней при постраничном выводе по курсору;
+//next - курсор следующей страницы, null - если это последняя страница
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingPageDto {
+    private List<BookingFullInfoDto> bookings;
+    private String next;
+}
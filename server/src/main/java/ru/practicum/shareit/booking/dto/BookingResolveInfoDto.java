@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import java.time.LocalDateTime;
+
+//то, что нужно для проверки и смены статуса брони владельцем: вещь с владельцем, статус и даты
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingResolveInfoDto {
+    private Long id;
+    private Long itemId;
+    private Long ownerId;
+    private BookingStatus status;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
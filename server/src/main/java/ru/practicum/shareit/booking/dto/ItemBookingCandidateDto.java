@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.dto;
+
+import java.time.LocalDateTime;
+
+//строка запроса BookingRepository.findLastCurrentAndNextBookingsByItemIds: бронь и ее роль для вещи -
+//LAST (последняя завершенная), CURRENT (текущая) или NEXT (ближайшая будущая)
+public interface ItemBookingCandidateDto {
+
+    String LAST = "LAST";
+    String CURRENT = "CURRENT";
+    String NEXT = "NEXT";
+
+    Long getId();
+
+    LocalDateTime getStartDate();
+
+    LocalDateTime getEndDate();
+
+    Long getItemId();
+
+    Long getBookerId();
+
+    String getKind();
+
+    default BookingShortDto toBookingShortDto() {
+        return new BookingShortDto(getId(), getStartDate(), getEndDate(), getItemId(), getBookerId());
+    }
+}
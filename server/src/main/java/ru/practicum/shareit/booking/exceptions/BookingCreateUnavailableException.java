@@ -0,0 +1,12 @@
+package ru.practicum.shareit.booking.exceptions;
+
+//групповая фиксация не может принять или вовремя обработать запрос на создание брони
+public class BookingCreateUnavailableException extends RuntimeException {
+    public BookingCreateUnavailableException(String message) {
+        super(message);
+    }
+
+    public BookingCreateUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
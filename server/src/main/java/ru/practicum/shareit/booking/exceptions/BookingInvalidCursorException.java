@@ -0,0 +1,7 @@
+package ru.practicum.shareit.booking.exceptions;
+
+public class BookingInvalidCursorException extends RuntimeException {
+    public BookingInvalidCursorException(String message) {
+        super(message);
+    }
+}
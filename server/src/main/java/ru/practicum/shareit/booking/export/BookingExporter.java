@@ -0,0 +1,54 @@
+package ru.practicum.shareit.booking.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+//Выгрузка броней в формате NDJSON: каждая бронь - отдельная строка JSON.
+//Строки читаются из БД курсором и сразу пишутся в ответ, поэтому память не зависит от числа броней.
+//Брони - это DTO из запроса, а не сущности, и контекст персистентности за время выгрузки не растет
+@Component
+@RequiredArgsConstructor
+public class BookingExporter {
+
+    private final BookingViewRepository bookingViewRepository;
+    private final ObjectMapper objectMapper;
+
+    //вся история броней вещей владельца (включая архивные), вернуть число выгруженных броней
+    @Transactional(readOnly = true)
+    public long writeOwnerBookings(Long ownerId, OutputStream outputStream) throws IOException {
+        //без сброса после каждой строки: в ответ уходят заполненные буферы генератора
+        ObjectWriter writer = objectMapper.writerFor(BookingFullInfoDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+
+        try (Stream<BookingFullInfoDto> bookings = bookingViewRepository.streamAllByOwnerId(ownerId);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+
+            //поток ответа закрывает контейнер, а между значениями нужен перевод строки, а не пробел
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<BookingFullInfoDto> iterator = bookings.iterator();
+
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,154 @@
+package ru.practicum.shareit.booking.interval;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+//Индекс интервалов броней в памяти: для каждой вещи - ожидающие подтверждения и подтвержденные брони.
+//Отвечает, занята ли вещь в данный момент, и какие брони пересекают период календаря, без запросов к БД.
+//Индекс хранит состояние одного экземпляра сервера, поэтому включать его можно,
+//только если брони создаются и подтверждаются через этот же экземпляр.
+@Component
+@Slf4j
+public class BookingIntervalIndex {
+
+    //брони, которые занимают вещь
+    public static final List<BookingStatus> BUSY_STATUSES = List.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private final BookingRepository bookingRepository;
+    private final boolean enabled;
+
+    private final Map<Long, ItemIntervals> intervals = new ConcurrentHashMap<>();
+
+    //брони, измененные через сервис, пока индекс строится: загрузка из БД их не перезаписывает
+    private final Set<Long> changedWhileBuilding = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean ready;
+
+    public BookingIntervalIndex(BookingRepository bookingRepository,
+                                @Value("${shareit.booking.index.enabled:false}") boolean enabled) {
+        this.bookingRepository = bookingRepository;
+        this.enabled = enabled;
+    }
+
+    //индекс можно использовать только после полной загрузки броней из БД
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+
+        long lastId = 0L;
+        int count = 0;
+        List<BookingShortDto> batch;
+
+        do {
+            batch = bookingRepository.findBookingsForIntervalIndex(lastId, BUSY_STATUSES, PageRequest.of(0, BUILD_BATCH_SIZE));
+
+            for (BookingShortDto booking : batch) {
+                intervals.compute(booking.getItemId(), (itemId, itemIntervals) -> {
+                    if (changedWhileBuilding.contains(booking.getId())) {
+                        return itemIntervals;
+                    }
+
+                    ItemIntervals current = itemIntervals == null ? ItemIntervals.EMPTY : itemIntervals;
+
+                    return current.with(booking.getId(), toMicros(booking.getStart()), toMicros(booking.getEnd()));
+                });
+            }
+
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+                count += batch.size();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+
+        ready = true;
+        changedWhileBuilding.clear();
+        log.info("Индекс интервалов броней построен: {} броней, {} вещей", count, intervals.size());
+    }
+
+    //добавить бронь после создания или изменения статуса; отклоненные и отмененные брони из индекса удаляются
+    public void index(Booking booking) {
+        index(booking.getId(), booking.getItem().getId(), booking.getStatus(), booking.getStart(), booking.getEnd());
+    }
+
+    //то же по полям брони - для броней, статус которых менялся запросом к БД без загрузки сущностей
+    public void index(Long bookingId, Long itemId, BookingStatus status, LocalDateTime start, LocalDateTime end) {
+        if (!enabled) {
+            return;
+        }
+
+        if (!ready) {
+            changedWhileBuilding.add(bookingId);
+        }
+
+        boolean busy = BUSY_STATUSES.contains(status) && end != null;
+
+        intervals.compute(itemId, (id, itemIntervals) -> {
+            ItemIntervals current = itemIntervals == null ? ItemIntervals.EMPTY : itemIntervals;
+            ItemIntervals updated = busy
+                    ? current.with(bookingId, toMicros(start), toMicros(end))
+                    : current.without(bookingId);
+
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    //есть ли у вещи бронь, которая началась раньше instant и заканчивается позже
+    public boolean isBusyAt(Long itemId, LocalDateTime instant) {
+        ItemIntervals itemIntervals = intervals.get(itemId);
+
+        return itemIntervals != null && itemIntervals.isBusyAt(toMicros(instant));
+    }
+
+    //есть ли у вещи бронь, пересекающая период (from, to)
+    public boolean hasBookingInPeriod(Long itemId, LocalDateTime from, LocalDateTime to) {
+        ItemIntervals itemIntervals = intervals.get(itemId);
+
+        return itemIntervals != null && itemIntervals.overlaps(toMicros(from), toMicros(to));
+    }
+
+    //брони вещи, пересекающие период (from, to), по возрастанию даты начала (без автора брони)
+    public List<BookingShortDto> findItemBookingsInPeriod(Long itemId, LocalDateTime from, LocalDateTime to) {
+        ItemIntervals itemIntervals = intervals.getOrDefault(itemId, ItemIntervals.EMPTY);
+
+        return itemIntervals.overlapping(toMicros(from), toMicros(to)).stream()
+                .map((interval) -> new BookingShortDto(interval[0], fromMicros(interval[1]), fromMicros(interval[2]), itemId, null))
+                .collect(Collectors.toList());
+    }
+
+    //даты броней без часового пояса, поэтому для перевода в число берется UTC - важен только порядок
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1_000,
+                ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.shareit.booking.interval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Неизменяемый набор интервалов броней одной вещи в отсортированных по началу массивах.
+//maxEnds[i] - наибольшее окончание среди первых i + 1 интервалов: массив не убывает,
+//поэтому интервалы, закончившиеся до нужного момента, пропускаются двоичным поиском.
+//Время хранится в микросекундах (см. BookingIntervalIndex.toMicros).
+class ItemIntervals {
+
+    static final ItemIntervals EMPTY = new ItemIntervals(new long[0], new long[0], new long[0]);
+
+    private final long[] ids;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    private ItemIntervals(long[] ids, long[] starts, long[] ends) {
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = new long[ends.length];
+
+        for (int i = 0; i < ends.length; i++) {
+            maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+    }
+
+    boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    //новый набор с добавленным (или перемещенным, если даты изменились) интервалом
+    ItemIntervals with(long id, long start, long end) {
+        ItemIntervals base = without(id);
+        int insertAt = base.countStartsBefore(start);
+
+        //при равных началах порядок - по id брони
+        while (insertAt < base.starts.length && base.starts[insertAt] == start && base.ids[insertAt] < id) {
+            insertAt++;
+        }
+
+        return new ItemIntervals(
+                insert(base.ids, insertAt, id),
+                insert(base.starts, insertAt, start),
+                insert(base.ends, insertAt, end));
+    }
+
+    //новый набор без интервала брони
+    ItemIntervals without(long id) {
+        int position = indexOf(id);
+
+        if (position < 0) {
+            return this;
+        }
+
+        return new ItemIntervals(remove(ids, position), remove(starts, position), remove(ends, position));
+    }
+
+    //есть ли интервал, для которого start < instant < end
+    boolean isBusyAt(long instant) {
+        int count = countStartsBefore(instant);
+
+        return count > 0 && maxEnds[count - 1] > instant;
+    }
+
+    //есть ли интервал, пересекающий (from, to): до firstEndingAfter(from) все интервалы закончились,
+    //а сам он заканчивается позже from, поэтому достаточно, чтобы он начинался раньше to
+    boolean overlaps(long from, long to) {
+        return firstEndingAfter(from) < countStartsBefore(to);
+    }
+
+    //интервалы, пересекающие (from, to), по возрастанию начала: {id, start, end}
+    List<long[]> overlapping(long from, long to) {
+        List<long[]> result = new ArrayList<>();
+        int last = countStartsBefore(to);
+
+        for (int i = firstEndingAfter(from); i < last; i++) {
+            if (ends[i] > from) {
+                result.add(new long[]{ids[i], starts[i], ends[i]});
+            }
+        }
+
+        return result;
+    }
+
+    //число интервалов с началом строго раньше instant
+    private int countStartsBefore(long instant) {
+        int low = 0;
+        int high = starts.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (starts[middle] < instant) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    //первый интервал, до которого (включительно) хоть одна бронь заканчивается позже instant
+    private int firstEndingAfter(long instant) {
+        int low = 0;
+        int high = maxEnds.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (maxEnds[middle] > instant) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return low;
+    }
+
+    private int indexOf(long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static long[] insert(long[] values, int position, long value) {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] values, int position) {
+        long[] result = Arrays.copyOf(values, values.length - 1);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return result;
+    }
+}
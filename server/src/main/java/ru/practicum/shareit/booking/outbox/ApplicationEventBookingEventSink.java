@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//события для получателей внутри приложения: достаточно метода с @EventListener и параметром BookingEventDto.
+//Слушатели вызываются синхронно в потоке пересылки, исключение слушателя приводит к повторной отправке пачки
+@Component
+@RequiredArgsConstructor
+public class ApplicationEventBookingEventSink implements BookingEventSink {
+
+    private final ApplicationEventPublisher publisher;
+
+    @Override
+    public void deliver(List<BookingEventDto> events) {
+        events.forEach(publisher::publishEvent);
+    }
+}
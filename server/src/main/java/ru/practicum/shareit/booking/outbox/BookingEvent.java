@@ -0,0 +1,52 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+//событие жизненного цикла брони в outbox: снимок брони на момент изменения, без связей с другими таблицами,
+//поэтому получателям не нужно обращаться к bookings
+@Entity
+@Table(name = "booking_events")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private Long id;
+
+    @Column(name = "event_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private BookingEventType type;
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(name = "booker_id")
+    private Long bookerId;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDateTime start;
+
+    @Column(name = "end_date")
+    private LocalDateTime end;
+
+    @Column(name = "creation_date", nullable = false)
+    private LocalDateTime created;
+}
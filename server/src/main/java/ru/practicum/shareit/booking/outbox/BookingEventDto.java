@@ -0,0 +1,25 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingEventDto {
+    private Long id;
+    private BookingEventType type;
+    private Long bookingId;
+    private Long itemId;
+    private Long bookerId;
+    private BookingStatus status;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private LocalDateTime created;
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.booking.outbox;
+
+import ru.practicum.shareit.booking.Booking;
+
+import java.time.LocalDateTime;
+
+public class BookingEventMapper {
+
+    public static BookingEvent toBookingEvent(Booking booking, BookingEventType type, LocalDateTime created) {
+        return new BookingEvent(
+            null,
+            type,
+            booking.getId(),
+            booking.getItem().getId(),
+            booking.getBooker() == null ? null : booking.getBooker().getId(),
+            booking.getStatus(),
+            booking.getStart(),
+            booking.getEnd(),
+            created
+        );
+    }
+
+    public static BookingEventDto toBookingEventDto(BookingEvent event) {
+        return new BookingEventDto(
+            event.getId(),
+            event.getType(),
+            event.getBookingId(),
+            event.getItemId(),
+            event.getBookerId(),
+            event.getStatus(),
+            event.getStart(),
+            event.getEnd(),
+            event.getCreated()
+        );
+    }
+}
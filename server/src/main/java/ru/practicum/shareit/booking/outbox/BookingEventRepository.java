@@ -0,0 +1,40 @@
+package ru.practicum.shareit.booking.outbox;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface BookingEventRepository extends JpaRepository<BookingEvent, Long> {
+
+    //очередная пачка событий в порядке записи - по первичному ключу
+    @Query("select e from BookingEvent e order by e.id")
+    List<BookingEvent> findNextBatch(PageRequest pageRequest);
+
+    //события о смене статуса набора броней одним запросом - снимки строк bookings, уже измененных в этой транзакции
+    @Modifying
+    @Query(value = "insert into booking_events " +
+            "(event_type, booking_id, item_id, booker_id, status, start_date, end_date, creation_date) " +
+            "select cast(?2 as varchar(20)), b.booking_id, b.item_id, b.booker_id, b.status, " +
+            "b.start_date, b.end_date, cast(?3 as timestamp) " +
+            "from bookings b " +
+            "where b.booking_id in (?1) " +
+            "order by b.booking_id",
+            nativeQuery = true)
+    int insertStatusChangeEvents(Collection<Long> bookingIds, String type, LocalDateTime created);
+
+    //событие о смене статуса одной брони - снимок строки bookings, уже измененной в этой транзакции
+    @Modifying
+    @Query(value = "insert into booking_events " +
+            "(event_type, booking_id, item_id, booker_id, status, start_date, end_date, creation_date) " +
+            "select cast(?2 as varchar(20)), b.booking_id, b.item_id, b.booker_id, b.status, " +
+            "b.start_date, b.end_date, cast(?3 as timestamp) " +
+            "from bookings b " +
+            "where b.booking_id = ?1",
+            nativeQuery = true)
+    int insertStatusChangeEvent(Long bookingId, String type, LocalDateTime created);
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking.outbox;
+
+import java.util.List;
+
+//получатель событий броней. События приходят пачками в порядке записи в outbox,
+//поэтому события одной вещи (и одной брони) всегда упорядочены.
+//Доставка "хотя бы один раз": если получатель бросил исключение, вся пачка будет отправлена повторно
+public interface BookingEventSink {
+
+    void deliver(List<BookingEventDto> events);
+}
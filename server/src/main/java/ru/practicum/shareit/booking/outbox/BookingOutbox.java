@@ -0,0 +1,87 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+//запись изменения брони вместе с событием о нем: обе строки сохраняются в одной транзакции,
+//поэтому событие не теряется и не появляется для несохраненной брони.
+//Получателям события пересылает BookingOutboxRelay - вне запроса пользователя.
+//В той же транзакции обновляется строка брони в booking_view, по которой строятся списки броней
+@Component
+@RequiredArgsConstructor
+public class BookingOutbox {
+
+    private final BookingRepository bookingRepository;
+    private final BookingEventRepository bookingEventRepository;
+    private final BookingViewRepository bookingViewRepository;
+
+    //новая бронь
+    @Transactional
+    public Booking save(Booking booking, BookingEventType type) {
+        Booking savedBooking = bookingRepository.save(booking);
+        bookingEventRepository.save(BookingEventMapper.toBookingEvent(savedBooking, type, LocalDateTime.now()));
+        bookingViewRepository.insertBookings(List.of(savedBooking.getId()));
+
+        return savedBooking;
+    }
+
+    //пачка новых броней при групповой фиксации - одна транзакция на всю пачку
+    @Transactional
+    public List<Booking> saveAll(List<Booking> bookings, BookingEventType type) {
+        List<Booking> savedBookings = bookingRepository.saveAll(bookings);
+        LocalDateTime created = LocalDateTime.now();
+
+        bookingEventRepository.saveAll(savedBookings.stream()
+                .map((booking) -> BookingEventMapper.toBookingEvent(booking, type, created))
+                .collect(Collectors.toList()));
+        bookingViewRepository.insertBookings(savedBookings.stream().map(Booking::getId).collect(Collectors.toList()));
+
+        return savedBookings;
+    }
+
+    //смена статуса брони владельцем вещи одним условным UPDATE, без предварительного чтения.
+    //Строка брони заблокирована до конца транзакции, поэтому событие и возвращаемая бронь соответствуют
+    //именно этой смене статуса, а события одной брони идут в порядке фиксации.
+    //Если статус не изменился - события нет, вернуть пустой Optional
+    @Transactional
+    public Optional<Booking> updateStatus(Long bookingId, Long ownerId, BookingStatus status, BookingEventType type) {
+        if (bookingRepository.updateStatusByOwner(bookingId, ownerId, status) == 0) {
+            return Optional.empty();
+        }
+
+        bookingEventRepository.insertStatusChangeEvent(bookingId, type.name(), LocalDateTime.now());
+        bookingViewRepository.updateStatuses(List.of(bookingId), status);
+
+        return bookingRepository.findById(bookingId);
+    }
+
+    //смена статуса набора броней и события о ней - по запросу на весь набор. Сначала блокируются и меняются
+    //строки броней, затем события и booking_view пишутся только для измененных броней: одновременное
+    //подтверждение той же брони ждет фиксации и не может изменить ее между этими шагами.
+    //Вернуть id измененных броней
+    @Transactional
+    public List<Long> updateStatuses(Collection<Long> bookingIds, BookingStatus status, BookingEventType type) {
+        List<Long> changedIds = bookingRepository.lockIdsWithOtherStatus(bookingIds, status.name());
+
+        if (changedIds.isEmpty()) {
+            return changedIds;
+        }
+
+        bookingRepository.updateStatuses(changedIds, status);
+        bookingEventRepository.insertStatusChangeEvents(changedIds, type.name(), LocalDateTime.now());
+        bookingViewRepository.updateStatuses(changedIds, status);
+
+        return changedIds;
+    }
+}
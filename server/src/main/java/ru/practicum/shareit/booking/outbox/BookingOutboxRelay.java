@@ -0,0 +1,77 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+//Фоновая пересылка событий из outbox получателям: пачка событий в порядке записи отдается всем получателям
+//и только после этого удаляется. Если получатель упал, пачка остается и отправляется снова при следующем опросе,
+//а более поздние события ждут - порядок событий одной вещи не нарушается.
+//Пересылку нужно включать только на одном экземпляре сервера, иначе события будут доставлены несколько раз
+@Component
+@Slf4j
+public class BookingOutboxRelay {
+
+    private final BookingEventRepository bookingEventRepository;
+    private final List<BookingEventSink> sinks;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public BookingOutboxRelay(BookingEventRepository bookingEventRepository,
+                              List<BookingEventSink> sinks,
+                              @Value("${shareit.booking.outbox.relay.enabled:false}") boolean enabled,
+                              @Value("${shareit.booking.outbox.batch-size:100}") int batchSize) {
+        this.bookingEventRepository = bookingEventRepository;
+        this.sinks = sinks;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.outbox.poll-interval:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            drain();
+        } catch (RuntimeException exception) {
+            log.warn("Не удалось переслать события броней, повтор при следующем опросе", exception);
+        }
+    }
+
+    //переслать все накопившиеся события, вернуть число доставленных
+    public int drain() {
+        int delivered = 0;
+        List<BookingEvent> batch;
+
+        do {
+            batch = bookingEventRepository.findNextBatch(PageRequest.of(0, batchSize));
+
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<BookingEventDto> events = batch.stream()
+                    .map(BookingEventMapper::toBookingEventDto)
+                    .collect(Collectors.toList());
+
+            for (BookingEventSink sink : sinks) {
+                sink.deliver(events);
+            }
+
+            bookingEventRepository.deleteAllByIdInBatch(events.stream()
+                    .map(BookingEventDto::getId)
+                    .collect(Collectors.toList()));
+
+            delivered += events.size();
+        } while (batch.size() == batchSize);
+
+        return delivered;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//запись событий в отдельный логгер shareit.booking.events - его можно направить в свой файл настройками логирования
+@Component
+@ConditionalOnProperty(name = "shareit.booking.outbox.log-sink.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j(topic = "shareit.booking.events")
+public class LogBookingEventSink implements BookingEventSink {
+
+    @Override
+    public void deliver(List<BookingEventDto> events) {
+        for (BookingEventDto event : events) {
+            log.info("{} booking={} item={} booker={} status={} start={} end={} at={}",
+                    event.getType(), event.getBookingId(), event.getItemId(), event.getBookerId(),
+                    event.getStatus(), event.getStart(), event.getEnd(), event.getCreated());
+        }
+    }
+}
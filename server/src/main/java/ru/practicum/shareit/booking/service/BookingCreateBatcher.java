@@ -0,0 +1,186 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.exceptions.BookingCreateUnavailableException;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//Групповая фиксация создания броней (shareit.booking.group-commit.enabled): запросы встают в очередь,
+//один поток собирает их в пачки и отдает обработчику, который проверяет и сохраняет всю пачку
+//в одной транзакции - одна фиксация и одна запись журнала БД на пачку вместо одной на бронь.
+//Пачка закрывается, когда набрано batch-size запросов или прошло window-ms миллисекунд с первого из них.
+//Очередь ограничена queue-capacity запросами, а запрос ждет, пока его возьмут в пачку, не дольше timeout-ms миллисекунд
+@Component
+@Slf4j
+public class BookingCreateBatcher {
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int batchSize;
+    private final long timeoutMillis;
+
+    private final BlockingQueue<BookingCreateRequest> queue;
+
+    private Thread worker;
+
+    //запросы принимаются только при работающем потоке пачек
+    private volatile boolean running;
+
+    public BookingCreateBatcher(@Value("${shareit.booking.group-commit.enabled:false}") boolean enabled,
+                                @Value("${shareit.booking.group-commit.window-ms:5}") long windowMillis,
+                                @Value("${shareit.booking.group-commit.batch-size:100}") int batchSize,
+                                @Value("${shareit.booking.group-commit.queue-capacity:1000}") int queueCapacity,
+                                @Value("${shareit.booking.group-commit.timeout-ms:10000}") long timeoutMillis) {
+        if (windowMillis < 0 || batchSize < 1) {
+            throw new IllegalArgumentException("Окно групповой фиксации не может быть отрицательным, а пачка - пустой");
+        }
+
+        if (queueCapacity < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Очередь групповой фиксации и время ожидания брони должны быть положительными");
+        }
+
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //запустить поток, отдающий пачки обработчику; обработчик выставляет результат каждого запроса пачки
+    public synchronized void start(Consumer<List<BookingCreateRequest>> batchHandler) {
+        if (!enabled || worker != null) {
+            return;
+        }
+
+        worker = new Thread(() -> run(batchHandler), "booking-group-commit");
+        worker.setDaemon(true);
+        running = true;
+        worker.start();
+    }
+
+    //поставить запрос в очередь и дождаться его результата. Остановленная групповая фиксация
+    //и заполненная очередь отклоняют запрос сразу, а не копят ожидающие потоки
+    public BookingCreateDto submit(BookingCreateDto bookingCreateDto, Long userId) {
+        if (!running) {
+            throw new BookingCreateUnavailableException("Создание броней остановлено, повторите запрос позже");
+        }
+
+        BookingCreateRequest request = new BookingCreateRequest(bookingCreateDto, userId);
+
+        if (!queue.offer(request)) {
+            throw new BookingCreateUnavailableException("Очередь создания броней заполнена, повторите запрос позже");
+        }
+
+        //остановка между проверкой и постановкой в очередь: запрос уже никто не возьмет
+        if (!running && queue.remove(request)) {
+            throw new BookingCreateUnavailableException("Создание броней остановлено, повторите запрос позже");
+        }
+
+        return request.await(timeoutMillis);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+
+        failQueued("Сервер останавливается");
+    }
+
+    private void run(Consumer<List<BookingCreateRequest>> batchHandler) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<BookingCreateRequest> batch = new ArrayList<>(batchSize);
+
+                try {
+                    collectBatch(batch);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    batch.forEach((request) -> request.fail(
+                            new BookingCreateUnavailableException("Сервер останавливается")));
+                    return;
+                }
+
+                handle(batch, batchHandler);
+            }
+        } finally {
+            //поток пачек завершился: новые запросы отклоняются, ожидающие в очереди получают ошибку
+            running = false;
+            failQueued("Сервер останавливается");
+        }
+    }
+
+    private void failQueued(String message) {
+        List<BookingCreateRequest> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        queued.forEach((request) -> request.fail(new BookingCreateUnavailableException(message)));
+    }
+
+    //ждать первый запрос, затем добирать пачку до batch-size, пока не истечет окно
+    private void collectBatch(List<BookingCreateRequest> batch) throws InterruptedException {
+        batch.add(queue.take());
+
+        long deadline = System.nanoTime() + windowNanos;
+
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                queue.drainTo(batch, batchSize - batch.size());
+                return;
+            }
+
+            BookingCreateRequest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+            if (next == null) {
+                return;
+            }
+
+            batch.add(next);
+        }
+    }
+
+    //запросы, которым обработчик не выставил результат из-за непредвиденной ошибки, получают эту ошибку.
+    //Перехватывается любой Throwable: иначе Error остановил бы поток, а запросы пачки ждали бы до истечения времени
+    private void handle(List<BookingCreateRequest> batch, Consumer<List<BookingCreateRequest>> batchHandler) {
+        //запросы с истекшим ожиданием уже получили ошибку и не сохраняются; остальные берутся в работу,
+        //и их вызывающие ждут результат пачки без ограничения времени
+        batch.removeIf((request) -> !request.take());
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            batchHandler.accept(batch);
+        } catch (RuntimeException exception) {
+            log.warn("Не удалось создать пачку из {} броней", batch.size(), exception);
+            batch.forEach((request) -> request.fail(exception));
+        } catch (Throwable throwable) {
+            log.error("Не удалось создать пачку из {} броней", batch.size(), throwable);
+            batch.forEach((request) -> request.fail(
+                    new BookingCreateUnavailableException("Бронь не создана из-за внутренней ошибки", throwable)));
+        }
+
+        batch.stream()
+                .filter((request) -> !request.isDone())
+                .forEach((request) -> request.fail(new IllegalStateException("Бронь не обработана")));
+    }
+}
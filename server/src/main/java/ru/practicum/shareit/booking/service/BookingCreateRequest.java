@@ -0,0 +1,76 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.Getter;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.exceptions.BookingCreateUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//запрос на создание брони в очереди групповой фиксации: поток запроса ждет результат,
+//который выставляет поток, сохраняющий пачку
+@Getter
+public class BookingCreateRequest {
+
+    private final BookingCreateDto bookingCreateDto;
+    private final Long userId;
+    private final CompletableFuture<BookingCreateDto> result = new CompletableFuture<>();
+
+    //запрос достается ровно одной стороне: потоку пачек (взят в работу) или вызывающему (истекло время)
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    public BookingCreateRequest(BookingCreateDto bookingCreateDto, Long userId) {
+        this.bookingCreateDto = bookingCreateDto;
+        this.userId = userId;
+    }
+
+    public void complete(BookingCreateDto createdBooking) {
+        result.complete(createdBooking);
+    }
+
+    //без эффекта, если результат уже выставлен
+    public void fail(RuntimeException exception) {
+        result.completeExceptionally(exception);
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    //взять запрос в работу; false - время ожидания уже истекло, и запрос не должен сохраняться
+    public boolean take() {
+        return claimed.compareAndSet(false, true);
+    }
+
+    //ждать результат не дольше timeoutMillis, пока поток пачек не взял запрос в работу. По истечении времени
+    //невзятый запрос получает ошибку и больше не обрабатывается. Взятый запрос может быть сохранен,
+    //поэтому его результат ожидается до конца - иначе вызывающий получил бы ошибку о сохраненной брони.
+    //Ошибки проверки брони пробрасываются вызывающему как есть - их обрабатывает ErrorHandler
+    public BookingCreateDto await(long timeoutMillis) {
+        try {
+            try {
+                return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException exception) {
+                if (claimed.compareAndSet(false, true)) {
+                    fail(new BookingCreateUnavailableException(
+                            String.format("Бронь не создана за %d мс, повторите запрос позже", timeoutMillis)));
+                }
+
+                //запрос взят в работу или уже получил ошибку - результат выставлен или будет выставлен потоком пачек
+                return result.get();
+            }
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+
+            throw new BookingCreateUnavailableException("Бронь не создана", exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new BookingCreateUnavailableException("Ожидание создания брони прервано", exception);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.Getter;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+import ru.practicum.shareit.booking.exceptions.BookingInvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+//Позиция в списке броней, отсортированном по убыванию даты начала и id:
+//страница начинается со следующей после (start, id) брони.
+//Клиенту курсор передается непрозрачной строкой (base64 от "start|id")
+@Getter
+class BookingCursor {
+
+    //курсор первой страницы - позиция перед любой реальной бронью
+    static final BookingCursor FIRST = new BookingCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime start;
+    private final Long id;
+
+    private BookingCursor(LocalDateTime start, Long id) {
+        this.start = start;
+        this.id = id;
+    }
+
+    static BookingCursor after(BookingFullInfoDto booking) {
+        return new BookingCursor(booking.getStart(), booking.getId());
+    }
+
+    //пустая строка - первая страница
+    static BookingCursor decode(String cursor) {
+        if (cursor.isBlank()) {
+            return FIRST;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+
+            return new BookingCursor(
+                    LocalDateTime.parse(decoded.substring(0, separatorIndex)),
+                    Long.parseLong(decoded.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException exception) {
+            throw new BookingInvalidCursorException(String.format("Некорректный курсор: %s", cursor));
+        }
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((start + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.booking.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+//Блокировки создания броней по вещам внутри одного экземпляра сервера.
+//Вещи распределяются по фиксированному числу блокировок, поэтому брони разных вещей
+//почти всегда создаются параллельно, а брони одной вещи - строго по очереди.
+//Между экземплярами сервера пересечение броней запрещает ограничение ex_bookings_item_period в БД.
+@Component
+public class BookingItemLocks {
+
+    private static final int STRIPES = 1024;
+
+    private final Lock[] locks = new Lock[STRIPES];
+
+    public BookingItemLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock forItem(Long itemId) {
+        return locks[stripe(itemId)];
+    }
+
+    //блокировки сразу нескольких вещей - без повторов и всегда в одном порядке,
+    //чтобы два потока с пересекающимися наборами вещей не ждали друг друга бесконечно
+    public List<Lock> forItems(Collection<Long> itemIds) {
+        return itemIds.stream()
+                .map(this::stripe)
+                .distinct()
+                .sorted()
+                .map((stripe) -> locks[stripe])
+                .collect(Collectors.toList());
+    }
+
+    private int stripe(Long itemId) {
+        return Math.floorMod(Long.hashCode(itemId), STRIPES);
+    }
+}
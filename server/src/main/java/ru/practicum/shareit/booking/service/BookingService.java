@@ -1,8 +1,11 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
 import ru.practicum.shareit.booking.dto.BookingItemOwnerDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
 
 import java.util.List;
 
@@ -11,9 +14,23 @@ public interface BookingService {
 
     BookingItemOwnerDto resolveBooking(Long bookingId, Long userId, Boolean approved);
 
+    List<BookingBatchResultDto> resolveBookings(List<Long> bookingIds, Long userId, Boolean approved);
+
     BookingFullInfoDto getBookingDetailInfoById(Long bookingId, Long userId);
 
     List<BookingFullInfoDto> getAllBookingsByUserIdAndState(Long userId, String stateStr, Integer from, Integer size);
 
     List<BookingFullInfoDto> getAllBookingsByOwnerIdAndState(Long ownerId, String stateStr, Integer from, Integer size);
+
+    BookingPageDto getBookingsPageByUserIdAndState(Long userId, String stateStr, String cursor, Integer size);
+
+    BookingPageDto getBookingsPageByOwnerIdAndState(Long ownerId, String stateStr, String cursor, Integer size);
+
+    //весь список броней в состоянии - без страниц, частями по мере чтения из БД
+    StreamingResponseBody streamAllBookingsByUserIdAndState(Long userId, String stateStr);
+
+    StreamingResponseBody streamAllBookingsByOwnerIdAndState(Long ownerId, String stateStr);
+
+    //пользователь проверяется сразу, а брони читаются из БД, только когда выгрузка пишется в ответ
+    StreamingResponseBody exportAllBookingsByOwnerId(Long ownerId);
 }
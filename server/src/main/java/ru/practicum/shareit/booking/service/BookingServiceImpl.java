@@ -1,18 +1,33 @@
 package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingBatchResult;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingState;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
 import ru.practicum.shareit.booking.dto.BookingItemOwnerDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
+import ru.practicum.shareit.booking.dto.BookingResolveInfoDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.exceptions.*;
+import ru.practicum.shareit.booking.export.BookingExporter;
+import ru.practicum.shareit.booking.interval.BookingIntervalIndex;
+import ru.practicum.shareit.booking.outbox.BookingEventType;
+import ru.practicum.shareit.booking.outbox.BookingOutbox;
+import ru.practicum.shareit.booking.view.BookingView;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.common.JsonStreamWriter;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.exceptions.ItemUnavailableException;
@@ -21,28 +36,151 @@ import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
+import javax.annotation.PostConstruct;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingServiceImpl implements BookingService {
 
+    //код ошибки PostgreSQL при нарушении ограничения исключения (EXCLUDE)
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
     private final BookingRepository bookingRepository;
+    private final BookingViewRepository bookingViewRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingItemLocks bookingItemLocks;
+    private final BookingOutbox bookingOutbox;
+    private final BookingExporter bookingExporter;
+    private final JsonStreamWriter jsonStreamWriter;
+    private final BookingCreateBatcher bookingCreateBatcher;
+
+    //групповая фиксация включается настройкой: поток пачек запускается после создания сервиса
+    @PostConstruct
+    void startBookingCreateBatcher() {
+        bookingCreateBatcher.start(this::createBookings);
+    }
 
     @Override
     public BookingCreateDto createBooking(BookingCreateDto bookingCreateDto, Long userId) {
+        //при групповой фиксации бронь создается вместе с соседними запросами, а запрос ждет результат
+        if (bookingCreateBatcher.isEnabled()) {
+            return bookingCreateBatcher.submit(bookingCreateDto, userId);
+        }
+
+        Booking booking = toNewBooking(bookingCreateDto, userId, userRepository.findById(userId),
+                () -> itemRepository.findById(bookingCreateDto.getItemId()));
+        Item foundedItem = booking.getItem();
+
+        //брони одной вещи создаются по очереди, иначе две одновременные брони на одни даты
+        //обе пройдут проверку пересечения до того, как любая из них сохранится
+        Lock itemLock = bookingItemLocks.forItem(foundedItem.getId());
+        itemLock.lock();
+        try {
+            if (hasItemBookingInPeriod(foundedItem.getId(), booking.getStart(), booking.getEnd())) {
+                throw overlapException(booking);
+            }
+
+            Booking createdBooking = saveNewBooking(booking);
+            bookingIntervalIndex.index(createdBooking);
+
+            return BookingMapper.toBookingDto(createdBooking);
+        } finally {
+            itemLock.unlock();
+        }
+    }
+
+    //пачка запросов групповой фиксации: те же проверки, что у одиночной брони, но пользователи и вещи
+    //загружаются одним запросом на пачку, а прошедшие проверки брони сохраняются в одной транзакции.
+    //Каждый запрос получает свой результат - бронь или ошибку своей проверки
+    private void createBookings(List<BookingCreateRequest> requests) {
+        Map<Long, User> users = userRepository.findAllById(requests.stream()
+                        .map(BookingCreateRequest::getUserId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<Long, Item> items = itemRepository.findAllById(requests.stream()
+                        .map((request) -> request.getBookingCreateDto().getItemId())
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<BookingCreateRequest> validRequests = new ArrayList<>();
+        List<Booking> validBookings = new ArrayList<>();
+
+        for (BookingCreateRequest request : requests) {
+            BookingCreateDto bookingCreateDto = request.getBookingCreateDto();
+
+            try {
+                validBookings.add(toNewBooking(bookingCreateDto, request.getUserId(),
+                        Optional.ofNullable(users.get(request.getUserId())),
+                        () -> Optional.ofNullable(items.get(bookingCreateDto.getItemId()))));
+                validRequests.add(request);
+            } catch (RuntimeException exception) {
+                request.fail(exception);
+            }
+        }
+
+        List<Lock> itemLocks = bookingItemLocks.forItems(validBookings.stream()
+                .map((booking) -> booking.getItem().getId())
+                .collect(Collectors.toSet()));
+        itemLocks.forEach(Lock::lock);
+        try {
+            List<BookingCreateRequest> acceptedRequests = new ArrayList<>();
+            List<Booking> acceptedBookings = new ArrayList<>();
+
+            //пересечение - с уже сохраненными бронями и с бронями, принятыми раньше в этой же пачке
+            for (int i = 0; i < validBookings.size(); i++) {
+                Booking booking = validBookings.get(i);
+
+                if (hasItemBookingInPeriod(booking.getItem().getId(), booking.getStart(), booking.getEnd())
+                        || overlapsAny(booking, acceptedBookings)) {
+                    validRequests.get(i).fail(overlapException(booking));
+                } else {
+                    acceptedRequests.add(validRequests.get(i));
+                    acceptedBookings.add(booking);
+                }
+            }
+
+            List<Booking> createdBookings = saveNewBookings(acceptedRequests, acceptedBookings);
+
+            for (int i = 0; i < createdBookings.size(); i++) {
+                if (createdBookings.get(i) != null) {
+                    bookingIntervalIndex.index(createdBookings.get(i));
+                    acceptedRequests.get(i).complete(BookingMapper.toBookingDto(createdBookings.get(i)));
+                }
+            }
+        } finally {
+            itemLocks.forEach(Lock::unlock);
+        }
+    }
+
+    //проверки новой брони, общие для одиночного и группового создания. Вещь загружается только
+    //для существующего пользователя
+    private Booking toNewBooking(BookingCreateDto bookingCreateDto, Long userId,
+                                 Optional<User> foundedUser, Supplier<Optional<Item>> itemLoader) {
         //сначала проверить, что такой пользователь есть
-        User user = userRepository.findById(userId)
+        User user = foundedUser
                 .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
 
         //также проверить, что такая вещь есть
         //сначала проверить, что такая вещь вообще есть
-        Item foundedItem = itemRepository.findById(bookingCreateDto.getItemId())
+        Item foundedItem = itemLoader.get()
                 .orElseThrow(() -> new ItemUnknownException(
                         String.format("Не найдена вещь с id = %d", bookingCreateDto.getItemId()))
                 );
@@ -59,50 +197,267 @@ public class BookingServiceImpl implements BookingService {
         }
 
         //само бронирование
-        Booking booking = BookingMapper.toBooking(bookingCreateDto, foundedItem, user);
+        return BookingMapper.toBooking(bookingCreateDto, foundedItem, user);
+    }
+
+    private static boolean overlapsAny(Booking booking, List<Booking> bookings) {
+        return bookings.stream().anyMatch((other) -> other.getItem().getId().equals(booking.getItem().getId())
+                && other.getStart().isBefore(booking.getEnd())
+                && booking.getStart().isBefore(other.getEnd()));
+    }
+
+    private static BookingOverlapException overlapException(Booking booking) {
+        return overlapException(booking.getItem().getId(), booking.getStart(), booking.getEnd());
+    }
+
+    private static BookingOverlapException overlapException(Long itemId, LocalDateTime start, LocalDateTime end) {
+        return new BookingOverlapException(String.format("Вещь с id = %d уже забронирована на период с %s по %s",
+                itemId, start, end));
+    }
+
+    //нарушено ограничение исключения ex_bookings_item_period (есть только на PostgreSQL)
+    private static boolean isExclusionViolation(DataIntegrityViolationException exception) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(exception);
+
+        return cause instanceof SQLException && EXCLUSION_VIOLATION.equals(((SQLException) cause).getSQLState());
+    }
 
-        return BookingMapper.toBookingDto(bookingRepository.save(booking));
+    //пересечение с ожидающими и подтвержденными бронями - по индексу интервалов, пока он не построен - запросом к БД
+    private boolean hasItemBookingInPeriod(Long itemId, LocalDateTime start, LocalDateTime end) {
+        if (bookingIntervalIndex.isReady()) {
+            return bookingIntervalIndex.hasBookingInPeriod(itemId, start, end);
+        }
+
+        return bookingRepository.existsItemBookingInPeriod(itemId, BookingIntervalIndex.BUSY_STATUSES, start, end);
+    }
+
+    //то же для уже существующей брони: ожидающая бронь сама числится среди занятых периодов и не учитывается
+    private boolean hasOtherItemBookingInPeriod(BookingResolveInfoDto booking) {
+        List<BookingShortDto> itemBookings = bookingIntervalIndex.isReady()
+                ? bookingIntervalIndex.findItemBookingsInPeriod(booking.getItemId(), booking.getStart(), booking.getEnd())
+                : bookingRepository.findItemBookingsInPeriod(booking.getItemId(), BookingIntervalIndex.BUSY_STATUSES,
+                        booking.getStart(), booking.getEnd());
+
+        return itemBookings.stream().anyMatch((other) -> !other.getId().equals(booking.getId()));
+    }
+
+    //бронь, созданную другим экземпляром сервера между проверкой и сохранением, отсекает ограничение в БД.
+    //Вместе с бронью в той же транзакции записывается событие о ее создании
+    private Booking saveNewBooking(Booking booking) {
+        try {
+            return bookingOutbox.save(booking, BookingEventType.CREATED);
+        } catch (DataIntegrityViolationException exception) {
+            if (isExclusionViolation(exception)) {
+                throw overlapException(booking);
+            }
+
+            throw exception;
+        }
+    }
+
+    //пачка броней - одной транзакцией. Если пачку отклонила БД (бронь другого экземпляра сервера),
+    //брони сохраняются по одной, и ошибку получает только запрос с отклоненной бронью.
+    //Вернуть сохраненные брони в порядке запросов, null - для запроса, получившего ошибку
+    private List<Booking> saveNewBookings(List<BookingCreateRequest> requests, List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            return bookingOutbox.saveAll(bookings, BookingEventType.CREATED);
+        } catch (DataIntegrityViolationException exception) {
+            List<Booking> savedBookings = new ArrayList<>();
+
+            for (int i = 0; i < bookings.size(); i++) {
+                Booking booking = bookings.get(i);
+                //id, выданный в откаченной транзакции, недействителен
+                booking.setId(null);
+
+                try {
+                    savedBookings.add(saveNewBooking(booking));
+                } catch (RuntimeException bookingException) {
+                    requests.get(i).fail(bookingException);
+                    savedBookings.add(null);
+                }
+            }
+
+            return savedBookings;
+        }
     }
 
     @Override
     public BookingItemOwnerDto resolveBooking(Long bookingId, Long userId, Boolean approved) {
-        //проверить, что бронирование с таким id есть
-        Booking currentBooking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new BookingUnknownException(
-                        String.format("Не найдена бронь с id = %d", bookingId))
-                );
+        BookingStatus newStatus = approved == Boolean.TRUE ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        BookingEventType eventType = approved == Boolean.TRUE ? BookingEventType.APPROVED : BookingEventType.REJECTED;
 
+        BookingResolveInfoDto booking = bookingRepository.findResolveInfoByIds(List.of(bookingId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new BookingUnknownException(String.format("Не найдена бронь с id = %d", bookingId)));
+
+        if (booking.getOwnerId().longValue() != userId.longValue()) {
+            throw getResolveException(booking, userId, newStatus);
+        }
+
+        //смена статуса и индекс интервалов меняются под блокировкой вещи, как при создании брони:
+        //иначе параллельное создание или подтверждение увидит индекс, не совпадающий с БД.
+        //Бронь, ее владелец и текущий статус дополнительно проверяются условием UPDATE
+        Lock itemLock = bookingItemLocks.forItem(booking.getItemId());
+        itemLock.lock();
+        try {
+            //подтверждение снова занимает период брони: период отклоненной брони мог занять другой запрос
+            if (newStatus == BookingStatus.APPROVED && hasOtherItemBookingInPeriod(booking)) {
+                throw overlapException(booking.getItemId(), booking.getStart(), booking.getEnd());
+            }
+
+            Booking resolvedBooking = bookingOutbox.updateStatus(bookingId, userId, newStatus, eventType)
+                    .orElseThrow(() -> getResolveException(booking, userId, newStatus));
+
+            bookingIntervalIndex.index(resolvedBooking);
+            return BookingMapper.toItemOwnerBookingDto(resolvedBooking);
+        } catch (DataIntegrityViolationException exception) {
+            //период занят бронью другого экземпляра сервера
+            if (isExclusionViolation(exception)) {
+                throw overlapException(booking.getItemId(), booking.getStart(), booking.getEnd());
+            }
+
+            throw exception;
+        } finally {
+            itemLock.unlock();
+        }
+    }
+
+    //причина, по которой статус брони не изменился, - выясняется только после неудачного UPDATE
+    private RuntimeException getResolveException(BookingResolveInfoDto booking, Long userId, BookingStatus newStatus) {
         //проверить, что такой пользователь есть
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
+        if (!userRepository.existsById(userId)) {
+            return new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
+        }
 
         //проверить, что эта вещь принадлежит этому пользователю
-        if (currentBooking.getItem().getOwner().getId().longValue() != user.getId().longValue()) {
-            throw new BookingSecurityException(String.format("Пользователь с id = %d не может работать с вещью с id = %d",
-                    user.getId(), currentBooking.getItem().getId()));
+        if (booking.getOwnerId().longValue() != userId.longValue()) {
+            return new BookingSecurityException(String.format("Пользователь с id = %d не может работать с вещью с id = %d",
+                    userId, booking.getItemId()));
+        }
+
+        //иначе на момент UPDATE бронь уже имела этот статус
+        return new BookingTryToUpdateSameStatusException(
+                String.format("Бронирование с id = %s уже имеет статус %s", booking.getId(), newStatus)
+        );
+    }
+
+    @Override
+    public List<BookingBatchResultDto> resolveBookings(List<Long> bookingIds, Long userId, Boolean approved) {
+
+        //проверить, что такой пользователь есть
+        if (!userRepository.existsById(userId)) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
         }
 
         BookingStatus newStatus = approved == Boolean.TRUE ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        List<Long> distinctIds = bookingIds.stream().distinct().collect(Collectors.toList());
+
+        //владельцы вещей и текущие статусы всех броней - одним запросом
+        Map<Long, BookingResolveInfoDto> bookings = bookingRepository.findResolveInfoByIds(distinctIds).stream()
+                .collect(Collectors.toMap(BookingResolveInfoDto::getId, Function.identity()));
+
+        //результаты в порядке запроса; для броней, статус которых меняется, заполняются после проверки пересечений
+        Map<Long, BookingBatchResultDto> results = new LinkedHashMap<>();
+        List<BookingResolveInfoDto> bookingsToResolve = new ArrayList<>();
+
+        for (Long bookingId : distinctIds) {
+            BookingResolveInfoDto booking = bookings.get(bookingId);
+
+            if (booking == null) {
+                results.put(bookingId, new BookingBatchResultDto(bookingId, BookingBatchResult.NOT_FOUND, null));
+            } else if (booking.getOwnerId().longValue() != userId.longValue()) {
+                //статус чужой брони не раскрывается
+                results.put(bookingId, new BookingBatchResultDto(bookingId, BookingBatchResult.FORBIDDEN, null));
+            } else if (booking.getStatus() == newStatus) {
+                results.put(bookingId, new BookingBatchResultDto(bookingId, BookingBatchResult.SAME_STATUS, newStatus));
+            } else {
+                results.put(bookingId, null);
+                bookingsToResolve.add(booking);
+            }
+        }
+
+        if (bookingsToResolve.isEmpty()) {
+            return new ArrayList<>(results.values());
+        }
 
-        if (currentBooking.getStatus().equals(newStatus)) {
-            throw new BookingTryToUpdateSameStatusException(
-                String.format("Бронирование с id = %s уже имеет статус %s", bookingId, newStatus)
-            );
+        //статусы меняются одним запросом, а индекс интервалов - до снятия блокировок всех затронутых вещей:
+        //иначе создание брони в этот момент увидит в индексе старый статус
+        List<Lock> itemLocks = bookingItemLocks.forItems(bookingsToResolve.stream()
+                .map(BookingResolveInfoDto::getItemId)
+                .collect(Collectors.toList()));
+
+        List<BookingResolveInfoDto> bookingsToUpdate = new ArrayList<>();
+
+        itemLocks.forEach(Lock::lock);
+        try {
+            for (BookingResolveInfoDto booking : bookingsToResolve) {
+                //подтверждаемая бронь не должна пересекаться ни с занятыми периодами вещи,
+                //ни с бронями, подтверждаемыми раньше в этом же запросе
+                if (newStatus == BookingStatus.APPROVED
+                        && (hasOtherItemBookingInPeriod(booking) || overlapsAnyResolved(booking, bookingsToUpdate))) {
+                    results.put(booking.getId(),
+                            new BookingBatchResultDto(booking.getId(), BookingBatchResult.OVERLAP, booking.getStatus()));
+                } else {
+                    bookingsToUpdate.add(booking);
+                }
+            }
+
+            if (!bookingsToUpdate.isEmpty()) {
+                //результат - по броням, которые действительно изменил UPDATE: статус остальных
+                //успел сменить на тот же одновременный запрос
+                Set<Long> changedIds = new HashSet<>(bookingOutbox.updateStatuses(
+                        bookingsToUpdate.stream().map(BookingResolveInfoDto::getId).collect(Collectors.toList()),
+                        newStatus,
+                        newStatus == BookingStatus.APPROVED ? BookingEventType.APPROVED : BookingEventType.REJECTED));
+
+                for (BookingResolveInfoDto booking : bookingsToUpdate) {
+                    if (changedIds.contains(booking.getId())) {
+                        results.put(booking.getId(),
+                                new BookingBatchResultDto(booking.getId(), BookingBatchResult.RESOLVED, newStatus));
+                        bookingIntervalIndex.index(booking.getId(), booking.getItemId(), newStatus,
+                                booking.getStart(), booking.getEnd());
+                    } else {
+                        results.put(booking.getId(),
+                                new BookingBatchResultDto(booking.getId(), BookingBatchResult.SAME_STATUS, newStatus));
+                    }
+                }
+            }
+        } catch (DataIntegrityViolationException exception) {
+            //период занят бронью другого экземпляра сервера - транзакция откачена, статусы не изменились
+            if (isExclusionViolation(exception)) {
+                throw new BookingOverlapException("Подтверждаемые брони пересекаются с бронями, созданными одновременно с запросом");
+            }
+
+            throw exception;
+        } finally {
+            itemLocks.forEach(Lock::unlock);
         }
 
-        currentBooking.setStatus(newStatus);
-        bookingRepository.save(currentBooking);
-        return BookingMapper.toItemOwnerBookingDto(currentBooking);
+        return new ArrayList<>(results.values());
+    }
+
+    private static boolean overlapsAnyResolved(BookingResolveInfoDto booking, List<BookingResolveInfoDto> bookings) {
+        return bookings.stream().anyMatch((other) -> other.getItemId().equals(booking.getItemId())
+                && other.getStart().isBefore(booking.getEnd())
+                && booking.getStart().isBefore(other.getEnd()));
     }
 
     @Override
     public BookingFullInfoDto getBookingDetailInfoById(Long bookingId, Long userId) {
 
         //проверить, что бронирование с таким id есть
-        Booking currentBooking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new BookingUnknownException(
-                        String.format("Не найдена бронь с id = %d", bookingId))
-                );
+        Optional<Booking> foundBooking = bookingRepository.findById(bookingId);
+
+        //бронь могла быть перенесена в архив - тогда она есть только в booking_view
+        if (foundBooking.isEmpty()) {
+            return getArchivedBookingDetailInfo(bookingId, userId);
+        }
+
+        Booking currentBooking = foundBooking.get();
 
         //проверить, что такой пользователь есть
         User user = userRepository.findById(userId)
@@ -119,6 +474,24 @@ public class BookingServiceImpl implements BookingService {
         return BookingMapper.toFullInfoBookingDto(currentBooking);
     }
 
+    private BookingFullInfoDto getArchivedBookingDetailInfo(Long bookingId, Long userId) {
+        BookingView bookingView = bookingViewRepository.findById(bookingId)
+                .orElseThrow(() -> new BookingUnknownException(
+                        String.format("Не найдена бронь с id = %d", bookingId))
+                );
+
+        if (!userRepository.existsById(userId)) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
+        }
+
+        if (!bookingView.getOwnerId().equals(userId) && !bookingView.getBookerId().equals(userId)) {
+            throw new BookingSecurityException(String.format("Пользователь с id = %d не может работать с вещью с id = %d",
+                    userId, bookingView.getItemId()));
+        }
+
+        return BookingMapper.toFullInfoBookingDto(bookingView);
+    }
+
     @Override
     public List<BookingFullInfoDto> getAllBookingsByUserIdAndState(Long userId, String stateStr, Integer from, Integer size) {
 
@@ -132,38 +505,38 @@ public class BookingServiceImpl implements BookingService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
 
-        List<Booking> userBookings;
+        List<BookingFullInfoDto> userBookings;
 
         switch (state) {
             case ALL:
-                userBookings = bookingRepository.findAllByBooker_Id(userId, pageRequest);
+                userBookings = bookingViewRepository.findAllByBooker_Id(userId, pageRequest);
                 break;
 
             case CURRENT:
-                userBookings = bookingRepository
+                userBookings = bookingViewRepository
                         .findAllByBooker_IdAndStartBeforeAndEndAfter(
                                 userId, LocalDateTime.now(), LocalDateTime.now(), pageRequest);
                 break;
 
             case PAST:
-                userBookings = bookingRepository
+                userBookings = bookingViewRepository
                         .findAllByBooker_IdAndStatusInAndEndBefore(
                                 userId, List.of(BookingStatus.CANCELED, BookingStatus.APPROVED),
                                 LocalDateTime.now(), pageRequest);
                 break;
 
             case FUTURE:
-                userBookings = bookingRepository
+                userBookings = bookingViewRepository
                         .findAllByBooker_IdAndStartAfter(userId, LocalDateTime.now(), pageRequest);
                 break;
 
             case WAITING:
-                userBookings = bookingRepository
+                userBookings = bookingViewRepository
                         .findAllByBooker_IdAndStatus(userId, BookingStatus.WAITING, pageRequest);
                 break;
 
             case REJECTED:
-                userBookings = bookingRepository
+                userBookings = bookingViewRepository
                         .findAllByBooker_IdAndStatus(userId, BookingStatus.REJECTED, pageRequest);
                 break;
 
@@ -171,7 +544,7 @@ public class BookingServiceImpl implements BookingService {
                 throw new BookingUnknownStateException(String.format("Unknown state: %s", state));
         }
 
-        return userBookings.stream().map(BookingMapper::toFullInfoBookingDto).collect(Collectors.toList());
+        return userBookings;
     }
 
     @Override
@@ -187,51 +560,38 @@ public class BookingServiceImpl implements BookingService {
         User user = userRepository.findById(ownerId)
                 .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", ownerId)));
 
-        //проверить, что у этого пользователя есть вещи, в которых он является владельцем
-        List<Item> ownerItems = itemRepository.findALlItemsByOwnerId(ownerId);
-
-        //Если в данного пользователя нет вещей во владении
-        if (ownerItems == null || ownerItems.isEmpty()) {
-
-            //значит искать ничего не нужно, но это и не ошибка,
-            //поэтому вернуть пустой список
-            return new ArrayList<>();
-        }
-
-        //получит список id вещей
-        List<Long> itemIds = ownerItems.stream().map(Item::getId).collect(Collectors.toList());
-
-        //Поиск броней по идентификаторам вещей, владельцем который является текущий пользователь
-        List<Booking> userBookings;
+        //Поиск броней вещей, владельцем которых является текущий пользователь.
+        //Если вещей у пользователя нет, запрос вернет пустой список - это не ошибка
+        List<BookingFullInfoDto> userBookings;
 
         switch (state) {
             case ALL:
-                userBookings = bookingRepository.findAllByItem_IdIn(itemIds, pageRequest);
+                userBookings = bookingViewRepository.findAllByItem_Owner_Id(ownerId, pageRequest);
                 break;
 
             case CURRENT:
-                userBookings = bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(
-                        itemIds, LocalDateTime.now(), LocalDateTime.now(), pageRequest);
+                userBookings = bookingViewRepository.findAllByItem_Owner_IdAndStartBeforeAndEndAfter(
+                        ownerId, LocalDateTime.now(), LocalDateTime.now(), pageRequest);
                 break;
 
             case PAST:
-                userBookings = bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(
-                        itemIds, List.of(BookingStatus.CANCELED, BookingStatus.APPROVED), LocalDateTime.now(), pageRequest);
+                userBookings = bookingViewRepository.findAllByItem_Owner_IdAndStatusInAndEndBefore(
+                        ownerId, List.of(BookingStatus.CANCELED, BookingStatus.APPROVED), LocalDateTime.now(), pageRequest);
                 break;
 
             case FUTURE:
-                userBookings = bookingRepository.findAllByItem_IdInAndStartAfter(
-                        itemIds, LocalDateTime.now(), pageRequest);
+                userBookings = bookingViewRepository.findAllByItem_Owner_IdAndStartAfter(
+                        ownerId, LocalDateTime.now(), pageRequest);
                 break;
 
             case WAITING:
-                userBookings = bookingRepository.findAllByItem_IdInAndStatusIn(
-                        itemIds, List.of(BookingStatus.WAITING), pageRequest);
+                userBookings = bookingViewRepository.findAllByItem_Owner_IdAndStatus(
+                        ownerId, BookingStatus.WAITING, pageRequest);
                 break;
 
             case REJECTED:
-                userBookings = bookingRepository.findAllByItem_IdInAndStatusIn(
-                        itemIds, List.of(BookingStatus.REJECTED), pageRequest);
+                userBookings = bookingViewRepository.findAllByItem_Owner_IdAndStatus(
+                        ownerId, BookingStatus.REJECTED, pageRequest);
                 break;
 
             default:
@@ -239,6 +599,176 @@ public class BookingServiceImpl implements BookingService {
         }
 
 
-        return userBookings.stream().map(BookingMapper::toFullInfoBookingDto).collect(Collectors.toList());
+        return userBookings;
+    }
+
+    @Override
+    public BookingPageDto getBookingsPageByUserIdAndState(Long userId, String stateStr, String cursor, Integer size) {
+
+        BookingState state = BookingState.from(stateStr)
+                .orElseThrow(() -> new BookingUnknownStateException(String.format("Unknown state: %s", stateStr)));
+
+        BookingCursor after = BookingCursor.decode(cursor);
+
+        //проверить, что такой пользователь есть
+        userRepository.findById(userId)
+                .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
+
+        //на одну бронь больше страницы - чтобы узнать, есть ли следующая
+        return toBookingPage(findBookerBookingsAfter(userId, state, after, LocalDateTime.now(), size + 1), size);
+    }
+
+    @Override
+    public BookingPageDto getBookingsPageByOwnerIdAndState(Long ownerId, String stateStr, String cursor, Integer size) {
+
+        BookingState state = BookingState.from(stateStr)
+                .orElseThrow(() -> new BookingUnknownStateException(String.format("Unknown state: %s", stateStr)));
+
+        BookingCursor after = BookingCursor.decode(cursor);
+
+        //проверить, что такой пользователь есть
+        userRepository.findById(ownerId)
+                .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", ownerId)));
+
+        //на одну бронь больше страницы - чтобы узнать, есть ли следующая
+        return toBookingPage(findOwnerBookingsAfter(ownerId, state, after, LocalDateTime.now(), size + 1), size);
+    }
+
+    //состояние и пользователь проверяются, а текущий момент фиксируется один раз на весь ответ;
+    //части - страницы по курсору: следующая начинается после последней брони предыдущей
+    @Override
+    public StreamingResponseBody streamAllBookingsByUserIdAndState(Long userId, String stateStr) {
+
+        BookingState state = BookingState.from(stateStr)
+                .orElseThrow(() -> new BookingUnknownStateException(String.format("Unknown state: %s", stateStr)));
+
+        //проверить, что такой пользователь есть
+        if (!userRepository.existsById(userId)) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
+        }
+
+        final LocalDateTime now = LocalDateTime.now();
+
+        return jsonStreamWriter.write(
+                findBookerBookingsAfter(userId, state, BookingCursor.FIRST, now, JsonStreamWriter.CHUNK_SIZE),
+                (bookings) -> findBookerBookingsAfter(userId, state, nextCursor(bookings), now,
+                        JsonStreamWriter.CHUNK_SIZE));
+    }
+
+    @Override
+    public StreamingResponseBody streamAllBookingsByOwnerIdAndState(Long ownerId, String stateStr) {
+
+        BookingState state = BookingState.from(stateStr)
+                .orElseThrow(() -> new BookingUnknownStateException(String.format("Unknown state: %s", stateStr)));
+
+        //проверить, что такой пользователь есть
+        if (!userRepository.existsById(ownerId)) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", ownerId));
+        }
+
+        final LocalDateTime now = LocalDateTime.now();
+
+        return jsonStreamWriter.write(
+                findOwnerBookingsAfter(ownerId, state, BookingCursor.FIRST, now, JsonStreamWriter.CHUNK_SIZE),
+                (bookings) -> findOwnerBookingsAfter(ownerId, state, nextCursor(bookings), now,
+                        JsonStreamWriter.CHUNK_SIZE));
+    }
+
+    //не больше limit броней автора после курсора
+    private List<BookingFullInfoDto> findBookerBookingsAfter(Long userId, BookingState state, BookingCursor after,
+                                                             LocalDateTime now, int limit) {
+        final PageRequest pageRequest = PageRequest.of(0, limit);
+
+        switch (state) {
+            case ALL:
+                return bookingViewRepository.findBookerBookingsAfterCursor(
+                        userId, after.getStart(), after.getId(), pageRequest);
+
+            case CURRENT:
+                return bookingViewRepository.findBookerCurrentBookingsAfterCursor(
+                        userId, after.getStart(), after.getId(), now, pageRequest);
+
+            case PAST:
+                return bookingViewRepository.findBookerPastBookingsAfterCursor(
+                        userId, after.getStart(), after.getId(),
+                        List.of(BookingStatus.CANCELED, BookingStatus.APPROVED), now, pageRequest);
+
+            case FUTURE:
+                return bookingViewRepository.findBookerFutureBookingsAfterCursor(
+                        userId, after.getStart(), after.getId(), now, pageRequest);
+
+            case WAITING:
+                return bookingViewRepository.findBookerBookingsByStatusAfterCursor(
+                        userId, after.getStart(), after.getId(), BookingStatus.WAITING, pageRequest);
+
+            case REJECTED:
+                return bookingViewRepository.findBookerBookingsByStatusAfterCursor(
+                        userId, after.getStart(), after.getId(), BookingStatus.REJECTED, pageRequest);
+
+            default:
+                throw new BookingUnknownStateException(String.format("Unknown state: %s", state));
+        }
+    }
+
+    //не больше limit броней вещей владельца после курсора
+    private List<BookingFullInfoDto> findOwnerBookingsAfter(Long ownerId, BookingState state, BookingCursor after,
+                                                            LocalDateTime now, int limit) {
+        final PageRequest pageRequest = PageRequest.of(0, limit);
+
+        switch (state) {
+            case ALL:
+                return bookingViewRepository.findOwnerBookingsAfterCursor(
+                        ownerId, after.getStart(), after.getId(), pageRequest);
+
+            case CURRENT:
+                return bookingViewRepository.findOwnerCurrentBookingsAfterCursor(
+                        ownerId, after.getStart(), after.getId(), now, pageRequest);
+
+            case PAST:
+                return bookingViewRepository.findOwnerPastBookingsAfterCursor(
+                        ownerId, after.getStart(), after.getId(),
+                        List.of(BookingStatus.CANCELED, BookingStatus.APPROVED), now, pageRequest);
+
+            case FUTURE:
+                return bookingViewRepository.findOwnerFutureBookingsAfterCursor(
+                        ownerId, after.getStart(), after.getId(), now, pageRequest);
+
+            case WAITING:
+                return bookingViewRepository.findOwnerBookingsByStatusAfterCursor(
+                        ownerId, after.getStart(), after.getId(), BookingStatus.WAITING, pageRequest);
+
+            case REJECTED:
+                return bookingViewRepository.findOwnerBookingsByStatusAfterCursor(
+                        ownerId, after.getStart(), after.getId(), BookingStatus.REJECTED, pageRequest);
+
+            default:
+                throw new BookingUnknownStateException(String.format("Unknown state: %s", state));
+        }
+    }
+
+    @Override
+    public StreamingResponseBody exportAllBookingsByOwnerId(Long ownerId) {
+
+        //проверить, что такой пользователь есть - до того, как начнется ответ
+        if (!userRepository.existsById(ownerId)) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", ownerId));
+        }
+
+        return (outputStream) -> bookingExporter.writeOwnerBookings(ownerId, outputStream);
+    }
+
+    private BookingCursor nextCursor(List<BookingFullInfoDto> bookings) {
+        return BookingCursor.after(bookings.get(bookings.size() - 1));
+    }
+
+    //курсор следующей страницы - по последней брони этой страницы
+    private BookingPageDto toBookingPage(List<BookingFullInfoDto> bookings, Integer size) {
+        if (bookings.size() <= size) {
+            return new BookingPageDto(bookings, null);
+        }
+
+        List<BookingFullInfoDto> page = new ArrayList<>(bookings.subList(0, size));
+
+        return new BookingPageDto(page, BookingCursor.after(page.get(size - 1)).encode());
     }
 }
@@ -0,0 +1,63 @@
+package ru.practicum.shareit.booking.view;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+//строка списка броней (booking_view): бронь вместе с полями вещи, ее владельца и автора брони,
+//которые отдают списки броней. Списки читаются из одной таблицы, без соединения bookings, items и users.
+//Строки пишет только BookingViewRepository - при изменении брони, вещи или пользователя
+@Entity
+@Table(name = "booking_view")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingView {
+
+    @Id
+    @Column(name = "booking_id")
+    private Long id;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDateTime start;
+
+    @Column(name = "end_date")
+    private LocalDateTime end;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status;
+
+    @Column(name = "booker_id", nullable = false)
+    private Long bookerId;
+
+    @Column(name = "booker_name", nullable = false)
+    private String bookerName;
+
+    @Column(name = "booker_email", nullable = false)
+    private String bookerEmail;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(name = "item_name", nullable = false)
+    private String itemName;
+
+    @Column(name = "item_description", nullable = false)
+    private String itemDescription;
+
+    @Column(name = "item_available", nullable = false)
+    private Boolean itemAvailable;
+
+    @Column(name = "request_id")
+    private Long requestId;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+}
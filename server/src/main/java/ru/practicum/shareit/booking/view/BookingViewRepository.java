@@ -0,0 +1,150 @@
+package ru.practicum.shareit.booking.view;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookingViewRepository extends JpaRepository<BookingView, Long> {
+
+    //Списки броней в виде BookingFullInfoDto из одной таблицы booking_view: каждое состояние -
+    //проход по индексу (booker_id или owner_id, [status,] start_date), без соединения с вещами и пользователями
+    String FULL_INFO_SELECT = "select new ru.practicum.shareit.booking.dto.BookingFullInfoDto(" +
+            "v.id, v.start, v.end, v.status, v.bookerId, v.bookerName, v.bookerEmail, " +
+            "v.itemId, v.itemName, v.itemDescription, v.itemAvailable, v.requestId) " +
+            "from BookingView v ";
+
+    @Query(FULL_INFO_SELECT + "where v.bookerId = ?1")
+    List<BookingFullInfoDto> findAllByBooker_Id(Long userId, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.bookerId = ?1 and v.start < ?2 and v.end > ?3")
+    List<BookingFullInfoDto> findAllByBooker_IdAndStartBeforeAndEndAfter(Long userId, LocalDateTime dateStart, LocalDateTime dateEnd, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.bookerId = ?1 and v.start > ?2")
+    List<BookingFullInfoDto> findAllByBooker_IdAndStartAfter(Long userId, LocalDateTime dateStart, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.bookerId = ?1 and v.status = ?2")
+    List<BookingFullInfoDto> findAllByBooker_IdAndStatus(Long userId, BookingStatus status, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.bookerId = ?1 and v.status in ?2 and v.end < ?3")
+    List<BookingFullInfoDto> findAllByBooker_IdAndStatusInAndEndBefore(Long userId, List<BookingStatus> statuses, LocalDateTime endTime, PageRequest pageRequest);
+
+    //брони вещей владельца - по owner_id строки, без соединения с вещами
+    @Query(FULL_INFO_SELECT + "where v.ownerId = ?1")
+    List<BookingFullInfoDto> findAllByItem_Owner_Id(Long ownerId, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.ownerId = ?1 and v.start < ?2 and v.end > ?3")
+    List<BookingFullInfoDto> findAllByItem_Owner_IdAndStartBeforeAndEndAfter(Long ownerId, LocalDateTime dateStart, LocalDateTime dateEnd, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.ownerId = ?1 and v.start > ?2")
+    List<BookingFullInfoDto> findAllByItem_Owner_IdAndStartAfter(Long ownerId, LocalDateTime dateStart, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.ownerId = ?1 and v.status = ?2")
+    List<BookingFullInfoDto> findAllByItem_Owner_IdAndStatus(Long ownerId, BookingStatus status, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT + "where v.ownerId = ?1 and v.status in ?2 and v.end < ?3")
+    List<BookingFullInfoDto> findAllByItem_Owner_IdAndStatusInAndEndBefore(Long ownerId, List<BookingStatus> statuses, LocalDateTime dateEnd, PageRequest pageRequest);
+
+    //Страницы броней по курсору: сортировка по убыванию (start, id), страница начинается
+    //со следующей после (?2, ?3) брони - без пропуска offset строк на дальних страницах
+    @Query(FULL_INFO_SELECT +
+            "where v.bookerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findBookerBookingsAfterCursor(Long userId, LocalDateTime cursorStart, Long cursorId, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.bookerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.start < ?4 and v.end > ?4 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findBookerCurrentBookingsAfterCursor(Long userId, LocalDateTime cursorStart, Long cursorId, LocalDateTime now, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.bookerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.status in ?4 and v.end < ?5 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findBookerPastBookingsAfterCursor(Long userId, LocalDateTime cursorStart, Long cursorId, List<BookingStatus> statuses, LocalDateTime now, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.bookerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.start > ?4 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findBookerFutureBookingsAfterCursor(Long userId, LocalDateTime cursorStart, Long cursorId, LocalDateTime now, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.bookerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.status = ?4 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findBookerBookingsByStatusAfterCursor(Long userId, LocalDateTime cursorStart, Long cursorId, BookingStatus status, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.ownerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findOwnerBookingsAfterCursor(Long ownerId, LocalDateTime cursorStart, Long cursorId, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.ownerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.start < ?4 and v.end > ?4 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findOwnerCurrentBookingsAfterCursor(Long ownerId, LocalDateTime cursorStart, Long cursorId, LocalDateTime now, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.ownerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.status in ?4 and v.end < ?5 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findOwnerPastBookingsAfterCursor(Long ownerId, LocalDateTime cursorStart, Long cursorId, List<BookingStatus> statuses, LocalDateTime now, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.ownerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.start > ?4 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findOwnerFutureBookingsAfterCursor(Long ownerId, LocalDateTime cursorStart, Long cursorId, LocalDateTime now, PageRequest pageRequest);
+
+    @Query(FULL_INFO_SELECT +
+            "where v.ownerId = ?1 and (v.start < ?2 or (v.start = ?2 and v.id < ?3)) " +
+            "and v.status = ?4 " +
+            "order by v.start desc, v.id desc")
+    List<BookingFullInfoDto> findOwnerBookingsByStatusAfterCursor(Long ownerId, LocalDateTime cursorStart, Long cursorId, BookingStatus status, PageRequest pageRequest);
+
+    //вся история броней вещей владельца для выгрузки - по одной строке, без сборки списка в памяти.
+    //Читать можно только внутри транзакции; размер выборки нужен PostgreSQL, иначе драйвер загрузит все строки сразу
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(FULL_INFO_SELECT + "where v.ownerId = ?1 order by v.start desc, v.id desc")
+    Stream<BookingFullInfoDto> streamAllByOwnerId(Long ownerId);
+
+    //строки новых броней - копия брони вместе с текущими полями вещи и автора
+    @Modifying
+    @Query(value = "insert into booking_view " +
+            "(booking_id, start_date, end_date, status, booker_id, booker_name, booker_email, " +
+            "item_id, item_name, item_description, item_available, request_id, owner_id) " +
+            "select b.booking_id, b.start_date, b.end_date, b.status, u.user_id, u.user_name, u.email, " +
+            "i.item_id, i.item_name, i.description, i.available, i.request_id, i.owner_id " +
+            "from bookings b " +
+            "join items i on i.item_id = b.item_id " +
+            "join users u on u.user_id = b.booker_id " +
+            "where b.booking_id in (?1)",
+            nativeQuery = true)
+    int insertBookings(Collection<Long> bookingIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BookingView v set v.status = ?2 where v.id in ?1")
+    int updateStatuses(Collection<Long> bookingIds, BookingStatus status);
+
+    //изменения вещи и пользователя переносятся во все строки их броней - в транзакции сервиса,
+    //сохраняющего вещь или пользователя
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BookingView v set v.itemName = ?2, v.itemDescription = ?3, v.itemAvailable = ?4 where v.itemId = ?1")
+    int updateItem(Long itemId, String name, String description, Boolean available);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update BookingView v set v.bookerName = ?2, v.bookerEmail = ?3 where v.bookerId = ?1")
+    int updateBooker(Long bookerId, String name, String email);
+}
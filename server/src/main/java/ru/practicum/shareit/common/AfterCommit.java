@@ -0,0 +1,27 @@
+package ru.practicum.shareit.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//Изменение состояния в памяти (поисковый индекс, кэш), которое должно отражать только зафиксированные данные.
+//Внутри транзакции действие выполняется после ее фиксации и не выполняется при откате,
+//вне транзакции - сразу: данные к этому моменту уже зафиксированы репозиторием
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
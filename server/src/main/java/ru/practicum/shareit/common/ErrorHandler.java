@@ -6,7 +6,11 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.shareit.booking.exceptions.*;
+import ru.practicum.shareit.common.idempotency.IdempotencyKeyInProgressException;
+import ru.practicum.shareit.common.idempotency.IdempotencyKeyInvalidException;
+import ru.practicum.shareit.common.idempotency.IdempotencyKeyMismatchException;
 import ru.practicum.shareit.item.exceptions.CommentForNotExistBookingException;
+import ru.practicum.shareit.item.exceptions.ItemAvailabilityPeriodInvalidException;
 import ru.practicum.shareit.item.exceptions.ItemSecurityException;
 import ru.practicum.shareit.item.exceptions.ItemUnavailableException;
 import ru.practicum.shareit.item.exceptions.ItemUnknownException;
@@ -25,6 +29,13 @@ public class ErrorHandler {
         return new ErrorResponse(HttpStatus.BAD_REQUEST.toString(), exception.getMessage());
     }
 
+    @ExceptionHandler({BookingInvalidCursorException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleBookingInvalidCursorException(BookingInvalidCursorException exception) {
+        log.info("400: {}", exception.getMessage(), exception);
+        return new ErrorResponse(HttpStatus.BAD_REQUEST.toString(), exception.getMessage());
+    }
+
     @ExceptionHandler({ItemSecurityException.class})
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ErrorResponse handleSecurityException(RuntimeException exception) {
@@ -47,7 +58,15 @@ public class ErrorHandler {
         return new ErrorResponse(HttpStatus.BAD_REQUEST.toString(), exception.getMessage());
     }
 
-    @ExceptionHandler({UserAlreadyExistEmailException.class})
+    @ExceptionHandler({ItemAvailabilityPeriodInvalidException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleItemAvailabilityPeriodInvalidException(RuntimeException exception) {
+        log.info("400: {}", exception.getMessage(), exception);
+        return new ErrorResponse(HttpStatus.BAD_REQUEST.toString(), exception.getMessage());
+    }
+
+    @ExceptionHandler({UserAlreadyExistEmailException.class, BookingOverlapException.class,
+            IdempotencyKeyInProgressException.class})
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse handleAlreadyExistException(RuntimeException exception) {
         log.info("409: {}", exception.getMessage(), exception);
@@ -67,4 +86,25 @@ public class ErrorHandler {
         log.info("404: {}", exception.getMessage(), exception);
         return new ErrorResponse(HttpStatus.NOT_FOUND.toString(), exception.getMessage());
     }
+
+    @ExceptionHandler({IdempotencyKeyInvalidException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleIdempotencyKeyInvalidException(RuntimeException exception) {
+        log.info("400: {}", exception.getMessage(), exception);
+        return new ErrorResponse(HttpStatus.BAD_REQUEST.toString(), exception.getMessage());
+    }
+
+    @ExceptionHandler({IdempotencyKeyMismatchException.class})
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ErrorResponse handleIdempotencyKeyMismatchException(RuntimeException exception) {
+        log.info("422: {}", exception.getMessage(), exception);
+        return new ErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY.toString(), exception.getMessage());
+    }
+
+    @ExceptionHandler({BookingCreateUnavailableException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleBookingCreateUnavailableException(RuntimeException exception) {
+        log.warn("503: {}", exception.getMessage(), exception);
+        return new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.toString(), exception.getMessage());
+    }
 }
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+//Потоковый ответ-список (параметр stream=true): JSON-массив пишется через JsonGenerator по мере загрузки.
+//Элементы читаются из БД частями по CHUNK_SIZE, каждая часть переводится в DTO, записывается и больше не хранится,
+//поэтому в памяти одновременно находится одна часть, а не весь список вместе со списком его DTO
+@Component
+public class JsonStreamWriter {
+
+    public static final int CHUNK_SIZE = 100;
+
+    private final ObjectWriter writer;
+
+    public JsonStreamWriter(ObjectMapper objectMapper) {
+        //части сбрасываются в ответ целиком, а не после каждого элемента
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    //firstChunk загружается до начала ответа, поэтому ошибки проверки (неизвестный пользователь, состояние)
+    //возвращаются обычным ответом с ошибкой. nextChunk по предыдущей части загружает следующую -
+    //только если предыдущая часть полная
+    public <T> StreamingResponseBody write(List<T> firstChunk, UnaryOperator<List<T>> nextChunk) {
+        return (outputStream) -> {
+            try (JsonGenerator generator = writer.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+
+                List<T> chunk = firstChunk;
+
+                while (true) {
+                    for (T element : chunk) {
+                        writer.writeValue(generator, element);
+                    }
+
+                    generator.flush();
+
+                    if (chunk.size() < CHUNK_SIZE) {
+                        break;
+                    }
+
+                    chunk = nextChunk.apply(chunk);
+                }
+
+                generator.writeEndArray();
+            }
+        };
+    }
+}
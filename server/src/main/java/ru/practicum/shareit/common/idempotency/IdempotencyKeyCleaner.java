@@ -0,0 +1,45 @@
+package ru.practicum.shareit.common.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+//Фоновое удаление ключей идемпотентности старше срока хранения: повторы приходят в пределах минут,
+//поэтому таблица остается размером с ключи последних часов. Удаляются и ключи запросов,
+//которые так и не получили ответа (сервер остановился во время запроса)
+@Component
+@Slf4j
+public class IdempotencyKeyCleaner {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final boolean enabled;
+    private final int ttlHours;
+
+    public IdempotencyKeyCleaner(IdempotencyRecordRepository idempotencyRecordRepository,
+                                 @Value("${shareit.idempotency.cleanup.enabled:false}") boolean enabled,
+                                 @Value("${shareit.idempotency.ttl-hours:24}") int ttlHours) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.enabled = enabled;
+        this.ttlHours = ttlHours;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.idempotency.cleanup.interval:600000}")
+    public void cleanup() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(ttlHours));
+
+            if (deleted > 0) {
+                log.info("Удалено устаревших ключей идемпотентности: {}", deleted);
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Не удалось удалить устаревшие ключи идемпотентности, повтор при следующем запуске", exception);
+        }
+    }
+}
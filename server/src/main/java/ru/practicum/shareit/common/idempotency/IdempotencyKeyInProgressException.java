@@ -0,0 +1,7 @@
+package ru.practicum.shareit.common.idempotency;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
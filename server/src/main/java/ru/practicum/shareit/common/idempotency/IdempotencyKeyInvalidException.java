@@ -0,0 +1,7 @@
+package ru.practicum.shareit.common.idempotency;
+
+public class IdempotencyKeyInvalidException extends RuntimeException {
+    public IdempotencyKeyInvalidException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.common.idempotency;
+
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
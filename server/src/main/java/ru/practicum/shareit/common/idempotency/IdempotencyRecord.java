@@ -0,0 +1,52 @@
+package ru.practicum.shareit.common.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+//ключ идемпотентности запроса пользователя: отпечаток запроса и ответ на него.
+//Пока запрос выполняется, ответа нет; через срок хранения запись удаляет IdempotencyKeyCleaner
+@Entity
+@Table(name = "idempotency_keys")
+@IdClass(IdempotencyRecord.Key.class)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    //md5 операции и тела запроса: тот же ключ с другим запросом - ошибка клиента, а не повтор
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    //ответ в JSON, null - запрос еще выполняется
+    @Column(name = "response")
+    private String response;
+
+    @Column(name = "creation_date", nullable = false)
+    private LocalDateTime created;
+
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String key;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.common.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+//каждый метод - отдельная короткая транзакция: ключ занимается и освобождается независимо от самого запроса
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    //занять ключ: вставка без ответа. Если ключ уже занят, вставка нарушит первичный ключ
+    @Transactional
+    @Modifying
+    @Query(value = "insert into idempotency_keys (user_id, idempotency_key, request_hash, creation_date) " +
+            "values (?1, ?2, ?3, ?4)",
+            nativeQuery = true)
+    int claim(Long userId, String key, String requestHash, LocalDateTime created);
+
+    //завершение и освобождение - только своего захвата ключа (created - момент захвата): захват,
+    //переданный другому запросу по истечении аренды, не перезаписывается и не удаляется
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyRecord r set r.response = ?4 " +
+            "where r.userId = ?1 and r.key = ?2 and r.created = ?3 and r.response is null")
+    int complete(Long userId, String key, LocalDateTime created, String response);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r " +
+            "where r.userId = ?1 and r.key = ?2 and r.created = ?3 and r.response is null")
+    int release(Long userId, String key, LocalDateTime created);
+
+    //освободить ключ, занятый раньше claimedBefore и так и не получивший ответа
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r " +
+            "where r.userId = ?1 and r.key = ?2 and r.created < ?3 and r.response is null")
+    int releaseExpired(Long userId, String key, LocalDateTime claimedBefore);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.created < ?1")
+    int deleteCreatedBefore(LocalDateTime createdBefore);
+}
@@ -0,0 +1,195 @@
+package ru.practicum.shareit.common.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+//Запросы с заголовком Idempotency-Key: клиент, не дождавшийся ответа, повторяет запрос с тем же ключом
+//и получает сохраненный ответ - запрос второй раз не выполняется и дубликат не создается.
+//Ключ занимается вставкой строки до выполнения запроса, поэтому из одновременных повторов выполняется только один.
+//Занятый ключ без ответа арендован на in-progress-lease-seconds секунд: если запрос не завершился за это время
+//(сервер остановился, ключ не удалось освободить), повтор занимает ключ заново, а не получает 409 до удаления ключа.
+//Ответ выполненного запроса, который не удалось сохранить, дописывается в фоне (complete-retry-interval):
+//до этого ключ не освобождается и не занимается заново, а повтор получает 409
+@Component
+@Slf4j
+public class IdempotentRequests {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final long leaseSeconds;
+
+    //ответы выполненных запросов, которые еще не удалось сохранить
+    private final Map<IdempotencyRecord.Key, PendingResponse> pendingResponses = new ConcurrentHashMap<>();
+
+    public IdempotentRequests(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${shareit.idempotency.in-progress-lease-seconds:30}") long leaseSeconds) {
+        if (leaseSeconds < 1) {
+            throw new IllegalArgumentException("Аренда ключа идемпотентности должна быть положительной");
+        }
+
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    //выполнить запрос operation с телом request один раз для ключа key пользователя userId.
+    //Без ключа запрос просто выполняется
+    public <T> T execute(Long userId, @Nullable String key, String operation, Object request,
+                         Class<T> responseType, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyInvalidException(String.format(
+                    "Заголовок %s должен быть непустым и не длиннее %d символов.", HEADER, MAX_KEY_LENGTH));
+        }
+
+        String requestHash = DigestUtils.md5DigestAsHex(
+                (operation + "\n" + toJson(request)).getBytes(StandardCharsets.UTF_8));
+
+        //момент захвата отличает этот захват ключа от следующих; точность - как у столбца в любой БД
+        LocalDateTime claimed = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+        if (!claim(userId, key, requestHash, claimed)) {
+            return replay(userId, key, requestHash, responseType);
+        }
+
+        T response;
+        boolean succeeded = false;
+
+        try {
+            response = action.get();
+            succeeded = true;
+        } finally {
+            //ответа нет (в том числе при Error) - ключ освобождается, и повтор с ним выполнит запрос заново
+            if (!succeeded) {
+                release(userId, key, claimed);
+            }
+        }
+
+        String responseJson = toJson(response);
+
+        try {
+            if (idempotencyRecordRepository.complete(userId, key, claimed, responseJson) == 0) {
+                log.warn("Запрос с ключом {} пользователя {} выполнялся дольше аренды ключа, ответ не сохранен", key, userId);
+            }
+        } catch (RuntimeException exception) {
+            //запрос уже выполнен: ключ остается занятым, чтобы повтор не выполнил запрос второй раз
+            log.warn("Не удалось сохранить ответ на запрос с ключом {} пользователя {}, повтор в фоне", key, userId, exception);
+            pendingResponses.put(new IdempotencyRecord.Key(userId, key), new PendingResponse(claimed, responseJson));
+        }
+
+        return response;
+    }
+
+    //дописать ответы, которые не удалось сохранить сразу после запроса
+    @Scheduled(fixedDelayString = "${shareit.idempotency.complete-retry-interval:1000}")
+    public void completePending() {
+        pendingResponses.forEach((recordKey, pending) -> {
+            try {
+                if (idempotencyRecordRepository.complete(recordKey.getUserId(), recordKey.getKey(),
+                        pending.getClaimed(), pending.getResponse()) == 0) {
+                    log.warn("Ключ {} пользователя {} удален до сохранения ответа", recordKey.getKey(), recordKey.getUserId());
+                }
+
+                pendingResponses.remove(recordKey, pending);
+            } catch (RuntimeException exception) {
+                log.warn("Не удалось сохранить ответ на запрос с ключом {} пользователя {}, повтор при следующем запуске",
+                        recordKey.getKey(), recordKey.getUserId(), exception);
+            }
+        });
+    }
+
+    private boolean claim(Long userId, String key, String requestHash, LocalDateTime claimed) {
+        try {
+            idempotencyRecordRepository.claim(userId, key, requestHash, claimed);
+            return true;
+        } catch (DataIntegrityViolationException exception) {
+            //запрос с этим ключом выполнен, но его ответ еще не сохранен - ключ не освобождается по аренде
+            if (pendingResponses.containsKey(new IdempotencyRecord.Key(userId, key))) {
+                return false;
+            }
+
+            //ключ занят: если его захват без ответа старше аренды, ключ освобождается и занимается заново.
+            //Из одновременных повторов строку удалит и ключ займет только один
+            if (idempotencyRecordRepository.releaseExpired(userId, key, claimed.minusSeconds(leaseSeconds)) == 0) {
+                return false;
+            }
+        }
+
+        try {
+            idempotencyRecordRepository.claim(userId, key, requestHash, claimed);
+            return true;
+        } catch (DataIntegrityViolationException exception) {
+            return false;
+        }
+    }
+
+    //ошибка освобождения не заменяет ошибку запроса: ключ освободится по истечении аренды
+    private void release(Long userId, String key, LocalDateTime claimed) {
+        try {
+            idempotencyRecordRepository.release(userId, key, claimed);
+        } catch (RuntimeException exception) {
+            log.warn("Не удалось освободить ключ {} пользователя {}", key, userId, exception);
+        }
+    }
+
+    private <T> T replay(Long userId, String key, String requestHash, Class<T> responseType) {
+        //ключ мог быть освобожден после неудачного запроса - тогда повтор нужно просто отправить еще раз
+        IdempotencyRecord record = idempotencyRecordRepository.findById(new IdempotencyRecord.Key(userId, key))
+                .orElseThrow(() -> new IdempotencyKeyInProgressException(String.format(
+                        "Запрос с ключом %s еще выполняется, повторите его позже.", key)));
+
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyMismatchException(String.format(
+                    "Ключ %s уже использован для другого запроса.", key));
+        }
+
+        if (record.getResponse() == null) {
+            throw new IdempotencyKeyInProgressException(String.format(
+                    "Запрос с ключом %s еще выполняется, повторите его позже.", key));
+        }
+
+        try {
+            return objectMapper.readValue(record.getResponse(), responseType);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Сохраненный ответ не читается как " + responseType.getSimpleName(), exception);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Не удалось записать " + value.getClass().getSimpleName() + " в JSON", exception);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class PendingResponse {
+        private final LocalDateTime claimed;
+        private final String response;
+    }
+}
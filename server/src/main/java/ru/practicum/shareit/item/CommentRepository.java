@@ -1,9 +1,22 @@
 package ru.practicum.shareit.item;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.item.dto.ItemCommentDto;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    //для CommentDto нужно имя автора - он выбирается вместе с комментариями
+    @EntityGraph(attributePaths = {"author"})
     List<Comment> findAllByItem_IdOrderByCreatedDesc(Long itemId);
+
+    //комментарии сразу для набора вещей вместе с именами авторов - одним запросом
+    @Query("select new ru.practicum.shareit.item.dto.ItemCommentDto(c.id, c.item.id, c.text, a.name, c.created) " +
+            "from Comment c join c.author a " +
+            "where c.item.id in ?1 " +
+            "order by c.created desc")
+    List<ItemCommentDto> findAllByItemIdsWithAuthorName(Collection<Long> itemIds);
 }
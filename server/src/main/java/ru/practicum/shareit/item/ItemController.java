@@ -1,12 +1,20 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.common.idempotency.IdempotentRequests;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingsAndCommentsDto;
 import ru.practicum.shareit.item.service.ItemService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -15,11 +23,21 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final IdempotentRequests idempotentRequests;
 
+    //повтор с тем же Idempotency-Key получает сохраненный ответ, вещь второй раз не создается
     @PostMapping
     public ItemDto createItem(@RequestBody ItemDto itemDto,
-                              @RequestHeader("X-Sharer-User-Id") Long userId) {
-        return itemService.createItem(itemDto, userId);
+                              @RequestHeader("X-Sharer-User-Id") Long userId,
+                              @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey) {
+        return idempotentRequests.execute(userId, idempotencyKey, "POST /items", itemDto,
+                ItemDto.class, () -> itemService.createItem(itemDto, userId));
+    }
+
+    @PostMapping("/batch")
+    public List<ItemDto> createItems(@RequestBody ItemBatchDto itemBatchDto,
+                                     @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return itemService.createItems(itemBatchDto.getItems(), userId);
     }
 
     @PatchMapping("/{itemId}")
@@ -35,6 +53,14 @@ public class ItemController {
         return itemService.getItemById(itemId, userId);
     }
 
+    @GetMapping("/{itemId}/availability")
+    public ItemAvailabilityDto getItemAvailability(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                   @PathVariable Long itemId,
+                                                   @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                   @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return itemService.getItemAvailability(itemId, userId, from, to);
+    }
+
     @GetMapping
     public List<ItemWithBookingsAndCommentsDto> getAllItemsForUserId(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                                      @RequestParam(name = "from", defaultValue = "0")  Integer from,
@@ -42,6 +68,14 @@ public class ItemController {
         return itemService.getAllItemsForUser(userId, from, size);
     }
 
+    //все вещи пользователя без страниц (stream=true): ответ пишется частями по мере чтения из БД
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllItemsForUserId(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(itemService.streamAllItemsForUser(userId));
+    }
+
     @GetMapping("/search")
     public List<ItemDto> searchItemsWithText(@RequestHeader("X-Sharer-User-Id") Long userId,
                                              @RequestParam(name = "text") String text,
@@ -1,19 +1,68 @@
 package ru.practicum.shareit.item;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.dto.ItemDetailsDto;
+import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
 
     List<Item> findItemsByOwnerId(Long ownerId, PageRequest pageRequest);
 
+    //часть вещей владельца для потокового ответа - после вещи afterId по возрастанию id
+    List<Item> findItemsByOwnerIdAndIdGreaterThanOrderById(Long ownerId, Long afterId, PageRequest pageRequest);
+
     List<Item> findALlItemsByOwnerId(Long ownerId);
 
-    @Query("select i from Item i where lower(concat(i.name, ' ', i.description) ) like %?1%")
-    List<Item> findItemsByKeyWord(String keyWord, PageRequest pageRequest);
+    //только доступные вещи, страница целиком формируется в БД;
+    //на PostgreSQL выражение обслуживается частичным триграммным GIN индексом из schema-postgresql.sql,
+    //на H2 выполняется обычным сканированием
+    @Query("select i from Item i " +
+            "where i.available = true and lower(concat(i.name, ' ', i.description) ) like %?1% " +
+            "order by i.id")
+    List<Item> findItemsByKeyWord(String keyWord, Pageable pageable);
 
     List<Item> findAllByRequest_Id(Long requestId);
+
+    //вещи по нескольким запросам одним обращением к БД, порядок вещей внутри запроса - по id
+    List<Item> findAllByRequest_IdInOrderById(Collection<Long> requestIds);
+
+    //вещи для построения поискового индекса порциями по возрастанию id
+    @Query("select new ru.practicum.shareit.item.dto.ItemDto(i.id, i.name, i.description, i.available, r.id) " +
+            "from Item i left join i.request r " +
+            "where i.id > ?1 " +
+            "order by i.id")
+    List<ItemDto> findItemsForSearchIndex(Long afterId, PageRequest pageRequest);
+
+    //карточка вещи одним запросом: вещь, существование пользователя, число текущих броней в статусах statuses
+    //и комментарии с именами авторов (по строке на комментарий, сначала новые)
+    @Query("select new ru.practicum.shareit.item.dto.ItemDetailsDto(i.id, i.name, i.description, i.available, i.owner.id, " +
+            "(select count(u) from User u where u.id = ?2), " +
+            "(select count(b) from Booking b where b.item.id = i.id and b.status in ?4 and b.start < ?3 and b.end > ?3), " +
+            "c.id, c.text, a.name, c.created) " +
+            "from Item i " +
+            "left join Comment c on c.item.id = i.id " +
+            "left join User a on a.id = c.author.id " +
+            "where i.id = ?1 " +
+            "order by c.created desc")
+    List<ItemDetailsDto> findItemDetailsById(Long itemId, Long userId, LocalDateTime now, List<BookingStatus> statuses);
+
+    //то же без подсчета текущих броней - когда занятость вещи известна из индекса интервалов броней
+    @Query("select new ru.practicum.shareit.item.dto.ItemDetailsDto(i.id, i.name, i.description, i.available, i.owner.id, " +
+            "(select count(u) from User u where u.id = ?2), " +
+            "c.id, c.text, a.name, c.created) " +
+            "from Item i " +
+            "left join Comment c on c.item.id = i.id " +
+            "left join User a on a.id = c.author.id " +
+            "where i.id = ?1 " +
+            "order by c.created desc")
+    List<ItemDetailsDto> findItemDetailsWithoutBookingsById(Long itemId, Long userId);
 }
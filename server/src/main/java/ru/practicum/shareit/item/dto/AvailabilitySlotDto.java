@@ -0,0 +1,19 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//отрезок календаря вещи: свободна вещь на нем или занята бронями
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilitySlotDto {
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Boolean available;
+}
@@ -14,6 +14,24 @@ public class CommentMapper {
         );
     }
 
+    public static CommentDto toCommentDto(ItemCommentDto comment) {
+        return new CommentDto(
+            comment.getId(),
+            comment.getText(),
+            comment.getAuthorName(),
+            comment.getCreated()
+        );
+    }
+
+    public static CommentDto toCommentDto(ItemDetailsDto itemDetails) {
+        return new CommentDto(
+            itemDetails.getCommentId(),
+            itemDetails.getCommentText(),
+            itemDetails.getCommentAuthorName(),
+            itemDetails.getCommentCreated()
+        );
+    }
+
     public static Comment toComment(Item item, CommentDto commentDto, User user) {
         return new Comment(
             commentDto.getId(),
@@ -0,0 +1,35 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//строка запроса карточки вещи: данные вещи, проверки пользователя и текущих броней
+//и один комментарий (поля комментария пустые, если комментариев нет)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemDetailsDto {
+    private Long id;
+    private String name;
+    private String description;
+    private Boolean available;
+    private Long ownerId;
+    private Long userCount;
+    private Long activeBookingsCount;
+    private Long commentId;
+    private String commentText;
+    private String commentAuthorName;
+    private LocalDateTime commentCreated;
+
+    //строка без подсчета текущих броней - занятость вещи берется из индекса интервалов броней
+    public ItemDetailsDto(Long id, String name, String description, Boolean available, Long ownerId, Long userCount,
+                          Long commentId, String commentText, String commentAuthorName, LocalDateTime commentCreated) {
+        this(id, name, description, available, ownerId, userCount, null,
+                commentId, commentText, commentAuthorName, commentCreated);
+    }
+}
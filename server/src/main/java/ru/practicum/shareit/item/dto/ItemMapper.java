@@ -1,13 +1,13 @@
 package ru.practicum.shareit.item.dto;
 
-import ru.practicum.shareit.booking.Booking;
-import ru.practicum.shareit.item.Comment;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.requests.ItemRequest;
 import ru.practicum.shareit.user.User;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ItemMapper {
 
@@ -32,25 +32,78 @@ public class ItemMapper {
         );
     }
 
-    public static ItemWithBookingsAndCommentsDto toItemWithBookingsDto(Item item, Booking lastBooking, Booking nextBooking, List<Comment> comments) {
+    public static ItemWithBookingsAndCommentsDto toItemWithBookingsDto(Item item, BookingShortDto lastBooking, BookingShortDto nextBooking, List<CommentDto> comments) {
         return new ItemWithBookingsAndCommentsDto(
                 item.getId(),
                 item.getName(),
                 item.getDescription(),
                 item.getAvailable(),
-                lastBooking == null ? null : new ItemBookingInfoDto(
-                        lastBooking.getId(),
-                        lastBooking.getStart(),
-                        lastBooking.getEnd(),
-                        lastBooking.getBooker().getId()
-                ),
-                nextBooking == null ? null : new ItemBookingInfoDto(
-                        nextBooking.getId(),
-                        nextBooking.getStart(),
-                        nextBooking.getEnd(),
-                        nextBooking.getBooker().getId()
-                ),
-                comments.stream().map(CommentMapper::toCommentDto).collect(Collectors.toList())
+                toItemBookingInfoDto(lastBooking),
+                toItemBookingInfoDto(nextBooking),
+                comments
         );
     }
+
+    public static ItemWithBookingsAndCommentsDto toItemWithBookingsDto(ItemDetailsDto itemDetails, BookingShortDto lastBooking, BookingShortDto nextBooking, List<CommentDto> comments) {
+        return new ItemWithBookingsAndCommentsDto(
+                itemDetails.getId(),
+                itemDetails.getName(),
+                itemDetails.getDescription(),
+                itemDetails.getAvailable(),
+                toItemBookingInfoDto(lastBooking),
+                toItemBookingInfoDto(nextBooking),
+                comments
+        );
+    }
+
+    public static ItemBookingInfoDto toItemBookingInfoDto(BookingShortDto booking) {
+        return booking == null ? null : new ItemBookingInfoDto(
+                booking.getId(),
+                booking.getStart(),
+                booking.getEnd(),
+                booking.getBookerId()
+        );
+    }
+
+    //bookings - брони, пересекающие период, по возрастанию даты начала;
+    //пересекающиеся и соприкасающиеся брони объединяются в один занятый отрезок
+    public static ItemAvailabilityDto toItemAvailabilityDto(Long itemId, LocalDateTime from, LocalDateTime to, List<BookingShortDto> bookings) {
+        List<AvailabilitySlotDto> slots = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+        LocalDateTime busyStart = null;
+        LocalDateTime busyEnd = null;
+
+        for (BookingShortDto booking : bookings) {
+            LocalDateTime start = booking.getStart().isBefore(from) ? from : booking.getStart();
+            LocalDateTime end = booking.getEnd().isAfter(to) ? to : booking.getEnd();
+
+            if (busyEnd != null && !start.isAfter(busyEnd)) {
+                busyEnd = end.isAfter(busyEnd) ? end : busyEnd;
+                continue;
+            }
+
+            if (busyEnd != null) {
+                slots.add(new AvailabilitySlotDto(busyStart, busyEnd, Boolean.FALSE));
+                freeFrom = busyEnd;
+            }
+
+            if (start.isAfter(freeFrom)) {
+                slots.add(new AvailabilitySlotDto(freeFrom, start, Boolean.TRUE));
+            }
+
+            busyStart = start;
+            busyEnd = end;
+        }
+
+        if (busyEnd != null) {
+            slots.add(new AvailabilitySlotDto(busyStart, busyEnd, Boolean.FALSE));
+            freeFrom = busyEnd;
+        }
+
+        if (to.isAfter(freeFrom)) {
+            slots.add(new AvailabilitySlotDto(freeFrom, to, Boolean.TRUE));
+        }
+
+        return new ItemAvailabilityDto(itemId, from, to, slots);
+    }
 }
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.item.exceptions;
+
+public class ItemAvailabilityPeriodInvalidException extends RuntimeException {
+    public ItemAvailabilityPeriodInvalidException(String message) {
+        super(message);
+    }
+}
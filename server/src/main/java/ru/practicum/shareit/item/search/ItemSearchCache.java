@@ -0,0 +1,114 @@
+package ru.practicum.shareit.item.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//Кэш результатов поиска вещей: ключ - ключевое слово без учета регистра и параметры страницы.
+//Размер ограничен суммарным числом вещей во всех закэшированных страницах (W-TinyLFU вытеснение Caffeine).
+//При создании, изменении или удалении вещи удаляются только те страницы, ключевое слово которых
+//совпадает со старым или новым текстом вещи.
+@Component
+public class ItemSearchCache {
+
+    public static final String CACHE_NAME = "itemSearch";
+
+    private final boolean enabled;
+    private final Cache<SearchKey, List<ItemDto>> cache;
+
+    //увеличивается при каждом изменении вещей: страница, посчитанная во время изменения,
+    //могла не увидеть его, поэтому в кэше не остается
+    private final AtomicLong generation = new AtomicLong();
+
+    public ItemSearchCache(MeterRegistry meterRegistry,
+                           @Value("${shareit.search.cache.enabled:true}") boolean enabled,
+                           @Value("${shareit.search.cache.max-weight:100000}") long maxWeight) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((SearchKey key, List<ItemDto> items) -> items.size() + 1)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public List<ItemDto> get(String keyWord, int from, int size, Supplier<List<ItemDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        SearchKey key = new SearchKey(keyWord.toLowerCase(), from, size);
+        List<ItemDto> items = cache.getIfPresent(key);
+
+        if (items != null) {
+            return items;
+        }
+
+        long loadedGeneration = generation.get();
+        items = List.copyOf(loader.get());
+        cache.put(key, items);
+
+        //вещи изменились, пока страница считалась - страница могла устареть
+        if (generation.get() != loadedGeneration) {
+            cache.invalidate(key);
+        }
+
+        return items;
+    }
+
+    //oldItem - вещь до изменения (null при создании), newItem - после (null при удалении)
+    public void evict(ItemDto oldItem, ItemDto newItem) {
+        if (!enabled) {
+            return;
+        }
+
+        generation.incrementAndGet();
+
+        String oldText = toSearchTextIfAvailable(oldItem);
+        String newText = toSearchTextIfAvailable(newItem);
+
+        if (oldText == null && newText == null) {
+            return;
+        }
+
+        cache.asMap().keySet().removeIf((key) -> {
+            LikePattern pattern = LikePattern.of(key.getText());
+
+            return (oldText != null && pattern.matches(oldText)) || (newText != null && pattern.matches(newText));
+        });
+    }
+
+    //недоступная вещь в результаты поиска не попадает
+    private static String toSearchTextIfAvailable(ItemDto item) {
+        if (item == null || !Boolean.TRUE.equals(item.getAvailable())) {
+            return null;
+        }
+
+        return LikePattern.toSearchText(item.getName(), item.getDescription());
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    private static class SearchKey {
+        private final String text;
+        private final int from;
+        private final int size;
+
+        private SearchKey(String text, int from, int size) {
+            this.text = text;
+            this.from = from;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Инвертированный индекс для поиска вещей в памяти: триграмма -> отсортированный массив id вещей.
+//Кандидаты отбираются пересечением списков триграмм ключевого слова,
+//а затем проверяются по тексту вещи с той же семантикой, что у like '%слово%' в ItemRepository.
+//Индекс хранит состояние одного экземпляра сервера, поэтому включать его можно,
+//только если вещи изменяются через этот же экземпляр.
+@Component
+@Slf4j
+public class ItemSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final ItemRepository itemRepository;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, long[]> postings = new HashMap<>();
+    private final NavigableMap<Long, IndexedItem> items = new TreeMap<>();
+
+    private volatile boolean ready;
+
+    public ItemSearchIndex(ItemRepository itemRepository,
+                           @Value("${shareit.search.index.enabled:false}") boolean enabled) {
+        this.itemRepository = itemRepository;
+        this.enabled = enabled;
+    }
+
+    //индекс можно использовать только после полной загрузки вещей из БД
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+
+        long lastId = 0L;
+        int count = 0;
+        List<ItemDto> batch;
+
+        do {
+            batch = itemRepository.findItemsForSearchIndex(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+
+            lock.writeLock().lock();
+            try {
+                for (ItemDto item : batch) {
+                    //вещь уже могла попасть в индекс из createItem/updateItem в более свежем состоянии
+                    if (!items.containsKey(item.getId())) {
+                        put(item);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+                count += batch.size();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+
+        ready = true;
+        log.info("Поисковый индекс вещей построен: {} вещей, {} триграмм", count, postings.size());
+    }
+
+    //добавить вещь в индекс или обновить ее, если название, описание или доступность изменились
+    public void index(ItemDto item) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            put(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //убрать удаленную вещь из индекса
+    public void remove(long itemId) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            IndexedItem oldItem = items.remove(itemId);
+
+            if (oldItem != null) {
+                for (String gram : toGrams(oldItem.text)) {
+                    removePosting(gram, itemId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //доступные вещи, содержащие ключевое слово, по возрастанию id
+    public List<ItemDto> search(String keyWord, int offset, int limit) {
+        String text = keyWord.toLowerCase();
+        LikePattern pattern = LikePattern.of(text);
+        List<ItemDto> result = new ArrayList<>();
+        int skipped = 0;
+
+        lock.readLock().lock();
+        try {
+            long[] candidates = findCandidates(text);
+            Iterator<IndexedItem> iterator = candidates == null
+                    ? items.values().iterator()
+                    : Arrays.stream(candidates).mapToObj(items::get).iterator();
+
+            while (iterator.hasNext() && result.size() < limit) {
+                IndexedItem item = iterator.next();
+
+                if (!item.available || !pattern.matches(item.text)) {
+                    continue;
+                }
+
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    result.add(item.toItemDto());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return result;
+    }
+
+    private void put(ItemDto item) {
+        IndexedItem newItem = new IndexedItem(item);
+        IndexedItem oldItem = items.put(newItem.id, newItem);
+
+        Set<String> newGrams = toGrams(newItem.text);
+        Set<String> oldGrams = oldItem == null ? Collections.emptySet() : toGrams(oldItem.text);
+
+        for (String gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                removePosting(gram, newItem.id);
+            }
+        }
+
+        for (String gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                addPosting(gram, newItem.id);
+            }
+        }
+    }
+
+    //null - если по ключевому слову нельзя отобрать кандидатов и нужно проверить все вещи
+    private long[] findCandidates(String text) {
+        List<long[]> lists = new ArrayList<>();
+
+        //символы '%' и '_' в like не являются литералами, поэтому триграммы берутся только из частей без них
+        for (String part : text.split("[%_]")) {
+            for (String gram : toGrams(part)) {
+                long[] ids = postings.get(gram);
+
+                if (ids == null) {
+                    return new long[0];
+                }
+
+                lists.add(ids);
+            }
+        }
+
+        if (lists.isEmpty()) {
+            return null;
+        }
+
+        lists.sort(Comparator.comparingInt((long[] ids) -> ids.length));
+
+        long[] result = lists.get(0);
+
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+
+        return result;
+    }
+
+    private void addPosting(String gram, long id) {
+        long[] ids = postings.get(gram);
+
+        if (ids == null) {
+            postings.put(gram, new long[]{id});
+            return;
+        }
+
+        int position = Arrays.binarySearch(ids, id);
+
+        if (position >= 0) {
+            return;
+        }
+
+        int insertAt = -position - 1;
+        long[] newIds = new long[ids.length + 1];
+        System.arraycopy(ids, 0, newIds, 0, insertAt);
+        newIds[insertAt] = id;
+        System.arraycopy(ids, insertAt, newIds, insertAt + 1, ids.length - insertAt);
+        postings.put(gram, newIds);
+    }
+
+    private void removePosting(String gram, long id) {
+        long[] ids = postings.get(gram);
+
+        if (ids == null) {
+            return;
+        }
+
+        int position = Arrays.binarySearch(ids, id);
+
+        if (position < 0) {
+            return;
+        }
+
+        if (ids.length == 1) {
+            postings.remove(gram);
+            return;
+        }
+
+        long[] newIds = new long[ids.length - 1];
+        System.arraycopy(ids, 0, newIds, 0, position);
+        System.arraycopy(ids, position + 1, newIds, position, ids.length - position - 1);
+        postings.put(gram, newIds);
+    }
+
+    private static long[] intersect(long[] first, long[] second) {
+        long[] result = new long[Math.min(first.length, second.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, size);
+    }
+
+    private static Set<String> toGrams(String text) {
+        Set<String> grams = new HashSet<>();
+
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+
+        return grams;
+    }
+
+    private static class IndexedItem {
+        private final long id;
+        private final String name;
+        private final String description;
+        private final boolean available;
+        private final Long requestId;
+        private final String text;
+
+        private IndexedItem(ItemDto item) {
+            this.id = item.getId();
+            this.name = item.getName();
+            this.description = item.getDescription();
+            this.available = Boolean.TRUE.equals(item.getAvailable());
+            this.requestId = item.getRequestId();
+            this.text = LikePattern.toSearchText(name, description);
+        }
+
+        private ItemDto toItemDto() {
+            return new ItemDto(id, name, description, available, requestId);
+        }
+    }
+}
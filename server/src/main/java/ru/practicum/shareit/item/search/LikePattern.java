@@ -0,0 +1,46 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.regex.Pattern;
+
+//Проверка текста с той же семантикой, что у like '%слово%' в ItemRepository.findItemsByKeyWord:
+//'%' - любая последовательность символов, '_' - любой один символ
+class LikePattern {
+
+    private final Pattern pattern;
+
+    private LikePattern(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    static LikePattern of(String keyWord) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (char symbol : keyWord.toLowerCase().toCharArray()) {
+            if (symbol == '%' || symbol == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(symbol == '%' ? ".*" : ".");
+            } else {
+                literal.append(symbol);
+            }
+        }
+
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return new LikePattern(Pattern.compile(regex.toString(), Pattern.DOTALL));
+    }
+
+    //текст вещи, по которому ищет запрос в ItemRepository
+    static String toSearchText(String name, String description) {
+        return (name + " " + description).toLowerCase();
+    }
+
+    boolean matches(String searchText) {
+        return pattern.matcher(searchText).find();
+    }
+}
@@ -1,21 +1,31 @@
 package ru.practicum.shareit.item.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingsAndCommentsDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
 
     ItemDto createItem(ItemDto itemDto, Long userId);
 
+    List<ItemDto> createItems(List<ItemDto> itemDtos, Long userId);
+
     ItemDto updateItem(Long itemId, ItemDto itemDto, Long userId);
 
     ItemWithBookingsAndCommentsDto getItemById(Long itemId, Long userId);
 
+    ItemAvailabilityDto getItemAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to);
+
     List<ItemWithBookingsAndCommentsDto> getAllItemsForUser(Long userId, Integer from, Integer size);
 
+    //все вещи пользователя без страниц, частями по мере чтения из БД
+    StreamingResponseBody streamAllItemsForUser(Long userId);
+
     List<ItemDto> getItemsWithKeyWord(String keyWord, Integer from, Integer size);
 
     CommentDto addNewCommentByItemId(Long itemId, CommentDto commentDto, Long userId);
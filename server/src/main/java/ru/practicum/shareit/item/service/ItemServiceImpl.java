@@ -5,17 +5,30 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.archive.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.booking.dto.ItemBookingCandidateDto;
+import ru.practicum.shareit.booking.interval.BookingIntervalIndex;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.common.AfterCommit;
+import ru.practicum.shareit.common.JsonStreamWriter;
+import ru.practicum.shareit.common.OffsetPageRequest;
 import ru.practicum.shareit.item.Comment;
 import ru.practicum.shareit.item.CommentRepository;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.exceptions.CommentForNotExistBookingException;
+import ru.practicum.shareit.item.exceptions.ItemAvailabilityPeriodInvalidException;
 import ru.practicum.shareit.item.exceptions.ItemSecurityException;
 import ru.practicum.shareit.item.exceptions.ItemUnknownException;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.requests.ItemRequest;
 import ru.practicum.shareit.requests.ItemRequestRepository;
 import ru.practicum.shareit.requests.exceptions.ItemRequestUnknownException;
@@ -25,7 +38,11 @@ import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,6 +55,12 @@ public class ItemServiceImpl implements ItemService {
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSearchCache itemSearchCache;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingViewRepository bookingViewRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Override
     public ItemDto createItem(ItemDto itemDto, Long userId) {
@@ -58,11 +81,68 @@ public class ItemServiceImpl implements ItemService {
                     ));
         }
         Item item = ItemMapper.toItem(itemDto, user, request);
+        ItemDto createdItemDto = ItemMapper.toItemDto(itemRepository.save(item));
 
-        return ItemMapper.toItemDto(itemRepository.save(item));
+        //новая вещь сразу должна находиться поиском
+        AfterCommit.run(() -> {
+            itemSearchIndex.index(createdItemDto);
+            itemSearchCache.evict(null, createdItemDto);
+        });
+
+        return createdItemDto;
     }
 
     @Override
+    public List<ItemDto> createItems(List<ItemDto> itemDtos, Long userId) {
+
+        //владелец один на все вещи, проверить его нужно один раз
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
+
+        //все запросы, на которые создаются вещи, получить одним запросом
+        Set<Long> requestIds = itemDtos.stream()
+                .map(ItemDto::getRequestId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, ItemRequest> requests = requestIds.isEmpty() ? new HashMap<>()
+                : itemRequestRepository.findAllById(requestIds).stream()
+                        .collect(Collectors.toMap(ItemRequest::getId, (request) -> request));
+
+        //если хотя бы одного запроса нет, то не создается ни одна вещь
+        for (ItemDto itemDto : itemDtos) {
+            if (itemDto.getRequestId() != null && !requests.containsKey(itemDto.getRequestId())) {
+                throw new ItemRequestUnknownException(
+                        String.format("Запрос вещи с %d не найден.", itemDto.getRequestId())
+                );
+            }
+        }
+
+        List<Item> items = itemDtos.stream()
+                .map((itemDto) -> ItemMapper.toItem(
+                        itemDto,
+                        user,
+                        itemDto.getRequestId() == null ? null : requests.get(itemDto.getRequestId())))
+                .collect(Collectors.toList());
+
+        //вещи сохраняются в одной транзакции, вставка идет пакетами (id берутся из последовательности)
+        List<ItemDto> createdItemDtos = itemRepository.saveAll(items).stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
+
+        AfterCommit.run(() -> {
+            for (ItemDto createdItemDto : createdItemDtos) {
+                itemSearchIndex.index(createdItemDto);
+                itemSearchCache.evict(null, createdItemDto);
+            }
+        });
+
+        return createdItemDtos;
+    }
+
+    //вещь и строки ее броней в booking_view меняются в одной транзакции
+    @Override
+    @Transactional
     public ItemDto updateItem(Long itemId, ItemDto itemDto, Long userId) {
 
         //сначала нужно убедиться, что такой пользователь существует
@@ -87,6 +167,9 @@ public class ItemServiceImpl implements ItemService {
                     currentUser.getId(), itemForUpdate.getId()));
         }
 
+        //состояние до изменения нужно, чтобы сбросить кэш поиска по старому тексту вещи
+        ItemDto oldItemDto = ItemMapper.toItemDto(itemForUpdate);
+
         //если все ок, значит можно редактировать
         //обновить нужно только те поля, что пришли
         if (itemDto.getName() != null) {
@@ -102,43 +185,120 @@ public class ItemServiceImpl implements ItemService {
         }
 
         //теперь обновить в БД
-        return ItemMapper.toItemDto(itemRepository.save(itemForUpdate));
+        ItemDto updatedItemDto = ItemMapper.toItemDto(itemRepository.save(itemForUpdate));
+
+        //и в строках списков броней этой вещи
+        bookingViewRepository.updateItem(updatedItemDto.getId(), updatedItemDto.getName(),
+                updatedItemDto.getDescription(), updatedItemDto.getAvailable());
+
+        //название, описание или доступность могли измениться - обновить поисковый индекс после фиксации:
+        //поиск, прошедший между сбросом кэша и фиксацией, вернул бы в кэш старую вещь,
+        //а при откате в индексе остался бы незафиксированный текст
+        AfterCommit.run(() -> {
+            itemSearchIndex.index(updatedItemDto);
+            itemSearchCache.evict(oldItemDto, updatedItemDto);
+        });
+
+        return updatedItemDto;
     }
 
     @Override
     public ItemWithBookingsAndCommentsDto getItemById(Long itemId, Long userId) {
-        //сначала нужно убедиться, что такой пользователь существует
-        userRepository.findById(userId)
-                .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
+        LocalDateTime now = LocalDateTime.now();
+
+        //вещь, проверку пользователя, текущие брони и комментарии получить одним запросом,
+        //а если построен индекс интервалов броней, то текущие брони берутся из него
+        boolean bookingIndexReady = bookingIntervalIndex.isReady();
+        List<ItemDetailsDto> itemDetails = bookingIndexReady
+                ? itemRepository.findItemDetailsWithoutBookingsById(itemId, userId)
+                : itemRepository.findItemDetailsById(itemId, userId, now, BookingIntervalIndex.BUSY_STATUSES);
+
+        //если вещи нет, то нужно понять, существует ли пользователь,
+        //т.к. сначала проверяется пользователь, а потом вещь
+        if (itemDetails.isEmpty()) {
+            if (!userRepository.existsById(userId)) {
+                throw new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
+            }
 
-        //проверить, что такая вещь есть
-        Item foundedItem = itemRepository.findById(itemId)
-                .orElseThrow(() -> new ItemUnknownException(
-                        String.format("Не найдена вещь с id = %d", itemId))
-                );
+            throw new ItemUnknownException(String.format("Не найдена вещь с id = %d", itemId));
+        }
+
+        ItemDetailsDto foundedItem = itemDetails.get(0);
 
-        //получить список текущих броней для этой вещи, чтобы проверить далее,
-        //для проверки достаточно одной
-        List<Booking> activeBookings = bookingRepository
-                .findAllByItem_IdInAndStartBeforeAndEndAfter(
-                        List.of(itemId), LocalDateTime.now(), LocalDateTime.now(), PageRequest.of(0, 1));
+        //сначала нужно убедиться, что такой пользователь существует
+        if (foundedItem.getUserCount() == 0) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
+        }
 
-        //Получить комментарии к данной вещи
-        List<Comment> comments = getCommentsForItem(itemId);
+        //комментарии к данной вещи - по одному в каждой строке, если они есть
+        List<CommentDto> comments = itemDetails.stream()
+                .filter((row) -> row.getCommentId() != null)
+                .map((ItemDetailsDto row) -> CommentMapper.toCommentDto(row))
+                .collect(Collectors.toList());
 
         //Если вещь запрашивает не ее владелец
-        if (foundedItem.getOwner().getId().longValue() != userId.longValue()) {
+        if (foundedItem.getOwnerId().longValue() != userId.longValue()) {
 
             //то нужно проверить на доступность, а также что вещь сейчас не забронирована
-            if (foundedItem.getAvailable() && (activeBookings == null || activeBookings.isEmpty())) {
+            boolean bookedNow = bookingIndexReady
+                    ? bookingIntervalIndex.isBusyAt(itemId, now)
+                    : foundedItem.getActiveBookingsCount() > 0;
+
+            if (foundedItem.getAvailable() && !bookedNow) {
                 return ItemMapper.toItemWithBookingsDto(foundedItem, null, null, comments);
             } else {
                 throw new ItemUnknownException(String.format("Не найдена вещь с id = %d", itemId));
             }
         }
 
-        //Если вещь запрашивает владелец, значит нужно дополнить информации о бронировании
-        return ItemMapper.toItemWithBookingsDto(foundedItem, getLastBookingForItem(itemId), getNextBookingForItem(itemId), comments);
+        //Если вещь запрашивает владелец, значит нужно дополнить информации о бронировании,
+        //последняя, текущие и следующая брони приходят одним запросом
+        BookingShortDto lastBooking = null;
+        BookingShortDto currentBooking = null;
+        BookingShortDto nextBooking = null;
+
+        for (BookingShortDto booking : bookingRepository.findLastCurrentAndNextBookingsByItemId(
+                itemId, List.of(BookingStatus.CANCELED, BookingStatus.APPROVED), now)) {
+
+            if (booking.getStart().isAfter(now)) {
+                nextBooking = nextBooking == null ? booking : nextBooking;
+            } else if (booking.getEnd().isBefore(now)) {
+                lastBooking = lastBooking == null ? booking : lastBooking;
+            } else {
+                currentBooking = currentBooking == null ? booking : currentBooking;
+            }
+        }
+
+        //для вещи без завершенных броней последней считается текущая
+        return ItemMapper.toItemWithBookingsDto(
+                foundedItem,
+                lastBooking != null ? lastBooking : currentBooking,
+                nextBooking,
+                comments);
+    }
+
+    @Override
+    public ItemAvailabilityDto getItemAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to) {
+        //пустой или перевернутый период не дает ни одного отрезка - это ошибка запроса, а не пустой ответ
+        if (!to.isAfter(from)) {
+            throw new ItemAvailabilityPeriodInvalidException(String.format(
+                    "Начало периода %s должно быть раньше его окончания %s", from, to));
+        }
+
+        if (!userRepository.existsById(userId)) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
+        }
+
+        if (!itemRepository.existsById(itemId)) {
+            throw new ItemUnknownException(String.format("Не найдена вещь с id = %d", itemId));
+        }
+
+        //занятые периоды - из индекса интервалов броней, пока он не построен - из БД
+        List<BookingShortDto> bookings = bookingIntervalIndex.isReady()
+                ? bookingIntervalIndex.findItemBookingsInPeriod(itemId, from, to)
+                : bookingRepository.findItemBookingsInPeriod(itemId, BookingIntervalIndex.BUSY_STATUSES, from, to);
+
+        return ItemMapper.toItemAvailabilityDto(itemId, from, to, bookings);
     }
 
     @Override
@@ -152,13 +312,67 @@ public class ItemServiceImpl implements ItemService {
                 .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
 
         //получить все вещи пользователя
-        return itemRepository.findItemsByOwnerId(userId, pageRequest)
-                .stream()
+        return toItemsWithBookingsAndComments(itemRepository.findItemsByOwnerId(userId, pageRequest));
+    }
+
+    @Override
+    public StreamingResponseBody streamAllItemsForUser(Long userId) {
+        //проверить, что такой пользователь есть - один раз и до того, как начнется ответ
+        if (!userRepository.existsById(userId)) {
+            throw new UserUnknownException(String.format("Пользователь с %d не найден.", userId));
+        }
+
+        //части по возрастанию id: следующая начинается после последней вещи предыдущей,
+        //каждая - со своими бронями и комментариями
+        return jsonStreamWriter.write(getItemsForUserAfter(userId, 0L),
+                (items) -> getItemsForUserAfter(userId, items.get(items.size() - 1).getId()));
+    }
+
+    private List<ItemWithBookingsAndCommentsDto> getItemsForUserAfter(Long userId, Long afterId) {
+        return toItemsWithBookingsAndComments(itemRepository.findItemsByOwnerIdAndIdGreaterThanOrderById(
+                userId, afterId, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)));
+    }
+
+    private List<ItemWithBookingsAndCommentsDto> toItemsWithBookingsAndComments(List<Item> items) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        //последние, текущие и следующие брони - одним запросом сразу для всей страницы вещей
+        List<Long> itemIds = items.stream().map(Item::getId).collect(Collectors.toList());
+        Map<Long, BookingShortDto> lastBookings = new HashMap<>();
+        Map<Long, BookingShortDto> currentBookings = new HashMap<>();
+        Map<Long, BookingShortDto> nextBookings = new HashMap<>();
+
+        for (ItemBookingCandidateDto booking : bookingRepository.findLastCurrentAndNextBookingsByItemIds(
+                itemIds, List.of(BookingStatus.CANCELED.name(), BookingStatus.APPROVED.name()), LocalDateTime.now())) {
+
+            switch (booking.getKind()) {
+                case ItemBookingCandidateDto.LAST:
+                    lastBookings.put(booking.getItemId(), booking.toBookingShortDto());
+                    break;
+
+                case ItemBookingCandidateDto.CURRENT:
+                    currentBookings.put(booking.getItemId(), booking.toBookingShortDto());
+                    break;
+
+                default:
+                    nextBookings.put(booking.getItemId(), booking.toBookingShortDto());
+            }
+        }
+
+        //для вещей без завершенных броней последней считается текущая
+        currentBookings.forEach(lastBookings::putIfAbsent);
+
+        //комментарии вместе с именами авторов тоже одним запросом на всю страницу
+        Map<Long, List<CommentDto>> comments = getCommentsForItems(itemIds);
+
+        return items.stream()
                 .map((item) -> ItemMapper.toItemWithBookingsDto(
                         item,
-                        getLastBookingForItem(item.getId()),
-                        getNextBookingForItem(item.getId()),
-                        getCommentsForItem(item.getId()))
+                        lastBookings.get(item.getId()),
+                        nextBookings.get(item.getId()),
+                        comments.getOrDefault(item.getId(), new ArrayList<>()))
                 ).collect(Collectors.toList());
     }
 
@@ -169,13 +383,8 @@ public class ItemServiceImpl implements ItemService {
             return new ArrayList<>();
         }
 
-        int page = from / size;
-        final PageRequest pageRequest = PageRequest.of(page, size);
-
-        return itemRepository.findItemsByKeyWord(keyWord.toLowerCase(), pageRequest).stream()
-                .filter((Item::getAvailable))
-                .map(ItemMapper::toItemDto)
-                .collect(Collectors.toList());
+        //одинаковые поисковые запросы повторяются часто, поэтому сначала проверить кэш
+        return itemSearchCache.get(keyWord, from, size, () -> findItemsWithKeyWord(keyWord, from, size));
     }
 
     @Override
@@ -192,7 +401,12 @@ public class ItemServiceImpl implements ItemService {
         List<Booking> booking = bookingRepository.findBookingByBooker_IdAndItem_IdAndEndBefore(
                 user.getId(), foundedItem.getId(), LocalDateTime.now());
 
-        if (booking == null || booking.isEmpty()) {
+        //старые отклоненные и отмененные брони перенесены в архив - их тоже нужно учесть
+        boolean hasBooking = (booking != null && !booking.isEmpty())
+                || archivedBookingRepository.existsByBookerIdAndItemIdAndEndBefore(
+                        user.getId(), foundedItem.getId(), LocalDateTime.now());
+
+        if (!hasBooking) {
             throw new CommentForNotExistBookingException(
                     String.format("Пользователь с id = %s не брал в аренду вещь с id = %s",userId, itemId)
             );
@@ -205,42 +419,27 @@ public class ItemServiceImpl implements ItemService {
         return CommentMapper.toCommentDto(commentRepository.save(currentComment));
     }
 
-    private Booking getLastBookingForItem(Long itemId) {
-        //last - последнее завершенное или текущее
-        Booking lastBooking;
-        List<Booking> lastItemBookings = bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(
-                List.of(itemId), List.of(BookingStatus.CANCELED, BookingStatus.APPROVED), LocalDateTime.now(), PageRequest.of(0, 1));
-        if (lastItemBookings == null || lastItemBookings.isEmpty()) {
-            List<Booking> currentItemBookings = bookingRepository
-                    .findAllByItem_IdInAndStartBeforeAndEndAfter(
-                            List.of(itemId), LocalDateTime.now(), LocalDateTime.now(), PageRequest.of(0, 1));
-
-            if (currentItemBookings == null || currentItemBookings.isEmpty()) {
-                lastBooking = null;
-            } else {
-                lastBooking = currentItemBookings.get(0);
-            }
-        } else {
-            lastBooking = lastItemBookings.get(0);
+    private List<ItemDto> findItemsWithKeyWord(String keyWord, Integer from, Integer size) {
+        //если индекс в памяти построен, то искать в нем, не обращаясь к БД
+        if (itemSearchIndex.isReady()) {
+            return itemSearchIndex.search(keyWord, from, size);
         }
-        return lastBooking;
-    }
 
-    private Booking getNextBookingForItem(Long itemId) {
-        Booking nextBooking;
+        //недоступные вещи отсекаются запросом, поэтому страница всегда полная,
+        //и начинается она ровно с from, а не с ближайшей границы страницы
+        final OffsetPageRequest pageRequest = OffsetPageRequest.of(from, size);
 
-        List<Booking> nextBookings = bookingRepository.findAllByItem_IdInAndStartAfter(
-                List.of(itemId), LocalDateTime.now(), PageRequest.of(0, 1));
-
-        if (nextBookings == null || nextBookings.isEmpty()) {
-            nextBooking = null;
-        } else {
-            nextBooking = nextBookings.get(0);
-        }
-        return nextBooking;
+        return itemRepository.findItemsByKeyWord(keyWord.toLowerCase(), pageRequest).stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
     }
 
-    private List<Comment> getCommentsForItem(Long itemId) {
-        return commentRepository.findAllByItem_IdOrderByCreatedDesc(itemId);
+    private Map<Long, List<CommentDto>> getCommentsForItems(List<Long> itemIds) {
+        //порядок (сначала новые) задается запросом и сохраняется при группировке
+        return commentRepository.findAllByItemIdsWithAuthorName(itemIds).stream()
+                .collect(Collectors.groupingBy(
+                        ItemCommentDto::getItemId,
+                        Collectors.mapping((ItemCommentDto comment) -> CommentMapper.toCommentDto(comment), Collectors.toList())
+                ));
     }
 }
@@ -1,7 +1,10 @@
 package ru.practicum.shareit.requests;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.requests.dto.ItemRequestDto;
 import ru.practicum.shareit.requests.dto.ItemRequestWithItemInfoDto;
 import ru.practicum.shareit.requests.service.ItemRequestService;
@@ -33,6 +36,21 @@ public class ItemRequestController {
         return itemRequestService.getAllItemRequests(userId, from, size);
     }
 
+    //списки без страниц (stream=true): ответ пишется частями по мере чтения из БД
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamItemRequestsByOwnerId(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(itemRequestService.streamItemRequestsByOwnerId(ownerId));
+    }
+
+    @GetMapping(path = "/all", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllItemRequests(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(itemRequestService.streamAllItemRequests(userId));
+    }
+
     @GetMapping("/{requestId}")
     public ItemRequestWithItemInfoDto getItemRequestById(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                          @PathVariable Long requestId) {
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.requests;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -7,4 +8,10 @@ import java.util.List;
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
 
     List<ItemRequest> getAllByRequester_IdOrderByCreatedDesc(Long ownerId);
+
+    //части списков запросов для потокового ответа: свои запросы и запросы других пользователей,
+    //сначала новые - перед запросом beforeId по убыванию id
+    List<ItemRequest> findAllByRequester_IdAndIdLessThanOrderByIdDesc(Long ownerId, Long beforeId, Pageable pageable);
+
+    List<ItemRequest> findAllByRequester_IdNotAndIdLessThanOrderByIdDesc(Long userId, Long beforeId, Pageable pageable);
 }
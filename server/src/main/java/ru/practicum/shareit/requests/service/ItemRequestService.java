@@ -1,5 +1,6 @@
 package ru.practicum.shareit.requests.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.requests.dto.ItemRequestDto;
 import ru.practicum.shareit.requests.dto.ItemRequestWithItemInfoDto;
 
@@ -13,4 +14,9 @@ public interface ItemRequestService {
     List<ItemRequestWithItemInfoDto> getAllItemRequests(Long userId, Integer from, Integer size);
 
     ItemRequestWithItemInfoDto getItemRequestById(Long userId, Long requestId);
+
+    //свои запросы и все запросы других пользователей без страниц, частями по мере чтения из БД
+    StreamingResponseBody streamItemRequestsByOwnerId(Long ownerId);
+
+    StreamingResponseBody streamAllItemRequests(Long userId);
 }
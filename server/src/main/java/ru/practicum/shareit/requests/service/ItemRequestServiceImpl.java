@@ -4,6 +4,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.common.JsonStreamWriter;
+import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.requests.ItemRequest;
 import ru.practicum.shareit.requests.ItemRequestRepository;
@@ -16,6 +19,8 @@ import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +30,7 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     private final ItemRequestRepository itemRequestRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Override
     public ItemRequestDto createItemRequest(Long userId, ItemRequestDto itemRequestDto) {
@@ -45,11 +51,7 @@ public class ItemRequestServiceImpl implements ItemRequestService {
 
         List<ItemRequest> ownerRequests = itemRequestRepository.getAllByRequester_IdOrderByCreatedDesc(user.getId());
 
-        return ownerRequests.stream().map((itemRequest ->
-            ItemRequestMapper.toItemRequestWithItemInfoDto(
-                    itemRequest, itemRepository.findAllByRequest_Id(itemRequest.getId())
-            )
-        )).collect(Collectors.toList());
+        return toItemRequestsWithItemInfo(ownerRequests);
     }
 
     @Override
@@ -65,12 +67,9 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         //получить все запросы
         List<ItemRequest> requests = itemRequestRepository.findAll(pageRequest).toList();
 
-        return requests.stream()
+        return toItemRequestsWithItemInfo(requests.stream()
                 .filter((itemRequest) -> itemRequest.getRequester().getId().longValue() != userId.longValue())
-                .map((itemRequest -> ItemRequestMapper.toItemRequestWithItemInfoDto(
-                        itemRequest, itemRepository.findAllByRequest_Id(itemRequest.getId())
-                )
-        )).collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     @Override
@@ -85,4 +84,55 @@ public class ItemRequestServiceImpl implements ItemRequestService {
 
         return ItemRequestMapper.toItemRequestWithItemInfoDto(request, itemRepository.findAllByRequest_Id(request.getId()));
     }
+
+    @Override
+    public StreamingResponseBody streamItemRequestsByOwnerId(Long ownerId) {
+
+        User user = userRepository.findById(ownerId)
+                .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", ownerId)));
+
+        return streamItemRequests((beforeId) -> itemRequestRepository.findAllByRequester_IdAndIdLessThanOrderByIdDesc(
+                user.getId(), beforeId, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)));
+    }
+
+    @Override
+    public StreamingResponseBody streamAllItemRequests(Long userId) {
+
+        //запрашивать может любой пользователь, но все равно проверить, что такой есть
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
+
+        //чужие запросы отбираются в БД, поэтому каждая часть, кроме последней, полная
+        return streamItemRequests((beforeId) -> itemRequestRepository.findAllByRequester_IdNotAndIdLessThanOrderByIdDesc(
+                user.getId(), beforeId, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)));
+    }
+
+    //части по CHUNK_SIZE запросов по убыванию id (сначала новые): следующая начинается перед последним
+    //запросом предыдущей, поэтому часть читается по индексу без пропуска смещения, а запросы, добавленные
+    //во время ответа, не сдвигают части. Каждый запрос - вместе с вещами по нему
+    private StreamingResponseBody streamItemRequests(LongFunction<List<ItemRequest>> chunkLoader) {
+        LongFunction<List<ItemRequestWithItemInfoDto>> chunkMapper =
+                (beforeId) -> toItemRequestsWithItemInfo(chunkLoader.apply(beforeId));
+
+        return jsonStreamWriter.write(chunkMapper.apply(Long.MAX_VALUE),
+                (requests) -> chunkMapper.apply(requests.get(requests.size() - 1).getId()));
+    }
+
+    //вещи по всем запросам списка загружаются одним обращением к БД и раскладываются по запросам в памяти
+    private List<ItemRequestWithItemInfoDto> toItemRequestsWithItemInfo(List<ItemRequest> itemRequests) {
+        if (itemRequests.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<Item>> itemsByRequestId = itemRepository.findAllByRequest_IdInOrderById(itemRequests.stream()
+                        .map(ItemRequest::getId)
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy((item) -> item.getRequest().getId()));
+
+        return itemRequests.stream()
+                .map((itemRequest) -> ItemRequestMapper.toItemRequestWithItemInfoDto(
+                        itemRequest, itemsByRequestId.getOrDefault(itemRequest.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
 }
@@ -1,7 +1,10 @@
 package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
@@ -34,6 +37,14 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    //тот же список, записываемый в ответ частями по мере чтения из БД
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userService.streamAllUsers());
+    }
+
     @DeleteMapping("/{userId}")
     public void deleteUserById(@PathVariable Long userId) {
         userService.deleteUserById(userId);
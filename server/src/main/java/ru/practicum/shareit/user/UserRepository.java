@@ -1,6 +1,12 @@
 package ru.practicum.shareit.user;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    //очередная часть пользователей по возрастанию id - для потокового списка
+    List<User> findAllByIdGreaterThanOrderById(Long afterId, PageRequest pageRequest);
 }
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.user.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.util.List;
@@ -14,5 +15,7 @@ public interface UserService {
 
     List<UserDto> getAllUsers();
 
+    StreamingResponseBody streamAllUsers();
+
     void deleteUserById(Long userId);
 }
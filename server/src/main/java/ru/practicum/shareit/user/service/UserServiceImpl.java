@@ -2,7 +2,18 @@ package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.common.AfterCommit;
+import ru.practicum.shareit.common.JsonStreamWriter;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemMapper;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -18,6 +29,11 @@ import java.util.stream.Collectors;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final BookingViewRepository bookingViewRepository;
+    private final ItemRepository itemRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSearchCache itemSearchCache;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Override
     public UserDto createUser(UserDto userDto) {
@@ -31,7 +47,10 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    //пользователь и строки его броней в booking_view меняются в одной транзакции: если обновление
+    //booking_view не выполнится, не сохранится и пользователь
     @Override
+    @Transactional
     public UserDto updateUserById(Long userId, UserDto userDto) {
 
         //получить пользователя из хранилища
@@ -47,11 +66,19 @@ public class UserServiceImpl implements UserService {
             userForUpdate.setEmail(userDto.getEmail());
         }
 
+        UserDto updatedUserDto;
+
+        //внутри транзакции изменение сбрасывается в БД сразу, чтобы занятый email обнаружился здесь, а не при фиксации
         try {
-            return  UserMapper.toUserDto(userRepository.save(userForUpdate));
+            updatedUserDto = UserMapper.toUserDto(userRepository.saveAndFlush(userForUpdate));
         } catch (DataIntegrityViolationException exception) {
             throw new UserAlreadyExistEmailException(String.format("Пользователь с таким email = %s уже существует.", userDto.getEmail()));
         }
+
+        //имя и email автора хранятся и в строках списков его броней
+        bookingViewRepository.updateBooker(updatedUserDto.getId(), updatedUserDto.getName(), updatedUserDto.getEmail());
+
+        return updatedUserDto;
     }
 
     @Override
@@ -68,10 +95,36 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    public StreamingResponseBody streamAllUsers() {
+        //части по возрастанию id: следующая начинается после последнего пользователя предыдущей
+        return jsonStreamWriter.write(getUsersAfter(0L),
+                (users) -> getUsersAfter(users.get(users.size() - 1).getId()));
+    }
+
+    private List<UserDto> getUsersAfter(Long afterId) {
+        return userRepository.findAllByIdGreaterThanOrderById(afterId, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE))
+                .stream()
+                .map(UserMapper::toUserDto)
+                .collect(Collectors.toList());
+    }
+
+    //вещи пользователя удаляются в БД каскадом, поэтому из поискового индекса и кэша поиска
+    //их нужно убрать здесь - после фиксации удаления
+    @Override
+    @Transactional
     public void deleteUserById(Long userId) {
         User userForDelete = userRepository.findById(userId)
                 .orElseThrow(() -> new UserUnknownException(String.format("Пользователь с %d не найден.", userId)));
 
+        List<ItemDto> deletedItems = itemRepository.findALlItemsByOwnerId(userId).stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
+
         userRepository.delete(userForDelete);
+
+        AfterCommit.run(() -> deletedItems.forEach((item) -> {
+            itemSearchIndex.remove(item.getId());
+            itemSearchCache.evict(item, null);
+        }));
     }
 }
@@ -0,0 +1,26 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- в ранее созданной таблице id вещей генерировался как IDENTITY, теперь его задает Hibernate из items_seq
+ALTER TABLE items ALTER COLUMN item_id DROP IDENTITY IF EXISTS;
+
+-- последовательность не должна выдавать уже занятые id
+SELECT setval('items_seq', GREATEST((SELECT COALESCE(MAX(item_id), 0) FROM items) + 50,
+                                    (SELECT last_value FROM items_seq)));
+
+-- частичный триграммный индекс для поиска доступных вещей по подстроке в названии и описании,
+-- выражение и условие должны совпадать с тем, что генерирует запрос ItemRepository.findItemsByKeyWord
+CREATE INDEX IF NOT EXISTS idx_items_available_name_description_trgm
+    ON items USING gin (lower(item_name || ' ' || description) gin_trgm_ops)
+    WHERE available;
+
+-- ожидающие и подтвержденные брони одной вещи не могут пересекаться по времени - даже если
+-- их одновременно создают разные экземпляры сервера (внутри одного экземпляра это обеспечивает BookingItemLocks).
+-- тело DO записано строкой, чтобы скрипт не разбивался на команды внутри блока
+DO 'BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''ex_bookings_item_period'') THEN
+        ALTER TABLE bookings ADD CONSTRAINT ex_bookings_item_period
+            EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&)
+            WHERE (status IN (''WAITING'', ''APPROVED''));
+    END IF;
+END';
@@ -16,8 +16,18 @@ CREATE TABLE IF NOT EXISTS requests (
             ON DELETE CASCADE
 );
 
+-- свои запросы пользователя и все запросы - сначала новые
+CREATE INDEX IF NOT EXISTS idx_requests_requester_id_creation_date ON requests (requester_id, creation_date);
+CREATE INDEX IF NOT EXISTS idx_requests_creation_date ON requests (creation_date);
+
+-- потоковый список своих запросов - частями по убыванию id
+CREATE INDEX IF NOT EXISTS idx_requests_requester_id_request_id ON requests (requester_id, request_id);
+
+-- id вещей берутся из последовательности блоками по 50, чтобы Hibernate мог вставлять вещи пакетами
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS items (
-    item_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    item_id BIGINT PRIMARY KEY,
     item_name varchar(100) NOT NULL,
     description varchar(320) NOT NULL,
     available boolean NOT NULL,
@@ -33,6 +43,15 @@ CREATE TABLE IF NOT EXISTS items (
         ON DELETE SET NULL
 );
 
+-- брони владельца ищутся соединением с вещами по owner_id
+CREATE INDEX IF NOT EXISTS idx_items_owner_id ON items (owner_id);
+
+-- потоковый список вещей владельца - частями по возрастанию id
+CREATE INDEX IF NOT EXISTS idx_items_owner_id_item_id ON items (owner_id, item_id);
+
+-- вещи, добавленные в ответ на запрос
+CREATE INDEX IF NOT EXISTS idx_items_request_id ON items (request_id);
+
 CREATE TABLE IF NOT EXISTS bookings (
     booking_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
@@ -50,6 +69,22 @@ CREATE TABLE IF NOT EXISTS bookings (
         ON DELETE SET NULL
 );
 
+-- брони вещей с сортировкой по дате начала
+CREATE INDEX IF NOT EXISTS idx_bookings_item_id_start_date ON bookings (item_id, start_date);
+
+-- последняя завершенная бронь вещи: max(end_date) по вещи
+CREATE INDEX IF NOT EXISTS idx_bookings_item_id_end_date ON bookings (item_id, end_date);
+
+-- брони пользователя по убыванию (start_date, booking_id) - страницы по курсору и с from/size
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_id_start_date_id ON bookings (booker_id, start_date, booking_id);
+
+-- брони пользователя в статусе (WAITING, REJECTED, прошедшие) по убыванию даты начала.
+-- Отдельный индекс только по статусу не нужен: значений мало, и статус всегда проверяется вместе с пользователем или вещью
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_id_status_start_date ON bookings (booker_id, status, start_date);
+
+-- поиск завершенных отклоненных и отмененных броней для переноса в архив (BookingArchiver)
+CREATE INDEX IF NOT EXISTS idx_bookings_status_end_date ON bookings (status, end_date);
+
 CREATE TABLE IF NOT EXISTS comments (
     comment_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     comment_text varchar(500) NOT NULL,
@@ -64,4 +99,122 @@ CREATE TABLE IF NOT EXISTS comments (
         FOREIGN KEY (author_id)
             REFERENCES users(user_id)
             ON DELETE SET NULL
-);
\ No newline at end of file
+);
+
+-- комментарии вещей - сначала новые
+CREATE INDEX IF NOT EXISTS idx_comments_item_id_creation_date ON comments (item_id, creation_date);
+
+-- при удалении пользователя в его комментариях обнуляется author_id
+CREATE INDEX IF NOT EXISTS idx_comments_author_id ON comments (author_id);
+
+-- события броней (outbox): пишутся в одной транзакции с изменением брони,
+-- BookingOutboxRelay пересылает их получателям по возрастанию event_id и удаляет.
+-- Внешних ключей нет - событие описывает бронь само по себе и переживает ее удаление
+CREATE TABLE IF NOT EXISTS booking_events (
+    event_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    event_type varchar(20) NOT NULL,
+    booking_id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    booker_id BIGINT,
+    status varchar(10),
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date TIMESTAMP WITHOUT TIME ZONE,
+    creation_date TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- строки списков броней (booking_view): бронь вместе с полями вещи, владельца вещи и автора брони.
+-- Пишутся вместе с бронью (BookingOutbox), при изменении вещи и пользователя обновляются их сервисами,
+-- удаляются вместе с вещью или автором брони. Внешнего ключа на bookings нет: строка остается,
+-- когда бронь переносится в архив (bookings_archive), и списки показывают живые и архивные брони вместе
+CREATE TABLE IF NOT EXISTS booking_view (
+    booking_id BIGINT PRIMARY KEY,
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date TIMESTAMP WITHOUT TIME ZONE,
+    status varchar(10),
+    booker_id BIGINT NOT NULL,
+    booker_name varchar(100) NOT NULL,
+    booker_email varchar(254) NOT NULL,
+    item_id BIGINT NOT NULL,
+    item_name varchar(100) NOT NULL,
+    item_description varchar(320) NOT NULL,
+    item_available boolean NOT NULL,
+    request_id BIGINT,
+    owner_id BIGINT NOT NULL,
+    CONSTRAINT fk_booking_view_to_users
+        FOREIGN KEY (booker_id)
+        REFERENCES users(user_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_booking_view_to_items
+        FOREIGN KEY (item_id)
+        REFERENCES items(item_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_booking_view_to_requests
+        FOREIGN KEY (request_id)
+        REFERENCES requests(request_id)
+        ON DELETE SET NULL
+);
+
+-- каждое состояние списка - проход по одному индексу с сортировкой по (start_date, booking_id):
+-- ALL - по автору или владельцу, CURRENT и FUTURE - диапазон start_date,
+-- WAITING и REJECTED - по статусу, PAST - по двум статусам с условием на end_date
+CREATE INDEX IF NOT EXISTS idx_booking_view_booker_id_start_date_id ON booking_view (booker_id, start_date, booking_id);
+CREATE INDEX IF NOT EXISTS idx_booking_view_booker_id_status_start_date_id ON booking_view (booker_id, status, start_date, booking_id);
+CREATE INDEX IF NOT EXISTS idx_booking_view_owner_id_start_date_id ON booking_view (owner_id, start_date, booking_id);
+CREATE INDEX IF NOT EXISTS idx_booking_view_owner_id_status_start_date_id ON booking_view (owner_id, status, start_date, booking_id);
+
+-- изменение вещи переносится во все строки ее броней
+CREATE INDEX IF NOT EXISTS idx_booking_view_item_id ON booking_view (item_id);
+
+-- строки для броней, созданных до появления booking_view - только пока booking_view пуста:
+-- при следующих запусках условие проверяется один раз, без прохода по bookings
+INSERT INTO booking_view (booking_id, start_date, end_date, status, booker_id, booker_name, booker_email,
+                          item_id, item_name, item_description, item_available, request_id, owner_id)
+SELECT b.booking_id, b.start_date, b.end_date, b.status, u.user_id, u.user_name, u.email,
+       i.item_id, i.item_name, i.description, i.available, i.request_id, i.owner_id
+FROM bookings b
+JOIN items i ON i.item_id = b.item_id
+JOIN users u ON u.user_id = b.booker_id
+WHERE NOT EXISTS (SELECT 1 FROM booking_view);
+
+-- архив броней: завершенные отклоненные и отмененные брони старше срока хранения, перенесенные из bookings
+-- фоновой задачей BookingArchiver. Брони в архиве не меняются и не занимают вещь, поэтому bookings
+-- и ее индексы остаются размером с живые брони. В списках архивные брони показывает booking_view
+-- Секционировать саму bookings по end_date в PostgreSQL нельзя: первичный ключ и ограничение ex_bookings_item_period
+-- секционированной таблицы должны включать ключ секционирования с проверкой на равенство
+CREATE TABLE IF NOT EXISTS bookings_archive (
+    booking_id BIGINT PRIMARY KEY,
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date TIMESTAMP WITHOUT TIME ZONE,
+    item_id BIGINT NOT NULL,
+    booker_id BIGINT,
+    status varchar(10),
+    archive_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT fk_bookings_archive_to_items
+        FOREIGN KEY (item_id)
+        REFERENCES items(item_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_bookings_archive_to_users
+        FOREIGN KEY (booker_id)
+        REFERENCES users(user_id)
+        ON DELETE SET NULL
+);
+
+-- проверка, что автор комментария брал вещь, - и среди архивных броней
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_booker_id_item_id_end_date ON bookings_archive (booker_id, item_id, end_date);
+
+-- при удалении вещи удаляются и ее архивные брони
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_item_id ON bookings_archive (item_id);
+
+-- ключи идемпотентности POST /bookings и POST /items: отпечаток запроса и ответ на него.
+-- Внешнего ключа на users нет: ключ занимается до проверки пользователя, и вставка не должна падать
+-- для неизвестного пользователя. Строки старше срока хранения удаляет IdempotencyKeyCleaner
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id BIGINT NOT NULL,
+    idempotency_key varchar(100) NOT NULL,
+    request_hash varchar(32) NOT NULL,
+    response varchar(4000),
+    creation_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_creation_date ON idempotency_keys (creation_date);
@@ -0,0 +1,319 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.exceptions.BookingSecurityException;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.item.Comment;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.requests.ItemRequest;
+import ru.practicum.shareit.requests.dto.ItemRequestDto;
+import ru.practicum.shareit.requests.service.ItemRequestService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//число обращений к БД и загруженных сущностей для каждого эндпоинта сервера.
+//Связи сущностей ленивые, поэтому загружается только то, что нужно сервису:
+//лишняя загрузка владельца, запроса или автора провалит тест по числу сущностей.
+//Изменения сбрасываются в БД внутри замера, так что update и delete тоже учитываются
+@Transactional
+@SpringBootTest(
+        properties = {
+            "spring.profiles.active=test",
+            "spring.jpa.properties.hibernate.generate_statistics=true"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class EndpointQueryCountITest {
+
+    private final EntityManager em;
+    private final UserService userService;
+    private final ItemService itemService;
+    private final ItemRequestService itemRequestService;
+    private final BookingService bookingService;
+    private final UserRepository userRepository;
+    private final BookingViewRepository bookingViewRepository;
+
+    private Statistics statistics;
+
+    private User owner;
+    private User booker;
+    private User other;
+    private ItemRequest request;
+    private Item requestedItem;
+    private Item item;
+    private Booking pastBooking;
+    private Booking futureBooking;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void beforeEach() {
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        now = LocalDateTime.now();
+
+        owner = new User(null, "User_name_owner", "Userowner@email.ru");
+        booker = new User(null, "User_name_booker", "Userbooker@email.ru");
+        other = new User(null, "User_name_other", "Userother@email.ru");
+        em.persist(owner);
+        em.persist(booker);
+        em.persist(other);
+
+        request = new ItemRequest(null, "request_desc", booker, now.minusDays(1));
+        em.persist(request);
+
+        //вещь по запросу с завершенной бронью и комментарием, и вещь без запроса с будущей бронью
+        requestedItem = new Item(null, "query_count_item_1", "item_desc_1", Boolean.TRUE, owner, request);
+        item = new Item(null, "query_count_item_2", "item_desc_2", Boolean.TRUE, owner, null);
+        em.persist(requestedItem);
+        em.persist(item);
+
+        pastBooking = new Booking(null, now.minusDays(5), now.minusDays(4), requestedItem, booker, BookingStatus.APPROVED);
+        em.persist(pastBooking);
+        futureBooking = new Booking(null, now.plusDays(2), now.plusDays(3), item, booker, BookingStatus.WAITING);
+        em.persist(futureBooking);
+
+        em.persist(new Comment(null, "Comment_text", requestedItem, booker, now.minusDays(3)));
+
+        em.flush();
+        em.clear();
+
+        //строки списков броней пишет BookingOutbox, здесь брони сохранены напрямую
+        bookingViewRepository.insertBookings(List.of(pastBooking.getId(), futureBooking.getId()));
+    }
+
+    //POST /users: только вставка
+    @Test
+    void createUser() {
+        assertQueries(1, 0, () -> userService.createUser(new UserDto(null, "User_name_new", "Usernew@email.ru")));
+    }
+
+    //PATCH /users/{userId}: пользователь, его обновление и обновление строк его броней в booking_view
+    @Test
+    void updateUser() {
+        assertQueries(3, 1, () -> userService.updateUserById(other.getId(), new UserDto(null, "User_name_upd", null)));
+    }
+
+    @Test
+    void getUser() {
+        assertQueries(1, 1, () -> userService.getUserById(owner.getId()));
+    }
+
+    @Test
+    void getAllUsers() {
+        long usersCount = userRepository.count();
+
+        assertQueries(1, usersCount, userService::getAllUsers);
+    }
+
+    //DELETE /users/{userId}: пользователь и удаление, без повторного чтения
+    @Test
+    void deleteUser() {
+        assertQueries(2, 1, () -> userService.deleteUserById(other.getId()));
+    }
+
+    //POST /items: пользователь, вставка и, если пул id исчерпан, обращения к последовательности items_seq
+    @Test
+    void createItem() {
+        long statements = countStatements(1, () -> itemService.createItem(
+                new ItemDto(null, "item_name_new", "item_desc_new", Boolean.TRUE, null), owner.getId()));
+
+        assertTrue(statements <= 4, String.valueOf(statements));
+    }
+
+    //POST /items по запросу: запрос вещи загружается без автора запроса
+    @Test
+    void createItemForRequest() {
+        long statements = countStatements(2, () -> itemService.createItem(
+                new ItemDto(null, "item_name_new", "item_desc_new", Boolean.TRUE, request.getId()), other.getId()));
+
+        assertTrue(statements <= 5, String.valueOf(statements));
+    }
+
+    //PATCH /items/{itemId}: пользователь, вещь без владельца и запроса, обновление вещи и строк ее броней
+    @Test
+    void updateItem() {
+        assertQueries(4, 2, () -> itemService.updateItem(requestedItem.getId(),
+                new ItemDto(null, "item_name_upd", null, null, null), owner.getId()));
+    }
+
+    //GET /items/{itemId}: карточка вещи собирается из проекций
+    @Test
+    void getItem() {
+        assertQueries(2, 0, () -> itemService.getItemById(requestedItem.getId(), owner.getId()));
+    }
+
+    @Test
+    void getItemAvailability() {
+        assertQueries(3, 0, () -> itemService.getItemAvailability(item.getId(), owner.getId(), now, now.plusDays(10)));
+    }
+
+    //GET /items: пользователь, страница вещей, последние, текущие и следующие брони одним запросом
+    //и комментарии
+    @Test
+    void getOwnerItems() {
+        assertQueries(4, 3, () -> itemService.getAllItemsForUser(owner.getId(), 0, 10));
+    }
+
+    //GET /items/search: только вещи, без владельцев и запросов
+    @Test
+    void searchItems() {
+        assertQueries(1, 2, () -> itemService.getItemsWithKeyWord("query_count", 0, 10));
+    }
+
+    //POST /items/{itemId}/comment: пользователь, вещь, бронь автора и вставка комментария
+    @Test
+    void addComment() {
+        assertQueries(4, 3, () -> itemService.addNewCommentByItemId(requestedItem.getId(),
+                new CommentDto(null, "Comment_new_text", null, null), booker.getId()));
+    }
+
+    //POST /requests
+    @Test
+    void createItemRequest() {
+        assertQueries(2, 1, () -> itemRequestService.createItemRequest(booker.getId(),
+                new ItemRequestDto(null, "request_desc_new", null)));
+    }
+
+    //GET /requests: пользователь, его запросы и вещи по всем запросам одним обращением
+    @Test
+    void getOwnItemRequests() {
+        assertQueries(3, 3, () -> itemRequestService.getItemRequestsByOwnerId(booker.getId()));
+    }
+
+    //число обращений не растет с числом запросов: загружаются пользователь, 5 запросов и 5 вещей
+    @Test
+    void getOwnItemRequestsWithManyRequests() {
+        persistRequestsWithItems(4);
+
+        assertQueries(3, 11, () -> itemRequestService.getItemRequestsByOwnerId(booker.getId()));
+    }
+
+    //GET /requests/all: страница запросов загружается без их авторов
+    @Test
+    void getAllItemRequests() {
+        assertQueries(3, 3, () -> itemRequestService.getAllItemRequests(owner.getId(), 0, 10));
+    }
+
+    @Test
+    void getAllItemRequestsWithManyRequests() {
+        persistRequestsWithItems(4);
+
+        assertQueries(3, 11, () -> itemRequestService.getAllItemRequests(owner.getId(), 0, 10));
+    }
+
+    @Test
+    void getItemRequest() {
+        assertQueries(3, 3, () -> itemRequestService.getItemRequestById(owner.getId(), request.getId()));
+    }
+
+    //POST /bookings: пользователь, вещь, проверка пересечения, вставка брони, события о ней и строки booking_view
+    @Test
+    void createBooking() {
+        assertQueries(6, 2, () -> bookingService.createBooking(
+                new BookingCreateDto(null, now.plusDays(10), now.plusDays(11), item.getId(), null), booker.getId()));
+    }
+
+    //PATCH /bookings/{bookingId}: подтверждение - вещь и даты брони, проверка пересечения под блокировкой вещи,
+    //условное обновление статуса, событие, статус в booking_view и бронь вместе с вещью и автором для ответа
+    @Test
+    void resolveBooking() {
+        assertQueries(6, 3, () -> bookingService.resolveBooking(futureBooking.getId(), owner.getId(), true));
+    }
+
+    //отклонение освобождает период - вещь брони для блокировки, но без проверки пересечения
+    @Test
+    void rejectBooking() {
+        assertQueries(5, 3, () -> bookingService.resolveBooking(futureBooking.getId(), owner.getId(), false));
+    }
+
+    //чужая бронь: бронь и пользователь - без обновления и загрузки сущностей
+    @Test
+    void resolveBookingByNotOwner() {
+        assertQueries(2, 0, () -> assertThrows(BookingSecurityException.class,
+                () -> bookingService.resolveBooking(futureBooking.getId(), other.getId(), true)));
+    }
+
+    //PATCH /bookings/batch: пользователь, владельцы и статусы всех броней, проверка пересечения подтверждаемой брони,
+    //блокировка меняемых броней, смена статуса, события и статусы в booking_view - без загрузки сущностей
+    @Test
+    void resolveBookingsBatch() {
+        assertQueries(7, 0, () -> bookingService.resolveBookings(
+                List.of(futureBooking.getId(), Long.MAX_VALUE), owner.getId(), true));
+    }
+
+    //GET /bookings/{bookingId}: автор брони уже загружен вместе с ней
+    @Test
+    void getBooking() {
+        assertQueries(1, 3, () -> bookingService.getBookingDetailInfoById(futureBooking.getId(), booker.getId()));
+    }
+
+    //списки броней: пользователь и одна таблица booking_view
+    @Test
+    void getBookerBookings() {
+        assertQueries(2, 1, () -> bookingService.getAllBookingsByUserIdAndState(booker.getId(), "ALL", 0, 10));
+    }
+
+    @Test
+    void getOwnerBookings() {
+        assertQueries(2, 1, () -> bookingService.getAllBookingsByOwnerIdAndState(owner.getId(), "ALL", 0, 10));
+    }
+
+    @Test
+    void getBookerBookingsPage() {
+        assertQueries(2, 1, () -> bookingService.getBookingsPageByUserIdAndState(booker.getId(), "ALL", "", 10));
+    }
+
+    @Test
+    void getOwnerBookingsPage() {
+        assertQueries(2, 1, () -> bookingService.getBookingsPageByOwnerIdAndState(owner.getId(), "ALL", "", 10));
+    }
+
+    //еще count запросов автора брони, по вещи владельца на каждый
+    private void persistRequestsWithItems(int count) {
+        for (int i = 0; i < count; i++) {
+            ItemRequest itemRequest = new ItemRequest(null, "request_desc_" + i, booker, now.minusHours(i + 1));
+            em.persist(itemRequest);
+            em.persist(new Item(null, "query_count_request_item_" + i, "item_desc_" + i, Boolean.TRUE, owner, itemRequest));
+        }
+
+        em.flush();
+    }
+
+    private void assertQueries(long statements, long entityLoads, Runnable call) {
+        assertEquals(statements, countStatements(entityLoads, call));
+    }
+
+    private long countStatements(long entityLoads, Runnable call) {
+        em.clear();
+        statistics.clear();
+
+        call.run();
+        em.flush();
+
+        assertEquals(entityLoads, statistics.getEntityLoadCount());
+
+        return statistics.getPrepareStatementCount();
+    }
+}
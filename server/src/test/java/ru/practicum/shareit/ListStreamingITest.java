@@ -0,0 +1,131 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+//Пиковая память списка пользователей целиком и потокового ответа (stream=true).
+//Тест не транзакционный: как и в приложении, каждая часть читается в своей транзакции и не копится в контексте.
+//Ответ не накапливается, а только хешируется, поэтому в пик входят загруженные сущности и DTO, но не тело ответа.
+//Пик зависит от сборщика мусора, поэтому он только пишется в журнал (debug), а проверяется совпадение ответов
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ListStreamingITest {
+
+    private static final int USERS_COUNT = 10_000;
+
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    void beforeEach() {
+        userIds = userRepository.saveAll(IntStream.range(0, USERS_COUNT)
+                        .mapToObj((i) -> new User(null, "Stream_user_name_" + i, "Streamuser" + i + "@email.ru"))
+                        .collect(Collectors.toList()))
+                .stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+
+    @AfterEach
+    void afterEach() {
+        userRepository.deleteAllByIdInBatch(userIds);
+    }
+
+    @Test
+    void streamedUsersMatchList() throws Exception {
+        MessageDigest listDigest = digest();
+        long listPeak = measurePeak(() -> {
+            //порядок findAll не задан, поток идет по возрастанию id
+            List<UserDto> users = userService.getAllUsers();
+            users.sort(Comparator.comparing(UserDto::getId));
+            objectMapper.writeValue(new DigestOutputStream(OutputStream.nullOutputStream(), listDigest), users);
+        });
+
+        MessageDigest streamDigest = digest();
+        long streamPeak = measurePeak(() -> {
+            StreamingResponseBody body = userService.streamAllUsers();
+            body.writeTo(new DigestOutputStream(OutputStream.nullOutputStream(), streamDigest));
+        });
+
+        log.debug("GET /users, {} пользователей: пик кучи списком {} КБ, потоком {} КБ",
+                USERS_COUNT, listPeak / 1024, streamPeak / 1024);
+
+        assertArrayEquals(listDigest.digest(), streamDigest.digest());
+    }
+
+    //прирост занятой кучи над уровнем после сборки мусора, замеры каждую миллисекунду во время вызова
+    private long measurePeak(IoCall call) throws Exception {
+        System.gc();
+        long baseline = memoryMXBean.getHeapMemoryUsage().getUsed();
+
+        AtomicLong peak = new AtomicLong(baseline);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(memoryMXBean.getHeapMemoryUsage().getUsed(), Math::max);
+
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException exception) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        try {
+            call.run();
+            peak.accumulateAndGet(memoryMXBean.getHeapMemoryUsage().getUsed(), Math::max);
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+
+        return peak.get() - baseline;
+    }
+
+    private MessageDigest digest() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256");
+    }
+
+    private interface IoCall {
+        void run() throws IOException;
+    }
+}
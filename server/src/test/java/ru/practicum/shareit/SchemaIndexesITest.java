@@ -0,0 +1,192 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.item.Comment;
+import ru.practicum.shareit.item.CommentRepository;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.requests.ItemRequest;
+import ru.practicum.shareit.requests.ItemRequestRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Планы запросов для путей доступа репозиториев на заполненной БД: ни один не должен сканировать таблицу целиком.
+//H2 сам создает индексы для внешних ключей, поэтому там, где индекс из schema.sql начинается с того же столбца,
+//допустим и индекс внешнего ключа (FK_...). В PostgreSQL таких индексов нет - их роль играют индексы из schema.sql
+@Transactional
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SchemaIndexesITest {
+
+    private static final int USERS_COUNT = 50;
+    private static final int REQUESTS_COUNT = 200;
+    private static final int ITEMS_COUNT = 500;
+    private static final int BOOKINGS_COUNT = 2000;
+    private static final int COMMENTS_COUNT = 1000;
+
+    private final EntityManager em;
+    private final UserRepository userRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+    private final BookingViewRepository bookingViewRepository;
+
+    private User user;
+    private Item item;
+    private ItemRequest request;
+
+    @BeforeEach
+    void beforeEach() {
+        List<User> users = userRepository.saveAll(IntStream.range(0, USERS_COUNT)
+                .mapToObj((i) -> new User(null, "User_name_" + i, "User" + i + "@email.ru"))
+                .collect(Collectors.toList()));
+
+        List<ItemRequest> requests = itemRequestRepository.saveAll(IntStream.range(0, REQUESTS_COUNT)
+                .mapToObj((i) -> new ItemRequest(null, "request_desc_" + i, users.get(i % USERS_COUNT), null))
+                .collect(Collectors.toList()));
+
+        List<Item> items = itemRepository.saveAll(IntStream.range(0, ITEMS_COUNT)
+                .mapToObj((i) -> new Item(null, "item_name_" + i, "item_desc_" + i, Boolean.TRUE,
+                        users.get(i % USERS_COUNT), i % 5 == 0 ? requests.get(i % REQUESTS_COUNT) : null))
+                .collect(Collectors.toList()));
+
+        LocalDateTime start = LocalDateTime.now().minusDays(BOOKINGS_COUNT / 2);
+        BookingStatus[] statuses = BookingStatus.values();
+
+        List<Booking> bookings = bookingRepository.saveAll(IntStream.range(0, BOOKINGS_COUNT)
+                .mapToObj((i) -> new Booking(null, start.plusDays(i), start.plusDays(i).plusHours(3),
+                        items.get(i % ITEMS_COUNT), users.get((i + 1) % USERS_COUNT), statuses[i % statuses.length]))
+                .collect(Collectors.toList()));
+
+        bookingViewRepository.insertBookings(bookings.stream().map(Booking::getId).collect(Collectors.toList()));
+
+        commentRepository.saveAll(IntStream.range(0, COMMENTS_COUNT)
+                .mapToObj((i) -> new Comment(null, "comment_" + i, items.get(i % ITEMS_COUNT),
+                        users.get((i + 2) % USERS_COUNT), null))
+                .collect(Collectors.toList()));
+
+        em.flush();
+
+        user = users.get(1);
+        item = items.get(0);
+        request = requests.get(0);
+    }
+
+    @Test
+    void bookerBookingsUseBookerIndex() {
+        assertUsesIndex(String.format("SELECT * FROM bookings b WHERE b.booker_id = %d "
+                        + "ORDER BY b.start_date DESC, b.booking_id DESC", user.getId()),
+                "IDX_BOOKINGS_BOOKER_ID_START_DATE_ID", "IDX_BOOKINGS_BOOKER_ID_STATUS_START_DATE", "FK_BOOKINGS_TO_USERS");
+    }
+
+    @Test
+    void bookerBookingsByStatusUseBookerStatusIndex() {
+        assertUsesIndex(String.format("SELECT * FROM bookings b WHERE b.booker_id = %d AND b.status = 'WAITING' "
+                        + "ORDER BY b.start_date DESC", user.getId()),
+                "IDX_BOOKINGS_BOOKER_ID_STATUS_START_DATE");
+    }
+
+    @Test
+    void itemBookingsInPeriodUseItemIndex() {
+        assertUsesIndex(String.format("SELECT * FROM bookings b WHERE b.item_id = %d "
+                        + "AND b.start_date < CURRENT_TIMESTAMP AND b.end_date > CURRENT_TIMESTAMP", item.getId()),
+                "IDX_BOOKINGS_ITEM_ID_START_DATE", "IDX_BOOKINGS_ITEM_ID_END_DATE", "FK_BOOKINGS_TO_ITEMS");
+    }
+
+    @Test
+    void lastItemBookingUsesItemIndex() {
+        assertUsesIndex(String.format("SELECT MAX(b.end_date) FROM bookings b WHERE b.item_id = %d "
+                        + "AND b.end_date < CURRENT_TIMESTAMP", item.getId()),
+                "IDX_BOOKINGS_ITEM_ID_END_DATE", "IDX_BOOKINGS_ITEM_ID_START_DATE", "FK_BOOKINGS_TO_ITEMS");
+    }
+
+    @Test
+    void bookingsToArchiveUseStatusIndex() {
+        assertUsesIndex("SELECT b.booking_id FROM bookings b WHERE b.status = 'REJECTED' "
+                        + "AND b.end_date < CURRENT_TIMESTAMP",
+                "IDX_BOOKINGS_STATUS_END_DATE");
+    }
+
+    @Test
+    void ownerBookingsUseOwnerAndItemIndexes() {
+        String plan = explain(String.format("SELECT b.* FROM bookings b JOIN items i ON i.item_id = b.item_id "
+                + "WHERE i.owner_id = %d ORDER BY b.start_date DESC", user.getId()));
+
+        assertFalse(plan.contains("TABLESCAN"), plan);
+        assertTrue(plan.contains("IDX_ITEMS_OWNER_ID") || plan.contains("FK_ITEMS_TO_USERS"), plan);
+    }
+
+    @Test
+    void bookerBookingViewUsesBookerIndex() {
+        assertUsesIndex(String.format("SELECT * FROM booking_view v WHERE v.booker_id = %d "
+                        + "ORDER BY v.start_date DESC, v.booking_id DESC", user.getId()),
+                "IDX_BOOKING_VIEW_BOOKER_ID_START_DATE_ID", "IDX_BOOKING_VIEW_BOOKER_ID_STATUS_START_DATE_ID",
+                "FK_BOOKING_VIEW_TO_USERS");
+    }
+
+    @Test
+    void ownerBookingViewByStatusUsesOwnerStatusIndex() {
+        assertUsesIndex(String.format("SELECT * FROM booking_view v WHERE v.owner_id = %d AND v.status = 'WAITING' "
+                        + "ORDER BY v.start_date DESC, v.booking_id DESC", user.getId()),
+                "IDX_BOOKING_VIEW_OWNER_ID_STATUS_START_DATE_ID");
+    }
+
+    @Test
+    void ownerFutureBookingViewUsesOwnerIndex() {
+        assertUsesIndex(String.format("SELECT * FROM booking_view v WHERE v.owner_id = %d "
+                        + "AND v.start_date > CURRENT_TIMESTAMP ORDER BY v.start_date DESC", user.getId()),
+                "IDX_BOOKING_VIEW_OWNER_ID_START_DATE_ID", "IDX_BOOKING_VIEW_OWNER_ID_STATUS_START_DATE_ID");
+    }
+
+    @Test
+    void requestItemsUseRequestIndex() {
+        assertUsesIndex(String.format("SELECT * FROM items i WHERE i.request_id = %d", request.getId()),
+                "IDX_ITEMS_REQUEST_ID", "FK_ITEMS_TO_REQUESTS");
+    }
+
+    @Test
+    void itemCommentsUseItemIndex() {
+        assertUsesIndex(String.format("SELECT * FROM comments c WHERE c.item_id IN (%d, %d) "
+                        + "ORDER BY c.creation_date DESC", item.getId(), item.getId() + 1),
+                "IDX_COMMENTS_ITEM_ID_CREATION_DATE", "FK_COMMENTS_TO_ITEMS");
+    }
+
+    @Test
+    void userRequestsUseRequesterIndex() {
+        assertUsesIndex(String.format("SELECT * FROM requests r WHERE r.requester_id = %d "
+                        + "ORDER BY r.creation_date DESC", user.getId()),
+                "IDX_REQUESTS_REQUESTER_ID_CREATION_DATE", "FK_REQUESTS_TO_USERS");
+    }
+
+    private void assertUsesIndex(String sql, String... indexes) {
+        String plan = explain(sql);
+
+        assertFalse(plan.contains("TABLESCAN"), plan);
+        assertTrue(Arrays.stream(indexes).anyMatch(plan::contains), plan);
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(em.createNativeQuery("EXPLAIN " + sql).getSingleResult()).toUpperCase();
+    }
+}
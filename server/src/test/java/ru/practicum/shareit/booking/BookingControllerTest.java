@@ -6,27 +6,45 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.DigestUtils;
+import ru.practicum.shareit.booking.dto.BookingBatchDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
 import ru.practicum.shareit.booking.dto.BookingItemOwnerDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
+import ru.practicum.shareit.booking.exceptions.BookingInvalidCursorException;
+import ru.practicum.shareit.booking.exceptions.BookingOverlapException;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.common.idempotency.IdempotencyRecord;
+import ru.practicum.shareit.common.idempotency.IdempotencyRecordRepository;
+import ru.practicum.shareit.common.idempotency.IdempotentRequests;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookingController.class)
+@Import(IdempotentRequests.class)
 @AutoConfigureMockMvc
 class BookingControllerTest {
 
@@ -36,12 +54,16 @@ class BookingControllerTest {
     @MockBean
     BookingService bookingService;
 
+    @MockBean
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
     @Autowired
     MockMvc mockMvc;
 
     String headerName = "X-Sharer-User-Id";
     Long userId = 1L;
     Long unknownUserId = 99L;
+    String idempotencyKey = "6f1c2a9e-3b7d-4e58-9a0f-1d2c3b4a5e6f";
 
     String paramFromName = "from";
     String paramFromValue = "0";
@@ -120,6 +142,68 @@ class BookingControllerTest {
         verify(bookingService, times(1)).createBooking(any(BookingCreateDto.class), any(Long.class));
     }
 
+    //повтор с тем же ключом: ключ уже занят, ответ берется из сохраненного, бронь не создается
+    @Test
+    void getSuccessReplayCreateBookingWithIdempotencyKey() throws Exception {
+        String requestJson = mapper.writeValueAsString(bookingCreateDto);
+
+        when(idempotencyRecordRepository.claim(any(Long.class), any(String.class), any(String.class), any(LocalDateTime.class)))
+                .thenThrow(new DataIntegrityViolationException("pk_idempotency_keys"));
+        when(idempotencyRecordRepository.findById(new IdempotencyRecord.Key(userId, idempotencyKey)))
+                .thenReturn(Optional.of(new IdempotencyRecord(userId, idempotencyKey,
+                        DigestUtils.md5DigestAsHex(("POST /bookings\n" + requestJson).getBytes(StandardCharsets.UTF_8)),
+                        requestJson, LocalDateTime.now())));
+
+        mockMvc.perform(post("/bookings")
+                        .content(requestJson)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId)
+                        .header(IdempotentRequests.HEADER, idempotencyKey))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(bookingCreateDto.getId()))
+                .andExpect(jsonPath("$.itemId").value(bookingCreateDto.getItemId()));
+
+        verify(bookingService, times(0)).createBooking(any(BookingCreateDto.class), any(Long.class));
+    }
+
+    @Test
+    void getUnprocessableEntityOnCreateBookingWithReusedIdempotencyKey() throws Exception {
+        when(idempotencyRecordRepository.claim(any(Long.class), any(String.class), any(String.class), any(LocalDateTime.class)))
+                .thenThrow(new DataIntegrityViolationException("pk_idempotency_keys"));
+        when(idempotencyRecordRepository.findById(new IdempotencyRecord.Key(userId, idempotencyKey)))
+                .thenReturn(Optional.of(new IdempotencyRecord(userId, idempotencyKey, "another_request_hash",
+                        "{}", LocalDateTime.now())));
+
+        mockMvc.perform(post("/bookings")
+                        .content(mapper.writeValueAsString(bookingCreateDto))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId)
+                        .header(IdempotentRequests.HEADER, idempotencyKey))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(bookingService, times(0)).createBooking(any(BookingCreateDto.class), any(Long.class));
+    }
+
+    @Test
+    void getConflictOnCreateOverlappingBooking() throws Exception {
+        when(bookingService.createBooking(any(BookingCreateDto.class), any(Long.class)))
+                .thenThrow(new BookingOverlapException("Вещь с id = 1 уже забронирована"));
+
+        mockMvc.perform(post("/bookings")
+                        .content(mapper.writeValueAsString(bookingCreateDto))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId))
+                .andExpect(status().isConflict());
+
+        verify(bookingService, times(1)).createBooking(any(BookingCreateDto.class), any(Long.class));
+    }
+
     @Test
     void getSuccessResolveBooking() throws Exception {
         when(bookingService.resolveBooking(any(Long.class), any(Long.class), any(Boolean.class)))
@@ -143,6 +227,31 @@ class BookingControllerTest {
         verify(bookingService, times(1)).resolveBooking(any(Long.class), any(Long.class), any(Boolean.class));
     }
 
+    @Test
+    void getSuccessResolveBookingsBatch() throws Exception {
+        when(bookingService.resolveBookings(anyList(), any(Long.class), any(Boolean.class)))
+                .thenReturn(List.of(
+                        new BookingBatchResultDto(1L, BookingBatchResult.RESOLVED, BookingStatus.APPROVED),
+                        new BookingBatchResultDto(2L, BookingBatchResult.FORBIDDEN, null)));
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .content(mapper.writeValueAsString(new BookingBatchDto(List.of(1L, 2L))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId)
+                        .param(paramApprovedName, paramApprovedValue))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bookingId").value(1L))
+                .andExpect(jsonPath("$[0].result").value(BookingBatchResult.RESOLVED.toString()))
+                .andExpect(jsonPath("$[0].status").value(BookingStatus.APPROVED.toString()))
+                .andExpect(jsonPath("$[1].bookingId").value(2L))
+                .andExpect(jsonPath("$[1].result").value(BookingBatchResult.FORBIDDEN.toString()));
+
+        verify(bookingService, times(1)).resolveBookings(List.of(1L, 2L), userId, Boolean.TRUE);
+        verify(bookingService, times(0)).resolveBooking(any(Long.class), any(Long.class), any(Boolean.class));
+    }
+
     @Test
     void getSuccessBookingDetailInfoById() throws Exception {
         when(bookingService.getBookingDetailInfoById(any(Long.class), any(Long.class)))
@@ -223,4 +332,112 @@ class BookingControllerTest {
 
         verify(bookingService, times(1)).getAllBookingsByOwnerIdAndState(any(Long.class), any(String.class), any(Integer.class), any(Integer.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getSuccessBookingsPageByOwnerIdAndState() throws Exception {
+        when(bookingService.getBookingsPageByOwnerIdAndState(any(Long.class), any(String.class), any(String.class), any(Integer.class)))
+                .thenReturn(new BookingPageDto(List.of(bookingFullInfoDto), "next_cursor"));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .param("state", "ALL")
+                        .param("cursor", "")
+                        .param(paramSizeName, paramSizeValue)
+                        .header(headerName, userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookings.[0].id").value(bookingFullInfoDto.getId()))
+                .andExpect(jsonPath("$.next").value("next_cursor"));
+
+        verify(bookingService, times(1)).getBookingsPageByOwnerIdAndState(userId, "ALL", "", 2);
+        verify(bookingService, times(0)).getAllBookingsByOwnerIdAndState(any(Long.class), any(String.class), any(Integer.class), any(Integer.class));
+    }
+
+    @Test
+    void getBadRequestOnBookingsPageWithInvalidCursor() throws Exception {
+        when(bookingService.getBookingsPageByUserIdAndState(any(Long.class), any(String.class), any(String.class), any(Integer.class)))
+                .thenThrow(new BookingInvalidCursorException("Некорректный курсор: abc"));
+
+        mockMvc.perform(get("/bookings")
+                        .param("cursor", "abc")
+                        .header(headerName, userId))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getSuccessExportAllBookingsByOwnerId() throws Exception {
+        when(bookingService.exportAllBookingsByOwnerId(any(Long.class)))
+                .thenReturn((outputStream) -> {
+                    outputStream.write((mapper.writeValueAsString(bookingFullInfoDto) + "\n").getBytes(StandardCharsets.UTF_8));
+                    outputStream.write((mapper.writeValueAsString(bookingFullInfoDto) + "\n").getBytes(StandardCharsets.UTF_8));
+                });
+
+        //тело пишется асинхронно, после выхода из метода контроллера
+        MvcResult result = mockMvc.perform(get("/bookings/owner/export")
+                        .header(headerName, userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(bookingFullInfoDto.getId(), mapper.readValue(lines[0], BookingFullInfoDto.class).getId());
+
+        verify(bookingService, times(1)).exportAllBookingsByOwnerId(userId);
+    }
+
+    @Test
+    void getNotFoundOnExportAllBookingsByUnknownOwnerId() throws Exception {
+        when(bookingService.exportAllBookingsByOwnerId(any(Long.class)))
+                .thenThrow(new UserUnknownException(String.format("Пользователь с %d не найден.", unknownUserId)));
+
+        mockMvc.perform(get("/bookings/owner/export")
+                        .header(headerName, unknownUserId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getSuccessStreamAllBookingsByUserIdAndState() throws Exception {
+        when(bookingService.streamAllBookingsByUserIdAndState(any(Long.class), any(String.class)))
+                .thenReturn((outputStream) -> outputStream.write(
+                        mapper.writeValueAsBytes(List.of(bookingFullInfoDto))));
+
+        MvcResult result = mockMvc.perform(get("/bookings")
+                        .param("stream", "true")
+                        .param("state", "WAITING")
+                        .header(headerName, userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(bookingFullInfoDto.getId()));
+
+        verify(bookingService, times(1)).streamAllBookingsByUserIdAndState(userId, "WAITING");
+        verify(bookingService, times(0)).getAllBookingsByUserIdAndState(any(Long.class), any(String.class),
+                any(Integer.class), any(Integer.class));
+    }
+
+    //курсор и stream=true вместе: запрос однозначно постраничный
+    @Test
+    void getBookingsPageWhenCursorAndStreamRequested() throws Exception {
+        when(bookingService.getBookingsPageByOwnerIdAndState(any(Long.class), any(String.class), any(String.class), any(Integer.class)))
+                .thenReturn(new BookingPageDto(List.of(bookingFullInfoDto), null));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .param("cursor", "")
+                        .param("stream", "true")
+                        .header(headerName, userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookings.[0].id").value(bookingFullInfoDto.getId()));
+
+        verify(bookingService, times(1)).getBookingsPageByOwnerIdAndState(userId, "ALL", "", 10);
+        verify(bookingService, times(0)).streamAllBookingsByOwnerIdAndState(any(Long.class), any(String.class));
+    }
+}
@@ -6,7 +6,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.booking.dto.BookingResolveInfoDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.booking.dto.ItemBookingCandidateDto;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.user.User;
@@ -14,6 +16,9 @@ import ru.practicum.shareit.user.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,8 +48,6 @@ class BookingRepositoryTest {
     private Booking approvedCurrentBooking;
     private Booking approvedFutureBooking;
 
-    private PageRequest tenElementsOnPageSortByIdRequest = PageRequest.of(0, 10, Sort.by("id").ascending());
-
     @BeforeEach
     void beforeEach() {
         owner = new User();
@@ -137,139 +140,135 @@ class BookingRepositoryTest {
     }
 
     @Test
-    void shouldGet8BookingsForBooker() {
-        List<Booking> result = bookingRepository.findAllByBooker_Id(booker.getId(), tenElementsOnPageSortByIdRequest);
+    void shouldGet2BookingsForBookerAndItemInPast() {
+        List<Booking> result = bookingRepository.findBookingByBooker_IdAndItem_IdAndEndBefore(booker.getId(),
+                item1.getId(), LocalDateTime.now());
 
         assertNotNull(result);
-        assertEquals(8, result.size());
+        assertEquals(2, result.size());
         assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
-        assertEquals(rejectedFutureBooking.getId(), result.get(1).getId());
-        assertEquals(waitingCurrentBooking.getId(), result.get(2).getId());
-        assertEquals(waitingFutureBooking.getId(), result.get(3).getId());
-        assertEquals(canceledPastBooking.getId(), result.get(4).getId());
-        assertEquals(canceledCurrentBooking.getId(), result.get(5).getId());
-        assertEquals(approvedCurrentBooking.getId(), result.get(6).getId());
-        assertEquals(approvedFutureBooking.getId(), result.get(7).getId());
+        assertEquals(canceledPastBooking.getId(), result.get(1).getId());
     }
 
+    //по одной брони каждой роли: последняя завершенная (без отклоненных), текущая с наименьшим id
+    //и ближайшая будущая
     @Test
-    void shouldGet3CurrentBookingsForBooker() {
-        List<Booking> result = bookingRepository.findAllByBooker_IdAndStartBeforeAndEndAfter(
-                booker.getId(), LocalDateTime.now(), LocalDateTime.now(), tenElementsOnPageSortByIdRequest
-        );
+    void shouldGetLastCurrentAndNextBookingsForItemInOneQuery() {
+        Map<String, ItemBookingCandidateDto> result = bookingRepository.findLastCurrentAndNextBookingsByItemIds(
+                        List.of(item1.getId()),
+                        List.of(BookingStatus.CANCELED.name(), BookingStatus.APPROVED.name()),
+                        LocalDateTime.now()).stream()
+                .collect(Collectors.toMap(ItemBookingCandidateDto::getKind, Function.identity()));
 
-        assertNotNull(result);
         assertEquals(3, result.size());
-        assertEquals(waitingCurrentBooking.getId(), result.get(0).getId());
-        assertEquals(canceledCurrentBooking.getId(), result.get(1).getId());
-        assertEquals(approvedCurrentBooking.getId(), result.get(2).getId());
-     }
 
-    @Test
-    void shouldGet3FutureBookingsForBooker() {
-        List<Booking> result = bookingRepository.findAllByBooker_IdAndStartAfter(booker.getId(),
-                LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+        ItemBookingCandidateDto last = result.get(ItemBookingCandidateDto.LAST);
+        assertEquals(canceledPastBooking.getId(), last.getId());
+        assertEquals(item1.getId(), last.getItemId());
+        assertEquals(booker.getId(), last.getBookerId());
+        assertNotNull(last.getEndDate());
 
-        assertNotNull(result);
-        assertEquals(3, result.size());
-        assertEquals(rejectedFutureBooking.getId(), result.get(0).getId());
-        assertEquals(waitingFutureBooking.getId(), result.get(1).getId());
-        assertEquals(approvedFutureBooking.getId(), result.get(2).getId());
+        assertEquals(waitingCurrentBooking.getId(), result.get(ItemBookingCandidateDto.CURRENT).getId());
+
+        ItemBookingCandidateDto next = result.get(ItemBookingCandidateDto.NEXT);
+        assertEquals(rejectedFutureBooking.getId(), next.getId());
+        assertNotNull(next.getStartDate());
     }
 
     @Test
-    void shouldGet2ApprovedBookingsForBooker() {
-        List<Booking> result = bookingRepository.findAllByBooker_IdAndStatus(booker.getId(),
-                BookingStatus.APPROVED, tenElementsOnPageSortByIdRequest);
-
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(approvedCurrentBooking.getId(), result.get(0).getId());
-        assertEquals(approvedFutureBooking.getId(), result.get(1).getId());
+    void shouldGetNoBookingsForItemWithoutBookings() {
+        assertTrue(bookingRepository.findLastCurrentAndNextBookingsByItemIds(List.of(item1.getId() + 1000),
+                List.of(BookingStatus.CANCELED.name(), BookingStatus.APPROVED.name()), LocalDateTime.now()).isEmpty());
     }
 
     @Test
-    void shouldGet1RejectedAnd1CanceledBookingsForBooker() {
-        List<Booking> result = bookingRepository.findAllByBooker_IdAndStatusInAndEndBefore(booker.getId(),
-                List.of(BookingStatus.CANCELED, BookingStatus.REJECTED), LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+    void shouldGetWaitingAndApprovedBookingsOfItemInPeriod() {
+        List<BookingShortDto> result = bookingRepository.findItemBookingsInPeriod(item1.getId(),
+                List.of(BookingStatus.WAITING, BookingStatus.APPROVED),
+                LocalDateTime.now().minusHours(1), LocalDateTime.now().plusDays(2));
 
         assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
-        assertEquals(canceledPastBooking.getId(), result.get(1).getId());
+        assertEquals(4, result.size());
+        assertTrue(result.stream().noneMatch((booking) -> booking.getStart().isAfter(LocalDateTime.now().plusDays(2))));
+        assertTrue(result.get(0).getStart().isBefore(result.get(3).getStart()));
     }
 
     @Test
-    void shouldGet8BookingsForItem1() {
-        List<Booking> result = bookingRepository.findAllByItem_IdIn(List.of(item1.getId()), tenElementsOnPageSortByIdRequest);
+    void shouldGetBookingsForIntervalIndexAfterId() {
+        List<BookingShortDto> result = bookingRepository.findBookingsForIntervalIndex(waitingCurrentBooking.getId(),
+                List.of(BookingStatus.WAITING, BookingStatus.APPROVED), PageRequest.of(0, 2));
 
         assertNotNull(result);
-        assertEquals(8, result.size());
-        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
-        assertEquals(rejectedFutureBooking.getId(), result.get(1).getId());
-        assertEquals(waitingCurrentBooking.getId(), result.get(2).getId());
-        assertEquals(waitingFutureBooking.getId(), result.get(3).getId());
-        assertEquals(canceledPastBooking.getId(), result.get(4).getId());
-        assertEquals(canceledCurrentBooking.getId(), result.get(5).getId());
-        assertEquals(approvedCurrentBooking.getId(), result.get(6).getId());
-        assertEquals(approvedFutureBooking.getId(), result.get(7).getId());
+        assertEquals(2, result.size());
+        assertEquals(waitingFutureBooking.getId(), result.get(0).getId());
+        assertEquals(approvedCurrentBooking.getId(), result.get(1).getId());
+        assertEquals(item1.getId(), result.get(0).getItemId());
     }
 
     @Test
-    void shouldGet3CurrentBookingsForItem() {
-        List<Booking> result = bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(
-                List.of(item1.getId()), LocalDateTime.now(), LocalDateTime.now(), tenElementsOnPageSortByIdRequest
-        );
-
-        assertNotNull(result);
-        assertEquals(3, result.size());
-        assertEquals(waitingCurrentBooking.getId(), result.get(0).getId());
-        assertEquals(canceledCurrentBooking.getId(), result.get(1).getId());
-        assertEquals(approvedCurrentBooking.getId(), result.get(2).getId());
+    void shouldFindWaitingOrApprovedBookingOfItemInPeriod() {
+        List<BookingStatus> statuses = List.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+        //в прошлом есть только отклоненная и отмененная брони
+        assertFalse(bookingRepository.existsItemBookingInPeriod(item1.getId(), statuses,
+                LocalDateTime.now().minusDays(4), LocalDateTime.now().minusDays(2)));
+        assertFalse(bookingRepository.existsItemBookingInPeriod(item1.getId(), statuses,
+                LocalDateTime.now().plusDays(4), LocalDateTime.now().plusDays(5)));
+        assertTrue(bookingRepository.existsItemBookingInPeriod(item1.getId(), statuses,
+                LocalDateTime.now().plusDays(2), LocalDateTime.now().plusDays(5)));
     }
 
     @Test
-    void shouldGet3FutureBookingsForItem() {
-        List<Booking> result = bookingRepository.findAllByItem_IdInAndStartAfter(List.of(item1.getId()),
-                LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+    void shouldGetOwnerAndStatusOfBookingsByIds() {
+        List<BookingResolveInfoDto> result = bookingRepository.findResolveInfoByIds(
+                List.of(waitingFutureBooking.getId(), approvedCurrentBooking.getId(), Long.MAX_VALUE));
 
-        assertNotNull(result);
-        assertEquals(3, result.size());
-        assertEquals(rejectedFutureBooking.getId(), result.get(0).getId());
-        assertEquals(waitingFutureBooking.getId(), result.get(1).getId());
-        assertEquals(approvedFutureBooking.getId(), result.get(2).getId());
+        assertEquals(2, result.size());
+
+        BookingResolveInfoDto waiting = result.stream()
+                .filter((booking) -> booking.getId().equals(waitingFutureBooking.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(item1.getId(), waiting.getItemId());
+        assertEquals(owner.getId(), waiting.getOwnerId());
+        assertEquals(BookingStatus.WAITING, waiting.getStatus());
+        assertNotNull(waiting.getStart());
+        assertNotNull(waiting.getEnd());
     }
 
     @Test
-    void shouldGet2ApprovedBookingsForItem() {
-        List<Booking> result = bookingRepository.findAllByItem_IdInAndStatusIn(List.of(item1.getId()),
-                List.of(BookingStatus.APPROVED), tenElementsOnPageSortByIdRequest);
-
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(approvedCurrentBooking.getId(), result.get(0).getId());
-        assertEquals(approvedFutureBooking.getId(), result.get(1).getId());
+    void shouldUpdateStatusesOnlyOfBookingsWithOtherStatus() {
+        int updated = bookingRepository.updateStatuses(
+                List.of(waitingCurrentBooking.getId(), waitingFutureBooking.getId(), approvedFutureBooking.getId()),
+                BookingStatus.APPROVED);
+
+        assertEquals(2, updated);
+        assertEquals(BookingStatus.APPROVED, bookingRepository.findById(waitingCurrentBooking.getId()).orElseThrow().getStatus());
+        assertEquals(BookingStatus.APPROVED, bookingRepository.findById(waitingFutureBooking.getId()).orElseThrow().getStatus());
+        assertEquals(BookingStatus.REJECTED, bookingRepository.findById(rejectedFutureBooking.getId()).orElseThrow().getStatus());
     }
 
     @Test
-    void shouldGet1RejectedAnd1CanceledBookingsForItem() {
-        List<Booking> result = bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(List.of(item1.getId()),
-                List.of(BookingStatus.CANCELED, BookingStatus.REJECTED), LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+    void shouldLockOnlyBookingsWithOtherStatus() {
+        List<Long> lockedIds = bookingRepository.lockIdsWithOtherStatus(
+                List.of(approvedFutureBooking.getId(), waitingFutureBooking.getId(), waitingCurrentBooking.getId(), Long.MAX_VALUE),
+                BookingStatus.APPROVED.name());
 
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
-        assertEquals(canceledPastBooking.getId(), result.get(1).getId());
+        assertEquals(List.of(waitingCurrentBooking.getId(), waitingFutureBooking.getId()).stream().sorted().collect(Collectors.toList()),
+                lockedIds);
     }
 
     @Test
-    void shouldGet2BookingsForBookerAndItemInPast() {
-        List<Booking> result = bookingRepository.findBookingByBooker_IdAndItem_IdAndEndBefore(booker.getId(),
-                item1.getId(), LocalDateTime.now());
+    void shouldUpdateStatusOnlyByItemOwnerAndOnlyToOtherStatus() {
+        //не владелец вещи, тот же статус, несуществующая бронь
+        assertEquals(0, bookingRepository.updateStatusByOwner(waitingFutureBooking.getId(), booker.getId(), BookingStatus.APPROVED));
+        assertEquals(0, bookingRepository.updateStatusByOwner(approvedFutureBooking.getId(), owner.getId(), BookingStatus.APPROVED));
+        assertEquals(0, bookingRepository.updateStatusByOwner(Long.MAX_VALUE, owner.getId(), BookingStatus.APPROVED));
 
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
-        assertEquals(canceledPastBooking.getId(), result.get(1).getId());
+        assertEquals(BookingStatus.WAITING, bookingRepository.findById(waitingFutureBooking.getId()).orElseThrow().getStatus());
+
+        assertEquals(1, bookingRepository.updateStatusByOwner(waitingFutureBooking.getId(), owner.getId(), BookingStatus.APPROVED));
+        assertEquals(BookingStatus.APPROVED, bookingRepository.findById(waitingFutureBooking.getId()).orElseThrow().getStatus());
     }
-}
\ No newline at end of file
+}
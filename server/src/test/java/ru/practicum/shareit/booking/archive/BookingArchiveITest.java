@@ -0,0 +1,184 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+import ru.practicum.shareit.booking.exceptions.BookingSecurityException;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingArchiveITest {
+
+    private final EntityManager em;
+    private final BookingArchive bookingArchive;
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final BookingViewRepository bookingViewRepository;
+    private final BookingService bookingService;
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private BookingArchiver archiver;
+
+    private User owner;
+    private User booker;
+    private User other;
+    private Item item;
+
+    private Booking oldRejected;
+    private Booking oldCanceled1;
+    private Booking oldCanceled2;
+    private Booking oldApproved;
+    private Booking recentRejected;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void beforeEach() {
+        now = LocalDateTime.now().withNano(0);
+
+        owner = userRepository.save(new User(null, "User_name_1", "User1@email.ru"));
+        booker = userRepository.save(new User(null, "User_name_2", "User2@email.ru"));
+        other = userRepository.save(new User(null, "User_name_3", "User3@email.ru"));
+        item = itemRepository.save(new Item(null, "item_name_1", "item_desc_1", Boolean.TRUE, owner, null));
+
+        oldRejected = booking(now.minusDays(100), BookingStatus.REJECTED);
+        oldCanceled1 = booking(now.minusDays(90), BookingStatus.CANCELED);
+        oldCanceled2 = booking(now.minusDays(80), BookingStatus.CANCELED);
+        oldApproved = booking(now.minusDays(70), BookingStatus.APPROVED);
+        recentRejected = booking(now.minusDays(10), BookingStatus.REJECTED);
+
+        bookingViewRepository.insertBookings(List.of(oldRejected.getId(), oldCanceled1.getId(), oldCanceled2.getId(),
+                oldApproved.getId(), recentRejected.getId()));
+
+        //пачка из двух броней - чтобы перенос прошел несколько пачек
+        archiver = new BookingArchiver(bookingArchive, true, 30, 2);
+    }
+
+    @Test
+    void shouldMoveOnlyEndedRejectedAndCanceledBookings() {
+        int moved = archiver.archiveEndedBefore(now.minusDays(30));
+        em.clear();
+
+        assertEquals(3, moved);
+        assertEquals(List.of(oldApproved.getId(), recentRejected.getId()), bookingRepository.findAll().stream()
+                .map(Booking::getId)
+                .sorted()
+                .collect(Collectors.toList()));
+
+        List<ArchivedBooking> archived = archivedBookingRepository.findAll();
+        assertEquals(List.of(oldRejected.getId(), oldCanceled1.getId(), oldCanceled2.getId()), archived.stream()
+                .map(ArchivedBooking::getId)
+                .sorted()
+                .collect(Collectors.toList()));
+
+        ArchivedBooking archivedRejected = archivedBookingRepository.findById(oldRejected.getId()).orElseThrow();
+        assertEquals(oldRejected.getStart(), archivedRejected.getStart());
+        assertEquals(oldRejected.getEnd(), archivedRejected.getEnd());
+        assertEquals(item.getId(), archivedRejected.getItemId());
+        assertEquals(booker.getId(), archivedRejected.getBookerId());
+        assertEquals(BookingStatus.REJECTED, archivedRejected.getStatus());
+        assertNotNull(archivedRejected.getArchived());
+
+        //повторный запуск переносить уже нечего
+        assertEquals(0, archiver.archiveEndedBefore(now.minusDays(30)));
+    }
+
+    @Test
+    void shouldListArchivedBookingsTogetherWithLiveOnes() {
+        archiver.archiveEndedBefore(now.minusDays(30));
+        em.clear();
+
+        List<BookingFullInfoDto> all = bookingService.getAllBookingsByUserIdAndState(booker.getId(), "ALL", 0, 10);
+        assertEquals(List.of(recentRejected.getId(), oldApproved.getId(), oldCanceled2.getId(),
+                oldCanceled1.getId(), oldRejected.getId()), ids(all));
+
+        List<BookingFullInfoDto> past = bookingService.getAllBookingsByOwnerIdAndState(owner.getId(), "PAST", 0, 10);
+        assertEquals(List.of(oldApproved.getId(), oldCanceled2.getId(), oldCanceled1.getId()), ids(past));
+
+        List<BookingFullInfoDto> rejected = bookingService.getAllBookingsByUserIdAndState(booker.getId(), "REJECTED", 0, 10);
+        assertEquals(List.of(recentRejected.getId(), oldRejected.getId()), ids(rejected));
+    }
+
+    @Test
+    void shouldGetArchivedBookingForBookerAndOwnerOnly() {
+        archiver.archiveEndedBefore(now.minusDays(30));
+        em.clear();
+
+        BookingFullInfoDto forBooker = bookingService.getBookingDetailInfoById(oldRejected.getId(), booker.getId());
+        assertEquals(oldRejected.getId(), forBooker.getId());
+        assertEquals(BookingStatus.REJECTED, forBooker.getStatus());
+        assertEquals(booker.getId(), forBooker.getBooker().getId());
+        assertEquals(item.getName(), forBooker.getItem().getName());
+
+        assertEquals(oldRejected.getId(), bookingService.getBookingDetailInfoById(oldRejected.getId(), owner.getId()).getId());
+
+        assertThrows(BookingSecurityException.class,
+                () -> bookingService.getBookingDetailInfoById(oldRejected.getId(), other.getId()));
+    }
+
+    @Test
+    void shouldAllowCommentForArchivedBooking() {
+        Item otherItem = itemRepository.save(new Item(null, "item_name_2", "item_desc_2", Boolean.TRUE, owner, null));
+        Booking booking = bookingRepository.save(new Booking(null, now.minusDays(60), now.minusDays(59),
+                otherItem, other, BookingStatus.CANCELED));
+        bookingViewRepository.insertBookings(List.of(booking.getId()));
+
+        archiver.archiveEndedBefore(now.minusDays(30));
+        em.clear();
+
+        assertFalse(bookingRepository.existsById(booking.getId()));
+
+        CommentDto comment = itemService.addNewCommentByItemId(otherItem.getId(),
+                new CommentDto(null, "Comment_text", null, null), other.getId());
+
+        assertNotNull(comment.getId());
+    }
+
+    @Test
+    void shouldDeleteArchivedBookingsWithItem() {
+        archiver.archiveEndedBefore(now.minusDays(30));
+        em.clear();
+
+        em.createNativeQuery("delete from items where item_id = ?1")
+                .setParameter(1, item.getId())
+                .executeUpdate();
+
+        assertEquals(0, archivedBookingRepository.count());
+        assertEquals(0, bookingViewRepository.count());
+    }
+
+    private Booking booking(LocalDateTime start, BookingStatus status) {
+        return bookingRepository.save(new Booking(null, start, start.plusDays(1), item, booker, status));
+    }
+
+    private List<Long> ids(List<BookingFullInfoDto> bookings) {
+        return bookings.stream().map(BookingFullInfoDto::getId).collect(Collectors.toList());
+    }
+}
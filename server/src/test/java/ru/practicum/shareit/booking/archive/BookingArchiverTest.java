@@ -0,0 +1,81 @@
+package ru.practicum.shareit.booking.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookingArchiverTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    BookingArchive bookingArchive;
+    BookingArchiver archiver;
+
+    private final LocalDateTime endBefore = LocalDateTime.of(2030, 1, 10, 12, 0);
+
+    @BeforeEach
+    void beforeEach() {
+        bookingArchive = mock(BookingArchive.class);
+        archiver = new BookingArchiver(bookingArchive, true, 30, BATCH_SIZE);
+    }
+
+    @Test
+    void shouldMoveBatchesUntilBatchIsNotFull() {
+        when(bookingArchive.moveBatch(any(), any(LocalDateTime.class), anyInt()))
+                .thenReturn(BATCH_SIZE)
+                .thenReturn(BATCH_SIZE)
+                .thenReturn(1);
+
+        int moved = archiver.archiveEndedBefore(endBefore);
+
+        assertEquals(5, moved);
+        verify(bookingArchive, times(3)).moveBatch(BookingArchiver.ARCHIVED_STATUSES, endBefore, BATCH_SIZE);
+    }
+
+    @Test
+    void shouldStopAfterEmptyBatch() {
+        when(bookingArchive.moveBatch(any(), any(LocalDateTime.class), anyInt()))
+                .thenReturn(BATCH_SIZE)
+                .thenReturn(0);
+
+        assertEquals(BATCH_SIZE, archiver.archiveEndedBefore(endBefore));
+        verify(bookingArchive, times(2)).moveBatch(any(), any(LocalDateTime.class), anyInt());
+    }
+
+    @Test
+    void shouldArchiveBookingsOlderThanRetention() {
+        LocalDateTime before = LocalDateTime.now().minusDays(30);
+
+        archiver.archive();
+
+        LocalDateTime after = LocalDateTime.now().minusDays(30);
+
+        verify(bookingArchive).moveBatch(eq(BookingArchiver.ARCHIVED_STATUSES),
+                argThat((endBefore) -> !endBefore.isBefore(before) && !endBefore.isAfter(after)), eq(BATCH_SIZE));
+    }
+
+    @Test
+    void shouldNotArchiveWhenDisabled() {
+        archiver = new BookingArchiver(bookingArchive, false, 30, BATCH_SIZE);
+
+        archiver.archive();
+
+        verifyNoInteractions(bookingArchive);
+    }
+
+    //ошибка БД не должна останавливать планировщик - перенос повторится при следующем запуске
+    @Test
+    void shouldNotThrowWhenBatchFails() {
+        when(bookingArchive.moveBatch(any(), any(LocalDateTime.class), anyInt()))
+                .thenThrow(new IllegalStateException("db is down"));
+
+        assertDoesNotThrow(() -> archiver.archive());
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.shareit.booking.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingExporterITest {
+
+    private static final int BOOKINGS_COUNT = 1200;
+
+    private final BookingExporter bookingExporter;
+    private final BookingRepository bookingRepository;
+    private final BookingViewRepository bookingViewRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    private User owner;
+    private User booker;
+    private Item item;
+
+    private LocalDateTime start;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = userRepository.save(new User(null, "User_name_1", "User1@email.ru"));
+        booker = userRepository.save(new User(null, "User_name_2", "User2@email.ru"));
+        item = itemRepository.save(new Item(null, "item_name_1", "item_desc_1", Boolean.TRUE, owner, null));
+
+        start = LocalDateTime.now().minusDays(BOOKINGS_COUNT).withNano(0);
+    }
+
+    //больше броней, чем помещается в одну выборку курсора, - все попадают в выгрузку по убыванию даты начала
+    @Test
+    void shouldWriteEveryOwnerBookingAsLine() throws Exception {
+        List<Booking> bookings = bookingRepository.saveAll(IntStream.range(0, BOOKINGS_COUNT)
+                .mapToObj((i) -> new Booking(null, start.plusDays(i), start.plusDays(i).plusHours(1), item, booker,
+                        BookingStatus.APPROVED))
+                .collect(Collectors.toList()));
+        bookingViewRepository.insertBookings(bookings.stream().map(Booking::getId).collect(Collectors.toList()));
+
+        //бронь вещи другого владельца в выгрузку не попадает
+        Item otherItem = itemRepository.save(new Item(null, "item_name_2", "item_desc_2", Boolean.TRUE, booker, null));
+        Booking otherBooking = bookingRepository.save(new Booking(null, start, start.plusHours(1), otherItem, owner,
+                BookingStatus.WAITING));
+        bookingViewRepository.insertBookings(List.of(otherBooking.getId()));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long count = bookingExporter.writeOwnerBookings(owner.getId(), outputStream);
+
+        String body = outputStream.toString(StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("\n"));
+
+        List<BookingFullInfoDto> exported = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            exported.add(objectMapper.readValue(line, BookingFullInfoDto.class));
+        }
+
+        assertEquals(BOOKINGS_COUNT, count);
+        assertEquals(BOOKINGS_COUNT, exported.size());
+
+        BookingFullInfoDto last = exported.get(0);
+        assertEquals(bookings.get(BOOKINGS_COUNT - 1).getId(), last.getId());
+        assertEquals(bookings.get(BOOKINGS_COUNT - 1).getStart(), last.getStart());
+        assertEquals(BookingStatus.APPROVED, last.getStatus());
+        assertEquals(booker.getId(), last.getBooker().getId());
+        assertEquals(booker.getName(), last.getBooker().getName());
+        assertEquals(item.getId(), last.getItem().getId());
+        assertEquals(item.getName(), last.getItem().getName());
+
+        assertEquals(bookings.get(0).getId(), exported.get(BOOKINGS_COUNT - 1).getId());
+        assertTrue(exported.stream().noneMatch((booking) -> booking.getId().equals(otherBooking.getId())));
+    }
+
+    @Test
+    void shouldWriteNothingForOwnerWithoutBookings() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertEquals(0, bookingExporter.writeOwnerBookings(owner.getId(), outputStream));
+        assertEquals(0, outputStream.size());
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.shareit.booking.interval;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BookingIntervalIndexTest {
+
+    BookingRepository bookingRepository;
+    BookingIntervalIndex bookingIntervalIndex;
+
+    private final LocalDateTime now = LocalDateTime.of(2030, 1, 10, 12, 0);
+
+    private Item item1;
+    private User booker;
+
+    @BeforeEach
+    void beforeEach() {
+        bookingRepository = mock(BookingRepository.class);
+        bookingIntervalIndex = new BookingIntervalIndex(bookingRepository, true);
+
+        User owner = new User(1L, "User_name_1", "User1@email.ru");
+        booker = new User(2L, "User_name_2", "User2@email.ru");
+        item1 = new Item(1L, "item_name_1", "item_desc_1", Boolean.TRUE, owner, null);
+
+        when(bookingRepository.findBookingsForIntervalIndex(any(Long.class), anyList(), any(PageRequest.class)))
+                .thenReturn(List.of(
+                        new BookingShortDto(1L, now.minusDays(5), now.minusDays(4), 1L, 2L),
+                        new BookingShortDto(2L, now.minusHours(1), now.plusHours(1), 1L, 2L),
+                        new BookingShortDto(3L, now.plusDays(2), now.plusDays(3), 1L, 2L),
+                        new BookingShortDto(4L, now.minusDays(1), now.plusDays(1), 2L, 2L)
+                ));
+
+        bookingIntervalIndex.build();
+    }
+
+    @Test
+    void shouldNotBeReadyWhenDisabled() {
+        BookingIntervalIndex disabledIndex = new BookingIntervalIndex(bookingRepository, false);
+        disabledIndex.build();
+
+        assertFalse(disabledIndex.isReady());
+        verify(bookingRepository, times(1)).findBookingsForIntervalIndex(any(Long.class), anyList(), any(PageRequest.class));
+    }
+
+    @Test
+    void shouldLoadOnlyBusyStatuses() {
+        assertTrue(bookingIntervalIndex.isReady());
+
+        verify(bookingRepository).findBookingsForIntervalIndex(0L, BookingIntervalIndex.BUSY_STATUSES, PageRequest.of(0, 1000));
+    }
+
+    @Test
+    void shouldBeBusyOnlyInsideBooking() {
+        assertTrue(bookingIntervalIndex.isBusyAt(1L, now));
+        assertTrue(bookingIntervalIndex.isBusyAt(1L, now.plusDays(2).plusHours(1)));
+
+        assertFalse(bookingIntervalIndex.isBusyAt(1L, now.plusHours(2)));
+        assertFalse(bookingIntervalIndex.isBusyAt(1L, now.minusDays(2)));
+        assertFalse(bookingIntervalIndex.isBusyAt(3L, now));
+    }
+
+    @Test
+    void shouldNotBeBusyAtBookingBounds() {
+        //как и в запросе к БД: start < instant and end > instant
+        assertFalse(bookingIntervalIndex.isBusyAt(1L, now.plusDays(2)));
+        assertFalse(bookingIntervalIndex.isBusyAt(1L, now.plusDays(3)));
+    }
+
+    @Test
+    void shouldBeBusyInsideLongBookingStartedBeforeShortOnes() {
+        bookingIntervalIndex.index(booking(10L, now.minusDays(30), now.plusDays(30), BookingStatus.APPROVED));
+
+        //с начала длинной брони прошли короткие, закончившиеся раньше
+        assertTrue(bookingIntervalIndex.isBusyAt(1L, now.plusDays(10)));
+    }
+
+    @Test
+    void shouldFindBookingsInPeriodOrderedByStart() {
+        List<Long> ids = bookingIntervalIndex.findItemBookingsInPeriod(1L, now.minusDays(4).minusHours(1), now.plusDays(2).plusHours(1))
+                .stream()
+                .map(BookingShortDto::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(1L, 2L, 3L), ids);
+    }
+
+    @Test
+    void shouldNotFindBookingsTouchingPeriodBounds() {
+        List<BookingShortDto> result = bookingIntervalIndex.findItemBookingsInPeriod(1L, now.minusDays(4), now.minusHours(1));
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void shouldReturnBookingDatesFromPeriodQuery() {
+        List<BookingShortDto> result = bookingIntervalIndex.findItemBookingsInPeriod(2L, now, now.plusMinutes(1));
+
+        assertEquals(1, result.size());
+        assertEquals(4L, result.get(0).getId());
+        assertEquals(now.minusDays(1), result.get(0).getStart());
+        assertEquals(now.plusDays(1), result.get(0).getEnd());
+        assertEquals(2L, result.get(0).getItemId());
+    }
+
+    @Test
+    void shouldFindOverlappingBookingInPeriod() {
+        assertTrue(bookingIntervalIndex.hasBookingInPeriod(1L, now.plusMinutes(30), now.plusHours(3)));
+        assertTrue(bookingIntervalIndex.hasBookingInPeriod(1L, now.plusDays(1), now.plusDays(4)));
+
+        //периоды, которые только касаются броней
+        assertFalse(bookingIntervalIndex.hasBookingInPeriod(1L, now.plusHours(1), now.plusDays(2)));
+        assertFalse(bookingIntervalIndex.hasBookingInPeriod(1L, now.minusDays(4), now.minusHours(1)));
+        assertFalse(bookingIntervalIndex.hasBookingInPeriod(3L, now.minusDays(10), now.plusDays(10)));
+    }
+
+    @Test
+    void shouldAddCreatedBooking() {
+        bookingIntervalIndex.index(booking(11L, now.plusDays(10), now.plusDays(11), BookingStatus.WAITING));
+
+        assertTrue(bookingIntervalIndex.isBusyAt(1L, now.plusDays(10).plusHours(1)));
+    }
+
+    @Test
+    void shouldRemoveRejectedBooking() {
+        bookingIntervalIndex.index(booking(2L, now.minusHours(1), now.plusHours(1), BookingStatus.REJECTED));
+
+        assertFalse(bookingIntervalIndex.isBusyAt(1L, now));
+        assertEquals(2, bookingIntervalIndex.findItemBookingsInPeriod(1L, now.minusDays(10), now.plusDays(10)).size());
+    }
+
+    @Test
+    void shouldNotRestoreBookingRejectedWhileBuilding() {
+        BookingIntervalIndex index = new BookingIntervalIndex(bookingRepository, true);
+
+        //бронь отклонена через сервис раньше, чем до нее дошла загрузка из БД
+        index.index(booking(2L, now.minusHours(1), now.plusHours(1), BookingStatus.REJECTED));
+        index.build();
+
+        assertFalse(index.isBusyAt(1L, now));
+        assertTrue(index.isBusyAt(1L, now.plusDays(2).plusHours(1)));
+    }
+
+    @Test
+    void shouldBeReadyWithoutBookings() {
+        when(bookingRepository.findBookingsForIntervalIndex(any(Long.class), anyList(), any(PageRequest.class)))
+                .thenReturn(Collections.emptyList());
+
+        BookingIntervalIndex index = new BookingIntervalIndex(bookingRepository, true);
+        index.build();
+
+        assertTrue(index.isReady());
+        assertFalse(index.isBusyAt(1L, now));
+        assertTrue(index.findItemBookingsInPeriod(1L, now.minusDays(1), now.plusDays(1)).isEmpty());
+    }
+
+    private Booking booking(Long id, LocalDateTime start, LocalDateTime end, BookingStatus status) {
+        return new Booking(id, start, end, item1, booker, status);
+    }
+}
@@ -0,0 +1,152 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingBatchResult;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.exceptions.BookingOverlapException;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingOutboxITest {
+
+    private final BookingService bookingService;
+    private final BookingEventRepository bookingEventRepository;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private final List<BookingEventDto> received = new ArrayList<>();
+
+    private BookingOutboxRelay relay;
+
+    private User owner;
+    private User booker;
+    private Item item;
+
+    private LocalDateTime start;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = userRepository.save(new User(null, "User_name_1", "User1@email.ru"));
+        booker = userRepository.save(new User(null, "User_name_2", "User2@email.ru"));
+        item = itemRepository.save(new Item(null, "item_name_1", "item_desc_1", Boolean.TRUE, owner, null));
+
+        //пачка из двух событий - чтобы пересылка прошла несколько пачек
+        relay = new BookingOutboxRelay(bookingEventRepository, List.of(received::addAll), true, 2);
+
+        start = LocalDateTime.now().plusDays(1).withNano(0);
+    }
+
+    @Test
+    void shouldWriteEventsWithBookingChanges() {
+        Long bookingId = bookingService.createBooking(
+                new BookingCreateDto(null, start, start.plusDays(1), item.getId(), null), booker.getId()).getId();
+
+        bookingService.resolveBooking(bookingId, owner.getId(), true);
+
+        List<BookingEvent> events = bookingEventRepository.findNextBatch(PageRequest.of(0, 10));
+
+        assertEquals(2, events.size());
+        assertEquals(BookingEventType.CREATED, events.get(0).getType());
+        assertEquals(BookingStatus.WAITING, events.get(0).getStatus());
+        assertEquals(BookingEventType.APPROVED, events.get(1).getType());
+        assertEquals(BookingStatus.APPROVED, events.get(1).getStatus());
+
+        BookingEvent created = events.get(0);
+        assertEquals(bookingId, created.getBookingId());
+        assertEquals(item.getId(), created.getItemId());
+        assertEquals(booker.getId(), created.getBookerId());
+        assertEquals(start, created.getStart());
+        assertEquals(start.plusDays(1), created.getEnd());
+        assertNotNull(created.getCreated());
+    }
+
+    @Test
+    void shouldNotWriteEventForRejectedBooking() {
+        bookingService.createBooking(new BookingCreateDto(null, start, start.plusDays(2), item.getId(), null), booker.getId());
+
+        assertThrows(BookingOverlapException.class, () -> bookingService.createBooking(
+                new BookingCreateDto(null, start.plusDays(1), start.plusDays(3), item.getId(), null), booker.getId()));
+
+        assertEquals(1, bookingEventRepository.count());
+    }
+
+    @Test
+    void shouldDeliverEventsOfItemInOrderAndEmptyOutbox() {
+        List<Long> bookingIds = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            bookingIds.add(bookingService.createBooking(new BookingCreateDto(null, start.plusDays(i * 2L),
+                    start.plusDays(i * 2L + 1), item.getId(), null), booker.getId()).getId());
+        }
+
+        bookingService.resolveBooking(bookingIds.get(0), owner.getId(), false);
+
+        assertEquals(4, relay.drain());
+        assertEquals(0, bookingEventRepository.count());
+
+        List<String> delivered = received.stream()
+                .map((event) -> event.getType() + ":" + event.getBookingId())
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(
+                "CREATED:" + bookingIds.get(0),
+                "CREATED:" + bookingIds.get(1),
+                "CREATED:" + bookingIds.get(2),
+                "REJECTED:" + bookingIds.get(0)), delivered);
+
+        assertTrue(received.stream().allMatch((event) -> event.getItemId().equals(item.getId())));
+    }
+
+    @Test
+    void shouldWriteEventsOnlyForBookingsChangedByBatch() {
+        Long waitingId = bookingService.createBooking(
+                new BookingCreateDto(null, start, start.plusDays(1), item.getId(), null), booker.getId()).getId();
+        Long approvedId = bookingService.createBooking(
+                new BookingCreateDto(null, start.plusDays(2), start.plusDays(3), item.getId(), null), booker.getId()).getId();
+
+        bookingService.resolveBooking(approvedId, owner.getId(), true);
+        bookingEventRepository.deleteAll();
+
+        List<BookingBatchResultDto> results = bookingService.resolveBookings(List.of(waitingId, approvedId), owner.getId(), true);
+
+        assertEquals(BookingBatchResult.RESOLVED, results.get(0).getResult());
+        assertEquals(BookingBatchResult.SAME_STATUS, results.get(1).getResult());
+        assertEquals(BookingStatus.APPROVED, bookingRepository.findById(waitingId).orElseThrow().getStatus());
+
+        List<BookingEvent> events = bookingEventRepository.findNextBatch(PageRequest.of(0, 10));
+
+        assertEquals(1, events.size());
+        assertEquals(BookingEventType.APPROVED, events.get(0).getType());
+        assertEquals(BookingStatus.APPROVED, events.get(0).getStatus());
+        assertEquals(waitingId, events.get(0).getBookingId());
+        assertEquals(item.getId(), events.get(0).getItemId());
+        assertEquals(booker.getId(), events.get(0).getBookerId());
+        assertEquals(start, events.get(0).getStart());
+        assertEquals(start.plusDays(1), events.get(0).getEnd());
+    }
+}
@@ -0,0 +1,140 @@
+package ru.practicum.shareit.booking.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BookingOutboxRelayTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    BookingEventRepository bookingEventRepository;
+    BookingEventSink sink1;
+    BookingEventSink sink2;
+    BookingOutboxRelay relay;
+
+    private final LocalDateTime now = LocalDateTime.of(2030, 1, 10, 12, 0);
+
+    private BookingEvent event1;
+    private BookingEvent event2;
+    private BookingEvent event3;
+
+    @BeforeEach
+    void beforeEach() {
+        bookingEventRepository = mock(BookingEventRepository.class);
+        sink1 = mock(BookingEventSink.class);
+        sink2 = mock(BookingEventSink.class);
+        relay = new BookingOutboxRelay(bookingEventRepository, List.of(sink1, sink2), true, BATCH_SIZE);
+
+        event1 = event(1L, BookingEventType.CREATED, 1L, BookingStatus.WAITING);
+        event2 = event(2L, BookingEventType.CREATED, 2L, BookingStatus.WAITING);
+        event3 = event(3L, BookingEventType.APPROVED, 1L, BookingStatus.APPROVED);
+    }
+
+    @Test
+    void shouldDeliverAllEventsInBatchesAndDeleteThem() {
+        when(bookingEventRepository.findNextBatch(any(PageRequest.class)))
+                .thenReturn(List.of(event1, event2))
+                .thenReturn(List.of(event3));
+
+        int delivered = relay.drain();
+
+        assertEquals(3, delivered);
+
+        InOrder inOrder = inOrder(sink1, sink2, bookingEventRepository);
+        inOrder.verify(sink1).deliver(argThat((events) -> ids(events).equals(List.of(1L, 2L))));
+        inOrder.verify(sink2).deliver(argThat((events) -> ids(events).equals(List.of(1L, 2L))));
+        inOrder.verify(bookingEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        inOrder.verify(sink1).deliver(argThat((events) -> ids(events).equals(List.of(3L))));
+        inOrder.verify(sink2).deliver(argThat((events) -> ids(events).equals(List.of(3L))));
+        inOrder.verify(bookingEventRepository).deleteAllByIdInBatch(List.of(3L));
+
+        verify(bookingEventRepository, times(2)).findNextBatch(PageRequest.of(0, BATCH_SIZE));
+    }
+
+    @Test
+    void shouldPassEventFieldsToSinks() {
+        when(bookingEventRepository.findNextBatch(any(PageRequest.class)))
+                .thenReturn(List.of(event3));
+
+        relay.drain();
+
+        verify(sink1).deliver(argThat((events) -> {
+            BookingEventDto event = events.get(0);
+
+            return event.getType() == BookingEventType.APPROVED
+                    && event.getBookingId().equals(1L)
+                    && event.getItemId().equals(10L)
+                    && event.getBookerId().equals(20L)
+                    && event.getStatus() == BookingStatus.APPROVED
+                    && event.getStart().equals(now.plusDays(1))
+                    && event.getEnd().equals(now.plusDays(2))
+                    && event.getCreated().equals(now);
+        }));
+    }
+
+    @Test
+    void shouldKeepBatchWhenSinkFails() {
+        when(bookingEventRepository.findNextBatch(any(PageRequest.class)))
+                .thenReturn(List.of(event1, event2));
+
+        doThrow(new IllegalStateException("sink is down")).when(sink2).deliver(anyList());
+
+        assertThrows(IllegalStateException.class, () -> relay.drain());
+
+        verify(bookingEventRepository, times(0)).deleteAllByIdInBatch(anyList());
+        verify(bookingEventRepository, times(1)).findNextBatch(any(PageRequest.class));
+    }
+
+    @Test
+    void shouldNotThrowFromScheduledPollWhenSinkFails() {
+        when(bookingEventRepository.findNextBatch(any(PageRequest.class)))
+                .thenReturn(List.of(event1));
+
+        doThrow(new IllegalStateException("sink is down")).when(sink1).deliver(anyList());
+
+        assertDoesNotThrow(() -> relay.poll());
+
+        verify(sink2, times(0)).deliver(anyList());
+        verify(bookingEventRepository, times(0)).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    void shouldDoNothingWhenOutboxIsEmpty() {
+        when(bookingEventRepository.findNextBatch(any(PageRequest.class)))
+                .thenReturn(Collections.emptyList());
+
+        assertEquals(0, relay.drain());
+
+        verify(sink1, times(0)).deliver(anyList());
+        verify(bookingEventRepository, times(0)).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    void shouldNotPollWhenDisabled() {
+        BookingOutboxRelay disabledRelay = new BookingOutboxRelay(bookingEventRepository, List.of(sink1), false, BATCH_SIZE);
+
+        disabledRelay.poll();
+
+        verify(bookingEventRepository, times(0)).findNextBatch(any(PageRequest.class));
+    }
+
+    private BookingEvent event(Long id, BookingEventType type, Long bookingId, BookingStatus status) {
+        return new BookingEvent(id, type, bookingId, 10L, 20L, status, now.plusDays(1), now.plusDays(2), now);
+    }
+
+    private List<Long> ids(List<BookingEventDto> events) {
+        return events.stream().map(BookingEventDto::getId).collect(Collectors.toList());
+    }
+}
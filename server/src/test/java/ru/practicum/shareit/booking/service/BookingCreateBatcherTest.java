@@ -0,0 +1,277 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.exceptions.BookingCreateUnavailableException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingCreateBatcherTest {
+
+    private BookingCreateBatcher bookingCreateBatcher;
+
+    @AfterEach
+    void afterEach() {
+        if (bookingCreateBatcher != null) {
+            bookingCreateBatcher.stop();
+        }
+    }
+
+    @Test
+    void testSuccessSubmitConcurrentRequestsInOneBatch() throws Exception {
+        //окно больше времени теста: пачка закрывается только набранным размером
+        bookingCreateBatcher = new BookingCreateBatcher(true, 60_000, 3, 100, 60_000);
+
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        bookingCreateBatcher.start((batch) -> {
+            batchSizes.add(batch.size());
+            batch.forEach((request) -> request.complete(request.getBookingCreateDto()));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<BookingCreateDto>> results = IntStream.range(0, 3)
+                    .mapToObj((i) -> executor.submit(() -> bookingCreateBatcher.submit(bookingCreateDto((long) i), 1L)))
+                    .collect(Collectors.toList());
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(Long.valueOf(i), results.get(i).get().getItemId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(3), batchSizes);
+    }
+
+    @Test
+    void testSuccessSubmitClosesBatchByWindow() {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 1, 100, 100, 60_000);
+
+        bookingCreateBatcher.start((batch) -> batch.forEach((request) -> request.complete(request.getBookingCreateDto())));
+
+        BookingCreateDto bookingCreateDto = bookingCreateDto(1L);
+
+        assertEquals(bookingCreateDto, bookingCreateBatcher.submit(bookingCreateDto, 1L));
+    }
+
+    @Test
+    void testGetExceptionOnSubmitWhenBatchHandlerFails() {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 1, 100, 100, 60_000);
+
+        bookingCreateBatcher.start((batch) -> {
+            throw new IllegalStateException("Ошибка БД");
+        });
+
+        final IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> bookingCreateBatcher.submit(bookingCreateDto(1L), 1L)
+        );
+
+        assertEquals("Ошибка БД", exception.getMessage());
+    }
+
+    @Test
+    void testGetExceptionOnSubmitWhenBatchHandlerSkipsRequest() {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 1, 100, 100, 60_000);
+
+        bookingCreateBatcher.start((batch) -> { });
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> bookingCreateBatcher.submit(bookingCreateDto(1L), 1L)
+        );
+    }
+
+    @Test
+    void testGetExceptionOnSubmitWhenBatchHandlerThrowsError() {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 1, 100, 100, 60_000);
+
+        bookingCreateBatcher.start((batch) -> {
+            throw new Error("Сбой обработчика");
+        });
+
+        //поток пачек переживает Error: оба запроса получают ошибку, а не ждут до истечения времени
+        for (long itemId = 1; itemId <= 2; itemId++) {
+            final long id = itemId;
+            final BookingCreateUnavailableException exception = assertThrows(
+                    BookingCreateUnavailableException.class,
+                    () -> bookingCreateBatcher.submit(bookingCreateDto(id), 1L)
+            );
+
+            assertInstanceOf(Error.class, exception.getCause());
+        }
+    }
+
+    //время истекло, пока запрос стоял в очереди: он получает ошибку и не попадает в пачку
+    @Test
+    void testGetExceptionOnSubmitWhenTimeoutExpiresInQueue() throws Exception {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 0, 1, 100, 50);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> handledItemIds = new CopyOnWriteArrayList<>();
+
+        bookingCreateBatcher.start((batch) -> {
+            started.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            batch.forEach((request) -> {
+                handledItemIds.add(request.getBookingCreateDto().getItemId());
+                request.complete(request.getBookingCreateDto());
+            });
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            //первый запрос занимает поток пачек
+            Future<BookingCreateDto> first = executor.submit(() -> bookingCreateBatcher.submit(bookingCreateDto(1L), 1L));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            assertThrows(
+                    BookingCreateUnavailableException.class,
+                    () -> bookingCreateBatcher.submit(bookingCreateDto(2L), 1L)
+            );
+
+            release.countDown();
+
+            assertEquals(1L, first.get(10, TimeUnit.SECONDS).getItemId());
+            //очередь обрабатывается по порядку: к этому моменту поток пачек уже дошел до второго запроса
+            assertEquals(3L, bookingCreateBatcher.submit(bookingCreateDto(3L), 1L).getItemId());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        //поток пачек пропустил запрос с истекшим временем
+        assertEquals(List.of(1L, 3L), handledItemIds);
+    }
+
+    //время истекло, когда запрос уже взят в пачку: бронь может быть сохранена, поэтому вызывающий
+    //получает результат пачки, а не ошибку
+    @Test
+    void testSuccessSubmitWhenTimeoutExpiresAfterPickup() {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 0, 1, 100, 50);
+
+        bookingCreateBatcher.start((batch) -> {
+            try {
+                //дольше времени ожидания запроса
+                Thread.sleep(300);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            batch.forEach((request) -> request.complete(request.getBookingCreateDto()));
+        });
+
+        assertEquals(1L, bookingCreateBatcher.submit(bookingCreateDto(1L), 1L).getItemId());
+    }
+
+    @Test
+    void testGetExceptionOnSubmitWhenQueueIsFull() throws Exception {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 0, 1, 1, 60_000);
+
+        CountDownLatch handlerStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        bookingCreateBatcher.start((batch) -> {
+            handlerStarted.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            batch.forEach((request) -> request.complete(request.getBookingCreateDto()));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CompletionService<BookingCreateDto> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            //первый запрос занимает обработчик, из двух следующих один помещается в очередь на одно место
+            completionService.submit(() -> bookingCreateBatcher.submit(bookingCreateDto(1L), 1L));
+            assertTrue(handlerStarted.await(10, TimeUnit.SECONDS));
+
+            completionService.submit(() -> bookingCreateBatcher.submit(bookingCreateDto(2L), 1L));
+            completionService.submit(() -> bookingCreateBatcher.submit(bookingCreateDto(3L), 1L));
+
+            Future<BookingCreateDto> rejected = completionService.poll(10, TimeUnit.SECONDS);
+            assertNotNull(rejected);
+
+            final ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(BookingCreateUnavailableException.class, exception.getCause());
+
+            release.countDown();
+
+            for (int i = 0; i < 2; i++) {
+                Future<BookingCreateDto> completed = completionService.poll(10, TimeUnit.SECONDS);
+                assertNotNull(completed);
+                assertNotNull(completed.get());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetExceptionOnSubmitAfterStop() {
+        bookingCreateBatcher = new BookingCreateBatcher(true, 1, 100, 100, 60_000);
+
+        bookingCreateBatcher.start((batch) -> batch.forEach((request) -> request.complete(request.getBookingCreateDto())));
+        bookingCreateBatcher.stop();
+
+        assertThrows(
+                BookingCreateUnavailableException.class,
+                () -> bookingCreateBatcher.submit(bookingCreateDto(1L), 1L)
+        );
+    }
+
+    @Test
+    void testGetExceptionOnCreateBatcherWithEmptyQueue() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new BookingCreateBatcher(true, 5, 100, 0, 60_000)
+        );
+    }
+
+    @Test
+    void testGetExceptionOnCreateBatcherWithEmptyBatch() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new BookingCreateBatcher(true, 5, 0, 100, 60_000)
+        );
+    }
+
+    private static BookingCreateDto bookingCreateDto(Long itemId) {
+        return new BookingCreateDto(
+                null,
+                LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(2),
+                itemId,
+                null
+        );
+    }
+}
@@ -0,0 +1,171 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.export.BookingExporter;
+import ru.practicum.shareit.booking.interval.BookingIntervalIndex;
+import ru.practicum.shareit.booking.outbox.BookingEventRepository;
+import ru.practicum.shareit.booking.outbox.BookingOutbox;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.common.JsonStreamWriter;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//сравнение одиночного создания броней с групповой фиксацией на одинаковой нагрузке:
+//каждый поток бронирует свою вещь на непересекающиеся дни, все брони должны создаться.
+//На H2 в памяти фиксация ничего не стоит, поэтому цифры показывают накладные расходы очереди;
+//выигрыш групповой фиксации виден на Postgres, где каждая фиксация - запись журнала на диск
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingCreateBenchmarkITest {
+
+    private static final int THREADS = 16;
+    private static final int BOOKINGS_PER_THREAD = 50;
+    private static final long WINDOW_MILLIS = 2;
+    private static final int BATCH_SIZE = 64;
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final BookingViewRepository bookingViewRepository;
+    private final BookingEventRepository bookingEventRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingItemLocks bookingItemLocks;
+    private final BookingOutbox bookingOutbox;
+    private final BookingExporter bookingExporter;
+    private final JsonStreamWriter jsonStreamWriter;
+
+    private BookingCreateBatcher bookingCreateBatcher;
+    private BookingService groupCommitBookingService;
+
+    private List<Item> items;
+    private List<User> bookers;
+
+    private LocalDateTime firstDay;
+
+    @BeforeEach
+    void beforeEach() {
+        User owner = userRepository.save(new User(null, "User_name_owner", "Userowner@email.ru"));
+
+        bookers = IntStream.range(0, THREADS)
+                .mapToObj((i) -> userRepository.save(new User(null, "User_name_" + i, "User" + i + "@email.ru")))
+                .collect(Collectors.toList());
+
+        items = IntStream.range(0, THREADS)
+                .mapToObj((i) -> itemRepository.save(new Item(null, "item_name_" + i, "item_desc_" + i, Boolean.TRUE, owner, null)))
+                .collect(Collectors.toList());
+
+        firstDay = LocalDateTime.now().plusDays(1).withNano(0);
+
+        bookingCreateBatcher = new BookingCreateBatcher(true, WINDOW_MILLIS, BATCH_SIZE, THREADS, TIMEOUT_MILLIS);
+
+        BookingServiceImpl groupCommitService = new BookingServiceImpl(
+                bookingRepository,
+                bookingViewRepository,
+                itemRepository,
+                userRepository,
+                bookingIntervalIndex,
+                bookingItemLocks,
+                bookingOutbox,
+                bookingExporter,
+                jsonStreamWriter,
+                bookingCreateBatcher
+        );
+        groupCommitService.startBookingCreateBatcher();
+        groupCommitBookingService = groupCommitService;
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookingCreateBatcher.stop();
+
+        bookingEventRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void compareSingleAndGroupCommitCreateBooking() throws Exception {
+        //разные дни у режимов: вторая серия не пересекается с бронями первой
+        long singleMillis = createBookings(bookingService, 0);
+        long groupCommitMillis = createBookings(groupCommitBookingService, BOOKINGS_PER_THREAD);
+
+        int bookingsCount = THREADS * BOOKINGS_PER_THREAD;
+
+        log.debug("createBooking on H2, {} threads, {} bookings: single {} ms ({}/s), group commit {} ms ({}/s), "
+                        + "window {} ms, batch {}",
+                THREADS, bookingsCount,
+                singleMillis, bookingsCount * 1000L / Math.max(singleMillis, 1),
+                groupCommitMillis, bookingsCount * 1000L / Math.max(groupCommitMillis, 1),
+                WINDOW_MILLIS, BATCH_SIZE);
+
+        assertEquals(2L * bookingsCount, bookingRepository.count());
+        assertEquals(2L * bookingsCount, bookingEventRepository.count());
+    }
+
+    //каждый поток бронирует свою вещь на дни firstDayOffset..firstDayOffset + BOOKINGS_PER_THREAD,
+    //вернуть время всей серии в миллисекундах
+    private long createBookings(BookingService service, int firstDayOffset) throws Exception {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            User booker = bookers.get(thread);
+            Item item = items.get(thread);
+
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+
+                for (int day = firstDayOffset; day < firstDayOffset + BOOKINGS_PER_THREAD; day++) {
+                    LocalDateTime start = firstDay.plusDays(day);
+                    service.createBooking(new BookingCreateDto(null, start, start.plusHours(12), item.getId(), null),
+                            booker.getId());
+                }
+
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        startSignal.countDown();
+
+        for (Future<?> future : futures) {
+            //любая ошибка создания брони провалит тест здесь
+            future.get(2, TimeUnit.MINUTES);
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        executor.shutdown();
+
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+import ru.practicum.shareit.booking.exceptions.BookingInvalidCursorException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingCursorTest {
+
+    @Test
+    void shouldDecodeEncodedCursor() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 10, 12, 0, 0, 123_456_000);
+        BookingFullInfoDto booking = new BookingFullInfoDto(5L, start, start.plusDays(1), BookingStatus.WAITING, null, null);
+
+        BookingCursor cursor = BookingCursor.decode(BookingCursor.after(booking).encode());
+
+        assertEquals(start, cursor.getStart());
+        assertEquals(5L, cursor.getId());
+    }
+
+    @Test
+    void shouldStartFromFirstPageForEmptyCursor() {
+        assertSame(BookingCursor.FIRST, BookingCursor.decode(""));
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThrows(BookingInvalidCursorException.class, () -> BookingCursor.decode("%%%"));
+        //base64 от строки без разделителя
+        assertThrows(BookingInvalidCursorException.class, () -> BookingCursor.decode("MjAzMC0wMS0xMA"));
+        //base64 от "2030-01-10T12:00|x"
+        assertThrows(BookingInvalidCursorException.class, () -> BookingCursor.decode("MjAzMC0wMS0xMFQxMjowMHx4"));
+    }
+}
@@ -0,0 +1,209 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.booking.exceptions.BookingOverlapException;
+import ru.practicum.shareit.booking.exceptions.BookingTryToUpdateSameStatusException;
+import ru.practicum.shareit.booking.outbox.BookingEventRepository;
+import ru.practicum.shareit.booking.outbox.BookingEventType;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//одновременное бронирование нескольких вещей из многих потоков на пересекающиеся даты:
+//ни одна вещь не должна оказаться забронированной дважды на один период.
+//Без @Transactional - потоки должны видеть брони, сохраненные другими потоками
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingServiceImplConcurrencyITest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+    private static final int ITEMS_COUNT = 4;
+    private static final int DAYS = 30;
+
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final BookingEventRepository bookingEventRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private List<Item> items;
+    private List<User> bookers;
+
+    private LocalDateTime firstDay;
+
+    @BeforeEach
+    void beforeEach() {
+        User owner = userRepository.save(new User(null, "User_name_owner", "Userowner@email.ru"));
+
+        bookers = IntStream.range(0, THREADS)
+                .mapToObj((i) -> userRepository.save(new User(null, "User_name_" + i, "User" + i + "@email.ru")))
+                .collect(Collectors.toList());
+
+        items = IntStream.range(0, ITEMS_COUNT)
+                .mapToObj((i) -> itemRepository.save(new Item(null, "item_name_" + i, "item_desc_" + i, Boolean.TRUE, owner, null)))
+                .collect(Collectors.toList());
+
+        firstDay = LocalDateTime.now().plusDays(1).withNano(0);
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookingEventRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldNotCreateOverlappingBookingsConcurrently() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            User booker = bookers.get(thread);
+            Random random = new Random(thread);
+
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    try {
+                        bookingService.createBooking(randomBooking(random), booker.getId());
+                        created.incrementAndGet();
+                    } catch (BookingOverlapException exception) {
+                        rejected.incrementAndGet();
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        startSignal.countDown();
+
+        for (Future<?> future : futures) {
+            //исключение, отличное от пересечения, провалит тест здесь
+            future.get(2, TimeUnit.MINUTES);
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        executor.shutdown();
+
+        log.debug("createBooking on H2, {} threads, {} items: {} attempts, {} created, {} rejected, {} ms",
+                THREADS, ITEMS_COUNT, THREADS * ATTEMPTS_PER_THREAD, created.get(), rejected.get(), elapsedMillis);
+
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD, created.get() + rejected.get());
+        //на 30 днях и 4 вещах 800 попыток обязательно пересекаются
+        assertTrue(rejected.get() > 0);
+        assertEquals(created.get(), bookingRepository.count());
+
+        for (Item item : items) {
+            assertNoOverlaps(item);
+        }
+    }
+
+    @Test
+    void shouldApproveBookingOnlyOnceConcurrently() throws Exception {
+        Long bookingId = bookingService.createBooking(randomBooking(new Random(0)), bookers.get(0).getId()).getId();
+        Long ownerId = items.get(0).getOwner().getId();
+
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+
+                try {
+                    bookingService.resolveBooking(bookingId, ownerId, true);
+                    approved.incrementAndGet();
+                } catch (BookingTryToUpdateSameStatusException exception) {
+                    rejected.incrementAndGet();
+                }
+
+                return null;
+            }));
+        }
+
+        startSignal.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        executor.shutdown();
+
+        //подтвердить бронь удается ровно одному потоку, и событие о подтверждении одно
+        assertEquals(1, approved.get());
+        assertEquals(THREADS - 1, rejected.get());
+        assertEquals(BookingStatus.APPROVED, bookingRepository.findById(bookingId).orElseThrow().getStatus());
+        assertEquals(1, bookingEventRepository.findAll().stream()
+                .filter((event) -> event.getType() == BookingEventType.APPROVED)
+                .count());
+    }
+
+    private BookingCreateDto randomBooking(Random random) {
+        LocalDateTime start = firstDay.plusDays(random.nextInt(DAYS)).plusHours(random.nextInt(24));
+
+        return new BookingCreateDto(
+                null,
+                start,
+                start.plusHours(1 + random.nextInt(72)),
+                items.get(random.nextInt(ITEMS_COUNT)).getId(),
+                null
+        );
+    }
+
+    private void assertNoOverlaps(Item item) {
+        List<BookingShortDto> itemBookings = bookingRepository.findItemBookingsInPeriod(item.getId(),
+                List.of(BookingStatus.WAITING, BookingStatus.APPROVED), firstDay.minusDays(1), firstDay.plusDays(DAYS + 10));
+
+        List<BookingShortDto> sorted = itemBookings.stream()
+                .sorted(Comparator.comparing(BookingShortDto::getStart))
+                .collect(Collectors.toList());
+
+        for (int i = 1; i < sorted.size(); i++) {
+            assertFalse(sorted.get(i).getStart().isBefore(sorted.get(i - 1).getEnd()),
+                    String.format("Брони %d и %d вещи %d пересекаются",
+                            sorted.get(i - 1).getId(), sorted.get(i).getId(), item.getId()));
+        }
+    }
+}
@@ -7,9 +7,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingBatchResult;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.booking.dto.BookingItemOwnerDto;
+import ru.practicum.shareit.booking.exceptions.BookingOverlapException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -19,6 +22,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -128,4 +132,33 @@ class BookingServiceImplITest {
         assertEquals(createdUserDto2.getId(), savedBookingFromDb.getBooker().getId());
         assertEquals(BookingStatus.APPROVED, savedBookingFromDb.getStatus());
     }
-}
\ No newline at end of file
+
+    //период отклоненной брони занят новой бронью: подтвердить отклоненную бронь нельзя ни одиночно, ни пакетом
+    @Test
+    void approveRejectedBookingWithTakenPeriod() {
+        final UserDto createdUserDto1 = userService.createUser(userDto1);
+        final UserDto createdUserDto2 = userService.createUser(userDto2);
+
+        final ItemDto createdItemDto1 = itemService.createItem(item1Dto, createdUserDto1.getId());
+        bookingCreateDto.setItemId(createdItemDto1.getId());
+
+        final Long rejectedId = bookingService.createBooking(bookingCreateDto, createdUserDto2.getId()).getId();
+        bookingService.resolveBooking(rejectedId, createdUserDto1.getId(), Boolean.FALSE);
+
+        final Long takenId = bookingService.createBooking(bookingCreateDto, createdUserDto2.getId()).getId();
+
+        assertThrows(BookingOverlapException.class,
+                () -> bookingService.resolveBooking(rejectedId, createdUserDto1.getId(), Boolean.TRUE));
+
+        final List<BookingBatchResultDto> results = bookingService.resolveBookings(
+                List.of(rejectedId, takenId), createdUserDto1.getId(), Boolean.TRUE);
+
+        assertEquals(BookingBatchResult.OVERLAP, results.get(0).getResult());
+        assertEquals(BookingStatus.REJECTED, results.get(0).getStatus());
+        assertEquals(BookingBatchResult.RESOLVED, results.get(1).getResult());
+
+        em.clear();
+        assertEquals(BookingStatus.REJECTED, em.find(Booking.class, rejectedId).getStatus());
+        assertEquals(BookingStatus.APPROVED, em.find(Booking.class, takenId).getStatus());
+    }
+}
@@ -0,0 +1,152 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//сравнение обращений к БД при получении броней владельца с большим числом вещей:
+//прежняя реализация (загрузка всех вещей владельца и in (...) по их id) и текущая (строки booking_view по owner_id)
+@Transactional
+@SpringBootTest(
+        properties = {
+            "spring.profiles.active=test",
+            "spring.jpa.properties.hibernate.generate_statistics=true"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingServiceImplQueryCountITest {
+
+    private static final int ITEMS_COUNT = 10_000;
+    private static final int BOOKINGS_COUNT = 200;
+    private static final int ITERATIONS = 20;
+    private static final int FROM = 0;
+    private static final int SIZE = 10;
+
+    private final EntityManager em;
+    private final BookingService bookingService;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingViewRepository bookingViewRepository;
+
+    private Statistics statistics;
+
+    private User owner;
+
+    @BeforeEach
+    void beforeEach() {
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        owner = userRepository.save(new User(null, "User_name_owner", "Userowner@email.ru"));
+        User booker = userRepository.save(new User(null, "User_name_booker", "Userbooker@email.ru"));
+
+        List<Item> items = itemRepository.saveAll(IntStream.range(0, ITEMS_COUNT)
+                .mapToObj((i) -> new Item(null, "item_name_" + i, "item_desc_" + i, Boolean.TRUE, owner, null))
+                .collect(Collectors.toList()));
+
+        //брони раскиданы по вещям, даты начала у всех разные
+        LocalDateTime start = LocalDateTime.now().minusDays(BOOKINGS_COUNT);
+        List<Booking> bookings = bookingRepository.saveAll(IntStream.range(0, BOOKINGS_COUNT)
+                .mapToObj((i) -> new Booking(null, start.plusDays(i), start.plusDays(i).plusHours(1),
+                        items.get(i * (ITEMS_COUNT / BOOKINGS_COUNT)), booker, BookingStatus.APPROVED))
+                .collect(Collectors.toList()));
+
+        bookingViewRepository.insertBookings(bookings.stream().map(Booking::getId).collect(Collectors.toList()));
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void getAllBookingsByOwnerReturnsSameResultAsLegacyImplementation() {
+        List<Long> legacyIds = legacyGetAllBookingsByOwner().stream()
+                .map(Booking::getId)
+                .collect(Collectors.toList());
+
+        em.clear();
+
+        List<Long> currentIds = bookingService.getAllBookingsByOwnerIdAndState(owner.getId(), "ALL", FROM, SIZE).stream()
+                .map(BookingFullInfoDto::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(SIZE, currentIds.size());
+        assertEquals(legacyIds, currentIds);
+    }
+
+    @Test
+    void getAllBookingsByOwnerDoesNotLoadOwnerItems() {
+        long legacyLoads = 0;
+        long currentLoads = 0;
+        long legacyNanos = 0;
+        long currentNanos = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long started = System.nanoTime();
+            legacyLoads += countEntityLoads(this::legacyGetAllBookingsByOwner);
+            legacyNanos += System.nanoTime() - started;
+
+            started = System.nanoTime();
+            currentLoads += countEntityLoads(() -> bookingService.getAllBookingsByOwnerIdAndState(
+                    owner.getId(), "ALL", FROM, SIZE));
+            currentNanos += System.nanoTime() - started;
+        }
+
+        log.debug("getAllBookingsByOwnerIdAndState on H2, owner with {} items, {} calls: "
+                        + "legacy {} entities / {} ms, current {} entities / {} ms",
+                ITEMS_COUNT, ITERATIONS, legacyLoads, legacyNanos / 1_000_000, currentLoads, currentNanos / 1_000_000);
+
+        //прежняя реализация каждый раз загружала все вещи владельца,
+        //текущая - только владельца: страница броней выбирается сразу в BookingFullInfoDto
+        assertTrue(legacyLoads >= (long) ITEMS_COUNT * ITERATIONS);
+        assertTrue(currentLoads <= ITERATIONS);
+    }
+
+    private long countEntityLoads(Supplier<?> call) {
+        em.clear();
+        statistics.clear();
+
+        call.get();
+
+        return statistics.getEntityLoadCount();
+    }
+
+    //обращения к БД, которые делала прежняя реализация getAllBookingsByOwnerIdAndState для состояния ALL
+    private List<Booking> legacyGetAllBookingsByOwner() {
+        userRepository.findById(owner.getId());
+
+        List<Long> itemIds = itemRepository.findALlItemsByOwnerId(owner.getId()).stream()
+                .map(Item::getId)
+                .collect(Collectors.toList());
+
+        return em.createQuery("select b from Booking b where b.item.id in :itemIds order by b.start desc", Booking.class)
+                .setParameter("itemIds", itemIds)
+                .setFirstResult(FROM)
+                .setMaxResults(SIZE)
+                .getResultList();
+    }
+}
@@ -1,18 +1,36 @@
 package ru.practicum.shareit.booking.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingBatchResult;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
 import ru.practicum.shareit.booking.dto.BookingItemOwnerDto;
+import ru.practicum.shareit.booking.dto.BookingPageDto;
+import ru.practicum.shareit.booking.dto.BookingResolveInfoDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.exceptions.BookingHimSelfException;
+import ru.practicum.shareit.booking.exceptions.BookingInvalidCursorException;
+import ru.practicum.shareit.booking.exceptions.BookingOverlapException;
 import ru.practicum.shareit.booking.exceptions.BookingSecurityException;
 import ru.practicum.shareit.booking.exceptions.BookingTryToUpdateSameStatusException;
 import ru.practicum.shareit.booking.exceptions.BookingUnknownException;
+import ru.practicum.shareit.booking.export.BookingExporter;
+import ru.practicum.shareit.booking.interval.BookingIntervalIndex;
+import ru.practicum.shareit.booking.outbox.BookingEventType;
+import ru.practicum.shareit.booking.outbox.BookingOutbox;
+import ru.practicum.shareit.booking.view.BookingView;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.common.JsonStreamWriter;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -25,11 +43,18 @@ import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -41,8 +66,14 @@ class BookingServiceImplTest {
     BookingService bookingService;
 
     BookingRepository bookingRepository;
+    BookingViewRepository bookingViewRepository;
     ItemRepository itemRepository;
     UserRepository userRepository;
+    BookingIntervalIndex bookingIntervalIndex;
+    BookingItemLocks bookingItemLocks;
+    BookingOutbox bookingOutbox;
+    BookingExporter bookingExporter;
+    BookingCreateBatcher bookingCreateBatcher;
 
     private Boolean available = Boolean.TRUE;
     private Boolean unavailable = Boolean.FALSE;
@@ -72,13 +103,26 @@ class BookingServiceImplTest {
     @BeforeEach
     void beforeEach() {
         bookingRepository = mock(BookingRepository.class);
+        bookingViewRepository = mock(BookingViewRepository.class);
         itemRepository = mock(ItemRepository.class);
         userRepository = mock(UserRepository.class);
+        bookingIntervalIndex = mock(BookingIntervalIndex.class);
+        bookingItemLocks = new BookingItemLocks();
+        bookingOutbox = mock(BookingOutbox.class);
+        bookingExporter = mock(BookingExporter.class);
+        bookingCreateBatcher = mock(BookingCreateBatcher.class);
 
         bookingService = new BookingServiceImpl(
                 bookingRepository,
+                bookingViewRepository,
                 itemRepository,
-                userRepository
+                userRepository,
+                bookingIntervalIndex,
+                bookingItemLocks,
+                bookingOutbox,
+                bookingExporter,
+                new JsonStreamWriter(new ObjectMapper().findAndRegisterModules()),
+                bookingCreateBatcher
         );
 
         user1 = new User(1L,"User_name_1", "User1@email.ru");
@@ -161,7 +205,7 @@ class BookingServiceImplTest {
         when(itemRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(item1));
 
-        when(bookingRepository.save(any(Booking.class)))
+        when(bookingOutbox.save(any(Booking.class), any(BookingEventType.class)))
                 .thenReturn(booking1);
 
         final BookingCreateDto bookingCreateDtoResult = bookingService.createBooking(bookingCreateDto1, user2.getId());
@@ -175,7 +219,55 @@ class BookingServiceImplTest {
 
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).save(any(Booking.class));
+        verify(bookingOutbox, times(1)).save(any(Booking.class), eq(BookingEventType.CREATED));
+        verify(bookingIntervalIndex, times(1)).index(booking1);
+    }
+
+    @Test
+    void testGetExceptionOnCreateOverlappingBooking() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user2));
+
+        when(itemRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(item1));
+
+        when(bookingRepository.existsItemBookingInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(true);
+
+        final BookingOverlapException exception = assertThrows(
+                BookingOverlapException.class,
+                () -> bookingService.createBooking(bookingCreateDto1, user2.getId())
+        );
+
+        assertTrue(exception.getMessage().startsWith(String.format("Вещь с id = %d уже забронирована", item1.getId())));
+
+        verify(bookingRepository, times(1)).existsItemBookingInPeriod(item1.getId(), BookingIntervalIndex.BUSY_STATUSES,
+                bookingCreateDto1.getStart(), bookingCreateDto1.getEnd());
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
+        verify(bookingIntervalIndex, times(0)).index(any(Booking.class));
+    }
+
+    @Test
+    void testGetExceptionOnCreateOverlappingBookingByIndex() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user2));
+
+        when(itemRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(item1));
+
+        when(bookingIntervalIndex.isReady())
+                .thenReturn(true);
+
+        when(bookingIntervalIndex.hasBookingInPeriod(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(true);
+
+        assertThrows(
+                BookingOverlapException.class,
+                () -> bookingService.createBooking(bookingCreateDto1, user2.getId())
+        );
+
+        verify(bookingRepository, times(0)).existsItemBookingInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
     }
 
     @Test
@@ -194,7 +286,7 @@ class BookingServiceImplTest {
 
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(0)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
     }
 
     @Test
@@ -216,7 +308,7 @@ class BookingServiceImplTest {
 
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
     }
 
     @Test
@@ -238,7 +330,7 @@ class BookingServiceImplTest {
 
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
     }
 
     @Test
@@ -260,19 +352,79 @@ class BookingServiceImplTest {
 
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
+    }
+
+    @Test
+    void testCreateBookingGoesThroughBatcherWhenEnabled() {
+        when(bookingCreateBatcher.isEnabled())
+                .thenReturn(true);
+
+        when(bookingCreateBatcher.submit(any(BookingCreateDto.class), any(Long.class)))
+                .thenReturn(bookingCreateDto1);
+
+        final BookingCreateDto bookingCreateDtoResult = bookingService.createBooking(bookingCreateDto1, user2.getId());
+
+        assertEquals(bookingCreateDto1, bookingCreateDtoResult);
+
+        verify(bookingCreateBatcher, times(1)).submit(bookingCreateDto1, user2.getId());
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSuccessCreateBookingsBatch() {
+        ArgumentCaptor<Consumer<List<BookingCreateRequest>>> batchHandler = ArgumentCaptor.forClass(Consumer.class);
+
+        ((BookingServiceImpl) bookingService).startBookingCreateBatcher();
+
+        verify(bookingCreateBatcher).start(batchHandler.capture());
+
+        when(userRepository.findAllById(anySet()))
+                .thenReturn(List.of(user2));
+
+        when(itemRepository.findAllById(anySet()))
+                .thenReturn(List.of(item1));
+
+        when(bookingOutbox.saveAll(anyList(), any(BookingEventType.class)))
+                .thenReturn(List.of(booking1));
+
+        //вторая бронь - от неизвестного пользователя, третья - на те же даты, что и первая
+        BookingCreateRequest created = new BookingCreateRequest(bookingCreateDto1, user2.getId());
+        BookingCreateRequest unknownUser = new BookingCreateRequest(bookingCreateDto1, user3.getId());
+        BookingCreateRequest overlapping = new BookingCreateRequest(bookingCreateDto1, user2.getId());
+
+        batchHandler.getValue().accept(List.of(created, unknownUser, overlapping));
+
+        assertEquals(booking1.getId(), created.await(1_000).getId());
+        assertThrows(UserUnknownException.class, () -> unknownUser.await(1_000));
+        assertThrows(BookingOverlapException.class, () -> overlapping.await(1_000));
+
+        verify(userRepository, times(1)).findAllById(Set.of(user2.getId(), user3.getId()));
+        verify(itemRepository, times(1)).findAllById(Set.of(item1.getId()));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingOutbox, times(1)).saveAll(anyList(), eq(BookingEventType.CREATED));
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
+        verify(bookingIntervalIndex, times(1)).index(booking1);
     }
 
     @Test
     void testSuccessResolveBooking() {
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(user1));
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.WAITING)));
 
-        when(bookingRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(booking1));
+        //среди занятых периодов вещи - только сама ожидающая бронь
+        when(bookingRepository.findItemBookingsInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(new BookingShortDto(booking1.getId(), booking1.getStart(), booking1.getEnd(),
+                        item1.getId(), user2.getId())));
 
-        when(bookingRepository.save(any(Booking.class)))
-                .thenReturn(booking1);
+        //бронь, которую возвращает outbox после условного UPDATE
+        booking1.setStatus(BookingStatus.APPROVED);
+
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(Optional.of(booking1));
 
         final BookingItemOwnerDto bookingItemOwnerDtoResult = bookingService.resolveBooking(booking1.getId(), user1.getId(), approved);
 
@@ -282,18 +434,116 @@ class BookingServiceImplTest {
         assertEquals(bookingItemOwnerDto1.getBooker().getId(), bookingItemOwnerDtoResult.getBooker().getId());
         assertEquals(bookingItemOwnerDto1.getItem().getId(), bookingItemOwnerDtoResult.getItem().getId());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).save(any(Booking.class));
+        //без чтения сущностей брони и пользователя до смены статуса
+        verify(bookingOutbox, times(1)).updateStatus(booking1.getId(), user1.getId(), BookingStatus.APPROVED, BookingEventType.APPROVED);
+        verify(bookingRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(1)).findResolveInfoByIds(List.of(booking1.getId()));
+        verify(bookingRepository, times(1)).findItemBookingsInPeriod(item1.getId(), BookingIntervalIndex.BUSY_STATUSES,
+                booking1.getStart(), booking1.getEnd());
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(bookingIntervalIndex, times(1)).index(booking1);
+    }
+
+    @Test
+    void testSuccessRejectBooking() {
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.WAITING)));
+
+        booking1.setStatus(BookingStatus.REJECTED);
+
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(Optional.of(booking1));
+
+        final BookingItemOwnerDto bookingItemOwnerDtoResult = bookingService.resolveBooking(booking1.getId(), user1.getId(), false);
+
+        assertEquals(BookingStatus.REJECTED, bookingItemOwnerDtoResult.getStatus());
+
+        //отклонение освобождает период - без проверки пересечения
+        verify(bookingOutbox, times(1)).updateStatus(booking1.getId(), user1.getId(), BookingStatus.REJECTED, BookingEventType.REJECTED);
+        verify(bookingRepository, times(1)).findResolveInfoByIds(List.of(booking1.getId()));
+        verify(bookingRepository, times(0)).findItemBookingsInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(bookingIntervalIndex, times(1)).index(booking1);
+    }
+
+    //отклонение меняет статус и индекс интервалов под блокировкой вещи, как и подтверждение
+    @Test
+    void testRejectBookingHoldsItemLock() {
+        ReentrantLock itemLock = (ReentrantLock) bookingItemLocks.forItem(item1.getId());
+
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.WAITING)));
+
+        booking1.setStatus(BookingStatus.REJECTED);
+
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenAnswer((invocation) -> {
+                    assertTrue(itemLock.isHeldByCurrentThread());
+                    return Optional.of(booking1);
+                });
+
+        doAnswer((invocation) -> {
+            assertTrue(itemLock.isHeldByCurrentThread());
+            return null;
+        }).when(bookingIntervalIndex).index(any(Booking.class));
+
+        bookingService.resolveBooking(booking1.getId(), user1.getId(), false);
+
+        assertFalse(itemLock.isLocked());
+        verify(bookingIntervalIndex, times(1)).index(booking1);
+    }
+
+    @Test
+    void testGetExceptionOnApproveBookingWithTakenPeriod() {
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.REJECTED)));
+
+        when(bookingIntervalIndex.isReady())
+                .thenReturn(true);
+
+        //период отклоненной брони занят другой бронью
+        when(bookingIntervalIndex.findItemBookingsInPeriod(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(new BookingShortDto(9L, booking1.getStart(), booking1.getEnd(), item1.getId(), null)));
+
+        final BookingOverlapException exception = assertThrows(
+                BookingOverlapException.class,
+                () -> bookingService.resolveBooking(booking1.getId(), user1.getId(), approved)
+        );
+
+        assertTrue(exception.getMessage().startsWith(String.format("Вещь с id = %d уже забронирована", item1.getId())));
+
+        verify(bookingOutbox, times(0)).updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class));
+        verify(bookingIntervalIndex, times(0)).index(any(Booking.class));
+    }
+
+    //на PostgreSQL период, занятый другим экземпляром сервера, отсекает ограничение исключения
+    @Test
+    void testGetExceptionOnApproveBookingRejectedByExclusionConstraint() {
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.REJECTED)));
+
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenThrow(new DataIntegrityViolationException("ex_bookings_item_period",
+                        new SQLException("conflicting key value violates exclusion constraint", "23P01")));
+
+        assertThrows(
+                BookingOverlapException.class,
+                () -> bookingService.resolveBooking(booking1.getId(), user1.getId(), approved)
+        );
+
+        verify(bookingIntervalIndex, times(0)).index(any(Booking.class));
     }
 
     @Test
     void testGetExceptionOnResolveBookingByUnknownUserId() {
-        when(userRepository.findById(any(Long.class)))
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
                 .thenReturn(Optional.empty());
 
-        when(bookingRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(booking1));
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.WAITING)));
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(false);
 
         final UserUnknownException exception = assertThrows(
                 UserUnknownException.class,
@@ -304,16 +554,19 @@ class BookingServiceImplTest {
 
         assertEquals(expectedMessage, exception.getMessage());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        verify(bookingRepository, times(1)).findResolveInfoByIds(List.of(booking1.getId()));
+        verify(userRepository, times(1)).existsById(user1.getId());
+        verify(bookingIntervalIndex, times(0)).index(any(Booking.class));
     }
 
     @Test
     void testGetExceptionOnResolveBookingByUnknownBookingId() {
-        when(bookingRepository.findById(any(Long.class)))
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
                 .thenReturn(Optional.empty());
 
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(Collections.emptyList());
+
         final BookingUnknownException exception = assertThrows(
                 BookingUnknownException.class,
                 () -> bookingService.resolveBooking(booking1.getId(), user1.getId(), approved)
@@ -323,18 +576,21 @@ class BookingServiceImplTest {
 
         assertEquals(expectedMessage, exception.getMessage());
 
-        verify(userRepository, times(0)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(bookingRepository, times(1)).findResolveInfoByIds(List.of(booking1.getId()));
+        verify(bookingIntervalIndex, times(0)).index(any(Booking.class));
     }
 
     @Test
     void testGetExceptionOnResolveBookingByNotOwnerBooking() {
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(user2));
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(Optional.empty());
 
-        when(bookingRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(booking1));
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.WAITING)));
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
 
         final BookingSecurityException exception = assertThrows(
                 BookingSecurityException.class,
@@ -346,20 +602,23 @@ class BookingServiceImplTest {
 
         assertEquals(expectedMessage, exception.getMessage());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        //чужая бронь не подтверждается и не проверяется на пересечение
+        verify(bookingOutbox, times(0)).updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class));
+        verify(bookingRepository, times(0)).findItemBookingsInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(userRepository, times(1)).existsById(user2.getId());
+        verify(bookingIntervalIndex, times(0)).index(any(Booking.class));
     }
 
     @Test
     void testGetExceptionOnResolveBookingWithSameStatus() {
-        booking1.setStatus(BookingStatus.APPROVED);
+        when(bookingOutbox.updateStatus(any(Long.class), any(Long.class), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(Optional.empty());
 
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(user1));
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(resolveInfo(user1.getId(), BookingStatus.APPROVED)));
 
-        when(bookingRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(booking1));
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
 
         final BookingTryToUpdateSameStatusException exception = assertThrows(
                 BookingTryToUpdateSameStatusException.class,
@@ -370,9 +629,166 @@ class BookingServiceImplTest {
 
         assertEquals(expectedMessage, exception.getMessage());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).save(any(Booking.class));
+        verify(bookingOutbox, times(1)).updateStatus(booking1.getId(), user1.getId(), BookingStatus.APPROVED, BookingEventType.APPROVED);
+        verify(bookingIntervalIndex, times(0)).index(any(Booking.class));
+    }
+
+    @Test
+    void testResolveBookingsBatch() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        LocalDateTime start = booking1.getStart();
+        LocalDateTime end = booking1.getEnd();
+
+        //3 - ожидает подтверждения, 4 - уже подтверждена, 5 - бронь чужой вещи, 6 - не существует
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(
+                        new BookingResolveInfoDto(3L, item1.getId(), user1.getId(), BookingStatus.WAITING, start, end),
+                        new BookingResolveInfoDto(4L, item1.getId(), user1.getId(), BookingStatus.APPROVED, start, end),
+                        new BookingResolveInfoDto(5L, 7L, user3.getId(), BookingStatus.WAITING, start, end)
+                ));
+
+        when(bookingOutbox.updateStatuses(anyList(), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(List.of(3L));
+
+        final List<BookingBatchResultDto> results = bookingService.resolveBookings(
+                List.of(3L, 4L, 5L, 6L, 3L), user1.getId(), approved);
+
+        assertEquals(4, results.size());
+        assertEquals(3L, results.get(0).getBookingId());
+        assertEquals(BookingBatchResult.RESOLVED, results.get(0).getResult());
+        assertEquals(BookingStatus.APPROVED, results.get(0).getStatus());
+        assertEquals(BookingBatchResult.SAME_STATUS, results.get(1).getResult());
+        assertEquals(BookingBatchResult.FORBIDDEN, results.get(2).getResult());
+        assertNull(results.get(2).getStatus());
+        assertEquals(BookingBatchResult.NOT_FOUND, results.get(3).getResult());
+
+        verify(bookingRepository, times(1)).findResolveInfoByIds(List.of(3L, 4L, 5L, 6L));
+        verify(bookingOutbox, times(1)).updateStatuses(List.of(3L), BookingStatus.APPROVED, BookingEventType.APPROVED);
+        verify(bookingIntervalIndex, times(1)).index(3L, item1.getId(), BookingStatus.APPROVED, start, end);
+        verify(bookingOutbox, times(0)).save(any(Booking.class), any(BookingEventType.class));
+    }
+
+    @Test
+    void testResolveBookingsBatchWithOverlappingBookings() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        LocalDateTime start = booking1.getStart();
+        LocalDateTime end = booking1.getEnd();
+
+        //3 и 4 - отклоненные брони на один период, 5 - отклоненная бронь, период которой занят бронью 9
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(
+                        new BookingResolveInfoDto(3L, item1.getId(), user1.getId(), BookingStatus.REJECTED, start, end),
+                        new BookingResolveInfoDto(4L, item1.getId(), user1.getId(), BookingStatus.REJECTED, start, end),
+                        new BookingResolveInfoDto(5L, item2.getId(), user1.getId(), BookingStatus.REJECTED, start, end)
+                ));
+
+        when(bookingRepository.findItemBookingsInPeriod(eq(item2.getId()), anyList(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(new BookingShortDto(9L, start, end, item2.getId(), user2.getId())));
+
+        when(bookingOutbox.updateStatuses(anyList(), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(List.of(3L));
+
+        final List<BookingBatchResultDto> results = bookingService.resolveBookings(List.of(3L, 4L, 5L), user1.getId(), approved);
+
+        assertEquals(BookingBatchResult.RESOLVED, results.get(0).getResult());
+        assertEquals(BookingStatus.APPROVED, results.get(0).getStatus());
+        assertEquals(BookingBatchResult.OVERLAP, results.get(1).getResult());
+        assertEquals(BookingStatus.REJECTED, results.get(1).getStatus());
+        assertEquals(BookingBatchResult.OVERLAP, results.get(2).getResult());
+
+        verify(bookingOutbox, times(1)).updateStatuses(List.of(3L), BookingStatus.APPROVED, BookingEventType.APPROVED);
+        verify(bookingIntervalIndex, times(1)).index(3L, item1.getId(), BookingStatus.APPROVED, start, end);
+        verify(bookingIntervalIndex, times(0)).index(eq(4L), any(Long.class), any(BookingStatus.class),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    //индекс интервалов меняется до снятия блокировки вещи, как и статус в БД
+    @Test
+    void testResolveBookingsBatchIndexesUnderItemLock() {
+        ReentrantLock itemLock = (ReentrantLock) bookingItemLocks.forItem(item1.getId());
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(new BookingResolveInfoDto(3L, item1.getId(), user1.getId(),
+                        BookingStatus.WAITING, booking1.getStart(), booking1.getEnd())));
+
+        when(bookingOutbox.updateStatuses(anyList(), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(List.of(3L));
+
+        doAnswer((invocation) -> {
+            assertTrue(itemLock.isHeldByCurrentThread());
+            return null;
+        }).when(bookingIntervalIndex).index(any(Long.class), any(Long.class), any(BookingStatus.class),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+
+        final List<BookingBatchResultDto> results = bookingService.resolveBookings(List.of(3L), user1.getId(), false);
+
+        assertEquals(BookingBatchResult.RESOLVED, results.get(0).getResult());
+        assertFalse(itemLock.isLocked());
+        verify(bookingIntervalIndex, times(1)).index(3L, item1.getId(), BookingStatus.REJECTED,
+                booking1.getStart(), booking1.getEnd());
+    }
+
+    //статус брони успел сменить одновременный запрос - UPDATE ее не изменил
+    @Test
+    void testResolveBookingsBatchWithConcurrentlyResolvedBooking() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(new BookingResolveInfoDto(3L, item1.getId(), user1.getId(),
+                        BookingStatus.WAITING, booking1.getStart(), booking1.getEnd())));
+
+        when(bookingOutbox.updateStatuses(anyList(), any(BookingStatus.class), any(BookingEventType.class)))
+                .thenReturn(List.of());
+
+        final List<BookingBatchResultDto> results = bookingService.resolveBookings(List.of(3L), user1.getId(), false);
+
+        assertEquals(BookingBatchResult.SAME_STATUS, results.get(0).getResult());
+        assertEquals(BookingStatus.REJECTED, results.get(0).getStatus());
+
+        verify(bookingOutbox, times(1)).updateStatuses(List.of(3L), BookingStatus.REJECTED, BookingEventType.REJECTED);
+        verify(bookingIntervalIndex, times(0)).index(any(Long.class), any(Long.class), any(BookingStatus.class),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testResolveBookingsBatchWithoutChanges() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(bookingRepository.findResolveInfoByIds(anyList()))
+                .thenReturn(List.of(new BookingResolveInfoDto(3L, item1.getId(), user1.getId(),
+                        BookingStatus.REJECTED, booking1.getStart(), booking1.getEnd())));
+
+        final List<BookingBatchResultDto> results = bookingService.resolveBookings(List.of(3L), user1.getId(), false);
+
+        assertEquals(BookingBatchResult.SAME_STATUS, results.get(0).getResult());
+        assertEquals(BookingStatus.REJECTED, results.get(0).getStatus());
+
+        verify(bookingOutbox, times(0)).updateStatuses(anyList(), any(BookingStatus.class), any(BookingEventType.class));
+    }
+
+    @Test
+    void testGetExceptionOnResolveBookingsBatchWithUnknownUserId() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(false);
+
+        final UserUnknownException exception = assertThrows(
+                UserUnknownException.class,
+                () -> bookingService.resolveBookings(List.of(1L), user1.getId(), approved)
+        );
+
+        assertEquals(String.format("Пользователь с %d не найден.", user1.getId()), exception.getMessage());
+
+        verify(bookingRepository, times(0)).findResolveInfoByIds(anyList());
+        verify(bookingOutbox, times(0)).updateStatuses(anyList(), any(BookingStatus.class), any(BookingEventType.class));
     }
 
     @Test
@@ -412,6 +828,44 @@ class BookingServiceImplTest {
         assertEquals(expectedMessage, exception.getMessage());
 
         verify(bookingRepository, times(1)).findById(any(Long.class));
+        verify(bookingViewRepository, times(1)).findById(booking1.getId());
+        verify(userRepository, times(0)).findById(any(Long.class));
+    }
+
+    //бронь, перенесенная в архив, отдается по строке booking_view - только автору брони и владельцу вещи
+    @Test
+    void testSuccessGetArchivedBookingDetailInfoById() {
+        BookingView bookingView = new BookingView(booking1.getId(), booking1.getStart(), booking1.getEnd(),
+                BookingStatus.REJECTED, user1.getId(), user1.getName(), user1.getEmail(), 7L, "item_name",
+                "item_desc", Boolean.TRUE, null, user2.getId());
+
+        when(bookingRepository.findById(any(Long.class)))
+                .thenReturn(Optional.empty());
+
+        when(bookingViewRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(bookingView));
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        final BookingFullInfoDto forBooker = bookingService.getBookingDetailInfoById(booking1.getId(), user1.getId());
+
+        assertEquals(booking1.getId(), forBooker.getId());
+        assertEquals(BookingStatus.REJECTED, forBooker.getStatus());
+        assertEquals(user1.getId(), forBooker.getBooker().getId());
+        assertEquals(7L, forBooker.getItem().getId());
+        assertEquals("item_name", forBooker.getItem().getName());
+
+        assertEquals(booking1.getId(), bookingService.getBookingDetailInfoById(booking1.getId(), user2.getId()).getId());
+
+        final BookingSecurityException exception = assertThrows(
+                BookingSecurityException.class,
+                () -> bookingService.getBookingDetailInfoById(booking1.getId(), user3.getId())
+        );
+
+        assertEquals(String.format("Пользователь с id = %d не может работать с вещью с id = %d", user3.getId(), 7L),
+                exception.getMessage());
+
         verify(userRepository, times(0)).findById(any(Long.class));
     }
 
@@ -463,8 +917,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user2));
 
-        when(bookingRepository.findAllByBooker_Id(any(Long.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByBooker_Id(any(Long.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByUserIdAndState(user2.getId(), "ALL", from, size);
 
@@ -479,11 +933,11 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -491,8 +945,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user2));
 
-        when(bookingRepository.findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByUserIdAndState(user2.getId(),"CURRENT", from, size);
 
@@ -507,11 +961,11 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -519,8 +973,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user2));
 
-        when(bookingRepository.findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByUserIdAndState(user2.getId(),"PAST", from, size);
 
@@ -535,11 +989,11 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -547,8 +1001,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user2));
 
-        when(bookingRepository.findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByUserIdAndState(user2.getId(),"FUTURE", from, size);
 
@@ -563,11 +1017,11 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -575,8 +1029,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user2));
 
-        when(bookingRepository.findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByUserIdAndState(user2.getId(),"WAITING", from, size);
 
@@ -591,11 +1045,11 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -603,8 +1057,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user2));
 
-        when(bookingRepository.findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByUserIdAndState(user2.getId(),"REJECTED", from, size);
 
@@ -619,11 +1073,11 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -641,11 +1095,11 @@ class BookingServiceImplTest {
         assertEquals(expectedMessage, exception.getMessage());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByBooker_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -653,11 +1107,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user1));
 
-        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
-                .thenReturn(List.of(item1, item2));
-
-        when(bookingRepository.findAllByItem_IdIn(anyList(), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByOwnerIdAndState(user1.getId(),"ALL", from, size);
 
@@ -672,12 +1123,12 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(1)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -685,11 +1136,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user1));
 
-        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
-                .thenReturn(List.of(item1, item2));
-
-        when(bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByOwnerIdAndState(user1.getId(),"CURRENT", from, size);
 
@@ -704,12 +1152,12 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -717,11 +1165,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user1));
 
-        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
-                .thenReturn(List.of(item1, item2));
-
-        when(bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByOwnerIdAndState(user1.getId(),"PAST", from, size);
 
@@ -736,12 +1181,12 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -749,11 +1194,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user1));
 
-        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
-                .thenReturn(List.of(item1, item2));
-
-        when(bookingRepository.findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByOwnerIdAndState(user1.getId(),"FUTURE", from, size);
 
@@ -768,12 +1210,12 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -781,11 +1223,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user1));
 
-        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
-                .thenReturn(List.of(item1, item2));
-
-        when(bookingRepository.findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByOwnerIdAndState(user1.getId(),"WAITING", from, size);
 
@@ -800,12 +1239,12 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -813,11 +1252,8 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user1));
 
-        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
-                .thenReturn(List.of(item1, item2));
-
-        when(bookingRepository.findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class)))
-                .thenReturn(List.of(booking1));
+        when(bookingViewRepository.findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByOwnerIdAndState(user1.getId(),"REJECTED", from, size);
 
@@ -832,12 +1268,12 @@ class BookingServiceImplTest {
         assertEquals(bookingFullInfoDto1.getItem().getId(), result.get(0).getItem().getId());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(1)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -845,7 +1281,7 @@ class BookingServiceImplTest {
         when(userRepository.findById(any(Long.class)))
                 .thenReturn(Optional.of(user1));
 
-        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
+        when(bookingViewRepository.findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class)))
                 .thenReturn(Collections.emptyList());
 
         final List<BookingFullInfoDto> result = bookingService.getAllBookingsByOwnerIdAndState(user1.getId(),"ALL", from, size);
@@ -853,12 +1289,12 @@ class BookingServiceImplTest {
         assertEquals(0, result.size());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(1)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
     }
 
     @Test
@@ -876,12 +1312,157 @@ class BookingServiceImplTest {
         assertEquals(expectedMessage, exception.getMessage());
 
         verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(0)).findALlItemsByOwnerId(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdIn(anyList(), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(),anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusIn(anyList(), anyList(), any(PageRequest.class));
+        verifyNoInteractions(itemRepository);
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_Id(any(Long.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartBeforeAndEndAfter(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatusInAndEndBefore(any(Long.class),anyList(), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStartAfter(any(Long.class), any(LocalDateTime.class), any(PageRequest.class));
+        verify(bookingViewRepository, times(0)).findAllByItem_Owner_IdAndStatus(any(Long.class), any(BookingStatus.class), any(PageRequest.class));
+
+    }
+
+    @Test
+    void testSuccessGetFirstBookingsPageByUserWithNextCursor() {
+        BookingFullInfoDto bookingFullInfoDto2 = new BookingFullInfoDto(2L, booking1.getStart().minusDays(1),
+                booking1.getEnd().minusDays(1), BookingStatus.WAITING, UserMapper.toUserDto(user2), ItemMapper.toItemDto(item1));
+
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user2));
+
+        when(bookingViewRepository.findBookerBookingsAfterCursor(any(Long.class), any(LocalDateTime.class), any(Long.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1, bookingFullInfoDto2));
+
+        final BookingPageDto result = bookingService.getBookingsPageByUserIdAndState(user2.getId(), "ALL", "", 1);
+
+        assertEquals(1, result.getBookings().size());
+        assertEquals(bookingFullInfoDto1.getId(), result.getBookings().get(0).getId());
+        assertEquals(BookingCursor.after(bookingFullInfoDto1).encode(), result.getNext());
+
+        //первая страница - от начала списка, запрашивается на одну бронь больше
+        verify(bookingViewRepository, times(1)).findBookerBookingsAfterCursor(user2.getId(),
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), PageRequest.of(0, 2));
+    }
+
+    @Test
+    void testSuccessGetLastBookingsPageByOwnerWithoutNextCursor() {
+        String cursor = BookingCursor.after(bookingFullInfoDto1).encode();
+
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user1));
+
+        when(bookingViewRepository.findOwnerBookingsByStatusAfterCursor(any(Long.class), any(LocalDateTime.class), any(Long.class), any(BookingStatus.class), any(PageRequest.class)))
+                .thenReturn(List.of(bookingFullInfoDto1));
+
+        final BookingPageDto result = bookingService.getBookingsPageByOwnerIdAndState(user1.getId(), "WAITING", cursor, size);
+
+        assertEquals(1, result.getBookings().size());
+        assertNull(result.getNext());
+
+        verify(bookingViewRepository, times(1)).findOwnerBookingsByStatusAfterCursor(user1.getId(),
+                bookingFullInfoDto1.getStart(), bookingFullInfoDto1.getId(), BookingStatus.WAITING, PageRequest.of(0, size + 1));
+        verify(bookingViewRepository, times(0)).findOwnerBookingsAfterCursor(any(Long.class), any(LocalDateTime.class), any(Long.class), any(PageRequest.class));
+    }
+
+    @Test
+    void testGetExceptionOnGetBookingsPageByInvalidCursor() {
+        final BookingInvalidCursorException exception = assertThrows(
+                BookingInvalidCursorException.class,
+                () -> bookingService.getBookingsPageByUserIdAndState(user2.getId(), "ALL", "not-a-cursor", size)
+        );
+
+        assertEquals("Некорректный курсор: not-a-cursor", exception.getMessage());
+
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(bookingRepository);
+        verifyNoInteractions(bookingViewRepository);
+    }
+
+    //поток проверяет пользователя и фиксирует текущий момент один раз, а части читает по курсору
+    @Test
+    void testSuccessStreamCurrentBookingsByUserIdWithKeysetChunks() throws Exception {
+        List<BookingFullInfoDto> firstChunk = new ArrayList<>();
+
+        for (long id = JsonStreamWriter.CHUNK_SIZE; id > 0; id--) {
+            firstChunk.add(new BookingFullInfoDto(id + 1, booking1.getStart().minusDays(JsonStreamWriter.CHUNK_SIZE - id),
+                    booking1.getEnd(), BookingStatus.APPROVED, UserMapper.toUserDto(user2), ItemMapper.toItemDto(item1)));
+        }
+
+        BookingFullInfoDto lastOfFirstChunk = firstChunk.get(firstChunk.size() - 1);
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(bookingViewRepository.findBookerCurrentBookingsAfterCursor(any(Long.class), any(LocalDateTime.class), any(Long.class),
+                any(LocalDateTime.class), any(PageRequest.class)))
+                .thenReturn(firstChunk, List.of(bookingFullInfoDto1));
+
+        StreamingResponseBody body = bookingService.streamAllBookingsByUserIdAndState(user2.getId(), "CURRENT");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+
+        List<?> streamed = new ObjectMapper().readValue(outputStream.toByteArray(), List.class);
+        assertEquals(JsonStreamWriter.CHUNK_SIZE + 1, streamed.size());
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        verify(bookingViewRepository, times(1)).findBookerCurrentBookingsAfterCursor(eq(user2.getId()),
+                eq(BookingCursor.FIRST.getStart()), eq(BookingCursor.FIRST.getId()), now.capture(),
+                eq(PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)));
+        verify(bookingViewRepository, times(1)).findBookerCurrentBookingsAfterCursor(eq(user2.getId()),
+                eq(lastOfFirstChunk.getStart()), eq(lastOfFirstChunk.getId()), now.capture(),
+                eq(PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)));
+
+        assertEquals(now.getAllValues().get(0), now.getAllValues().get(1));
+        verify(userRepository, times(1)).existsById(user2.getId());
+        verify(userRepository, times(0)).findById(any(Long.class));
+    }
+
+    @Test
+    void testGetExceptionOnStreamBookingsByUnknownOwnerId() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(false);
+
+        assertThrows(UserUnknownException.class,
+                () -> bookingService.streamAllBookingsByOwnerIdAndState(user1.getId(), "ALL"));
+
+        verifyNoInteractions(bookingViewRepository);
+    }
+
+    private BookingResolveInfoDto resolveInfo(Long ownerId, BookingStatus status) {
+        return new BookingResolveInfoDto(booking1.getId(), item1.getId(), ownerId, status, booking1.getStart(), booking1.getEnd());
+    }
+
+    //выгрузка читает брони, только когда ее тело пишется в ответ
+    @Test
+    void testSuccessExportAllBookingsByOwnerId() throws Exception {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        final StreamingResponseBody body = bookingService.exportAllBookingsByOwnerId(user2.getId());
+
+        verify(bookingExporter, times(0)).writeOwnerBookings(any(Long.class), any(OutputStream.class));
+
+        final OutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+
+        verify(bookingExporter, times(1)).writeOwnerBookings(user2.getId(), outputStream);
+    }
+
+    @Test
+    void testGetExceptionOnExportAllBookingsByUnknownOwnerId() throws Exception {
+        final Long unknownUserId = 99L;
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(false);
+
+        final UserUnknownException exception = assertThrows(
+                UserUnknownException.class,
+                () -> bookingService.exportAllBookingsByOwnerId(unknownUserId)
+        );
+
+        assertEquals(String.format("Пользователь с %d не найден.", unknownUserId), exception.getMessage());
 
+        verify(bookingExporter, times(0)).writeOwnerBookings(any(Long.class), any(OutputStream.class));
     }
-}
\ No newline at end of file
+}
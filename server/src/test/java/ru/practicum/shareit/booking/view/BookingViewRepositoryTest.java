@@ -0,0 +1,414 @@
+package ru.practicum.shareit.booking.view;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingFullInfoDto;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class BookingViewRepositoryTest {
+
+    @Autowired
+    BookingViewRepository bookingViewRepository;
+
+    @Autowired
+    BookingRepository bookingRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    EntityManager em;
+
+    private User owner;
+    private User booker;
+
+    private Item item1;
+
+    private Booking rejectedPastBooking;
+    private Booking rejectedFutureBooking;
+    private Booking waitingCurrentBooking;
+    private Booking waitingFutureBooking;
+    private Booking canceledPastBooking;
+    private Booking canceledCurrentBooking;
+    private Booking approvedCurrentBooking;
+    private Booking approvedFutureBooking;
+
+    private PageRequest tenElementsOnPageSortByIdRequest = PageRequest.of(0, 10, Sort.by("id").ascending());
+
+    @BeforeEach
+    void beforeEach() {
+        owner = new User();
+        owner.setName("User_name_owner");
+        owner.setEmail("Userowner@email.ru");
+        owner = userRepository.save(owner);
+
+        booker = new User();
+        booker.setName("User_name_booker");
+        booker.setEmail("Userbooker@email.ru");
+        booker = userRepository.save(booker);
+
+        item1 = new Item();
+        item1.setName("item_1_name");
+        item1.setDescription("item_1_desc");
+        item1.setAvailable(Boolean.TRUE);
+        item1.setOwner(owner);
+        item1 = itemRepository.save(item1);
+
+        rejectedPastBooking = new Booking();
+        rejectedPastBooking.setStart(LocalDateTime.now().minusDays(3));
+        rejectedPastBooking.setEnd(LocalDateTime.now().minusDays(1));
+        rejectedPastBooking.setItem(item1);
+        rejectedPastBooking.setBooker(booker);
+        rejectedPastBooking.setStatus(BookingStatus.REJECTED);
+        rejectedPastBooking = bookingRepository.save(rejectedPastBooking);
+
+        rejectedFutureBooking = new Booking();
+        rejectedFutureBooking.setStart(LocalDateTime.now().plusDays(1));
+        rejectedFutureBooking.setEnd(LocalDateTime.now().plusDays(3));
+        rejectedFutureBooking.setItem(item1);
+        rejectedFutureBooking.setBooker(booker);
+        rejectedFutureBooking.setStatus(BookingStatus.REJECTED);
+        rejectedFutureBooking = bookingRepository.save(rejectedFutureBooking);
+
+        waitingCurrentBooking = new Booking();
+        waitingCurrentBooking.setStart(LocalDateTime.now().minusDays(1));
+        waitingCurrentBooking.setEnd(LocalDateTime.now().plusDays(3));
+        waitingCurrentBooking.setItem(item1);
+        waitingCurrentBooking.setBooker(booker);
+        waitingCurrentBooking.setStatus(BookingStatus.WAITING);
+        waitingCurrentBooking = bookingRepository.save(waitingCurrentBooking);
+
+        waitingFutureBooking = new Booking();
+        waitingFutureBooking.setStart(LocalDateTime.now().plusDays(1));
+        waitingFutureBooking.setEnd(LocalDateTime.now().plusDays(3));
+        waitingFutureBooking.setItem(item1);
+        waitingFutureBooking.setBooker(booker);
+        waitingFutureBooking.setStatus(BookingStatus.WAITING);
+        waitingFutureBooking = bookingRepository.save(waitingFutureBooking);
+
+        canceledPastBooking = new Booking();
+        canceledPastBooking.setStart(LocalDateTime.now().minusDays(3));
+        canceledPastBooking.setEnd(LocalDateTime.now().minusDays(1));
+        canceledPastBooking.setItem(item1);
+        canceledPastBooking.setBooker(booker);
+        canceledPastBooking.setStatus(BookingStatus.CANCELED);
+        canceledPastBooking = bookingRepository.save(canceledPastBooking);
+
+        canceledCurrentBooking = new Booking();
+        canceledCurrentBooking.setStart(LocalDateTime.now().minusDays(1));
+        canceledCurrentBooking.setEnd(LocalDateTime.now().plusDays(3));
+        canceledCurrentBooking.setItem(item1);
+        canceledCurrentBooking.setBooker(booker);
+        canceledCurrentBooking.setStatus(BookingStatus.CANCELED);
+        canceledCurrentBooking = bookingRepository.save(canceledCurrentBooking);
+
+        approvedCurrentBooking = new Booking();
+        approvedCurrentBooking.setStart(LocalDateTime.now().minusDays(1));
+        approvedCurrentBooking.setEnd(LocalDateTime.now().plusDays(3));
+        approvedCurrentBooking.setItem(item1);
+        approvedCurrentBooking.setBooker(booker);
+        approvedCurrentBooking.setStatus(BookingStatus.APPROVED);
+        approvedCurrentBooking = bookingRepository.save(approvedCurrentBooking);
+
+        approvedFutureBooking = new Booking();
+        approvedFutureBooking.setStart(LocalDateTime.now().plusDays(1));
+        approvedFutureBooking.setEnd(LocalDateTime.now().plusDays(3));
+        approvedFutureBooking.setItem(item1);
+        approvedFutureBooking.setBooker(booker);
+        approvedFutureBooking.setStatus(BookingStatus.APPROVED);
+        approvedFutureBooking = bookingRepository.save(approvedFutureBooking);
+
+        //строки списков пишет BookingOutbox при создании брони, здесь брони сохраняются напрямую
+        bookingViewRepository.insertBookings(List.of(rejectedPastBooking.getId(), rejectedFutureBooking.getId(),
+                waitingCurrentBooking.getId(), waitingFutureBooking.getId(), canceledPastBooking.getId(),
+                canceledCurrentBooking.getId(), approvedCurrentBooking.getId(), approvedFutureBooking.getId()));
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldGet8BookingsForBooker() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByBooker_Id(booker.getId(), tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(8, result.size());
+        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
+        assertEquals(rejectedFutureBooking.getId(), result.get(1).getId());
+        assertEquals(waitingCurrentBooking.getId(), result.get(2).getId());
+        assertEquals(waitingFutureBooking.getId(), result.get(3).getId());
+        assertEquals(canceledPastBooking.getId(), result.get(4).getId());
+        assertEquals(canceledCurrentBooking.getId(), result.get(5).getId());
+        assertEquals(approvedCurrentBooking.getId(), result.get(6).getId());
+        assertEquals(approvedFutureBooking.getId(), result.get(7).getId());
+    }
+
+    @Test
+    void shouldGet3CurrentBookingsForBooker() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByBooker_IdAndStartBeforeAndEndAfter(
+                booker.getId(), LocalDateTime.now(), LocalDateTime.now(), tenElementsOnPageSortByIdRequest
+        );
+
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertEquals(waitingCurrentBooking.getId(), result.get(0).getId());
+        assertEquals(canceledCurrentBooking.getId(), result.get(1).getId());
+        assertEquals(approvedCurrentBooking.getId(), result.get(2).getId());
+     }
+
+    @Test
+    void shouldGet3FutureBookingsForBooker() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByBooker_IdAndStartAfter(booker.getId(),
+                LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertEquals(rejectedFutureBooking.getId(), result.get(0).getId());
+        assertEquals(waitingFutureBooking.getId(), result.get(1).getId());
+        assertEquals(approvedFutureBooking.getId(), result.get(2).getId());
+    }
+
+    @Test
+    void shouldGet2ApprovedBookingsForBooker() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByBooker_IdAndStatus(booker.getId(),
+                BookingStatus.APPROVED, tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(approvedCurrentBooking.getId(), result.get(0).getId());
+        assertEquals(approvedFutureBooking.getId(), result.get(1).getId());
+    }
+
+    @Test
+    void shouldGet1RejectedAnd1CanceledBookingsForBooker() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByBooker_IdAndStatusInAndEndBefore(booker.getId(),
+                List.of(BookingStatus.CANCELED, BookingStatus.REJECTED), LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
+        assertEquals(canceledPastBooking.getId(), result.get(1).getId());
+    }
+
+    @Test
+    void shouldGet8BookingsForOwner() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByItem_Owner_Id(owner.getId(), tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(8, result.size());
+        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
+        assertEquals(rejectedFutureBooking.getId(), result.get(1).getId());
+        assertEquals(waitingCurrentBooking.getId(), result.get(2).getId());
+        assertEquals(waitingFutureBooking.getId(), result.get(3).getId());
+        assertEquals(canceledPastBooking.getId(), result.get(4).getId());
+        assertEquals(canceledCurrentBooking.getId(), result.get(5).getId());
+        assertEquals(approvedCurrentBooking.getId(), result.get(6).getId());
+        assertEquals(approvedFutureBooking.getId(), result.get(7).getId());
+    }
+
+    @Test
+    void shouldNotGetBookingsOfOtherOwnerItems() {
+        Item otherOwnerItem = new Item();
+        otherOwnerItem.setName("item_2_name");
+        otherOwnerItem.setDescription("item_2_desc");
+        otherOwnerItem.setAvailable(Boolean.TRUE);
+        otherOwnerItem.setOwner(booker);
+        otherOwnerItem = itemRepository.save(otherOwnerItem);
+
+        Booking otherOwnerBooking = new Booking();
+        otherOwnerBooking.setStart(LocalDateTime.now().plusDays(1));
+        otherOwnerBooking.setEnd(LocalDateTime.now().plusDays(3));
+        otherOwnerBooking.setItem(otherOwnerItem);
+        otherOwnerBooking.setBooker(owner);
+        otherOwnerBooking.setStatus(BookingStatus.WAITING);
+        otherOwnerBooking = bookingRepository.save(otherOwnerBooking);
+        bookingViewRepository.insertBookings(List.of(otherOwnerBooking.getId()));
+
+        List<BookingFullInfoDto> ownerResult = bookingViewRepository.findAllByItem_Owner_Id(owner.getId(), tenElementsOnPageSortByIdRequest);
+        List<BookingFullInfoDto> otherOwnerResult = bookingViewRepository.findAllByItem_Owner_Id(booker.getId(), tenElementsOnPageSortByIdRequest);
+
+        assertEquals(8, ownerResult.size());
+        assertEquals(1, otherOwnerResult.size());
+        assertEquals(otherOwnerBooking.getId(), otherOwnerResult.get(0).getId());
+    }
+
+    @Test
+    void shouldGet3CurrentBookingsForOwner() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByItem_Owner_IdAndStartBeforeAndEndAfter(
+                owner.getId(), LocalDateTime.now(), LocalDateTime.now(), tenElementsOnPageSortByIdRequest
+        );
+
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertEquals(waitingCurrentBooking.getId(), result.get(0).getId());
+        assertEquals(canceledCurrentBooking.getId(), result.get(1).getId());
+        assertEquals(approvedCurrentBooking.getId(), result.get(2).getId());
+    }
+
+    @Test
+    void shouldGet3FutureBookingsForOwner() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByItem_Owner_IdAndStartAfter(owner.getId(),
+                LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertEquals(rejectedFutureBooking.getId(), result.get(0).getId());
+        assertEquals(waitingFutureBooking.getId(), result.get(1).getId());
+        assertEquals(approvedFutureBooking.getId(), result.get(2).getId());
+    }
+
+    @Test
+    void shouldGet2ApprovedBookingsForOwner() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByItem_Owner_IdAndStatus(owner.getId(),
+                BookingStatus.APPROVED, tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(approvedCurrentBooking.getId(), result.get(0).getId());
+        assertEquals(approvedFutureBooking.getId(), result.get(1).getId());
+    }
+
+    @Test
+    void shouldGet1RejectedAnd1CanceledBookingsForOwner() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByItem_Owner_IdAndStatusInAndEndBefore(owner.getId(),
+                List.of(BookingStatus.CANCELED, BookingStatus.REJECTED), LocalDateTime.now(), tenElementsOnPageSortByIdRequest);
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(rejectedPastBooking.getId(), result.get(0).getId());
+        assertEquals(canceledPastBooking.getId(), result.get(1).getId());
+    }
+
+    @Test
+    void shouldSelectBookerAndItemColumnsIntoFullInfoDto() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByItem_Owner_IdAndStatus(owner.getId(),
+                BookingStatus.APPROVED, tenElementsOnPageSortByIdRequest);
+
+        assertEquals(2, result.size());
+        assertEquals(approvedCurrentBooking.getId(), result.get(0).getId());
+        assertNotNull(result.get(0).getStart());
+        assertNotNull(result.get(0).getEnd());
+        assertEquals(BookingStatus.APPROVED, result.get(0).getStatus());
+        assertEquals(booker.getId(), result.get(0).getBooker().getId());
+        assertEquals(booker.getName(), result.get(0).getBooker().getName());
+        assertEquals(booker.getEmail(), result.get(0).getBooker().getEmail());
+        assertEquals(item1.getId(), result.get(0).getItem().getId());
+        assertEquals(item1.getName(), result.get(0).getItem().getName());
+        assertEquals(item1.getDescription(), result.get(0).getItem().getDescription());
+        assertEquals(item1.getAvailable(), result.get(0).getItem().getAvailable());
+        assertNull(result.get(0).getItem().getRequestId());
+    }
+
+    @Test
+    void shouldGetAllBookerBookingsPageByPageAfterCursor() {
+        List<BookingFullInfoDto> firstPage = bookingViewRepository.findBookerBookingsAfterCursor(booker.getId(),
+                LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE, PageRequest.of(0, 5));
+
+        BookingFullInfoDto last = firstPage.get(firstPage.size() - 1);
+
+        List<BookingFullInfoDto> secondPage = bookingViewRepository.findBookerBookingsAfterCursor(booker.getId(),
+                last.getStart(), last.getId(), PageRequest.of(0, 5));
+
+        assertEquals(5, firstPage.size());
+        assertEquals(3, secondPage.size());
+        assertTrue(secondPage.stream().noneMatch((booking) -> booking.getId().equals(last.getId())));
+        assertFalse(secondPage.get(0).getStart().isAfter(last.getStart()));
+
+        //позже всех создана и начинается подтвержденная будущая бронь, раньше всех - отклоненная прошедшая
+        assertEquals(approvedFutureBooking.getId(), firstPage.get(0).getId());
+        assertEquals(rejectedPastBooking.getId(), secondPage.get(2).getId());
+    }
+
+    @Test
+    void shouldGetOwnerBookingsByStatusAfterCursor() {
+        List<BookingFullInfoDto> result = bookingViewRepository.findOwnerBookingsByStatusAfterCursor(owner.getId(),
+                waitingFutureBooking.getStart(), waitingFutureBooking.getId(), BookingStatus.WAITING, PageRequest.of(0, 10));
+
+        assertEquals(1, result.size());
+        assertEquals(waitingCurrentBooking.getId(), result.get(0).getId());
+    }
+
+    @Test
+    void shouldCopyBookingItemAndBookerColumnsOnInsert() {
+        BookingView view = bookingViewRepository.findById(waitingFutureBooking.getId()).orElseThrow();
+
+        assertEquals(waitingFutureBooking.getStart(), view.getStart());
+        assertEquals(waitingFutureBooking.getEnd(), view.getEnd());
+        assertEquals(BookingStatus.WAITING, view.getStatus());
+        assertEquals(booker.getId(), view.getBookerId());
+        assertEquals(booker.getName(), view.getBookerName());
+        assertEquals(booker.getEmail(), view.getBookerEmail());
+        assertEquals(item1.getId(), view.getItemId());
+        assertEquals(item1.getName(), view.getItemName());
+        assertEquals(item1.getDescription(), view.getItemDescription());
+        assertEquals(item1.getAvailable(), view.getItemAvailable());
+        assertNull(view.getRequestId());
+        assertEquals(owner.getId(), view.getOwnerId());
+    }
+
+    @Test
+    void shouldUpdateStatusesOfBookings() {
+        int updated = bookingViewRepository.updateStatuses(
+                List.of(waitingCurrentBooking.getId(), waitingFutureBooking.getId()), BookingStatus.APPROVED);
+
+        assertEquals(2, updated);
+        assertEquals(4, bookingViewRepository.findAllByItem_Owner_IdAndStatus(owner.getId(),
+                BookingStatus.APPROVED, tenElementsOnPageSortByIdRequest).size());
+        assertTrue(bookingViewRepository.findAllByBooker_IdAndStatus(booker.getId(),
+                BookingStatus.WAITING, tenElementsOnPageSortByIdRequest).isEmpty());
+    }
+
+    @Test
+    void shouldUpdateItemAndBookerInAllTheirBookings() {
+        assertEquals(8, bookingViewRepository.updateItem(item1.getId(), "item_1_name_upd", "item_1_desc_upd", Boolean.FALSE));
+        assertEquals(8, bookingViewRepository.updateBooker(booker.getId(), "User_name_booker_upd", "Userbooker_upd@email.ru"));
+
+        List<BookingFullInfoDto> result = bookingViewRepository.findAllByItem_Owner_Id(owner.getId(), tenElementsOnPageSortByIdRequest);
+
+        assertEquals(8, result.size());
+        assertTrue(result.stream().allMatch((booking) -> "item_1_name_upd".equals(booking.getItem().getName())
+                && "item_1_desc_upd".equals(booking.getItem().getDescription())
+                && Boolean.FALSE.equals(booking.getItem().getAvailable())
+                && "User_name_booker_upd".equals(booking.getBooker().getName())
+                && "Userbooker_upd@email.ru".equals(booking.getBooker().getEmail())));
+    }
+
+    @Test
+    void shouldDeleteRowsWithBookingsOfDeletedBooker() {
+        em.flush();
+        em.clear();
+
+        //удаление пользователя обнуляет booker_id в bookings, и такие брони, как и при соединении с users, в списки не попадают
+        em.createNativeQuery("delete from users where user_id = ?1")
+                .setParameter(1, booker.getId())
+                .executeUpdate();
+
+        assertEquals(0, bookingViewRepository.count());
+        assertTrue(bookingViewRepository.findAllByItem_Owner_Id(owner.getId(), tenElementsOnPageSortByIdRequest).isEmpty());
+    }
+}
@@ -0,0 +1,224 @@
+package ru.practicum.shareit.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.exceptions.UserUnknownException;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+@Transactional
+@SpringBootTest(
+        properties = "spring.profiles.active=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class IdempotentRequestsITest {
+
+    private final EntityManager em;
+    private final IdempotentRequests idempotentRequests;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ItemService itemService;
+    private final ObjectMapper objectMapper;
+
+    private User owner;
+    private ItemDto itemDto;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = new User(null, "User_name_owner", "Userowner@email.ru");
+        em.persist(owner);
+        em.flush();
+
+        itemDto = new ItemDto(null, "item_name_1", "item_desc_1", Boolean.TRUE, null);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void repeatedRequestReturnsStoredResponseWithoutCreatingItem() {
+        ItemDto created = createItem("key-1", itemDto);
+        ItemDto replayed = createItem("key-1", itemDto);
+
+        assertEquals(1, executions.get());
+        assertEquals(created.getId(), replayed.getId());
+        assertEquals(created.getName(), replayed.getName());
+        assertEquals(1L, countOwnerItems());
+
+        IdempotencyRecord record = idempotencyRecordRepository.findById(new IdempotencyRecord.Key(owner.getId(), "key-1"))
+                .orElseThrow();
+        assertNotNull(record.getResponse());
+    }
+
+    @Test
+    void differentKeysCreateDifferentItems() {
+        createItem("key-1", itemDto);
+        createItem("key-2", itemDto);
+
+        assertEquals(2, executions.get());
+        assertEquals(2L, countOwnerItems());
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        createItem("key-1", itemDto);
+
+        ItemDto anotherItemDto = new ItemDto(null, "item_name_2", "item_desc_2", Boolean.TRUE, null);
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> createItem("key-1", anotherItemDto));
+        assertEquals(1, executions.get());
+    }
+
+    //ключ запроса, который еще выполняется, занят, но ответа у него нет
+    @Test
+    void keyOfRunningRequestIsRejected() {
+        assertThrows(IdempotencyKeyInProgressException.class, () -> idempotentRequests.execute(
+                owner.getId(), "key-1", "POST /items", itemDto, ItemDto.class,
+                () -> createItem("key-1", itemDto)));
+    }
+
+    //неудачный запрос освобождает ключ, и повтор выполняется заново
+    @Test
+    void failedRequestReleasesKey() {
+        assertThrows(UserUnknownException.class, () -> idempotentRequests.execute(
+                owner.getId(), "key-1", "POST /items", itemDto, ItemDto.class,
+                () -> {
+                    throw new UserUnknownException("Пользователь не найден.");
+                }));
+
+        assertTrue(idempotencyRecordRepository.findById(new IdempotencyRecord.Key(owner.getId(), "key-1")).isEmpty());
+
+        createItem("key-1", itemDto);
+
+        assertEquals(1, executions.get());
+        assertEquals(1L, countOwnerItems());
+    }
+
+    //ключ освобождается и при Error, а не только при RuntimeException
+    @Test
+    void requestFailedWithErrorReleasesKey() {
+        assertThrows(Error.class, () -> idempotentRequests.execute(
+                owner.getId(), "key-1", "POST /items", itemDto, ItemDto.class,
+                () -> {
+                    throw new Error("Сбой");
+                }));
+
+        assertTrue(idempotencyRecordRepository.findById(new IdempotencyRecord.Key(owner.getId(), "key-1")).isEmpty());
+    }
+
+    //ключ без ответа старше аренды (запрос оборвался вместе с сервером) занимается повтором заново
+    @Test
+    void expiredKeyOfUnfinishedRequestIsClaimedAgain() {
+        idempotencyRecordRepository.claim(owner.getId(), "key-1", "hash", LocalDateTime.now().minusMinutes(5));
+
+        ItemDto created = createItem("key-1", itemDto);
+
+        assertEquals(1, executions.get());
+        assertEquals(1L, countOwnerItems());
+
+        IdempotencyRecord record = idempotencyRecordRepository.findById(new IdempotencyRecord.Key(owner.getId(), "key-1"))
+                .orElseThrow();
+        assertNotNull(record.getResponse());
+        assertEquals(created.getId(), createItem("key-1", itemDto).getId());
+    }
+
+    @Test
+    void keyOfUnfinishedRequestWithinLeaseIsRejected() {
+        idempotencyRecordRepository.claim(owner.getId(), "key-1", "hash", LocalDateTime.now().minusSeconds(1));
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> createItem("key-1", itemDto));
+        assertEquals(0, executions.get());
+    }
+
+    //запрос, ключ которого по истечении аренды занял повтор, не перезаписывает и не освобождает чужой захват
+    @Test
+    void expiredClaimDoesNotCompleteOrReleaseNewClaim() {
+        LocalDateTime expired = LocalDateTime.now().minusMinutes(5).truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime claimed = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+        idempotencyRecordRepository.claim(owner.getId(), "key-1", "hash", claimed);
+
+        assertEquals(0, idempotencyRecordRepository.complete(owner.getId(), "key-1", expired, "{}"));
+        assertEquals(0, idempotencyRecordRepository.release(owner.getId(), "key-1", expired));
+        assertEquals(1, idempotencyRecordRepository.complete(owner.getId(), "key-1", claimed, "{}"));
+    }
+
+    //ответ выполненного запроса не сохранился: ключ не освобождается даже после аренды,
+    //повтор получает 409, а после фонового сохранения ответа - сохраненный ответ
+    @Test
+    void failedCompleteKeepsKeyUntilResponseIsStored() throws InterruptedException {
+        IdempotencyRecordRepository failingRepository = mock(IdempotencyRecordRepository.class,
+                AdditionalAnswers.delegatesTo(idempotencyRecordRepository));
+
+        doThrow(new DataAccessResourceFailureException("Сбой БД"))
+                .doAnswer(AdditionalAnswers.delegatesTo(idempotencyRecordRepository))
+                .when(failingRepository).complete(any(Long.class), any(String.class), any(LocalDateTime.class), any(String.class));
+
+        IdempotentRequests requests = new IdempotentRequests(failingRepository, objectMapper, 1);
+
+        ItemDto created = createItem(requests, "key-1", itemDto);
+
+        assertEquals(1, executions.get());
+        assertNull(idempotencyRecordRepository.findById(new IdempotencyRecord.Key(owner.getId(), "key-1"))
+                .orElseThrow()
+                .getResponse());
+
+        //аренда истекла, но ключ не занимается заново
+        Thread.sleep(1_100);
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> createItem(requests, "key-1", itemDto));
+        assertEquals(1, executions.get());
+
+        requests.completePending();
+
+        assertEquals(created.getId(), createItem(requests, "key-1", itemDto).getId());
+        assertEquals(1, executions.get());
+        assertEquals(1L, countOwnerItems());
+    }
+
+    @Test
+    void cleanerDeletesOnlyExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+
+        idempotencyRecordRepository.claim(owner.getId(), "expired", "hash", now.minusHours(25));
+        idempotencyRecordRepository.claim(owner.getId(), "fresh", "hash", now.minusHours(23));
+
+        new IdempotencyKeyCleaner(idempotencyRecordRepository, true, 24).cleanup();
+
+        assertTrue(idempotencyRecordRepository.findById(new IdempotencyRecord.Key(owner.getId(), "expired")).isEmpty());
+        assertTrue(idempotencyRecordRepository.findById(new IdempotencyRecord.Key(owner.getId(), "fresh")).isPresent());
+    }
+
+    private ItemDto createItem(String key, ItemDto requestDto) {
+        return createItem(idempotentRequests, key, requestDto);
+    }
+
+    private ItemDto createItem(IdempotentRequests requests, String key, ItemDto requestDto) {
+        return requests.execute(owner.getId(), key, "POST /items", requestDto, ItemDto.class, () -> {
+            executions.incrementAndGet();
+            return itemService.createItem(requestDto, owner.getId());
+        });
+    }
+
+    private long countOwnerItems() {
+        return em.createQuery("select count(i) from Item i where i.owner.id = :ownerId", Long.class)
+                .setParameter("ownerId", owner.getId())
+                .getSingleResult();
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import ru.practicum.shareit.item.dto.ItemCommentDto;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
@@ -83,4 +84,22 @@ class CommentRepositoryTest {
         assertEquals(comment1.getItem().getId(), comments.get(1).getItem().getId());
         assertEquals(comment1.getAuthor().getId(), comments.get(1).getAuthor().getId());
     }
+
+    @Test
+    void getAllCommentsWithAuthorNameForItems() {
+        List<ItemCommentDto> comments = commentRepository.findAllByItemIdsWithAuthorName(List.of(item1.getId()));
+
+        assertNotNull(comments);
+        assertEquals(2, comments.size());
+
+        assertEquals(comment2.getId(), comments.get(0).getId());
+        assertEquals(item1.getId(), comments.get(0).getItemId());
+        assertEquals(comment2.getText(), comments.get(0).getText());
+        assertEquals(user1.getName(), comments.get(0).getAuthorName());
+
+        assertEquals(comment1.getId(), comments.get(1).getId());
+        assertEquals(item1.getId(), comments.get(1).getItemId());
+        assertEquals(comment1.getText(), comments.get(1).getText());
+        assertEquals(user1.getName(), comments.get(1).getAuthorName());
+    }
 }
\ No newline at end of file
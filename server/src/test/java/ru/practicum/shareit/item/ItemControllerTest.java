@@ -6,16 +6,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.common.idempotency.IdempotencyRecordRepository;
+import ru.practicum.shareit.common.idempotency.IdempotentRequests;
+import ru.practicum.shareit.item.dto.AvailabilitySlotDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
 import ru.practicum.shareit.item.dto.ItemBookingInfoDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingsAndCommentsDto;
 import ru.practicum.shareit.item.exceptions.CommentForNotExistBookingException;
+import ru.practicum.shareit.item.exceptions.ItemAvailabilityPeriodInvalidException;
 import ru.practicum.shareit.item.exceptions.ItemSecurityException;
 import ru.practicum.shareit.item.exceptions.ItemUnknownException;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.requests.exceptions.ItemRequestUnknownException;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
 import java.nio.charset.StandardCharsets;
@@ -30,6 +38,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ItemController.class)
+@Import(IdempotentRequests.class)
 @AutoConfigureMockMvc
 class ItemControllerTest {
 
@@ -39,6 +48,9 @@ class ItemControllerTest {
     @MockBean
     ItemService itemService;
 
+    @MockBean
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
     @Autowired
     MockMvc mockMvc;
 
@@ -194,6 +206,44 @@ class ItemControllerTest {
         verify(itemService, times(1)).createItem(any(ItemDto.class), any(Long.class));
     }
 
+    @Test
+    void getSuccessCreateItemsBatch() throws Exception {
+        when(itemService.createItems(anyList(), any(Long.class)))
+                .thenReturn(List.of(itemDto, itemDto5));
+
+        mockMvc.perform(post("/items/batch")
+                        .content(mapper.writeValueAsString(new ItemBatchDto(List.of(itemDto, itemDto5))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$.[0].id").value(itemDto.getId()))
+                .andExpect(jsonPath("$.[0].name").value(itemDto.getName()))
+                .andExpect(jsonPath("$.[1].id").value(itemDto5.getId()))
+                .andExpect(jsonPath("$.[1].name").value(itemDto5.getName()));
+
+        verify(itemService, times(1)).createItems(anyList(), any(Long.class));
+    }
+
+    @Test
+    void getNotFoundResponseOnCreateItemsBatchWhenUnknownRequestId() throws Exception {
+        when(itemService.createItems(anyList(), any(Long.class)))
+                .thenThrow(new ItemRequestUnknownException("Запрос вещи не найден."));
+
+        mockMvc.perform(post("/items/batch")
+                        .content(mapper.writeValueAsString(new ItemBatchDto(List.of(itemDto, itemDto5))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Запрос вещи не найден."));
+
+        verify(itemService, times(1)).createItems(anyList(), any(Long.class));
+    }
+
     @Test
     void getSuccessUpdateItem() throws Exception {
         when(itemService.updateItem(any(Long.class), any(ItemDto.class), any(Long.class)))
@@ -283,6 +333,59 @@ class ItemControllerTest {
         verify(itemService, times(1)).getItemById(any(Long.class), any(Long.class));
     }
 
+    @Test
+    void getSuccessItemAvailability() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(3);
+        ItemAvailabilityDto availabilityDto = new ItemAvailabilityDto(1L, from, to, List.of(
+                new AvailabilitySlotDto(from, from.plusDays(1), Boolean.TRUE),
+                new AvailabilitySlotDto(from.plusDays(1), to, Boolean.FALSE)
+        ));
+
+        when(itemService.getItemAvailability(any(Long.class), any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(availabilityDto);
+
+        mockMvc.perform(get("/items/1/availability")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId)
+                        .param("from", from.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                        .param("to", to.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itemId").value(1L))
+                .andExpect(jsonPath("$.slots.length()").value(2))
+                .andExpect(jsonPath("$.slots.[0].available").value(true))
+                .andExpect(jsonPath("$.slots.[1].start").value(from.plusDays(1).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)))
+                .andExpect(jsonPath("$.slots.[1].available").value(false));
+
+        verify(itemService, times(1)).getItemAvailability(1L, userId, from, to);
+    }
+
+    @Test
+    void getNotFoundResponseOnItemAvailabilityWhenUnknownItemId() throws Exception {
+        when(itemService.getItemAvailability(any(Long.class), any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenThrow(new ItemUnknownException("Не найдена вещь с id = 99"));
+
+        mockMvc.perform(get("/items/99/availability")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId)
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-01-02T00:00:00"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getBadRequestResponseOnItemAvailabilityWithInvertedPeriod() throws Exception {
+        when(itemService.getItemAvailability(any(Long.class), any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenThrow(new ItemAvailabilityPeriodInvalidException("Начало периода должно быть раньше его окончания"));
+
+        mockMvc.perform(get("/items/1/availability")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(headerName, userId)
+                        .param("from", "2030-01-02T00:00:00")
+                        .param("to", "2030-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getSuccessAllItemsForUserId() throws Exception {
         when(itemService.getAllItemsForUser(any(Long.class), any(Integer.class), any(Integer.class)))
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.common.OffsetPageRequest;
 import ru.practicum.shareit.requests.ItemRequest;
 import ru.practicum.shareit.requests.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
@@ -103,6 +104,15 @@ class ItemRepositoryTest {
         assertEquals(item1.getId(), result.get(0).getId());
     }
 
+    @Test
+    void getItemsForOwner1AfterItem1() {
+        List<Item> result = itemRepository.findItemsByOwnerIdAndIdGreaterThanOrderById(
+                user1.getId(), item1.getId(), PageRequest.of(0, 10));
+
+        assertEquals(1, result.size());
+        assertEquals(item2.getId(), result.get(0).getId());
+    }
+
     @Test
     void getAllItemsForOwner1() {
         List<Item> result = itemRepository.findALlItemsByOwnerId(user1.getId());
@@ -176,6 +186,29 @@ class ItemRepositoryTest {
         assertEquals(item2.getId(), result.get(0).getId());
     }
 
+    @Test
+    void shouldNotGetUnavailableItemsByKeyWord() {
+        item2.setAvailable(Boolean.FALSE);
+        itemRepository.save(item2);
+
+        List<Item> result = itemRepository.findItemsByKeyWord(keyWordItem, tenElementOnPageRequest);
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(item1.getId(), result.get(0).getId());
+        assertEquals(item3.getId(), result.get(1).getId());
+    }
+
+    @Test
+    void shouldGetItemsByKeyWordFromArbitraryOffset() {
+        List<Item> result = itemRepository.findItemsByKeyWord(keyWordItem, OffsetPageRequest.of(1, 2));
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(item2.getId(), result.get(0).getId());
+        assertEquals(item3.getId(), result.get(1).getId());
+    }
+
     @Test
     void shouldGetItem3ByItemRequest() {
         List<Item> result = itemRepository.findAllByRequest_Id(itemRequest3.getId());
@@ -190,4 +223,15 @@ class ItemRepositoryTest {
         assertEquals(item3.getOwner().getId(), result.get(0).getOwner().getId());
         assertEquals(item3.getId(), result.get(0).getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetItemsByItemRequests() {
+        List<Item> result = itemRepository.findAllByRequest_IdInOrderById(List.of(itemRequest3.getId(), Long.MAX_VALUE));
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+
+        assertEquals(item3.getId(), result.get(0).getId());
+        assertEquals(itemRequest3.getId(), result.get(0).getRequest().getId());
+    }
+}
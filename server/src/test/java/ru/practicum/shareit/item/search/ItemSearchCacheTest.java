@@ -0,0 +1,152 @@
+package ru.practicum.shareit.item.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemSearchCacheTest {
+
+    MeterRegistry meterRegistry;
+    ItemSearchCache itemSearchCache;
+
+    private AtomicInteger loads;
+
+    private ItemDto drillDto;
+    private ItemDto screwdriverDto;
+
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        itemSearchCache = new ItemSearchCache(meterRegistry, true, 1000);
+        loads = new AtomicInteger();
+
+        drillDto = new ItemDto(1L, "Дрель", "Простая дрель", Boolean.TRUE, null);
+        screwdriverDto = new ItemDto(2L, "Отвертка", "Аккумуляторная отвертка", Boolean.TRUE, null);
+    }
+
+    @Test
+    void shouldLoadOnceForSameKeyWordIgnoringCase() {
+        List<ItemDto> first = search("Дрель", List.of(drillDto));
+        List<ItemDto> second = search("дРЕЛЬ", List.of(drillDto));
+
+        assertEquals(1, loads.get());
+        assertEquals(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void shouldLoadSeparatelyForDifferentPages() {
+        search("дрель", 0, 10, List.of(drillDto));
+        search("дрель", 10, 10, List.of());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldEvictOnlyPagesMatchingChangedItem() {
+        search("дрель", List.of(drillDto));
+        search("отвертка", List.of(screwdriverDto));
+
+        ItemDto updatedDrillDto = new ItemDto(1L, "Дрель", "Ударная дрель", Boolean.TRUE, null);
+        itemSearchCache.evict(drillDto, updatedDrillDto);
+
+        search("дрель", List.of(updatedDrillDto));
+        search("отвертка", List.of(screwdriverDto));
+
+        //страница "дрель" загружена повторно, страница "отвертка" осталась в кэше
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shouldEvictPagesMatchingOldTextWhenItemRenamed() {
+        search("дрель", List.of(drillDto));
+
+        itemSearchCache.evict(drillDto, new ItemDto(1L, "Пила", "Ножовка", Boolean.TRUE, null));
+
+        search("дрель", List.of());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldEvictPagesMatchingNewItem() {
+        search("ударная", List.of());
+
+        itemSearchCache.evict(null, new ItemDto(3L, "Дрель", "Ударная дрель", Boolean.TRUE, null));
+
+        search("ударная", List.of());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldEvictPagesMatchingDeletedItem() {
+        search("дрель", List.of(drillDto));
+        search("отвертка", List.of(screwdriverDto));
+
+        itemSearchCache.evict(drillDto, null);
+
+        search("дрель", List.of());
+        search("отвертка", List.of(screwdriverDto));
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shouldNotEvictForUnavailableItem() {
+        search("дрель", List.of(drillDto));
+
+        itemSearchCache.evict(null, new ItemDto(3L, "Дрель", "Ударная дрель", Boolean.FALSE, null));
+
+        search("дрель", List.of(drillDto));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldNotCachePageLoadedWhileItemsChanged() {
+        itemSearchCache.get("дрель", 0, 10, () -> {
+            loads.incrementAndGet();
+            //вещь изменилась, пока страница считалась
+            itemSearchCache.evict(null, screwdriverDto);
+            return List.of(drillDto);
+        });
+
+        search("дрель", List.of(drillDto));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldAlwaysLoadWhenDisabled() {
+        ItemSearchCache disabledCache = new ItemSearchCache(new SimpleMeterRegistry(), false, 1000);
+
+        for (int i = 0; i < 2; i++) {
+            disabledCache.get("дрель", 0, 10, () -> {
+                loads.incrementAndGet();
+                return List.of(drillDto);
+            });
+        }
+
+        assertEquals(2, loads.get());
+    }
+
+    private List<ItemDto> search(String keyWord, List<ItemDto> items) {
+        return search(keyWord, 0, 10, items);
+    }
+
+    private List<ItemDto> search(String keyWord, int from, int size, List<ItemDto> items) {
+        return itemSearchCache.get(keyWord, from, size, () -> {
+            loads.incrementAndGet();
+            return items;
+        });
+    }
+}
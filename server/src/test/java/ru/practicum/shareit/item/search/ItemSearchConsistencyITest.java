@@ -0,0 +1,108 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Поисковый индекс и кэш поиска включены: они должны отражать только зафиксированные изменения вещей.
+//Тест не транзакционный - откат и фиксация идут через TransactionTemplate, как у сервиса в приложении
+@SpringBootTest(
+        properties = {
+            "spring.profiles.active=test",
+            "shareit.search.index.enabled=true",
+            "shareit.search.cache.enabled=true"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemSearchConsistencyITest {
+
+    private final ItemService itemService;
+    private final ItemSearchIndex itemSearchIndex;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+
+    private User owner;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = userRepository.save(new User(null, "Search_owner", "Searchowner@email.ru"));
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (userRepository.existsById(owner.getId())) {
+            userRepository.deleteById(owner.getId());
+        }
+    }
+
+    @Test
+    void rolledBackUpdateLeavesIndexAndCacheUnchanged() {
+        ItemDto item = createItem("Consistencydrill");
+
+        //страница попадает в кэш
+        assertEquals(List.of(item.getId()), searchIds("consistencydrill"));
+
+        transactionTemplate.executeWithoutResult((status) -> {
+            itemService.updateItem(item.getId(),
+                    new ItemDto(null, "Consistencysaw", null, null, null), owner.getId());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of(item.getId()), searchIds("consistencydrill"));
+        assertEquals("Consistencydrill", itemService.getItemsWithKeyWord("consistencydrill", 0, 10).get(0).getName());
+        assertTrue(searchIds("consistencysaw").isEmpty());
+        assertTrue(itemSearchIndex.search("consistencysaw", 0, 10).isEmpty());
+    }
+
+    @Test
+    void committedUpdateChangesIndexAndCache() {
+        ItemDto item = createItem("Consistencyhammer");
+
+        assertEquals(List.of(item.getId()), searchIds("consistencyhammer"));
+
+        transactionTemplate.executeWithoutResult((status) -> itemService.updateItem(item.getId(),
+                new ItemDto(null, "Consistencyplane", null, null, null), owner.getId()));
+
+        assertTrue(searchIds("consistencyhammer").isEmpty());
+        assertEquals(List.of(item.getId()), searchIds("consistencyplane"));
+    }
+
+    //вещи удаляются вместе с владельцем каскадом в БД и больше не находятся ни индексом, ни через кэш поиска
+    @Test
+    void itemsOfDeletedUserAreNotFound() {
+        ItemDto item = createItem("Consistencychisel");
+
+        //страница попадает в кэш
+        assertEquals(List.of(item.getId()), searchIds("consistencychisel"));
+
+        userService.deleteUserById(owner.getId());
+
+        assertTrue(itemSearchIndex.search("consistencychisel", 0, 10).isEmpty());
+        assertTrue(searchIds("consistencychisel").isEmpty());
+    }
+
+    private ItemDto createItem(String name) {
+        return itemService.createItem(new ItemDto(null, name, "desc", Boolean.TRUE, null), owner.getId());
+    }
+
+    private List<Long> searchIds(String keyWord) {
+        return itemService.getItemsWithKeyWord(keyWord, 0, 10).stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList());
+    }
+}
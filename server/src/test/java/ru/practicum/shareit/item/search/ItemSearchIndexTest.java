@@ -0,0 +1,153 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ItemSearchIndexTest {
+
+    ItemRepository itemRepository;
+    ItemSearchIndex itemSearchIndex;
+
+    private ItemDto item1Dto;
+    private ItemDto item2Dto;
+    private ItemDto item3Dto;
+
+    @BeforeEach
+    void beforeEach() {
+        itemRepository = mock(ItemRepository.class);
+        itemSearchIndex = new ItemSearchIndex(itemRepository, true);
+
+        item1Dto = new ItemDto(1L, "Дрель", "Простая дрель", Boolean.TRUE, null);
+        item2Dto = new ItemDto(2L, "Отвертка", "Аккумуляторная отвертка", Boolean.TRUE, null);
+        item3Dto = new ItemDto(3L, "Дрель ударная", "Мощная дрель", Boolean.FALSE, 1L);
+
+        when(itemRepository.findItemsForSearchIndex(any(Long.class), any(PageRequest.class)))
+                .thenReturn(List.of(item1Dto, item2Dto, item3Dto));
+
+        itemSearchIndex.build();
+    }
+
+    @Test
+    void shouldNotBeReadyWhenDisabled() {
+        ItemSearchIndex disabledIndex = new ItemSearchIndex(itemRepository, false);
+        disabledIndex.build();
+
+        assertFalse(disabledIndex.isReady());
+        verify(itemRepository, times(1)).findItemsForSearchIndex(any(Long.class), any(PageRequest.class));
+    }
+
+    @Test
+    void shouldFindOnlyAvailableItemsBySubstringIgnoringCase() {
+        assertTrue(itemSearchIndex.isReady());
+
+        List<ItemDto> result = itemSearchIndex.search("дРеЛ", 0, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(item1Dto.getId(), result.get(0).getId());
+        assertEquals(item1Dto.getName(), result.get(0).getName());
+        assertEquals(item1Dto.getDescription(), result.get(0).getDescription());
+        assertEquals(item1Dto.getAvailable(), result.get(0).getAvailable());
+    }
+
+    @Test
+    void shouldFindBySubstringAcrossNameAndDescription() {
+        List<ItemDto> result = itemSearchIndex.search("ка акк", 0, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(item2Dto.getId(), result.get(0).getId());
+    }
+
+    @Test
+    void shouldFindByShortKeyWord() {
+        List<ItemDto> result = itemSearchIndex.search("др", 0, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(item1Dto.getId(), result.get(0).getId());
+    }
+
+    @Test
+    void shouldTreatUnderscoreAsAnySymbolLikeQuery() {
+        List<ItemDto> result = itemSearchIndex.search("о_вертка", 0, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(item2Dto.getId(), result.get(0).getId());
+    }
+
+    @Test
+    void shouldReturnEmptyListForUnknownKeyWord() {
+        assertTrue(itemSearchIndex.search("молоток", 0, 10).isEmpty());
+    }
+
+    @Test
+    void shouldApplyOffsetAndLimitInIdOrder() {
+        for (long id = 10; id < 20; id++) {
+            itemSearchIndex.index(new ItemDto(id, "Щетка " + id, "Щетка для обуви", Boolean.TRUE, null));
+        }
+
+        List<Long> ids = itemSearchIndex.search("щетка", 3, 4).stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(13L, 14L, 15L, 16L), ids);
+    }
+
+    @Test
+    void shouldUpdateIndexWhenItemChanges() {
+        itemSearchIndex.index(new ItemDto(1L, "Пила", "Ножовка по дереву", Boolean.TRUE, null));
+        itemSearchIndex.index(new ItemDto(3L, "Дрель ударная", "Мощная дрель", Boolean.TRUE, 1L));
+
+        List<ItemDto> byOldName = itemSearchIndex.search("дрель", 0, 10);
+        List<ItemDto> byNewName = itemSearchIndex.search("ножовка", 0, 10);
+
+        assertEquals(1, byOldName.size());
+        assertEquals(3L, byOldName.get(0).getId());
+        assertEquals(1L, byOldName.get(0).getRequestId());
+
+        assertEquals(1, byNewName.size());
+        assertEquals(1L, byNewName.get(0).getId());
+    }
+
+    @Test
+    void shouldNotFindRemovedItem() {
+        itemSearchIndex.remove(1L);
+        itemSearchIndex.remove(99L);
+
+        assertTrue(itemSearchIndex.search("дрель", 0, 10).isEmpty());
+        assertEquals(1, itemSearchIndex.search("отвертка", 0, 10).size());
+    }
+
+    @Test
+    void shouldNotOverwriteFresherItemWhileBuilding() {
+        ItemSearchIndex index = new ItemSearchIndex(itemRepository, true);
+
+        //вещь обновлена через сервис раньше, чем до нее дошла загрузка из БД
+        index.index(new ItemDto(1L, "Пила", "Ножовка по дереву", Boolean.TRUE, null));
+        index.build();
+
+        assertTrue(index.search("дрель", 0, 10).isEmpty());
+        assertEquals(1, index.search("пила", 0, 10).size());
+    }
+
+    @Test
+    void shouldBeReadyWithEmptyCatalog() {
+        when(itemRepository.findItemsForSearchIndex(any(Long.class), any(PageRequest.class)))
+                .thenReturn(Collections.emptyList());
+
+        ItemSearchIndex index = new ItemSearchIndex(itemRepository, true);
+        index.build();
+
+        assertTrue(index.isReady());
+        assertTrue(index.search("дрель", 0, 10).isEmpty());
+    }
+}
@@ -0,0 +1,220 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.item.Comment;
+import ru.practicum.shareit.item.CommentRepository;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingsAndCommentsDto;
+import ru.practicum.shareit.item.exceptions.ItemUnknownException;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//сравнение числа обращений к БД при получении карточки вещи:
+//прежняя реализация (последовательность запросов к репозиториям) и текущая
+@Transactional
+@SpringBootTest(
+        properties = {
+            "spring.profiles.active=test",
+            "spring.jpa.properties.hibernate.generate_statistics=true"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Slf4j
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemServiceImplQueryCountITest {
+
+    private static final int ITERATIONS = 200;
+    private static final String LEGACY_SELECT = "select new ru.practicum.shareit.booking.dto.BookingShortDto(" +
+            "b.id, b.start, b.end, b.item.id, b.booker.id) from Booking b ";
+
+    private final EntityManager em;
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+
+    private Statistics statistics;
+
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void beforeEach() {
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        owner = new User(null, "User_name_1", "User1@email.ru");
+        booker = new User(null, "User_name_2", "User2@email.ru");
+        em.persist(owner);
+        em.persist(booker);
+
+        item = new Item(null, "item_name_1", "item_desc_1", Boolean.TRUE, owner, null);
+        em.persist(item);
+
+        LocalDateTime now = LocalDateTime.now();
+
+        //две завершенные брони, одна текущая и две будущие
+        em.persist(new Booking(null, now.minusDays(5), now.minusDays(4), item, booker, BookingStatus.APPROVED));
+        em.persist(new Booking(null, now.minusDays(3), now.minusDays(2), item, booker, BookingStatus.APPROVED));
+        em.persist(new Booking(null, now.minusHours(1), now.plusHours(1), item, booker, BookingStatus.APPROVED));
+        em.persist(new Booking(null, now.plusDays(2), now.plusDays(3), item, booker, BookingStatus.WAITING));
+        em.persist(new Booking(null, now.plusDays(4), now.plusDays(5), item, booker, BookingStatus.WAITING));
+
+        em.persist(new Comment(null, "Comment_1_text", item, booker, now.minusDays(2)));
+        em.persist(new Comment(null, "Comment_2_text", item, booker, now.minusDays(1)));
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void getItemByIdForOwnerUsesTwoStatements() {
+        long statements = countStatements(() -> itemService.getItemById(item.getId(), owner.getId()));
+
+        assertEquals(2, statements);
+    }
+
+    @Test
+    void getItemByIdForSomeUserUsesOneStatement() {
+        //у вещи есть текущая бронь, поэтому для не владельца она недоступна,
+        //но решение принимается по результату того же единственного запроса
+        long statements = countStatements(() -> assertThrows(
+                ItemUnknownException.class,
+                () -> itemService.getItemById(item.getId(), booker.getId())));
+
+        assertEquals(1, statements);
+    }
+
+    @Test
+    void getItemByIdForOwnerReturnsSameResultAsBefore() {
+        ItemWithBookingsAndCommentsDto result = itemService.getItemById(item.getId(), owner.getId());
+
+        assertNotNull(result.getLastBooking());
+        assertNotNull(result.getNextBooking());
+        assertTrue(result.getLastBooking().getEnd().isBefore(result.getNextBooking().getStart()));
+        assertEquals(2, result.getComments().size());
+        assertEquals("Comment_2_text", result.getComments().get(0).getText());
+        assertEquals(booker.getName(), result.getComments().get(0).getAuthorName());
+    }
+
+    @Test
+    void getItemByIdMakesFewerRoundTripsThanLegacyImplementation() {
+        long legacyStatements = 0;
+        long currentStatements = 0;
+        long legacyNanos = 0;
+        long currentNanos = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long started = System.nanoTime();
+            legacyStatements += countStatements(this::legacyGetItemById);
+            legacyNanos += System.nanoTime() - started;
+
+            started = System.nanoTime();
+            currentStatements += countStatements(() -> itemService.getItemById(item.getId(), owner.getId()));
+            currentNanos += System.nanoTime() - started;
+        }
+
+        log.debug("getItemById on H2, {} calls: legacy {} statements / {} ms, current {} statements / {} ms",
+                ITERATIONS, legacyStatements, legacyNanos / 1_000_000, currentStatements, currentNanos / 1_000_000);
+
+        assertEquals(2L * ITERATIONS, currentStatements);
+        assertTrue(legacyStatements > 2 * currentStatements);
+    }
+
+    @Test
+    void createItemsUsesBatchedInserts() {
+        List<ItemDto> itemDtos = LongStream.rangeClosed(1, 120)
+                .mapToObj((i) -> new ItemDto(null, "batch_item_" + i, "batch_desc_" + i, Boolean.TRUE, null))
+                .collect(Collectors.toList());
+
+        em.clear();
+        statistics.clear();
+
+        List<ItemDto> createdItemDtos = itemService.createItems(itemDtos, owner.getId());
+        em.flush();
+
+        assertEquals(120, createdItemDtos.size());
+        assertTrue(createdItemDtos.stream().allMatch((itemDto) -> itemDto.getId() != null));
+        assertEquals(120, statistics.getEntityInsertCount());
+
+        //пользователь, три обращения к последовательности (по 50 id) и три пакета вставок
+        assertTrue(statistics.getPrepareStatementCount() <= 10);
+    }
+
+    private long countStatements(Runnable call) {
+        em.clear();
+        statistics.clear();
+
+        call.run();
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    //обращения к БД, которые делала прежняя реализация getItemById для владельца вещи
+    private void legacyGetItemById() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> itemIds = List.of(item.getId());
+
+        userRepository.findById(owner.getId());
+        itemRepository.findById(item.getId());
+        legacyCurrentBookings(itemIds, now);
+        commentRepository.findAllByItem_IdOrderByCreatedDesc(item.getId());
+        if (legacyLastBookings(itemIds, now).isEmpty()) {
+            legacyCurrentBookings(itemIds, now);
+        }
+        legacyNextBookings(itemIds, now);
+    }
+
+    //запросы прежней реализации, которых больше нет в BookingRepository
+    private List<BookingShortDto> legacyLastBookings(List<Long> itemIds, LocalDateTime now) {
+        return em.createQuery(LEGACY_SELECT +
+                        "where b.item.id in ?1 and b.status in ?2 and b.end < ?3 " +
+                        "and b.end = (select max(lb.end) from Booking lb " +
+                        "where lb.item.id = b.item.id and lb.status in ?2 and lb.end < ?3)", BookingShortDto.class)
+                .setParameter(1, itemIds)
+                .setParameter(2, List.of(BookingStatus.CANCELED, BookingStatus.APPROVED))
+                .setParameter(3, now)
+                .getResultList();
+    }
+
+    private List<BookingShortDto> legacyCurrentBookings(List<Long> itemIds, LocalDateTime now) {
+        return em.createQuery(LEGACY_SELECT +
+                        "where b.item.id in ?1 and b.start < ?2 and b.end > ?2", BookingShortDto.class)
+                .setParameter(1, itemIds)
+                .setParameter(2, now)
+                .getResultList();
+    }
+
+    private List<BookingShortDto> legacyNextBookings(List<Long> itemIds, LocalDateTime now) {
+        return em.createQuery(LEGACY_SELECT +
+                        "where b.item.id in ?1 and b.start > ?2 " +
+                        "and b.start = (select min(nb.start) from Booking nb " +
+                        "where nb.item.id = b.item.id and nb.start > ?2)", BookingShortDto.class)
+                .setParameter(1, itemIds)
+                .setParameter(2, now)
+                .getResultList();
+    }
+}
@@ -1,19 +1,34 @@
 package ru.practicum.shareit.item.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.archive.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.booking.dto.ItemBookingCandidateDto;
+import ru.practicum.shareit.booking.interval.BookingIntervalIndex;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.common.JsonStreamWriter;
+import ru.practicum.shareit.common.OffsetPageRequest;
 import ru.practicum.shareit.item.Comment;
 import ru.practicum.shareit.item.CommentRepository;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.exceptions.CommentForNotExistBookingException;
+import ru.practicum.shareit.item.exceptions.ItemAvailabilityPeriodInvalidException;
 import ru.practicum.shareit.item.exceptions.ItemSecurityException;
 import ru.practicum.shareit.item.exceptions.ItemUnknownException;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.requests.ItemRequest;
 import ru.practicum.shareit.requests.ItemRequestRepository;
 import ru.practicum.shareit.requests.exceptions.ItemRequestUnknownException;
@@ -21,11 +36,16 @@ import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -41,6 +61,11 @@ class ItemServiceImplTest {
     BookingRepository bookingRepository;
     CommentRepository commentRepository;
     ItemRequestRepository itemRequestRepository;
+    ItemSearchIndex itemSearchIndex;
+    ItemSearchCache itemSearchCache;
+    BookingIntervalIndex bookingIntervalIndex;
+    BookingViewRepository bookingViewRepository;
+    ArchivedBookingRepository archivedBookingRepository;
 
     private Long unknownUserId = 100L;
     private Boolean available = Boolean.TRUE;
@@ -74,11 +99,17 @@ class ItemServiceImplTest {
     private Booking nextBooking;
     private ItemBookingInfoDto lastBookingDto;
     private ItemBookingInfoDto nextBookingDto;
+    private BookingShortDto lastBookingShortDto;
+    private BookingShortDto nextBookingShortDto;
 
     private Comment comment1;
     private Comment comment2;
     private CommentDto commentDto1;
     private CommentDto commentDto2;
+    private ItemCommentDto itemCommentDto1;
+    private ItemCommentDto itemCommentDto2;
+    private ItemDetailsDto item4DetailsWithComment1;
+    private ItemDetailsDto item4DetailsWithComment2;
 
     private ItemRequest itemRequest;
 
@@ -89,13 +120,28 @@ class ItemServiceImplTest {
         bookingRepository = mock(BookingRepository.class);
         commentRepository = mock(CommentRepository.class);
         itemRequestRepository = mock(ItemRequestRepository.class);
+        itemSearchIndex = mock(ItemSearchIndex.class);
+        itemSearchCache = mock(ItemSearchCache.class);
+        bookingIntervalIndex = mock(BookingIntervalIndex.class);
+        bookingViewRepository = mock(BookingViewRepository.class);
+        archivedBookingRepository = mock(ArchivedBookingRepository.class);
+
+        //по умолчанию кэш поиска пропускает запрос дальше
+        when(itemSearchCache.get(any(String.class), any(Integer.class), any(Integer.class), any()))
+                .thenAnswer((invocation) -> invocation.getArgument(3, Supplier.class).get());
 
         itemService = new ItemServiceImpl(
                 itemRepository,
                 userRepository,
                 bookingRepository,
                 commentRepository,
-                itemRequestRepository
+                itemRequestRepository,
+                itemSearchIndex,
+                itemSearchCache,
+                bookingIntervalIndex,
+                bookingViewRepository,
+                archivedBookingRepository,
+                new JsonStreamWriter(new ObjectMapper().findAndRegisterModules())
         );
 
         user1 = new User(1L,"User_name_1", "User1@email.ru");
@@ -193,6 +239,14 @@ class ItemServiceImplTest {
                 BookingStatus.CANCELED
         );
 
+        lastBookingShortDto = new BookingShortDto(
+                1L,
+                LocalDateTime.parse(LocalDateTime.now().minusDays(3L).format(formatter), formatter),
+                LocalDateTime.parse(LocalDateTime.now().minusDays(2L).format(formatter), formatter),
+                item4.getId(),
+                user1.getId()
+        );
+
         nextBookingDto = new ItemBookingInfoDto(
                 2L,
                 LocalDateTime.parse(LocalDateTime.now().plusDays(2L).format(formatter), formatter),
@@ -209,6 +263,14 @@ class ItemServiceImplTest {
                 BookingStatus.APPROVED
         );
 
+        nextBookingShortDto = new BookingShortDto(
+                2L,
+                LocalDateTime.parse(LocalDateTime.now().plusDays(2L).format(formatter), formatter),
+                LocalDateTime.parse(LocalDateTime.now().plusDays(3L).format(formatter), formatter),
+                item4.getId(),
+                user2.getId()
+        );
+
         commentDto1 = new CommentDto(
                 1L,
                 "Comment_1_text",
@@ -239,6 +301,50 @@ class ItemServiceImplTest {
                 LocalDateTime.parse(LocalDateTime.now().minusHours(1L).format(formatter), formatter)
         );
 
+        itemCommentDto1 = new ItemCommentDto(
+                1L,
+                item4.getId(),
+                "Comment_1_text",
+                "User_name_1",
+                LocalDateTime.parse(LocalDateTime.now().minusDays(1L).format(formatter), formatter)
+        );
+
+        itemCommentDto2 = new ItemCommentDto(
+                2L,
+                item4.getId(),
+                "Comment_2_text",
+                "User_name_2",
+                LocalDateTime.parse(LocalDateTime.now().minusHours(1L).format(formatter), formatter)
+        );
+
+        item4DetailsWithComment1 = new ItemDetailsDto(
+                4L,
+                "item_name_4",
+                "item_desc_4",
+                available,
+                user3.getId(),
+                1L,
+                0L,
+                1L,
+                "Comment_1_text",
+                "User_name_1",
+                LocalDateTime.parse(LocalDateTime.now().minusDays(1L).format(formatter), formatter)
+        );
+
+        item4DetailsWithComment2 = new ItemDetailsDto(
+                4L,
+                "item_name_4",
+                "item_desc_4",
+                available,
+                user3.getId(),
+                1L,
+                0L,
+                2L,
+                "Comment_2_text",
+                "User_name_2",
+                LocalDateTime.parse(LocalDateTime.now().minusHours(1L).format(formatter), formatter)
+        );
+
         item4FullInfoDto = new ItemWithBookingsAndCommentsDto(
                 4L,
                 "item_name_4",
@@ -273,6 +379,8 @@ class ItemServiceImplTest {
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRequestRepository, times(0)).findById(any(Long.class));
         verify(itemRepository, times(1)).save(any(Item.class));
+        verify(itemSearchIndex, times(1)).index(any(ItemDto.class));
+        verify(itemSearchCache, times(1)).evict(isNull(), any(ItemDto.class));
     }
 
     @Test
@@ -344,6 +452,94 @@ class ItemServiceImplTest {
         verify(itemRepository, times(0)).save(any(Item.class));
     }
 
+    @Test
+    void testSuccessCreateItems() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user1));
+
+        when(itemRequestRepository.findAllById(anySet()))
+                .thenReturn(List.of(itemRequest));
+
+        when(itemRepository.saveAll(anyList()))
+                .thenReturn(List.of(item1, item3));
+
+        final List<ItemDto> result = itemService.createItems(List.of(item1Dto, item3Dto), user1.getId());
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(item1Dto.getId(), result.get(0).getId());
+        assertEquals(item1Dto.getName(), result.get(0).getName());
+        assertEquals(item1Dto.getRequestId(), result.get(0).getRequestId());
+        assertEquals(item3Dto.getId(), result.get(1).getId());
+        assertEquals(item3Dto.getName(), result.get(1).getName());
+        assertEquals(item3Dto.getRequestId(), result.get(1).getRequestId());
+
+        verify(userRepository, times(1)).findById(any(Long.class));
+        verify(itemRequestRepository, times(1)).findAllById(anySet());
+        verify(itemRequestRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(1)).saveAll(anyList());
+        verify(itemRepository, times(0)).save(any(Item.class));
+        verify(itemSearchIndex, times(2)).index(any(ItemDto.class));
+        verify(itemSearchCache, times(2)).evict(isNull(), any(ItemDto.class));
+    }
+
+    @Test
+    void testSuccessCreateItemsWithoutRequests() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user1));
+
+        when(itemRepository.saveAll(anyList()))
+                .thenReturn(List.of(item1, item2));
+
+        final List<ItemDto> result = itemService.createItems(List.of(item1Dto, item2Dto), user1.getId());
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+
+        verify(itemRequestRepository, times(0)).findAllById(anySet());
+        verify(itemRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void testGetExceptionCreateItemsWithUnknownUserId() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.empty());
+
+        final UserUnknownException exception = assertThrows(
+                UserUnknownException.class,
+                () -> itemService.createItems(List.of(item1Dto, item3Dto), unknownUserId)
+        );
+
+        final String expectedMessage = String.format("Пользователь с %d не найден.", unknownUserId);
+
+        assertEquals(expectedMessage, exception.getMessage());
+
+        verify(itemRequestRepository, times(0)).findAllById(anySet());
+        verify(itemRepository, times(0)).saveAll(anyList());
+    }
+
+    @Test
+    void testGetExceptionCreateItemsWithUnknownRequest() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user1));
+
+        when(itemRequestRepository.findAllById(anySet()))
+                .thenReturn(Collections.emptyList());
+
+        final ItemRequestUnknownException exception = assertThrows(
+                ItemRequestUnknownException.class,
+                () -> itemService.createItems(List.of(item1Dto, item3Dto), user1.getId())
+        );
+
+        final String expectedMessage = String.format("Запрос вещи с %d не найден.", item3Dto.getRequestId());
+
+        assertEquals(expectedMessage, exception.getMessage());
+
+        //ни одна вещь не должна быть создана
+        verify(itemRepository, times(0)).saveAll(anyList());
+        verify(itemSearchIndex, times(0)).index(any(ItemDto.class));
+    }
+
     @Test
     void testSuccessUpdateItem() {
         when(userRepository.findById(any(Long.class)))
@@ -367,6 +563,63 @@ class ItemServiceImplTest {
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(1)).save(any(Item.class));
+        verify(itemSearchIndex, times(1)).index(any(ItemDto.class));
+        verify(itemSearchCache, times(1)).evict(any(ItemDto.class), any(ItemDto.class));
+        verify(bookingViewRepository, times(1)).updateItem(item1Dto.getId(), item1Dto.getName(),
+                item1Dto.getDescription(), item1Dto.getAvailable());
+    }
+
+    //внутри транзакции индекс и кэш поиска меняются только после ее фиксации
+    @Test
+    void testUpdateItemChangesSearchOnlyAfterCommit() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user1));
+
+        when(itemRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(item1));
+
+        when(itemRepository.save(any(Item.class)))
+                .thenReturn(item1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            itemService.updateItem(item1Dto.getId(), item1Dto, user1.getId());
+
+            verify(itemSearchIndex, times(0)).index(any(ItemDto.class));
+            verify(itemSearchCache, times(0)).evict(any(ItemDto.class), any(ItemDto.class));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(itemSearchIndex, times(1)).index(any(ItemDto.class));
+        verify(itemSearchCache, times(1)).evict(any(ItemDto.class), any(ItemDto.class));
+    }
+
+    @Test
+    void testRolledBackUpdateItemLeavesSearchUnchanged() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user1));
+
+        when(itemRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(item1));
+
+        when(itemRepository.save(any(Item.class)))
+                .thenReturn(item1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            itemService.updateItem(item1Dto.getId(), item1Dto, user1.getId());
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(itemSearchIndex, times(0)).index(any(ItemDto.class));
+        verify(itemSearchCache, times(0)).evict(any(ItemDto.class), any(ItemDto.class));
     }
 
     @Test
@@ -539,23 +792,11 @@ class ItemServiceImplTest {
 
     @Test
     void testSuccessGetItemByIdForOwner() {
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(user3));
-
-        when(itemRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(item4));
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(List.of(item4DetailsWithComment1, item4DetailsWithComment2));
 
-        when(bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking, nextBooking));
-
-        when(commentRepository.findAllByItem_IdOrderByCreatedDesc(item4.getId()))
-                .thenReturn(List.of(comment1, comment2));
-
-        when(bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking));
-
-        when(bookingRepository.findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(nextBooking));
+        when(bookingRepository.findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(lastBookingShortDto, nextBookingShortDto));
 
         final ItemWithBookingsAndCommentsDto result = itemService.getItemById(item4.getId(), user3.getId());
 
@@ -590,33 +831,61 @@ class ItemServiceImplTest {
         assertEquals(item4FullInfoDto.getComments().get(1).getAuthorName(), result.getComments().get(1).getAuthorName());
         assertEquals(item4FullInfoDto.getComments().get(1).getCreated(), result.getComments().get(1).getCreated());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(commentRepository, times(1)).findAllByItem_IdOrderByCreatedDesc(any(Long.class));
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(1)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
     }
 
     @Test
-    void testGetExceptionOnGetUnavailableItemByIdForSomeUser() {
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(user1));
+    void testSuccessGetItemByIdForOwnerWithCurrentBookingAsLast() {
+        //текущая бронь: началась день назад, закончится через день
+        BookingShortDto currentBookingShortDto = new BookingShortDto(
+                3L,
+                LocalDateTime.parse(LocalDateTime.now().minusDays(1L).format(formatter), formatter),
+                LocalDateTime.parse(LocalDateTime.now().plusDays(1L).format(formatter), formatter),
+                item4.getId(),
+                user2.getId()
+        );
 
-        when(itemRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(item4));
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(List.of(item4DetailsWithComment1));
+
+        when(bookingRepository.findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(currentBookingShortDto, nextBookingShortDto));
 
-        when(bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking, nextBooking));
+        final ItemWithBookingsAndCommentsDto result = itemService.getItemById(item4.getId(), user3.getId());
 
-        when(commentRepository.findAllByItem_IdOrderByCreatedDesc(item4.getId()))
-                .thenReturn(List.of(comment1, comment2));
+        assertNotNull(result);
 
-        when(bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking));
+        assertNotNull(result.getLastBooking());
+        assertEquals(currentBookingShortDto.getId(), result.getLastBooking().getId());
+        assertEquals(currentBookingShortDto.getBookerId(), result.getLastBooking().getBookerId());
 
-        when(bookingRepository.findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(nextBooking));
+        assertNotNull(result.getNextBooking());
+        assertEquals(nextBookingShortDto.getId(), result.getNextBooking().getId());
+
+        assertNotNull(result.getComments());
+        assertEquals(1, result.getComments().size());
+
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(1)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
+    }
+
+    @Test
+    void testGetExceptionOnGetUnavailableItemByIdForSomeUser() {
+        //вещь сейчас забронирована
+        item4DetailsWithComment1.setActiveBookingsCount(1L);
+        item4DetailsWithComment2.setActiveBookingsCount(1L);
+
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(List.of(item4DetailsWithComment1, item4DetailsWithComment2));
 
         final ItemUnknownException exception = assertThrows(
                 ItemUnknownException.class,
@@ -627,34 +896,18 @@ class ItemServiceImplTest {
 
         assertEquals(expectedMessage, exception.getMessage());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(commentRepository, times(1)).findAllByItem_IdOrderByCreatedDesc(any(Long.class));
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(0)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
     }
 
     @Test
     void testSuccessGetAvailableItemByIdForSomeUser() {
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(user1));
-
-        when(itemRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(item4));
-
-        when(bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(Collections.emptyList());
-
-        when(commentRepository.findAllByItem_IdOrderByCreatedDesc(item4.getId()))
-                .thenReturn(List.of(comment1, comment2));
-
-        when(bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking));
-
-        when(bookingRepository.findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(nextBooking));
-
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(List.of(item4DetailsWithComment1, item4DetailsWithComment2));
 
         final ItemWithBookingsAndCommentsDto result = itemService.getItemById(item4.getId(), user1.getId());
 
@@ -680,34 +933,57 @@ class ItemServiceImplTest {
         assertEquals(item4FullInfoDto.getComments().get(1).getAuthorName(), result.getComments().get(1).getAuthorName());
         assertEquals(item4FullInfoDto.getComments().get(1).getCreated(), result.getComments().get(1).getCreated());
 
-
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(commentRepository, times(1)).findAllByItem_IdOrderByCreatedDesc(any(Long.class));
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(0)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
     }
 
     @Test
-    void testGetExceptionOnGetItemByUnknownUserId() {
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.empty());
+    void testSuccessGetAvailableItemByIdWithoutCommentsForSomeUser() {
+        //вещь без комментариев - одна строка с пустыми полями комментария
+        ItemDetailsDto item4DetailsWithoutComments = new ItemDetailsDto(
+                4L,
+                "item_name_4",
+                "item_desc_4",
+                available,
+                user3.getId(),
+                1L,
+                0L,
+                null,
+                null,
+                null,
+                null
+        );
 
-        when(itemRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(item4));
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(List.of(item4DetailsWithoutComments));
 
-        when(bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking, nextBooking));
+        final ItemWithBookingsAndCommentsDto result = itemService.getItemById(item4.getId(), user1.getId());
 
-        when(commentRepository.findAllByItem_IdOrderByCreatedDesc(item4.getId()))
-                .thenReturn(List.of(comment1, comment2));
+        assertNotNull(result);
+        assertEquals(item4FullInfoDto.getId(), result.getId());
+        assertNotNull(result.getComments());
+        assertTrue(result.getComments().isEmpty());
 
-        when(bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking));
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(0)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
+    }
+
+    @Test
+    void testGetExceptionOnGetItemByUnknownUserId() {
+        //пользователя нет - подзапрос вернул 0
+        item4DetailsWithComment1.setUserCount(0L);
+        item4DetailsWithComment2.setUserCount(0L);
 
-        when(bookingRepository.findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(nextBooking));
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(List.of(item4DetailsWithComment1, item4DetailsWithComment2));
 
         final UserUnknownException exception = assertThrows(
                 UserUnknownException.class,
@@ -718,33 +994,46 @@ class ItemServiceImplTest {
 
         assertEquals(expectedMessage, exception.getMessage());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
         verify(itemRepository, times(0)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(commentRepository, times(0)).findAllByItem_IdOrderByCreatedDesc(any(Long.class));
+        verify(bookingRepository, times(0)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
     }
 
     @Test
-    void testGetExceptionOnGetItemByUnknownItemId() {
-        when(userRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(user1));
+    void testGetExceptionOnGetUnknownItemByUnknownUserId() {
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(Collections.emptyList());
 
-        when(itemRepository.findById(any(Long.class)))
-                .thenReturn(Optional.empty());
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(false);
 
-        when(bookingRepository.findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking, nextBooking));
+        final UserUnknownException exception = assertThrows(
+                UserUnknownException.class,
+                () -> itemService.getItemById(item4.getId(), user1.getId())
+        );
 
-        when(commentRepository.findAllByItem_IdOrderByCreatedDesc(item4.getId()))
-                .thenReturn(List.of(comment1, comment2));
+        final String expectedMessage = String.format("Пользователь с %d не найден.", user1.getId());
 
-        when(bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking));
+        assertEquals(expectedMessage, exception.getMessage());
 
-        when(bookingRepository.findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(nextBooking));
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(1)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(0)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
+    }
+
+    @Test
+    void testGetExceptionOnGetItemByUnknownItemId() {
+        when(itemRepository.findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList()))
+                .thenReturn(Collections.emptyList());
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
 
         final ItemUnknownException exception = assertThrows(
                 ItemUnknownException.class,
@@ -755,12 +1044,165 @@ class ItemServiceImplTest {
 
         assertEquals(expectedMessage, exception.getMessage());
 
-        verify(userRepository, times(1)).findById(any(Long.class));
-        verify(itemRepository, times(1)).findById(any(Long.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartBeforeAndEndAfter(anyList(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(commentRepository, times(0)).findAllByItem_IdOrderByCreatedDesc(any(Long.class));
+        verify(itemRepository, times(1)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(userRepository, times(1)).existsById(any(Long.class));
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(0)).findById(any(Long.class));
+        verify(bookingRepository, times(0)).findLastCurrentAndNextBookingsByItemId(any(Long.class), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
+    }
+
+    @Test
+    void testGetExceptionOnGetItemBookedNowByIndexForSomeUser() {
+        when(bookingIntervalIndex.isReady())
+                .thenReturn(true);
+
+        when(bookingIntervalIndex.isBusyAt(any(Long.class), any(LocalDateTime.class)))
+                .thenReturn(true);
+
+        when(itemRepository.findItemDetailsWithoutBookingsById(any(Long.class), any(Long.class)))
+                .thenReturn(List.of(item4DetailsWithComment1, item4DetailsWithComment2));
+
+        assertThrows(
+                ItemUnknownException.class,
+                () -> itemService.getItemById(item4.getId(), user1.getId())
+        );
+
+        verify(itemRepository, times(1)).findItemDetailsWithoutBookingsById(any(Long.class), any(Long.class));
+        verify(itemRepository, times(0)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+        verify(bookingIntervalIndex, times(1)).isBusyAt(eq(item4.getId()), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testSuccessGetItemFreeNowByIndexForSomeUser() {
+        when(bookingIntervalIndex.isReady())
+                .thenReturn(true);
+
+        when(bookingIntervalIndex.isBusyAt(any(Long.class), any(LocalDateTime.class)))
+                .thenReturn(false);
+
+        when(itemRepository.findItemDetailsWithoutBookingsById(any(Long.class), any(Long.class)))
+                .thenReturn(List.of(item4DetailsWithComment1, item4DetailsWithComment2));
+
+        final ItemWithBookingsAndCommentsDto result = itemService.getItemById(item4.getId(), user1.getId());
+
+        assertNotNull(result);
+        assertEquals(item4FullInfoDto.getId(), result.getId());
+        assertEquals(2, result.getComments().size());
+
+        verify(itemRepository, times(1)).findItemDetailsWithoutBookingsById(any(Long.class), any(Long.class));
+        verify(itemRepository, times(0)).findItemDetailsById(any(Long.class), any(Long.class), any(LocalDateTime.class), anyList());
+    }
+
+    @Test
+    void testSuccessGetItemAvailabilityFromRepository() {
+        LocalDateTime periodFrom = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime periodTo = periodFrom.plusDays(10);
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(itemRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(bookingRepository.findItemBookingsInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(
+                        new BookingShortDto(1L, periodFrom.minusDays(1), periodFrom.plusDays(2), item4.getId(), user1.getId()),
+                        new BookingShortDto(2L, periodFrom.plusDays(1), periodFrom.plusDays(3), item4.getId(), user2.getId()),
+                        new BookingShortDto(3L, periodFrom.plusDays(5), periodFrom.plusDays(6), item4.getId(), user1.getId())
+                ));
+
+        final ItemAvailabilityDto result = itemService.getItemAvailability(item4.getId(), user1.getId(), periodFrom, periodTo);
+
+        assertEquals(item4.getId(), result.getItemId());
+        assertEquals(4, result.getSlots().size());
+
+        //первые две брони пересекаются и дают один занятый отрезок, начало обрезано по периоду
+        assertSlot(result.getSlots().get(0), periodFrom, periodFrom.plusDays(3), false);
+        assertSlot(result.getSlots().get(1), periodFrom.plusDays(3), periodFrom.plusDays(5), true);
+        assertSlot(result.getSlots().get(2), periodFrom.plusDays(5), periodFrom.plusDays(6), false);
+        assertSlot(result.getSlots().get(3), periodFrom.plusDays(6), periodTo, true);
+
+        verify(bookingRepository, times(1)).findItemBookingsInPeriod(item4.getId(), BookingIntervalIndex.BUSY_STATUSES, periodFrom, periodTo);
+        verify(bookingIntervalIndex, times(0)).findItemBookingsInPeriod(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testSuccessGetItemAvailabilityFromIndex() {
+        LocalDateTime periodFrom = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime periodTo = periodFrom.plusDays(10);
+
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(itemRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(bookingIntervalIndex.isReady())
+                .thenReturn(true);
+
+        when(bookingIntervalIndex.findItemBookingsInPeriod(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+
+        final ItemAvailabilityDto result = itemService.getItemAvailability(item4.getId(), user1.getId(), periodFrom, periodTo);
+
+        assertEquals(1, result.getSlots().size());
+        assertSlot(result.getSlots().get(0), periodFrom, periodTo, true);
+
+        verify(bookingIntervalIndex, times(1)).findItemBookingsInPeriod(item4.getId(), periodFrom, periodTo);
+        verify(bookingRepository, times(0)).findItemBookingsInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testGetExceptionOnGetAvailabilityForUnknownUser() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(false);
+
+        final UserUnknownException exception = assertThrows(
+                UserUnknownException.class,
+                () -> itemService.getItemAvailability(item4.getId(), user1.getId(), LocalDateTime.now(), LocalDateTime.now().plusDays(1))
+        );
+
+        assertEquals(String.format("Пользователь с %d не найден.", user1.getId()), exception.getMessage());
+
+        verify(itemRepository, times(0)).existsById(any(Long.class));
+        verify(bookingRepository, times(0)).findItemBookingsInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testGetExceptionOnGetAvailabilityForInvertedPeriod() {
+        LocalDateTime periodFrom = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+        assertThrows(
+                ItemAvailabilityPeriodInvalidException.class,
+                () -> itemService.getItemAvailability(item4.getId(), user1.getId(), periodFrom, periodFrom.minusDays(1))
+        );
+
+        assertThrows(
+                ItemAvailabilityPeriodInvalidException.class,
+                () -> itemService.getItemAvailability(item4.getId(), user1.getId(), periodFrom, periodFrom)
+        );
+
+        verify(userRepository, times(0)).existsById(any(Long.class));
+        verify(itemRepository, times(0)).existsById(any(Long.class));
+    }
+
+    @Test
+    void testGetExceptionOnGetAvailabilityOfUnknownItem() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+
+        when(itemRepository.existsById(any(Long.class)))
+                .thenReturn(false);
+
+        final ItemUnknownException exception = assertThrows(
+                ItemUnknownException.class,
+                () -> itemService.getItemAvailability(item4.getId(), user1.getId(), LocalDateTime.now(), LocalDateTime.now().plusDays(1))
+        );
+
+        assertEquals(String.format("Не найдена вещь с id = %d", item4.getId()), exception.getMessage());
+
+        verify(bookingRepository, times(0)).findItemBookingsInPeriod(any(Long.class), anyList(), any(LocalDateTime.class), any(LocalDateTime.class));
     }
 
     @Test
@@ -771,14 +1213,12 @@ class ItemServiceImplTest {
         when(itemRepository.findItemsByOwnerId(any(Long.class), any(PageRequest.class)))
                 .thenReturn(List.of(item4));
 
-        when(commentRepository.findAllByItem_IdOrderByCreatedDesc(item4.getId()))
-                .thenReturn(List.of(comment1, comment2));
-
-        when(bookingRepository.findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(lastBooking));
+        when(commentRepository.findAllByItemIdsWithAuthorName(anyList()))
+                .thenReturn(List.of(itemCommentDto1, itemCommentDto2));
 
-        when(bookingRepository.findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class)))
-                .thenReturn(List.of(nextBooking));
+        when(bookingRepository.findLastCurrentAndNextBookingsByItemIds(anyList(), anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(candidate(lastBookingShortDto, ItemBookingCandidateDto.LAST),
+                        candidate(nextBookingShortDto, ItemBookingCandidateDto.NEXT)));
 
         final List<ItemWithBookingsAndCommentsDto> result = itemService.getAllItemsForUser(user3.getId(), from, size);
 
@@ -818,9 +1258,81 @@ class ItemServiceImplTest {
 
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(1)).findItemsByOwnerId(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(1)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(commentRepository, times(1)).findAllByItem_IdOrderByCreatedDesc(any(Long.class));
+        verify(bookingRepository, times(1)).findLastCurrentAndNextBookingsByItemIds(eq(List.of(item4.getId())),
+                eq(List.of(BookingStatus.CANCELED.name(), BookingStatus.APPROVED.name())), any(LocalDateTime.class));
+        verify(commentRepository, times(1)).findAllByItemIdsWithAuthorName(anyList());
+    }
+
+    @Test
+    void testSuccessGetAllItemsForUserWithCurrentBookingAsLast() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user3));
+
+        when(itemRepository.findItemsByOwnerId(any(Long.class), any(PageRequest.class)))
+                .thenReturn(List.of(item4));
+
+        when(commentRepository.findAllByItemIdsWithAuthorName(anyList()))
+                .thenReturn(Collections.emptyList());
+
+        when(bookingRepository.findLastCurrentAndNextBookingsByItemIds(anyList(), anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(candidate(lastBookingShortDto, ItemBookingCandidateDto.CURRENT)));
+
+        final List<ItemWithBookingsAndCommentsDto> result = itemService.getAllItemsForUser(user3.getId(), from, size);
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+
+        assertNotNull(result.get(0).getLastBooking());
+        assertEquals(lastBookingShortDto.getId(), result.get(0).getLastBooking().getId());
+        assertEquals(lastBookingShortDto.getBookerId(), result.get(0).getLastBooking().getBookerId());
+        assertNull(result.get(0).getNextBooking());
+
+        verify(bookingRepository, times(1)).findLastCurrentAndNextBookingsByItemIds(anyList(), anyList(), any(LocalDateTime.class));
+    }
+
+    //вещи читаются частями после последней вещи предыдущей части, пользователь проверяется один раз
+    @Test
+    void testSuccessStreamAllItemsForUser() throws Exception {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(true);
+        when(itemRepository.findItemsByOwnerIdAndIdGreaterThanOrderById(
+                user3.getId(), 0L, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)))
+                .thenReturn(items(1, JsonStreamWriter.CHUNK_SIZE));
+        when(itemRepository.findItemsByOwnerIdAndIdGreaterThanOrderById(
+                user3.getId(), (long) JsonStreamWriter.CHUNK_SIZE, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)))
+                .thenReturn(items(JsonStreamWriter.CHUNK_SIZE + 1, 1));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        itemService.streamAllItemsForUser(user3.getId()).writeTo(outputStream);
+
+        ItemWithBookingsAndCommentsDto[] result = new ObjectMapper().findAndRegisterModules().readValue(
+                outputStream.toString(StandardCharsets.UTF_8), ItemWithBookingsAndCommentsDto[].class);
+
+        assertEquals(JsonStreamWriter.CHUNK_SIZE + 1, result.length);
+        assertEquals(1L, result[0].getId());
+        assertEquals(JsonStreamWriter.CHUNK_SIZE + 1L, result[JsonStreamWriter.CHUNK_SIZE].getId());
+
+        verify(userRepository, times(1)).existsById(user3.getId());
+        verify(userRepository, times(0)).findById(any(Long.class));
+        verify(itemRepository, times(2)).findItemsByOwnerIdAndIdGreaterThanOrderById(
+                any(Long.class), any(Long.class), any(PageRequest.class));
+        verify(commentRepository, times(2)).findAllByItemIdsWithAuthorName(anyList());
+    }
+
+    @Test
+    void testGetExceptionOnStreamAllItemsForUnknownUser() {
+        when(userRepository.existsById(any(Long.class)))
+                .thenReturn(false);
+
+        final UserUnknownException exception = assertThrows(
+                UserUnknownException.class,
+                () -> itemService.streamAllItemsForUser(user1.getId())
+        );
+
+        assertEquals(String.format("Пользователь с %d не найден.", user1.getId()), exception.getMessage());
+
+        verify(itemRepository, times(0)).findItemsByOwnerIdAndIdGreaterThanOrderById(
+                any(Long.class), any(Long.class), any(PageRequest.class));
     }
 
     @Test
@@ -830,7 +1342,7 @@ class ItemServiceImplTest {
 
         final UserUnknownException exception = assertThrows(
                 UserUnknownException.class,
-                () -> itemService.getItemById(item4.getId(), user1.getId())
+                () -> itemService.getAllItemsForUser(user1.getId(), from, size)
         );
 
         final String expectedMessage = String.format("Пользователь с %d не найден.", user1.getId());
@@ -839,14 +1351,13 @@ class ItemServiceImplTest {
 
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(itemRepository, times(0)).findItemsByOwnerId(any(Long.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStatusInAndEndBefore(anyList(), anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(bookingRepository, times(0)).findAllByItem_IdInAndStartAfter(anyList(), any(LocalDateTime.class), any(PageRequest.class));
-        verify(commentRepository, times(0)).findAllByItem_IdOrderByCreatedDesc(any(Long.class));
+        verify(bookingRepository, times(0)).findLastCurrentAndNextBookingsByItemIds(anyList(), anyList(), any(LocalDateTime.class));
+        verify(commentRepository, times(0)).findAllByItemIdsWithAuthorName(anyList());
     }
 
     @Test
     void testSuccessGetEmptyListItemsWithUnknownKeyWord() {
-        when(itemRepository.findItemsByKeyWord(any(String.class), any(PageRequest.class)))
+        when(itemRepository.findItemsByKeyWord(any(String.class), any(Pageable.class)))
                 .thenReturn(Collections.emptyList());
 
         List<ItemDto> result = itemService.getItemsWithKeyWord(unknownKeyWord, from, size);
@@ -854,12 +1365,12 @@ class ItemServiceImplTest {
         assertNotNull(result);
         assertEquals(0, result.size());
 
-        verify(itemRepository, times(1)).findItemsByKeyWord(any(String.class), any(PageRequest.class));
+        verify(itemRepository, times(1)).findItemsByKeyWord(any(String.class), any(Pageable.class));
     }
 
     @Test
     void testSuccessGetEmptyListItemsWithNullOrBlankKeyWord() {
-        when(itemRepository.findItemsByKeyWord(any(String.class), any(PageRequest.class)))
+        when(itemRepository.findItemsByKeyWord(any(String.class), any(Pageable.class)))
                 .thenReturn(Collections.emptyList());
 
         List<ItemDto> result = itemService.getItemsWithKeyWord(nullKeyWord, from, size);
@@ -872,13 +1383,14 @@ class ItemServiceImplTest {
         assertNotNull(result2);
         assertEquals(0, result2.size());
 
-        verify(itemRepository, times(0)).findItemsByKeyWord(any(String.class), any(PageRequest.class));
+        verify(itemRepository, times(0)).findItemsByKeyWord(any(String.class), any(Pageable.class));
     }
 
     @Test
     void testSuccessListItemsWithKeyWord() {
-        when(itemRepository.findItemsByKeyWord(any(String.class), any(PageRequest.class)))
-                .thenReturn(List.of(item1, item2, item3));
+        //недоступная item2 отсекается запросом
+        when(itemRepository.findItemsByKeyWord(any(String.class), any(Pageable.class)))
+                .thenReturn(List.of(item1, item3));
 
         List<ItemDto> result = itemService.getItemsWithKeyWord(keyWord, from, size);
 
@@ -896,7 +1408,57 @@ class ItemServiceImplTest {
         assertEquals(item3Dto.getAvailable(), result.get(1).getAvailable());
         assertEquals(item3Dto.getRequestId(), result.get(1).getRequestId());
 
-        verify(itemRepository, times(1)).findItemsByKeyWord(any(String.class), any(PageRequest.class));
+        verify(itemRepository, times(1)).findItemsByKeyWord(any(String.class), any(Pageable.class));
+    }
+
+    @Test
+    void testSuccessListItemsWithKeyWordFromArbitraryOffset() {
+        when(itemRepository.findItemsByKeyWord(any(String.class), any(Pageable.class)))
+                .thenReturn(List.of(item3));
+
+        List<ItemDto> result = itemService.getItemsWithKeyWord(keyWord, 2, 2);
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals(item3Dto.getId(), result.get(0).getId());
+
+        //страница начинается ровно со второго элемента, а не округляется до границы страницы
+        verify(itemRepository, times(1)).findItemsByKeyWord(keyWord, OffsetPageRequest.of(2, 2));
+    }
+
+    @Test
+    void testSuccessListItemsWithKeyWordFromSearchIndex() {
+        when(itemSearchIndex.isReady())
+                .thenReturn(true);
+
+        when(itemSearchIndex.search(any(String.class), any(Integer.class), any(Integer.class)))
+                .thenReturn(List.of(item1Dto, item3Dto));
+
+        List<ItemDto> result = itemService.getItemsWithKeyWord(keyWord, from, size);
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertEquals(item1Dto.getId(), result.get(0).getId());
+        assertEquals(item3Dto.getId(), result.get(1).getId());
+
+        verify(itemSearchIndex, times(1)).search(keyWord, from, size);
+        verify(itemRepository, times(0)).findItemsByKeyWord(any(String.class), any(Pageable.class));
+    }
+
+    @Test
+    void testSuccessListItemsWithKeyWordFromCache() {
+        when(itemSearchCache.get(any(String.class), any(Integer.class), any(Integer.class), any()))
+                .thenReturn(List.of(item1Dto));
+
+        List<ItemDto> result = itemService.getItemsWithKeyWord(keyWord, from, size);
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals(item1Dto.getId(), result.get(0).getId());
+
+        verify(itemSearchCache, times(1)).get(eq(keyWord), eq(from), eq(size), any());
+        verify(itemSearchIndex, times(0)).search(any(String.class), any(Integer.class), any(Integer.class));
+        verify(itemRepository, times(0)).findItemsByKeyWord(any(String.class), any(Pageable.class));
     }
 
     @Test
@@ -924,6 +1486,34 @@ class ItemServiceImplTest {
         verify(userRepository,times(1)).findById(any(Long.class));
         verify(itemRepository,times(1)).findById(any(Long.class));
         verify(bookingRepository,times(1)).findBookingByBooker_IdAndItem_IdAndEndBefore(any(Long.class), any(Long.class), any(LocalDateTime.class));
+        verify(archivedBookingRepository,times(0)).existsByBookerIdAndItemIdAndEndBefore(any(Long.class), any(Long.class), any(LocalDateTime.class));
+        verify(commentRepository,times(1)).save(any(Comment.class));
+    }
+
+    @Test
+    void testSuccessAddNewCommentByItemIdWithArchivedBooking() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user1));
+
+        when(itemRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(item4));
+
+        when(bookingRepository.findBookingByBooker_IdAndItem_IdAndEndBefore(any(Long.class), any(Long.class), any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+
+        when(archivedBookingRepository.existsByBookerIdAndItemIdAndEndBefore(any(Long.class), any(Long.class), any(LocalDateTime.class)))
+                .thenReturn(true);
+
+        when(commentRepository.save(any(Comment.class)))
+                .thenReturn(comment1);
+
+        final CommentDto commentDtoResult = itemService.addNewCommentByItemId(item4.getId(), commentDto1, user1.getId());
+
+        assertNotNull(commentDtoResult);
+        assertEquals(commentDto1.getId(), commentDtoResult.getId());
+
+        verify(archivedBookingRepository,times(1)).existsByBookerIdAndItemIdAndEndBefore(
+                eq(user1.getId()), eq(item4.getId()), any(LocalDateTime.class));
         verify(commentRepository,times(1)).save(any(Comment.class));
     }
 
@@ -995,4 +1585,50 @@ class ItemServiceImplTest {
         verify(bookingRepository,times(1)).findBookingByBooker_IdAndItem_IdAndEndBefore(any(Long.class), any(Long.class), any(LocalDateTime.class));
         verify(commentRepository,times(0)).save(any(Comment.class));
     }
-}
\ No newline at end of file
+
+    private List<Item> items(long firstId, int count) {
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj((id) -> new Item(id, "Item_name_" + id, "Item_desc_" + id, Boolean.TRUE, user3, null))
+                .collect(Collectors.toList());
+    }
+
+    private void assertSlot(AvailabilitySlotDto slot, LocalDateTime start, LocalDateTime end, boolean available) {
+        assertEquals(start, slot.getStart());
+        assertEquals(end, slot.getEnd());
+        assertEquals(available, slot.getAvailable());
+    }
+
+    private ItemBookingCandidateDto candidate(BookingShortDto booking, String kind) {
+        return new ItemBookingCandidateDto() {
+            @Override
+            public Long getId() {
+                return booking.getId();
+            }
+
+            @Override
+            public LocalDateTime getStartDate() {
+                return booking.getStart();
+            }
+
+            @Override
+            public LocalDateTime getEndDate() {
+                return booking.getEnd();
+            }
+
+            @Override
+            public Long getItemId() {
+                return booking.getItemId();
+            }
+
+            @Override
+            public Long getBookerId() {
+                return booking.getBookerId();
+            }
+
+            @Override
+            public String getKind() {
+                return kind;
+            }
+        };
+    }
+}
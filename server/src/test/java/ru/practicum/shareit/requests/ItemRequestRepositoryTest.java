@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
@@ -91,4 +92,23 @@ class ItemRequestRepositoryTest {
         assertEquals(request3.getDescription(), result.get(0).getDescription());
         assertEquals(request3.getRequester().getId(), result.get(0).getRequester().getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getRequestsForUser1BeforeRequest2() {
+        List<ItemRequest> result = itemRequestRepository.findAllByRequester_IdAndIdLessThanOrderByIdDesc(
+                user1.getId(), request2.getId(), PageRequest.of(0, 10));
+
+        assertEquals(1, result.size());
+        assertEquals(request1.getId(), result.get(0).getId());
+    }
+
+    @Test
+    void getRequestsOfOtherUsersForUser2NewestFirst() {
+        List<ItemRequest> result = itemRequestRepository.findAllByRequester_IdNotAndIdLessThanOrderByIdDesc(
+                user2.getId(), Long.MAX_VALUE, PageRequest.of(0, 10));
+
+        assertEquals(2, result.size());
+        assertEquals(request2.getId(), result.get(0).getId());
+        assertEquals(request1.getId(), result.get(1).getId());
+    }
+}
@@ -1,10 +1,13 @@
 package ru.practicum.shareit.requests.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.common.JsonStreamWriter;
 import ru.practicum.shareit.item.Item;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -18,10 +21,14 @@ import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,6 +42,8 @@ class ItemRequestServiceImplTest {
     UserRepository userRepository;
     ItemRepository itemRepository;
 
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     private Long userId = 1L;
     private Long userId2 = 2L;
     private Long requestId = 1L;
@@ -60,7 +69,8 @@ class ItemRequestServiceImplTest {
         userRepository = mock(UserRepository.class);
         itemRepository = mock(ItemRepository.class);
 
-        itemRequestService = new ItemRequestServiceImpl(itemRequestRepository, userRepository, itemRepository);
+        itemRequestService = new ItemRequestServiceImpl(itemRequestRepository, userRepository, itemRepository,
+                new JsonStreamWriter(objectMapper));
 
         user = new User(userId, "User_name_1", "User1@email.ru");
         user2 = new User(userId2, "User_name_2", "User2@email.ru");
@@ -138,7 +148,7 @@ class ItemRequestServiceImplTest {
         when(itemRequestRepository.getAllByRequester_IdOrderByCreatedDesc(userId))
                 .thenReturn(List.of(itemRequest));
 
-        when(itemRepository.findAllByRequest_Id(requestId))
+        when(itemRepository.findAllByRequest_IdInOrderById(List.of(requestId)))
                 .thenReturn(List.of(item));
 
         final List<ItemRequestWithItemInfoDto> requests = itemRequestService.getItemRequestsByOwnerId(userId);
@@ -158,7 +168,7 @@ class ItemRequestServiceImplTest {
 
         verify(userRepository, times(1)).findById(userId);
         verify(itemRequestRepository, times(1)).getAllByRequester_IdOrderByCreatedDesc(userId);
-        verify(itemRepository, times(1)).findAllByRequest_Id(requestId);
+        verify(itemRepository, times(1)).findAllByRequest_IdInOrderById(List.of(requestId));
     }
 
     @Test
@@ -169,7 +179,7 @@ class ItemRequestServiceImplTest {
         when(itemRequestRepository.getAllByRequester_IdOrderByCreatedDesc(userId))
                 .thenReturn(List.of(itemRequest));
 
-        when(itemRepository.findAllByRequest_Id(requestId))
+        when(itemRepository.findAllByRequest_IdInOrderById(List.of(requestId)))
                 .thenReturn(List.of(item));
 
         final UserUnknownException exception = assertThrows(
@@ -183,9 +193,51 @@ class ItemRequestServiceImplTest {
 
         verify(userRepository, times(1)).findById(userId);
         verify(itemRequestRepository, times(0)).getAllByRequester_IdOrderByCreatedDesc(any(Long.class));
+        verify(itemRepository, times(0)).findAllByRequest_IdInOrderById(anyCollection());
+    }
+
+    //вещи всех запросов загружаются одним обращением и раскладываются по своим запросам
+    @Test
+    void testSuccessGetItemRequestsByOwnerIdGroupsItemsByRequest() {
+        List<ItemRequest> ownerRequests = requests(1, 3);
+        Item item2 = new Item(2L, "Item_2_name", "Item_desc_2", available, user2, ownerRequests.get(2));
+        Item item3 = new Item(3L, "Item_3_name", "Item_desc_3", available, user2, ownerRequests.get(0));
+
+        when(userRepository.findById(userId))
+                .thenReturn(Optional.of(user));
+
+        when(itemRequestRepository.getAllByRequester_IdOrderByCreatedDesc(userId))
+                .thenReturn(ownerRequests);
+
+        when(itemRepository.findAllByRequest_IdInOrderById(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(item, item2, item3));
+
+        final List<ItemRequestWithItemInfoDto> requests = itemRequestService.getItemRequestsByOwnerId(userId);
+
+        assertEquals(List.of(1L, 2L, 3L), requests.stream().map(ItemRequestWithItemInfoDto::getId).collect(Collectors.toList()));
+        assertEquals(List.of(itemId, 3L), requests.get(0).getItems().stream().map(ItemDto::getId).collect(Collectors.toList()));
+        assertTrue(requests.get(1).getItems().isEmpty());
+        assertEquals(List.of(2L), requests.get(2).getItems().stream().map(ItemDto::getId).collect(Collectors.toList()));
+
+        verify(itemRepository, times(1)).findAllByRequest_IdInOrderById(anyCollection());
         verify(itemRepository, times(0)).findAllByRequest_Id(any(Long.class));
     }
 
+    @Test
+    void testSuccessGetAllItemRequestsWithoutOthersRequests() {
+        when(userRepository.findById(userId))
+                .thenReturn(Optional.of(user));
+
+        when(itemRequestRepository.findAll(pageRequest))
+                .thenReturn(new PageImpl<>(List.of(itemRequest)));
+
+        final List<ItemRequestWithItemInfoDto> requests = itemRequestService.getAllItemRequests(userId, from, size);
+
+        assertTrue(requests.isEmpty());
+
+        verify(itemRepository, times(0)).findAllByRequest_IdInOrderById(anyCollection());
+    }
+
 
     @Test
     void testSuccessGetAllItemRequests() {
@@ -196,7 +248,7 @@ class ItemRequestServiceImplTest {
         when(itemRequestRepository.findAll(pageRequest))
                 .thenReturn(page);
 
-        when(itemRepository.findAllByRequest_Id(requestId))
+        when(itemRepository.findAllByRequest_IdInOrderById(List.of(requestId)))
                 .thenReturn(List.of(item));
 
         final List<ItemRequestWithItemInfoDto> requests = itemRequestService.getAllItemRequests(userId2, from, size);
@@ -216,7 +268,7 @@ class ItemRequestServiceImplTest {
 
         verify(userRepository, times(1)).findById(userId2);
         verify(itemRequestRepository, times(1)).findAll(pageRequest);
-        verify(itemRepository, times(1)).findAllByRequest_Id(requestId);
+        verify(itemRepository, times(1)).findAllByRequest_IdInOrderById(List.of(requestId));
     }
 
     @Test
@@ -228,7 +280,7 @@ class ItemRequestServiceImplTest {
         when(itemRequestRepository.findAll(pageRequest))
                 .thenReturn(page);
 
-        when(itemRepository.findAllByRequest_Id(requestId))
+        when(itemRepository.findAllByRequest_IdInOrderById(List.of(requestId)))
                 .thenReturn(List.of(item));
 
         final UserUnknownException exception = assertThrows(
@@ -242,7 +294,7 @@ class ItemRequestServiceImplTest {
 
         verify(userRepository, times(1)).findById(userId);
         verify(itemRequestRepository, times(0)).findAll(pageRequest);
-        verify(itemRepository, times(0)).findAllByRequest_Id(requestId);
+        verify(itemRepository, times(0)).findAllByRequest_IdInOrderById(anyCollection());
     }
 
     @Test
@@ -322,4 +374,63 @@ class ItemRequestServiceImplTest {
         verify(itemRequestRepository, times(1)).findById(requestId);
         verify(itemRepository, times(0)).findAllByRequest_Id(requestId);
     }
-}
\ No newline at end of file
+
+    //чужие запросы отбираются запросом к БД частями перед последним запросом предыдущей части, пока часть полная
+    @Test
+    void testSuccessStreamAllItemRequests() throws Exception {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user2));
+        when(itemRequestRepository.findAllByRequester_IdNotAndIdLessThanOrderByIdDesc(
+                userId2, Long.MAX_VALUE, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)))
+                .thenReturn(requestsDesc(JsonStreamWriter.CHUNK_SIZE + 1, JsonStreamWriter.CHUNK_SIZE));
+        when(itemRequestRepository.findAllByRequester_IdNotAndIdLessThanOrderByIdDesc(
+                userId2, 2L, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)))
+                .thenReturn(requestsDesc(1, 1));
+        when(itemRepository.findAllByRequest_IdInOrderById(anyCollection()))
+                .thenReturn(List.of(item));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        itemRequestService.streamAllItemRequests(userId2).writeTo(outputStream);
+
+        ItemRequestWithItemInfoDto[] result = objectMapper.readValue(
+                outputStream.toString(StandardCharsets.UTF_8), ItemRequestWithItemInfoDto[].class);
+
+        assertEquals(JsonStreamWriter.CHUNK_SIZE + 1, result.length);
+        assertEquals(JsonStreamWriter.CHUNK_SIZE + 1L, result[0].getId());
+        assertEquals(1L, result[JsonStreamWriter.CHUNK_SIZE].getId());
+        assertEquals(itemId, result[JsonStreamWriter.CHUNK_SIZE].getItems().get(0).getId());
+
+        verify(itemRequestRepository, times(2)).findAllByRequester_IdNotAndIdLessThanOrderByIdDesc(
+                any(Long.class), any(Long.class), any(Pageable.class));
+        verify(itemRepository, times(2)).findAllByRequest_IdInOrderById(anyCollection());
+    }
+
+    @Test
+    void testGetExceptionOnStreamItemRequestsByUnknownOwnerId() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.empty());
+
+        final UserUnknownException exception = assertThrows(
+                UserUnknownException.class,
+                () -> itemRequestService.streamItemRequestsByOwnerId(userId)
+        );
+
+        assertEquals(String.format("Пользователь с %d не найден.", userId), exception.getMessage());
+
+        verify(itemRequestRepository, times(0)).findAllByRequester_IdAndIdLessThanOrderByIdDesc(
+                any(Long.class), any(Long.class), any(Pageable.class));
+    }
+
+    private List<ItemRequest> requests(long firstId, int count) {
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj((id) -> new ItemRequest(id, "Description_" + id, user, itemRequest.getCreated()))
+                .collect(Collectors.toList());
+    }
+
+    //запросы с id от lastId вниз - сначала новые, как их отдает репозиторий
+    private List<ItemRequest> requestsDesc(long lastId, int count) {
+        return LongStream.range(0, count)
+                .mapToObj((i) -> new ItemRequest(lastId - i, "Description_" + (lastId - i), user, itemRequest.getCreated()))
+                .collect(Collectors.toList());
+    }
+}
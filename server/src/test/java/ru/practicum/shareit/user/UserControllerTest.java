@@ -9,6 +9,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.exceptions.UserAlreadyExistEmailException;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
@@ -172,4 +173,25 @@ class UserControllerTest {
 
         verify(userService, times(1)).deleteUserById(any(Long.class));
     }
-}
\ No newline at end of file
+
+    //stream=true: список пишется в ответ после выхода из метода контроллера
+    @Test
+    void getSuccessStreamAllUsers() throws Exception {
+        when(userService.streamAllUsers())
+                .thenReturn((outputStream) -> outputStream.write(mapper.writeValueAsBytes(List.of(userDto, userDto2))));
+
+        MvcResult result = mockMvc.perform(get("/users")
+                    .param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].email").value(userDto2.getEmail()));
+
+        verify(userService, times(1)).streamAllUsers();
+        verify(userService, times(0)).getAllUsers();
+    }
+}
@@ -1,8 +1,17 @@
 package ru.practicum.shareit.user.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.booking.view.BookingViewRepository;
+import ru.practicum.shareit.common.JsonStreamWriter;
+import ru.practicum.shareit.item.Item;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -10,8 +19,12 @@ import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.exceptions.UserAlreadyExistEmailException;
 import ru.practicum.shareit.user.exceptions.UserUnknownException;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -23,6 +36,16 @@ class UserServiceImplTest {
 
     UserRepository userRepository;
 
+    BookingViewRepository bookingViewRepository;
+
+    ItemRepository itemRepository;
+
+    ItemSearchIndex itemSearchIndex;
+
+    ItemSearchCache itemSearchCache;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
     private Long userId = 1L;
     private Long userId2 = 2L;
     private Long unknownUserId = 100L;
@@ -34,7 +57,12 @@ class UserServiceImplTest {
     @BeforeEach
     void beforeEach() {
         userRepository = mock(UserRepository.class);
-        userService = new UserServiceImpl(userRepository);
+        bookingViewRepository = mock(BookingViewRepository.class);
+        itemRepository = mock(ItemRepository.class);
+        itemSearchIndex = mock(ItemSearchIndex.class);
+        itemSearchCache = mock(ItemSearchCache.class);
+        userService = new UserServiceImpl(userRepository, bookingViewRepository, itemRepository, itemSearchIndex,
+                itemSearchCache, new JsonStreamWriter(objectMapper));
         userDto = new UserDto(userId, "User_name_1", "User1@email.ru");
         user = UserMapper.toUser(userDto);
         userDto2 = new UserDto(userId2, "User_name_2", "User2@email.ru");
@@ -82,7 +110,7 @@ class UserServiceImplTest {
         userDto.setName(updatedName);
         userDto.setEmail(updatedEmail);
 
-        when(userRepository.save(user))
+        when(userRepository.saveAndFlush(user))
                 .thenReturn(user);
 
         final UserDto userDto1 = userService.updateUserById(userId, userDto);
@@ -91,7 +119,8 @@ class UserServiceImplTest {
         assertEquals(updatedEmail, userDto1.getEmail());
 
         verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).saveAndFlush(user);
+        verify(bookingViewRepository, times(1)).updateBooker(userId, updatedName, updatedEmail);
     }
 
     @Test
@@ -105,7 +134,7 @@ class UserServiceImplTest {
         userDto.setName(updatedName);
         userDto.setEmail(null);
 
-        when(userRepository.save(user))
+        when(userRepository.saveAndFlush(user))
                 .thenReturn(user);
 
         final UserDto userDto1 = userService.updateUserById(userId, userDto);
@@ -114,7 +143,7 @@ class UserServiceImplTest {
         assertEquals(previousEmail, userDto1.getEmail());
 
         verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).saveAndFlush(user);
     }
 
     @Test
@@ -128,7 +157,7 @@ class UserServiceImplTest {
         userDto.setName(null);
         userDto.setEmail(updatedEmail);
 
-        when(userRepository.save(user))
+        when(userRepository.saveAndFlush(user))
                 .thenReturn(user);
 
         final UserDto userDto1 = userService.updateUserById(userId, userDto);
@@ -137,7 +166,7 @@ class UserServiceImplTest {
         assertEquals(updatedEmail, userDto1.getEmail());
 
         verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).saveAndFlush(user);
     }
 
     @Test
@@ -145,7 +174,7 @@ class UserServiceImplTest {
         when(userRepository.findById(userId))
                 .thenReturn(Optional.of(user));
 
-        when(userRepository.save(user))
+        when(userRepository.saveAndFlush(user))
                 .thenThrow(new DataIntegrityViolationException(userDto.getEmail()));
 
         final String expectedMessage = String.format("Пользователь с таким email = %s уже существует.", userDto.getEmail());
@@ -157,7 +186,8 @@ class UserServiceImplTest {
         assertEquals(expectedMessage, exception.getMessage());
 
         verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).saveAndFlush(user);
+        verify(bookingViewRepository, times(0)).updateBooker(any(Long.class), any(String.class), any(String.class));
     }
 
     @Test
@@ -165,7 +195,7 @@ class UserServiceImplTest {
         when(userRepository.findById(userId))
                 .thenReturn(Optional.empty());
 
-        when(userRepository.save(user))
+        when(userRepository.saveAndFlush(user))
                 .thenReturn(user);
 
         final String expectedMessage = String.format("Пользователь с %d не найден.", userId);
@@ -177,7 +207,7 @@ class UserServiceImplTest {
         assertEquals(expectedMessage, exception.getMessage());
 
         verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(0)).save(user);
+        verify(userRepository, times(0)).saveAndFlush(user);
     }
 
     @Test
@@ -239,6 +269,24 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).delete(any(User.class));
     }
 
+    //вещи удаляются вместе с пользователем каскадом в БД - из поискового индекса и кэша их убирает сервис
+    @Test
+    void testSuccessDeleteUserByIdRemovesItemsFromSearch() {
+        when(userRepository.findById(any(Long.class)))
+                .thenReturn(Optional.of(user));
+
+        when(itemRepository.findALlItemsByOwnerId(any(Long.class)))
+                .thenReturn(List.of(
+                        new Item(10L, "item_name_10", "item_desc_10", Boolean.TRUE, user, null),
+                        new Item(11L, "item_name_11", "item_desc_11", Boolean.FALSE, user, null)));
+
+        userService.deleteUserById(userId);
+
+        verify(itemSearchIndex, times(1)).remove(10L);
+        verify(itemSearchIndex, times(1)).remove(11L);
+        verify(itemSearchCache, times(2)).evict(any(ItemDto.class), isNull());
+    }
+
     @Test
     void testGetExceptionOnDeleteUserByUnknownId() {
         when(userRepository.findById(any(Long.class)))
@@ -255,4 +303,47 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).findById(any(Long.class));
         verify(userRepository, times(0)).delete(any(User.class));
     }
-}
\ No newline at end of file
+
+    //полная часть - следующая загружается после последнего id, неполная часть - последняя
+    @Test
+    void testSuccessStreamAllUsers() throws Exception {
+        List<User> firstChunk = users(1, JsonStreamWriter.CHUNK_SIZE);
+        List<User> secondChunk = users(JsonStreamWriter.CHUNK_SIZE + 1, 5);
+
+        when(userRepository.findAllByIdGreaterThanOrderById(0L, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)))
+                .thenReturn(firstChunk);
+        when(userRepository.findAllByIdGreaterThanOrderById((long) JsonStreamWriter.CHUNK_SIZE, PageRequest.of(0, JsonStreamWriter.CHUNK_SIZE)))
+                .thenReturn(secondChunk);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userService.streamAllUsers().writeTo(outputStream);
+
+        UserDto[] result = objectMapper.readValue(outputStream.toString(StandardCharsets.UTF_8), UserDto[].class);
+
+        assertEquals(JsonStreamWriter.CHUNK_SIZE + 5, result.length);
+        assertEquals(1L, result[0].getId());
+        assertEquals("User_name_1", result[0].getName());
+        assertEquals(JsonStreamWriter.CHUNK_SIZE + 5L, result[result.length - 1].getId());
+
+        verify(userRepository, times(2)).findAllByIdGreaterThanOrderById(any(Long.class), any(PageRequest.class));
+        verify(userRepository, times(0)).findAll();
+    }
+
+    @Test
+    void testSuccessStreamEmptyUsers() throws Exception {
+        when(userRepository.findAllByIdGreaterThanOrderById(any(Long.class), any(PageRequest.class)))
+                .thenReturn(List.of());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userService.streamAllUsers().writeTo(outputStream);
+
+        assertEquals("[]", outputStream.toString(StandardCharsets.UTF_8));
+        verify(userRepository, times(1)).findAllByIdGreaterThanOrderById(any(Long.class), any(PageRequest.class));
+    }
+
+    private List<User> users(long firstId, int count) {
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj((id) -> new User(id, "User_name_" + id, "User" + id + "@email.ru"))
+                .collect(Collectors.toList());
+    }
+}